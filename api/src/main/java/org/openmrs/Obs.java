@@ -1209,6 +1209,14 @@ public class Obs extends BaseFormRecordableOpenmrsData {
 		}
 	}
 	
+	/**
+	 * Resets the dirty state, used by {@link ObsPostLoadEventListener} after hibernate has
+	 * populated a loaded Obs through its setters
+	 */
+	void clearDirty() {
+		dirty = false;
+	}
+	
 	/**
 	 * Similar to FHIR's Observation.interpretation. Supports a subset of FHIR's Observation
 	 * Interpretation Codes. See https://www.hl7.org/fhir/valueset-observation-interpretation.html
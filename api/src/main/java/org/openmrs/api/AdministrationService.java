@@ -20,6 +20,7 @@ import org.openmrs.ImplementationId;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.User;
 import org.openmrs.annotation.Authorized;
+import org.openmrs.api.cache.CacheMetrics;
 import org.openmrs.api.db.AdministrationDAO;
 import org.openmrs.util.HttpClient;
 import org.openmrs.util.OpenmrsConstants;
@@ -420,4 +421,19 @@ public interface AdministrationService extends OpenmrsService {
 	 * <strong>Should</strong> return default common classes if no GPs defined
 	 */
 	List<String> getSerializerWhitelistTypes();
+	
+	/**
+	 * Gets the statistics of the caches and of Hibernate since the start of OpenMRS: the hits, misses
+	 * and evictions of every region of the second-level cache and of every cache of the
+	 * <code>@Cacheable</code> methods, the entity loads and fetches, the effectiveness of the query
+	 * cache and the slowest queries.
+	 *
+	 * @param slowestQueryCount the maximum number of slowest queries to include
+	 * @return a snapshot of the statistics
+	 * @since 2.8.0
+	 * <strong>Should</strong> include the regions of the second-level cache and the api caches
+	 * <strong>Should</strong> include at most the given number of slowest queries
+	 */
+	@Authorized(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)
+	public CacheMetrics getCacheMetrics(int slowestQueryCount);
 }
@@ -13,6 +13,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.openmrs.Cohort;
 import org.openmrs.Encounter;
@@ -444,6 +445,28 @@ public interface EncounterService extends OpenmrsService {
 	 */
 	public Map<Integer, List<Encounter>> getAllEncounters(Cohort patients);
 	
+	/**
+	 * Gets all encounters for a cohort of patients in batches of patients, so that large cohorts
+	 * can be processed without holding all their encounters in memory at once. The obs and
+	 * encounter providers of each batch are fetched together with the encounters, and the entities
+	 * loaded for a batch are evicted from the hibernate session once it has been handled, so they
+	 * must not be used once the next one is passed to the handler. Entities the session already
+	 * held are left attached. Voided cohort memberships are ignored.
+	 * 
+	 * @param patients Cohort of patients to search, or null for all patients with encounters
+	 * @param batchSize the maximum number of patients per batch
+	 * @param batchHandler called once per batch with a map of patient id to the patient's
+	 *            encounters, ordered by patient id
+	 * @since 2.8.0
+	 * <strong>Should</strong> pass all encounters for a cohort of patients in batches
+	 * <strong>Should</strong> fetch obs and providers of the encounters
+	 * <strong>Should</strong> fail if batch size is not positive
+	 * <strong>Should</strong> not detach entities loaded before the call
+	 * <strong>Should</strong> ignore voided cohort memberships
+	 */
+	@Authorized( { PrivilegeConstants.GET_ENCOUNTERS })
+	public void getAllEncounters(Cohort patients, int batchSize, Consumer<Map<Integer, List<Encounter>>> batchHandler);
+	
 	/**
 	 * Return the number of encounters matching a patient name or patient identifier
 	 * 
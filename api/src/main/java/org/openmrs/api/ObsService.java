@@ -13,6 +13,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
@@ -24,6 +25,7 @@ import org.openmrs.Visit;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.ObsDAO;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ObsValues;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
 import org.openmrs.util.PrivilegeConstants;
 
@@ -537,4 +539,43 @@ public interface ObsService extends OpenmrsService {
 			List<Concept> answers, List<PERSON_TYPE> personTypes, List<Location> locations, List<Visit> visits,
 			Integer obsGroupId, Date fromDate, Date toDate, boolean includeVoidedObs, String accessionNumber)
 			throws APIException;
+
+	/**
+	 * Gets the values of the non voided observations for the given patients and question concepts
+	 * as primitive columns, without loading the Obs entities. This is meant for bulk reads such as
+	 * indicators and trends where only the numeric or coded value and the obsDatetime are needed.
+	 * 
+	 * @param cohort the patients to restrict to, or null for all persons
+	 * @param questions the question concepts to restrict to (required)
+	 * @param fromDate the earliest obsDatetime (optional)
+	 * @param toDate the latest obsDatetime (optional)
+	 * @return the matching values ordered by person, concept and obsDatetime
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> return values of obs matching given cohort and questions
+	 * <strong>Should</strong> return empty values if no questions are given
+	 * <strong>Should</strong> not include voided obs
+	 * <strong>Should</strong> restrict by fromDate and toDate
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public ObsValues getObsValues(Cohort cohort, List<Concept> questions, Date fromDate, Date toDate)
+	        throws APIException;
+
+	/**
+	 * Gets the most recent non voided obs, by obsDatetime, of each of the given question concepts
+	 * for each of the given persons in a single call. When several obs of a person and concept
+	 * share the latest obsDatetime the one with the highest id is returned. An obs entered after another
+	 * one but with an earlier obsDatetime, e.g. a backdated one, is therefore not the latest.
+	 * 
+	 * @param whom the persons to look up (required)
+	 * @param questions the question concepts to look up (required)
+	 * @return at most one obs per person and question, pairs without any obs are left out
+	 * @throws APIException
+	 * @since 2.8.0
+	 * <strong>Should</strong> return the latest obs for each person and question
+	 * <strong>Should</strong> not return voided obs
+	 * <strong>Should</strong> return an empty list if no persons or questions are given
+	 */
+	@Authorized(PrivilegeConstants.GET_OBS)
+	public List<Obs> getLatestObs(List<Person> whom, List<Concept> questions) throws APIException;
 }
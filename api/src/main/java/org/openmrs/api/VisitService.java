@@ -393,4 +393,20 @@ public interface VisitService extends OpenmrsService {
 	 */
 	@Authorized(PrivilegeConstants.EDIT_VISITS)
 	public void stopVisits(Date maximumStartDate);
+	
+	/**
+	 * Stops the next batch of the visits stopped by {@link #stopVisits(Date)}, so that the caller can
+	 * stop each batch in a transaction of its own. A visit with an unvoided encounter after the
+	 * current date time is stopped at its last encounter instead.
+	 * 
+	 * @param maximumStartDate Visits started on or before this date time value will get stopped
+	 * @param previousVisitId the id of the last visit of the previous batch, null for the first batch
+	 * @param batchSize the maximum number of visits in the batch
+	 * @return the ids of the visits of the batch, empty when there are no more visits to stop
+	 * @since 2.8.0
+	 * <strong>Should</strong> stop at most the given number of visits
+	 * <strong>Should</strong> stop a visit at its last encounter if it is after the current date
+	 */
+	@Authorized(PrivilegeConstants.EDIT_VISITS)
+	public List<Integer> stopVisits(Date maximumStartDate, Integer previousVisitId, int batchSize);
 }
@@ -19,6 +19,8 @@ import org.springframework.core.io.ClassPathResource;
 /**
  * CacheConfig provides a cache manager for the @Cacheable annotation and uses ehCache under the hood.
  * The config of ehCache is loaded from ehcache-api.xml and can be extended by modules through apiCacheConfig.properties.
+ * On a cluster, the caches are invalidated across the nodes when the cache.invalidation.transport runtime property names
+ * a {@link CacheInvalidationTransport}, see {@link CacheInvalidator}.
  * For more details see the wiki page at <a href="https://wiki.openmrs.org/x/IYaEBg">https://wiki.openmrs.org/x/IYaEBg</a>
  */
 @Configuration
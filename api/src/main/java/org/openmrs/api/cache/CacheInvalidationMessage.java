@@ -0,0 +1,84 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.io.Serializable;
+
+/**
+ * Tells the other nodes of a cluster to remove an entry, or all the entries, of one of their caches
+ * because it was changed on this node. A message with a value replaces the entry instead, e.g. the
+ * update timestamp of a table in the update timestamps region of Hibernate.
+ *
+ * @see CacheInvalidationTransport
+ * @since 2.8.0
+ */
+public class CacheInvalidationMessage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String cacheName;
+
+	private final Serializable key;
+
+	private final Serializable value;
+
+	/**
+	 * @param cacheName the name of the cache
+	 * @param key the key of the entry to remove, null to remove all the entries
+	 */
+	public CacheInvalidationMessage(String cacheName, Serializable key) {
+		this(cacheName, key, null);
+	}
+
+	/**
+	 * @param cacheName the name of the cache
+	 * @param key the key of the entry to replace
+	 * @param value the new value of the entry, null to remove it
+	 */
+	public CacheInvalidationMessage(String cacheName, Serializable key, Serializable value) {
+		this.cacheName = cacheName;
+		this.key = key;
+		this.value = value;
+	}
+
+	/**
+	 * @return the name of the cache
+	 */
+	public String getCacheName() {
+		return cacheName;
+	}
+
+	/**
+	 * @return the key of the entry to remove, null to remove all the entries
+	 */
+	public Serializable getKey() {
+		return key;
+	}
+
+	/**
+	 * @return the new value of the entry, null if it is to be removed
+	 */
+	public Serializable getValue() {
+		return value;
+	}
+
+	/**
+	 * @return whether all the entries of the cache are to be removed
+	 */
+	public boolean isAllEntries() {
+		return key == null;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheInvalidationMessage{cacheName=" + cacheName + ", key=" + (key == null ? "<all>" : key)
+		        + (value == null ? "" : ", value=" + value) + "}";
+	}
+}
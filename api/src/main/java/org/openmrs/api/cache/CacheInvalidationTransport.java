@@ -0,0 +1,48 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries the {@link CacheInvalidationMessage}s between the nodes of a cluster, so that each node can
+ * keep its caches local and still not serve entries changed by another node. <br>
+ * <br>
+ * A node uses one transport, chosen by the {@link CacheInvalidator#TRANSPORT_RUNTIME_PROPERTY}
+ * runtime property, e.g. backed by a message broker or a JCache provider with cluster events, and
+ * provided by a module. Implementations must have a public no-argument constructor and be thread
+ * safe. {@link LoopbackCacheInvalidationTransport} connects the nodes running in one JVM, for
+ * testing.
+ *
+ * @since 2.8.0
+ */
+public interface CacheInvalidationTransport {
+
+	/**
+	 * Sends a message to the receivers of all the other nodes, not to the ones of this node
+	 *
+	 * @param message the message
+	 */
+	void publish(CacheInvalidationMessage message);
+
+	/**
+	 * Starts handing the messages published by the other nodes to a receiver of this node
+	 *
+	 * @param receiver the receiver
+	 */
+	void addReceiver(Consumer<CacheInvalidationMessage> receiver);
+
+	/**
+	 * Stops handing the messages to a receiver
+	 *
+	 * @param receiver the receiver
+	 */
+	void removeReceiver(Consumer<CacheInvalidationMessage> receiver);
+}
@@ -0,0 +1,347 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.io.Serializable;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.openmrs.api.context.AuthenticatedPrincipalCache;
+import org.openmrs.api.context.Context;
+import org.openmrs.util.OpenmrsClassLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.distribution.CacheReplicator;
+import net.sf.ehcache.event.CacheManagerEventListener;
+
+/**
+ * Keeps the caches of an Ehcache {@link CacheManager} consistent with the ones of the other nodes of
+ * a cluster, by publishing a {@link CacheInvalidationMessage} through the
+ * {@link CacheInvalidationTransport} of the node when an entry changes, and by removing the entries
+ * named by the messages of the other nodes. <br>
+ * <br>
+ * The entries put in a cache after being loaded from the database are not published, only the ones
+ * which are updated or removed, and the entries locked by Hibernate before an update. The update
+ * timestamp of a table is copied to the other nodes, so that they only discard the query results
+ * reading that table, which assumes that the clocks of the nodes are synchronized. <br>
+ * <br>
+ * It is registered on the second-level cache of Hibernate by {@link OpenmrsEhcacheRegionFactory} and
+ * on the caches of the Spring <code>@Cacheable</code> methods by
+ * {@link OpenmrsCacheManagerFactoryBean}, only when a transport is configured. The invalidations of
+ * the {@link AuthenticatedPrincipalCache} are sent through the same transport.
+ *
+ * @since 2.8.0
+ */
+public class CacheInvalidator implements CacheReplicator, CacheManagerEventListener, Consumer<CacheInvalidationMessage> {
+
+	private static final Logger log = LoggerFactory.getLogger(CacheInvalidator.class);
+
+	/**
+	 * The runtime property naming the class of the {@link CacheInvalidationTransport} of this node, the
+	 * caches are not invalidated across nodes when it is not set
+	 */
+	public static final String TRANSPORT_RUNTIME_PROPERTY = "cache.invalidation.transport";
+
+	private static final Consumer<CacheInvalidationMessage> principalReceiver = AuthenticatedPrincipalCache::receive;
+
+	private static CacheInvalidationTransport transport;
+
+	private static boolean transportSet = false;
+
+	private final CacheManager cacheManager;
+
+	private final CacheInvalidationTransport cacheTransport;
+
+	private volatile Status status = Status.STATUS_UNINITIALISED;
+
+	CacheInvalidator(CacheManager cacheManager, CacheInvalidationTransport cacheTransport) {
+		this.cacheManager = cacheManager;
+		this.cacheTransport = cacheTransport;
+	}
+
+	/**
+	 * Gets the transport of this node, creating it on first use from the
+	 * {@link #TRANSPORT_RUNTIME_PROPERTY} runtime property. <br>
+	 * <br>
+	 * A transport which cannot be created yet, e.g. because the module providing it is not started,
+	 * is created again on the next call. The caches are registered again when the application
+	 * context is refreshed after starting the modules, and pick it up then.
+	 *
+	 * @return the transport, null if none is configured or it cannot be created yet
+	 */
+	public static synchronized CacheInvalidationTransport getTransport() {
+		if (transport == null && !transportSet) {
+			String className = StringUtils.trimToNull(Context.getRuntimeProperties().getProperty(TRANSPORT_RUNTIME_PROPERTY));
+			if (className != null) {
+				try {
+					CacheInvalidationTransport created = (CacheInvalidationTransport) OpenmrsClassLoader.getInstance()
+					        .loadClass(className).newInstance();
+					created.addReceiver(principalReceiver);
+					transport = created;
+					log.info("Invalidating the caches across nodes with {}", className);
+				}
+				catch (ClassNotFoundException e) {
+					log.info("The cache invalidation transport {} is not available yet, e.g. until its module is started",
+					    className);
+				}
+				catch (ReflectiveOperationException | ClassCastException e) {
+					log.error("Unable to create the cache invalidation transport {}", className, e);
+				}
+			}
+		}
+		return transport;
+	}
+
+	/**
+	 * Sets the transport of this node, e.g. for a module or a test, it only applies to the cache
+	 * managers registered later
+	 *
+	 * @param transport the transport, null to stop invalidating the caches across nodes
+	 */
+	public static synchronized void setTransport(CacheInvalidationTransport transport) {
+		if (CacheInvalidator.transport != null) {
+			CacheInvalidator.transport.removeReceiver(principalReceiver);
+		}
+		if (transport != null) {
+			transport.addReceiver(principalReceiver);
+		}
+		CacheInvalidator.transport = transport;
+		transportSet = true;
+	}
+
+	/**
+	 * Forgets the transport of this node, so that it is created again from the runtime property
+	 */
+	static synchronized void resetTransport() {
+		setTransport(null);
+		transportSet = false;
+	}
+
+	/**
+	 * Publishes a message to the other nodes through the transport of this node, e.g. for a cache
+	 * which is not managed by Ehcache
+	 *
+	 * @param message the message
+	 */
+	public static void publishToOtherNodes(CacheInvalidationMessage message) {
+		CacheInvalidationTransport nodeTransport = getTransport();
+		if (nodeTransport == null) {
+			return;
+		}
+		try {
+			nodeTransport.publish(message);
+		}
+		catch (RuntimeException e) {
+			log.error("Failed to publish {}", message, e);
+		}
+	}
+
+	/**
+	 * Registers an invalidator on all the caches of a cache manager, including the ones added later,
+	 * if a transport is configured
+	 *
+	 * @param cacheManager the cache manager
+	 * @return the invalidator, null if no transport is configured
+	 */
+	public static CacheInvalidator register(CacheManager cacheManager) {
+		return register(cacheManager, getTransport());
+	}
+
+	/**
+	 * Registers an invalidator on all the caches of a cache manager, including the ones added later
+	 *
+	 * @param cacheManager the cache manager
+	 * @param transport the transport of the node of the cache manager
+	 * @return the invalidator, null if the transport is null
+	 */
+	public static CacheInvalidator register(CacheManager cacheManager, CacheInvalidationTransport transport) {
+		if (transport == null) {
+			return null;
+		}
+		CacheInvalidator invalidator = new CacheInvalidator(cacheManager, transport);
+		cacheManager.getCacheManagerEventListenerRegistry().registerListener(invalidator);
+		for (String cacheName : cacheManager.getCacheNames()) {
+			invalidator.notifyCacheAdded(cacheName);
+		}
+		transport.addReceiver(invalidator);
+		invalidator.status = Status.STATUS_ALIVE;
+		return invalidator;
+	}
+
+	/**
+	 * Stops publishing and receiving the messages
+	 */
+	public void unregister() {
+		cacheTransport.removeReceiver(this);
+		status = Status.STATUS_SHUTDOWN;
+	}
+
+	/**
+	 * Removes or replaces the entries named by a message of another node, without publishing it again
+	 *
+	 * @see java.util.function.Consumer#accept(java.lang.Object)
+	 */
+	@Override
+	public void accept(CacheInvalidationMessage message) {
+		if (status != Status.STATUS_ALIVE || cacheManager.getStatus() != Status.STATUS_ALIVE) {
+			return;
+		}
+		Ehcache cache = cacheManager.getEhcache(message.getCacheName());
+		if (cache == null) {
+			return;
+		}
+		log.debug("Received {}", message);
+		if (message.isAllEntries()) {
+			cache.removeAll(true);
+		} else if (message.getValue() != null) {
+			cache.put(new Element(message.getKey(), message.getValue()), true);
+		} else {
+			cache.remove(message.getKey(), true);
+		}
+	}
+
+	@Override
+	public void notifyElementPut(Ehcache cache, Element element) {
+		if (isTimestampsRegion(cache)) {
+			publishTimestamp(cache, element);
+		} else if (element.getObjectValue() instanceof SoftLock) {
+			publish(cache, element);
+		}
+	}
+
+	@Override
+	public void notifyElementUpdated(Ehcache cache, Element element) {
+		if (isTimestampsRegion(cache)) {
+			publishTimestamp(cache, element);
+		} else {
+			publish(cache, element);
+		}
+	}
+
+	@Override
+	public void notifyElementRemoved(Ehcache cache, Element element) {
+		publish(cache, element);
+	}
+
+	@Override
+	public void notifyRemoveAll(Ehcache cache) {
+		publish(cache.getName(), null);
+	}
+
+	@Override
+	public void notifyElementExpired(Ehcache cache, Element element) {
+		// the other nodes expire their own entries
+	}
+
+	@Override
+	public void notifyElementEvicted(Ehcache cache, Element element) {
+		// the other nodes evict their own entries
+	}
+
+	private void publish(Ehcache cache, Element element) {
+		if (RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME.equals(cache.getName())) {
+			// query results are invalidated through the update timestamps
+			return;
+		}
+		Object key = element.getObjectKey();
+		// the whole cache is invalidated if the key cannot be sent
+		publish(cache.getName(), key instanceof Serializable ? (Serializable) key : null);
+	}
+
+	/**
+	 * Copies the update timestamp of a table to the other nodes, which then discard the cached query
+	 * results reading that table
+	 */
+	private void publishTimestamp(Ehcache cache, Element element) {
+		Object key = element.getObjectKey();
+		Object value = element.getObjectValue();
+		if (key instanceof Serializable && value instanceof Serializable) {
+			publish(new CacheInvalidationMessage(cache.getName(), (Serializable) key, (Serializable) value));
+		} else {
+			publish(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, null);
+		}
+	}
+
+	private void publish(String cacheName, Serializable key) {
+		publish(new CacheInvalidationMessage(cacheName, key));
+	}
+
+	private void publish(CacheInvalidationMessage message) {
+		if (status != Status.STATUS_ALIVE) {
+			return;
+		}
+		try {
+			cacheTransport.publish(message);
+		}
+		catch (RuntimeException e) {
+			log.error("Failed to publish {}", message, e);
+		}
+	}
+
+	private static boolean isTimestampsRegion(Ehcache cache) {
+		return RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME.equals(cache.getName());
+	}
+
+	@Override
+	public void notifyCacheAdded(String cacheName) {
+		Ehcache cache = cacheManager.getEhcache(cacheName);
+		if (cache != null) {
+			cache.getCacheEventNotificationService().registerListener(this);
+		}
+	}
+
+	@Override
+	public void notifyCacheRemoved(String cacheName) {
+		// the listeners of a removed cache are disposed with it
+	}
+
+	@Override
+	public void init() throws CacheException {
+		// registered by register(CacheManager)
+	}
+
+	@Override
+	public Status getStatus() {
+		return status;
+	}
+
+	@Override
+	public boolean isReplicateUpdatesViaCopy() {
+		return false;
+	}
+
+	@Override
+	public boolean notAlive() {
+		return status != Status.STATUS_ALIVE;
+	}
+
+	@Override
+	public boolean alive() {
+		return status == Status.STATUS_ALIVE;
+	}
+
+	@Override
+	public void dispose() {
+		// shared by all the caches of the cache manager, see unregister()
+	}
+
+	@Override
+	public Object clone() throws CloneNotSupportedException {
+		throw new CloneNotSupportedException("A cache invalidator is shared by all the caches of its cache manager");
+	}
+}
@@ -0,0 +1,372 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of the statistics of the caches and of Hibernate, counted since the start of OpenMRS:
+ * the hits, misses and evictions of every cache region, the entity and collection loads, the
+ * effectiveness of the query cache and the slowest queries. The Hibernate counts are zero unless
+ * <code>hibernate.generate_statistics</code> is true.
+ *
+ * @see org.openmrs.api.AdministrationService#getCacheMetrics(int)
+ * @since 2.8.0
+ */
+public class CacheMetrics {
+
+	private final boolean statisticsEnabled;
+
+	private final List<Region> regions;
+
+	private final long entityLoadCount;
+
+	private final long entityFetchCount;
+
+	private final long entityInsertCount;
+
+	private final long entityUpdateCount;
+
+	private final long entityDeleteCount;
+
+	private final long collectionLoadCount;
+
+	private final long collectionFetchCount;
+
+	private final long queryExecutionCount;
+
+	private final long queryCacheHitCount;
+
+	private final long queryCacheMissCount;
+
+	private final long queryCachePutCount;
+
+	private final long secondLevelCacheHitCount;
+
+	private final long secondLevelCacheMissCount;
+
+	private final long secondLevelCachePutCount;
+
+	private final List<Query> slowestQueries;
+
+	public CacheMetrics(boolean statisticsEnabled, List<Region> regions, long entityLoadCount, long entityFetchCount,
+	    long entityInsertCount, long entityUpdateCount, long entityDeleteCount, long collectionLoadCount,
+	    long collectionFetchCount, long queryExecutionCount, long queryCacheHitCount, long queryCacheMissCount,
+	    long queryCachePutCount, long secondLevelCacheHitCount, long secondLevelCacheMissCount,
+	    long secondLevelCachePutCount, List<Query> slowestQueries) {
+		this.statisticsEnabled = statisticsEnabled;
+		this.regions = Collections.unmodifiableList(regions);
+		this.entityLoadCount = entityLoadCount;
+		this.entityFetchCount = entityFetchCount;
+		this.entityInsertCount = entityInsertCount;
+		this.entityUpdateCount = entityUpdateCount;
+		this.entityDeleteCount = entityDeleteCount;
+		this.collectionLoadCount = collectionLoadCount;
+		this.collectionFetchCount = collectionFetchCount;
+		this.queryExecutionCount = queryExecutionCount;
+		this.queryCacheHitCount = queryCacheHitCount;
+		this.queryCacheMissCount = queryCacheMissCount;
+		this.queryCachePutCount = queryCachePutCount;
+		this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+		this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+		this.secondLevelCachePutCount = secondLevelCachePutCount;
+		this.slowestQueries = Collections.unmodifiableList(slowestQueries);
+	}
+
+	/**
+	 * @return whether Hibernate collects statistics
+	 */
+	public boolean isStatisticsEnabled() {
+		return statisticsEnabled;
+	}
+
+	/**
+	 * @return the regions of the second-level cache and the caches of the <code>@Cacheable</code>
+	 *         methods
+	 */
+	public List<Region> getRegions() {
+		return regions;
+	}
+
+	/**
+	 * @return the number of entities loaded from the database
+	 */
+	public long getEntityLoadCount() {
+		return entityLoadCount;
+	}
+
+	/**
+	 * @return the number of entities fetched from the database by an extra query, e.g. lazy ones
+	 */
+	public long getEntityFetchCount() {
+		return entityFetchCount;
+	}
+
+	/**
+	 * @return the number of entities inserted
+	 */
+	public long getEntityInsertCount() {
+		return entityInsertCount;
+	}
+
+	/**
+	 * @return the number of entities updated
+	 */
+	public long getEntityUpdateCount() {
+		return entityUpdateCount;
+	}
+
+	/**
+	 * @return the number of entities deleted
+	 */
+	public long getEntityDeleteCount() {
+		return entityDeleteCount;
+	}
+
+	/**
+	 * @return the number of collections loaded from the database
+	 */
+	public long getCollectionLoadCount() {
+		return collectionLoadCount;
+	}
+
+	/**
+	 * @return the number of collections fetched from the database by an extra query
+	 */
+	public long getCollectionFetchCount() {
+		return collectionFetchCount;
+	}
+
+	/**
+	 * @return the number of queries run against the database
+	 */
+	public long getQueryExecutionCount() {
+		return queryExecutionCount;
+	}
+
+	/**
+	 * @return the number of query results found in the query cache
+	 */
+	public long getQueryCacheHitCount() {
+		return queryCacheHitCount;
+	}
+
+	/**
+	 * @return the number of cacheable queries whose results were not in the query cache
+	 */
+	public long getQueryCacheMissCount() {
+		return queryCacheMissCount;
+	}
+
+	/**
+	 * @return the number of query results put in the query cache
+	 */
+	public long getQueryCachePutCount() {
+		return queryCachePutCount;
+	}
+
+	/**
+	 * @return the number of entities and collections found in the second-level cache
+	 */
+	public long getSecondLevelCacheHitCount() {
+		return secondLevelCacheHitCount;
+	}
+
+	/**
+	 * @return the number of entities and collections looked up in vain in the second-level cache
+	 */
+	public long getSecondLevelCacheMissCount() {
+		return secondLevelCacheMissCount;
+	}
+
+	/**
+	 * @return the number of entities and collections put in the second-level cache
+	 */
+	public long getSecondLevelCachePutCount() {
+		return secondLevelCachePutCount;
+	}
+
+	/**
+	 * @return the queries with the longest executions, the longest first
+	 */
+	public List<Query> getSlowestQueries() {
+		return slowestQueries;
+	}
+
+	/**
+	 * The statistics of one cache
+	 */
+	public static class Region {
+
+		private final String cacheManagerName;
+
+		private final String name;
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long putCount;
+
+		private final long evictionCount;
+
+		private final long expiredCount;
+
+		private final long size;
+
+		public Region(String cacheManagerName, String name, long hitCount, long missCount, long putCount,
+		    long evictionCount, long expiredCount, long size) {
+			this.cacheManagerName = cacheManagerName;
+			this.name = name;
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.putCount = putCount;
+			this.evictionCount = evictionCount;
+			this.expiredCount = expiredCount;
+			this.size = size;
+		}
+
+		/**
+		 * @return the name of the cache manager, e.g. <code>hibernateCache</code> for the second-level
+		 *         cache
+		 */
+		public String getCacheManagerName() {
+			return cacheManagerName;
+		}
+
+		/**
+		 * @return the name of the cache, e.g. <code>org.openmrs.User</code>
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of entries found
+		 */
+		public long getHitCount() {
+			return hitCount;
+		}
+
+		/**
+		 * @return the number of entries looked up in vain, including expired ones
+		 */
+		public long getMissCount() {
+			return missCount;
+		}
+
+		/**
+		 * @return the number of entries added or updated
+		 */
+		public long getPutCount() {
+			return putCount;
+		}
+
+		/**
+		 * @return the number of entries evicted because the cache was full
+		 */
+		public long getEvictionCount() {
+			return evictionCount;
+		}
+
+		/**
+		 * @return the number of entries which expired
+		 */
+		public long getExpiredCount() {
+			return expiredCount;
+		}
+
+		/**
+		 * @return the current number of entries
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the share of the lookups which found an entry, between 0 and 1
+		 */
+		public double getHitRatio() {
+			long lookups = hitCount + missCount;
+			return lookups == 0 ? 0 : (double) hitCount / lookups;
+		}
+	}
+
+	/**
+	 * The statistics of one HQL or SQL query
+	 */
+	public static class Query {
+
+		private final String query;
+
+		private final long executionCount;
+
+		private final long executionRowCount;
+
+		private final long averageTimeMillis;
+
+		private final long maxTimeMillis;
+
+		private final long totalTimeMillis;
+
+		public Query(String query, long executionCount, long executionRowCount, long averageTimeMillis,
+		    long maxTimeMillis, long totalTimeMillis) {
+			this.query = query;
+			this.executionCount = executionCount;
+			this.executionRowCount = executionRowCount;
+			this.averageTimeMillis = averageTimeMillis;
+			this.maxTimeMillis = maxTimeMillis;
+			this.totalTimeMillis = totalTimeMillis;
+		}
+
+		/**
+		 * @return the query
+		 */
+		public String getQuery() {
+			return query;
+		}
+
+		/**
+		 * @return the number of executions
+		 */
+		public long getExecutionCount() {
+			return executionCount;
+		}
+
+		/**
+		 * @return the number of rows returned by all the executions
+		 */
+		public long getExecutionRowCount() {
+			return executionRowCount;
+		}
+
+		/**
+		 * @return the average time of an execution in milliseconds
+		 */
+		public long getAverageTimeMillis() {
+			return averageTimeMillis;
+		}
+
+		/**
+		 * @return the longest execution in milliseconds
+		 */
+		public long getMaxTimeMillis() {
+			return maxTimeMillis;
+		}
+
+		/**
+		 * @return the time of all the executions in milliseconds
+		 */
+		public long getTotalTimeMillis() {
+			return totalTimeMillis;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link CacheInvalidationTransport} connecting the nodes running in one JVM, each instance being
+ * one node. The messages are handed to the receivers of the other instances on the publishing
+ * thread. It stands in for a real transport in tests, e.g. to check that two cache managers stay
+ * consistent.
+ *
+ * @since 2.8.0
+ */
+public class LoopbackCacheInvalidationTransport implements CacheInvalidationTransport {
+
+	private static final Logger log = LoggerFactory.getLogger(LoopbackCacheInvalidationTransport.class);
+
+	private static final List<LoopbackCacheInvalidationTransport> nodes = new CopyOnWriteArrayList<>();
+
+	private final List<Consumer<CacheInvalidationMessage>> receivers = new CopyOnWriteArrayList<>();
+
+	public LoopbackCacheInvalidationTransport() {
+		nodes.add(this);
+	}
+
+	/**
+	 * @see org.openmrs.api.cache.CacheInvalidationTransport#publish(org.openmrs.api.cache.CacheInvalidationMessage)
+	 */
+	@Override
+	public void publish(CacheInvalidationMessage message) {
+		for (LoopbackCacheInvalidationTransport node : nodes) {
+			if (node == this) {
+				continue;
+			}
+			for (Consumer<CacheInvalidationMessage> receiver : node.receivers) {
+				try {
+					receiver.accept(message);
+				}
+				catch (RuntimeException e) {
+					log.error("Failed to handle the cache invalidation message {}", message, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see org.openmrs.api.cache.CacheInvalidationTransport#addReceiver(java.util.function.Consumer)
+	 */
+	@Override
+	public void addReceiver(Consumer<CacheInvalidationMessage> receiver) {
+		receivers.add(receiver);
+	}
+
+	/**
+	 * @see org.openmrs.api.cache.CacheInvalidationTransport#removeReceiver(java.util.function.Consumer)
+	 */
+	@Override
+	public void removeReceiver(Consumer<CacheInvalidationMessage> receiver) {
+		receivers.remove(receiver);
+	}
+
+	/**
+	 * Disconnects this node from the others
+	 */
+	public void close() {
+		nodes.remove(this);
+		receivers.clear();
+	}
+}
@@ -15,6 +15,7 @@ import java.util.Map;
 import org.springframework.cache.ehcache.EhCacheManagerFactoryBean;
 
 import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheException;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.config.CacheConfiguration;
 
@@ -28,9 +29,29 @@ import net.sf.ehcache.config.CacheConfiguration;
  * userSearchLocales.timeToIdleSeconds=300
  * userSearchLocales.timeToLiveSeconds=300
  * userSearchLocales.memoryStoreEvictionPolicy=LRU
+ * <p>
+ * When a {@link CacheInvalidationTransport} is configured, the caches are invalidated across the nodes
+ * of a cluster by a {@link CacheInvalidator}.
  */
 public class OpenmrsCacheManagerFactoryBean extends EhCacheManagerFactoryBean {
 
+	private CacheInvalidator invalidator;
+
+	@Override
+	public void afterPropertiesSet() throws CacheException {
+		super.afterPropertiesSet();
+		invalidator = CacheInvalidator.register(super.getObject());
+	}
+
+	@Override
+	public void destroy() {
+		if (invalidator != null) {
+			invalidator.unregister();
+			invalidator = null;
+		}
+		super.destroy();
+	}
+
 	@Override
 	public CacheManager getObject() {
 		CacheManager cacheManager = super.getObject();
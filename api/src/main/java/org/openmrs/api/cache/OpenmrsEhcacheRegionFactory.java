@@ -0,0 +1,56 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import java.util.Map;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.ehcache.internal.EhcacheRegionFactory;
+
+/**
+ * The default second-level cache of Hibernate, backed by Ehcache and configured by
+ * <code>ehcache.xml</code>, which invalidates the entries cached by the other nodes of a cluster when
+ * a {@link CacheInvalidationTransport} is configured, see {@link CacheInvalidator}. <br>
+ * <br>
+ * Like any Hibernate setting, the region factory can be replaced through the
+ * <code>hibernate.cache.region.factory_class</code> runtime property, e.g. by
+ * <code>org.hibernate.cache.jcache.JCacheRegionFactory</code> with a clustered JCache provider on the
+ * classpath.
+ *
+ * @since 2.8.0
+ */
+public class OpenmrsEhcacheRegionFactory extends EhcacheRegionFactory {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient CacheInvalidator invalidator;
+
+	/**
+	 * @see org.hibernate.cache.ehcache.internal.EhcacheRegionFactory#prepareForUse(org.hibernate.boot.spi.SessionFactoryOptions,
+	 *      java.util.Map)
+	 */
+	@Override
+	protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+		super.prepareForUse(settings, configValues);
+		invalidator = CacheInvalidator.register(getCacheManager());
+	}
+
+	/**
+	 * @see org.hibernate.cache.ehcache.internal.EhcacheRegionFactory#releaseFromUse()
+	 */
+	@Override
+	protected void releaseFromUse() {
+		if (invalidator != null) {
+			invalidator.unregister();
+			invalidator = null;
+		}
+		super.releaseFromUse();
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.util.RoleConstants;
+
+/**
+ * An immutable snapshot of an authenticated user, with the privileges of all its roles and of the
+ * roles given to every user, so that checking a privilege does not walk the role graph nor load it
+ * from the database. The snapshots are kept by {@link AuthenticatedPrincipalCache}.
+ *
+ * @since 2.8.0
+ */
+public final class AuthenticatedPrincipal {
+	
+	private final Integer userId;
+	
+	private final String username;
+	
+	private final boolean superUser;
+	
+	private final boolean sharedRolesIncluded;
+	
+	private final Set<String> privileges;
+	
+	private final Map<String, String> userProperties;
+	
+	private AuthenticatedPrincipal(Integer userId, String username, boolean superUser, boolean sharedRolesIncluded,
+	    Set<String> privileges, Map<String, String> userProperties) {
+		this.userId = userId;
+		this.username = username;
+		this.superUser = superUser;
+		this.sharedRolesIncluded = sharedRolesIncluded;
+		this.privileges = Collections.unmodifiableSet(privileges);
+		this.userProperties = Collections.unmodifiableMap(userProperties);
+	}
+	
+	/**
+	 * Takes a snapshot of the given user
+	 *
+	 * @param user the authenticated user
+	 * @param sharedRoles the roles given to every authenticated user, e.g. the Authenticated role, null
+	 *            if they are not loaded yet
+	 * @return the snapshot
+	 */
+	static AuthenticatedPrincipal of(User user, Role... sharedRoles) {
+		Set<Role> roles = new HashSet<>(user.getAllRoles());
+		boolean sharedRolesIncluded = true;
+		for (Role sharedRole : sharedRoles) {
+			if (sharedRole != null) {
+				roles.add(sharedRole);
+			} else {
+				sharedRolesIncluded = false;
+			}
+		}
+		
+		boolean superUser = user.isSuperUser();
+		Set<String> privileges = new HashSet<>();
+		for (Role role : roles) {
+			superUser |= RoleConstants.SUPERUSER.equals(role.getRole());
+			if (role.getPrivileges() != null) {
+				for (Privilege privilege : role.getPrivileges()) {
+					privileges.add(privilege.getPrivilege().toLowerCase(Locale.ROOT));
+				}
+			}
+		}
+		
+		Map<String, String> userProperties = user.getUserProperties() != null ? new HashMap<>(user.getUserProperties())
+		        : new HashMap<>();
+		return new AuthenticatedPrincipal(user.getUserId(), user.getUsername(), superUser, sharedRolesIncluded,
+		        privileges, userProperties);
+	}
+	
+	/**
+	 * @return the id of the user
+	 */
+	public Integer getUserId() {
+		return userId;
+	}
+	
+	/**
+	 * @return the username of the user
+	 */
+	public String getUsername() {
+		return username;
+	}
+	
+	/**
+	 * @return whether the user is a superuser, having all the privileges
+	 */
+	public boolean isSuperUser() {
+		return superUser;
+	}
+	
+	/**
+	 * @return whether the privileges of the roles given to every user are included
+	 */
+	public boolean isSharedRolesIncluded() {
+		return sharedRolesIncluded;
+	}
+	
+	/**
+	 * @return the lower case names of the privileges of all the roles of the user
+	 */
+	public Set<String> getPrivileges() {
+		return privileges;
+	}
+	
+	/**
+	 * Tests whether the user had the given privilege when the snapshot was taken, ignoring the case
+	 * like {@link Role#hasPrivilege(String)}
+	 *
+	 * @param privilege the name of the privilege
+	 * @return true if the user has the privilege
+	 */
+	public boolean hasPrivilege(String privilege) {
+		return StringUtils.isEmpty(privilege) || superUser || privileges.contains(privilege.toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * @param key the name of the user property, e.g. the default locale or location
+	 * @return the value of the user property, null if it is not set
+	 */
+	public String getUserProperty(String key) {
+		return userProperties.get(key);
+	}
+	
+	@Override
+	public String toString() {
+		return "AuthenticatedPrincipal[" + userId + ", " + username + "]";
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.openmrs.api.cache.CacheInvalidationMessage;
+import org.openmrs.api.cache.CacheInvalidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The node-local cache of the {@link AuthenticatedPrincipal} of the authenticated users, keyed by
+ * user id and by {@link UserContext}. A snapshot is only used by the session which took it from its
+ * own user, so that a session holding an outdated user cannot grant its privileges to the other
+ * sessions of the user. <br>
+ * <br>
+ * The {@link org.openmrs.api.UserService} invalidates the snapshots of a user when saving it, and all
+ * of them when saving roles or privileges, so that the next use of each {@link UserContext} takes a
+ * new snapshot of its user. The snapshots are invalidated again when the transaction ends, since a
+ * snapshot taken in the meantime may hold changes which are then rolled back. The other nodes of a
+ * cluster are then told to invalidate their snapshots too, through the transport of the
+ * {@link CacheInvalidator}.
+ *
+ * @since 2.8.0
+ */
+public final class AuthenticatedPrincipalCache {
+	
+	private static final Logger log = LoggerFactory.getLogger(AuthenticatedPrincipalCache.class);
+	
+	/**
+	 * The cache name of the {@link CacheInvalidationMessage} invalidating the snapshots of the other
+	 * nodes
+	 */
+	public static final String CACHE_NAME = AuthenticatedPrincipal.class.getName();
+	
+	// the sessions are weakly referenced so that the snapshots go away with them
+	private static final Map<Integer, Map<UserContext, AuthenticatedPrincipal>> principals = new ConcurrentHashMap<>();
+	
+	private AuthenticatedPrincipalCache() {
+	}
+	
+	/**
+	 * @param userId the id of a user
+	 * @param userContext the session of the user
+	 * @return the cached snapshot of the user for the session, null if there is none
+	 */
+	static AuthenticatedPrincipal get(Integer userId, UserContext userContext) {
+		Map<UserContext, AuthenticatedPrincipal> sessions = userId != null ? principals.get(userId) : null;
+		return sessions != null ? sessions.get(userContext) : null;
+	}
+	
+	/**
+	 * Gets the cached snapshot of a user for a session, taking it if there is none
+	 */
+	static AuthenticatedPrincipal get(Integer userId, UserContext userContext, Supplier<AuthenticatedPrincipal> snapshot) {
+		if (userId == null) {
+			return snapshot.get();
+		}
+		return principals.computeIfAbsent(userId, id -> Collections.synchronizedMap(new WeakHashMap<>()))
+		        .computeIfAbsent(userContext, session -> snapshot.get());
+	}
+	
+	/**
+	 * Removes the snapshots of a user, e.g. after it is saved
+	 *
+	 * @param userId the id of the user
+	 */
+	public static void invalidate(Integer userId) {
+		if (userId == null) {
+			return;
+		}
+		remove(userId);
+		afterTransaction(() -> {
+			remove(userId);
+			CacheInvalidator.publishToOtherNodes(new CacheInvalidationMessage(CACHE_NAME, userId));
+		});
+	}
+	
+	/**
+	 * Removes all the snapshots, e.g. after the privileges of a role change
+	 */
+	public static void invalidateAll() {
+		log.debug("Invalidating all the authenticated principals");
+		principals.clear();
+		afterTransaction(() -> {
+			principals.clear();
+			CacheInvalidator.publishToOtherNodes(new CacheInvalidationMessage(CACHE_NAME, null));
+		});
+	}
+	
+	/**
+	 * Invalidates the snapshots named by a message of another node, without publishing it again
+	 *
+	 * @param message the message, ignored if it is not about this cache
+	 */
+	public static void receive(CacheInvalidationMessage message) {
+		if (!CACHE_NAME.equals(message.getCacheName())) {
+			return;
+		}
+		if (message.isAllEntries()) {
+			log.debug("Invalidating all the authenticated principals for another node");
+			principals.clear();
+		} else if (message.getKey() instanceof Integer) {
+			remove((Integer) message.getKey());
+		}
+	}
+	
+	private static void remove(Integer userId) {
+		if (principals.remove(userId) != null) {
+			log.debug("Invalidated the authenticated principal of user {}", userId);
+		}
+	}
+	
+	private static void afterTransaction(Runnable invalidation) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					invalidation.run();
+				}
+			});
+		} else {
+			invalidation.run();
+		}
+	}
+	
+	/**
+	 * @return the number of cached snapshots
+	 */
+	public static int size() {
+		return principals.values().stream().mapToInt(Map::size).sum();
+	}
+}
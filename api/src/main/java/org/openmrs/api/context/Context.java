@@ -63,6 +63,7 @@ import org.openmrs.util.InputRequiredException;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.OpenmrsThreadPoolHolder;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
 import org.openmrs.validator.ValidateUtil;
@@ -394,12 +395,16 @@ public class Context {
 	}
 
 	/**
-	 * Set the runtime properties to be used by this OpenMRS instance
+	 * Set the runtime properties to be used by this OpenMRS instance, and apply their settings of
+	 * the thread pools of {@link OpenmrsThreadPoolHolder} and of the notification of the privilege
+	 * listeners
 	 *
 	 * @param props runtime properties
 	 */
 	public static void setRuntimeProperties(Properties props) {
 		runtimeProperties = props;
+		OpenmrsThreadPoolHolder.configure(props);
+		ListenerDispatcher.configure(props);
 	}
 
 	/**
@@ -1011,6 +1016,9 @@ public class Context {
 			log.warn("Error while shutting down scheduler service", e);
 		}
 
+		// the listeners may be beans of the modules
+		ListenerDispatcher.flush();
+
 		log.debug("Shutting down the modules");
 		try {
 			ModuleUtil.shutdown();
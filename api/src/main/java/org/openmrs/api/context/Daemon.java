@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
@@ -81,7 +82,9 @@ public final class Daemon {
 			throw new APIException("Module.factory.only", new Object[] { callerClass.getName() });
 		}
 		
-		Future<Module> moduleStartFuture = runInDaemonThreadInternal(() -> ModuleFactory.startModuleInternal(module, isOpenmrsStartup, applicationContext));
+		Future<Module> moduleStartFuture = runInDaemonThreadInternal(
+		    OpenmrsThreadPoolHolder.getExecutor(OpenmrsThreadPoolHolder.POOL_MODULE_START),
+		    () -> ModuleFactory.startModuleInternal(module, isOpenmrsStartup, applicationContext));
 		
 		// wait for the "startModule" thread to finish
 		try {
@@ -168,7 +171,8 @@ public final class Daemon {
 			throw new APIException("Scheduler.timer.task.only", new Object[] { callerClass.getName() });
 		}
 		
-		Future<?> scheduleTaskFuture = runInDaemonThreadInternal(() -> TimerSchedulerTask.execute(task));
+		Future<?> scheduleTaskFuture = runInDaemonThreadInternal(
+		    OpenmrsThreadPoolHolder.getExecutor(OpenmrsThreadPoolHolder.POOL_SCHEDULER), () -> TimerSchedulerTask.execute(task));
 		
 		// wait for the "executeTaskThread" thread to finish
 		try {
@@ -421,7 +425,11 @@ public final class Daemon {
 	}
 	
 	private static <T> Future<T> runInDaemonThreadInternal(Callable<T> callable) {
-		return OpenmrsThreadPoolHolder.threadExecutor.submit(() -> {
+		return runInDaemonThreadInternal(OpenmrsThreadPoolHolder.threadExecutor, callable);
+	}
+	
+	private static <T> Future<T> runInDaemonThreadInternal(ExecutorService executor, Callable<T> callable) {
+		return executor.submit(() -> {
 			isDaemonThread.set(true);
 			try {
 				Context.openSession();
@@ -439,12 +447,16 @@ public final class Daemon {
 	}
 	
 	private static Future<?> runInDaemonThreadInternal(Runnable runnable) {
+		return runInDaemonThreadInternal(OpenmrsThreadPoolHolder.threadExecutor, runnable);
+	}
+	
+	private static Future<?> runInDaemonThreadInternal(ExecutorService executor, Runnable runnable) {
 		// for Threads, we used to guarantee that Thread.start() was called before the function returned
 		// since we cannot guarantee that the executor actually started executing the thread, we use a CountDownLatch
 		// to emulate this behaviour when the user submits a Thread. Other runnables are unaffected.
 		CountDownLatch countDownLatch = getCountDownLatch(runnable instanceof Thread);
 
-		Future<?> result = OpenmrsThreadPoolHolder.threadExecutor.submit(() -> {
+		Future<?> result = executor.submit(() -> {
 			isDaemonThread.set(true);
 			try {
 				Context.openSession();
@@ -0,0 +1,292 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.PrivilegeListener;
+import org.openmrs.User;
+import org.openmrs.UserSessionListener;
+import org.openmrs.UserSessionListener.Event;
+import org.openmrs.UserSessionListener.Status;
+import org.openmrs.util.OpenmrsThreadPoolHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Notifies the {@link PrivilegeListener} and {@link UserSessionListener} beans on behalf of the
+ * {@link UserContext}. <br>
+ * <br>
+ * The listener beans are looked up once and kept until the application context is refreshed, instead
+ * of on every privilege check. <br>
+ * <br>
+ * By default the listeners are notified on the thread checking the privilege. When the
+ * <code>privilege_listeners.async</code> runtime property is true, the privilege checks are instead
+ * queued in a bounded queue of <code>privilege_listeners.queue_size</code> events and handed to the
+ * listeners in batches of up to <code>privilege_listeners.batch_size</code> events by a thread of the
+ * {@link OpenmrsThreadPoolHolder#POOL_LISTENERS} pool. The listeners are then notified in the order of
+ * the checks, but without the user context of the thread which checked the privilege. When the queue
+ * is full, the checking thread notifies the listeners of the queued checks and then of its own, so
+ * that no check is lost. The user
+ * session listeners are always notified on the thread logging in or out.
+ *
+ * @since 2.8.0
+ */
+final class ListenerDispatcher {
+
+	private static final Logger log = LoggerFactory.getLogger(ListenerDispatcher.class);
+
+	/**
+	 * The runtime property making the privilege listeners be notified asynchronously
+	 */
+	static final String ASYNC_RUNTIME_PROPERTY = "privilege_listeners.async";
+
+	static final String QUEUE_SIZE_RUNTIME_PROPERTY = "privilege_listeners.queue_size";
+
+	static final String BATCH_SIZE_RUNTIME_PROPERTY = "privilege_listeners.batch_size";
+
+	private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static volatile Registry registry;
+
+	/**
+	 * Incremented by {@link #reset()}, so that a lookup started before a refresh is not kept
+	 */
+	private static final AtomicInteger generation = new AtomicInteger();
+
+	private static volatile BlockingQueue<PrivilegeCheck> queue;
+
+	private static volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+	private static final AtomicBoolean draining = new AtomicBoolean();
+
+	private static final ReentrantLock drainLock = new ReentrantLock();
+
+	private static final AtomicLong inlineCount = new AtomicLong();
+
+	private ListenerDispatcher() {
+	}
+
+	/**
+	 * Applies the dispatch settings of the given runtime properties. The privilege checks queued so
+	 * far are still handed to the listeners.
+	 *
+	 * @param props the runtime properties
+	 */
+	static void configure(Properties props) {
+		Properties properties = props != null ? props : new Properties();
+		BlockingQueue<PrivilegeCheck> previousQueue = queue;
+		if (Boolean.parseBoolean(properties.getProperty(ASYNC_RUNTIME_PROPERTY, "false").trim())) {
+			int queueSize = NumberUtils.toInt(properties.getProperty(QUEUE_SIZE_RUNTIME_PROPERTY), DEFAULT_QUEUE_SIZE);
+			batchSize = Math.max(1,
+			    NumberUtils.toInt(properties.getProperty(BATCH_SIZE_RUNTIME_PROPERTY), DEFAULT_BATCH_SIZE));
+			queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+		} else {
+			queue = null;
+		}
+		if (previousQueue != null) {
+			drain(previousQueue);
+		}
+	}
+
+	/**
+	 * Forgets the listener beans, so that they are looked up again on the next notification. It is
+	 * called when the application context is set or refreshed.
+	 */
+	static void reset() {
+		generation.incrementAndGet();
+		registry = null;
+	}
+
+	/**
+	 * @return whether the privilege listeners are notified asynchronously
+	 */
+	static boolean isAsync() {
+		return queue != null;
+	}
+
+	/**
+	 * @return the number of privilege checks handed to the listeners on the checking thread because
+	 *         the queue was full
+	 */
+	static long getInlineCount() {
+		return inlineCount.get();
+	}
+
+	/**
+	 * Notifies the privilege listener beans about a privilege check, see the class comment
+	 *
+	 * @param user the authenticated user or <code>null</code> if not authenticated
+	 * @param privilege the checked privilege
+	 * @param hasPrivilege whether the privilege was granted
+	 */
+	static void privilegeChecked(User user, String privilege, boolean hasPrivilege) {
+		List<PrivilegeListener> listeners = getRegistry().privilegeListeners;
+		if (listeners.isEmpty()) {
+			return;
+		}
+		PrivilegeCheck check = new PrivilegeCheck(user, privilege, hasPrivilege);
+		BlockingQueue<PrivilegeCheck> events = queue;
+		if (events == null) {
+			notify(listeners, check);
+			return;
+		}
+		if (events.offer(check)) {
+			scheduleDrain(events);
+			return;
+		}
+		inlineCount.incrementAndGet();
+		// the queued checks are handed to the listeners first, and not while a pool thread notifies them
+		drainLock.lock();
+		try {
+			drain(events);
+			notify(listeners, check);
+		}
+		finally {
+			drainLock.unlock();
+		}
+	}
+
+	/**
+	 * Notifies the user session listener beans about a login or a logout, on the calling thread
+	 *
+	 * @param user the user logging in or out
+	 * @param event the kind of event
+	 * @param status whether it succeeded
+	 */
+	static void loggedInOrOut(User user, Event event, Status status) {
+		for (UserSessionListener userSessionListener : getRegistry().userSessionListeners) {
+			userSessionListener.loggedInOrOut(user, event, status);
+		}
+	}
+
+	/**
+	 * Hands the privilege checks queued so far to the listeners and waits for them to be notified
+	 */
+	static void flush() {
+		BlockingQueue<PrivilegeCheck> events = queue;
+		if (events != null) {
+			drain(events);
+		}
+	}
+
+	private static Registry getRegistry() {
+		Registry current = registry;
+		if (current == null) {
+			int lookupGeneration = generation.get();
+			current = new Registry(Context.getRegisteredComponents(PrivilegeListener.class),
+			        Context.getRegisteredComponents(UserSessionListener.class));
+			if (generation.get() == lookupGeneration) {
+				registry = current;
+			}
+		}
+		return current;
+	}
+
+	private static void scheduleDrain(BlockingQueue<PrivilegeCheck> events) {
+		if (!draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			OpenmrsThreadPoolHolder.getExecutor(OpenmrsThreadPoolHolder.POOL_LISTENERS).execute(() -> {
+				try {
+					drain(events);
+				}
+				finally {
+					draining.set(false);
+				}
+				// a check may have been queued after the queue was seen empty
+				if (!events.isEmpty()) {
+					scheduleDrain(events);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			draining.set(false);
+			log.debug("The listeners pool is full, notifying the privilege listeners on the checking thread", e);
+			drain(events);
+		}
+	}
+
+	private static void drain(BlockingQueue<PrivilegeCheck> events) {
+		List<PrivilegeCheck> batch = new ArrayList<>();
+		// only one thread at a time, so that the listeners see the checks in order
+		drainLock.lock();
+		try {
+			while (events.drainTo(batch, batchSize) > 0) {
+				List<PrivilegeListener> listeners = getRegistry().privilegeListeners;
+				for (PrivilegeCheck check : batch) {
+					notify(listeners, check);
+				}
+				batch.clear();
+			}
+		}
+		finally {
+			drainLock.unlock();
+		}
+	}
+
+	private static void notify(List<PrivilegeListener> listeners, PrivilegeCheck check) {
+		for (PrivilegeListener privilegeListener : listeners) {
+			try {
+				privilegeListener.privilegeChecked(check.user, check.privilege, check.hasPrivilege);
+			}
+			catch (Exception e) {
+				log.error("Privilege listener has failed", e);
+			}
+		}
+	}
+
+	/**
+	 * The listener beans found in the application context
+	 */
+	private static class Registry {
+
+		private final List<PrivilegeListener> privilegeListeners;
+
+		private final List<UserSessionListener> userSessionListeners;
+
+		private Registry(List<PrivilegeListener> privilegeListeners, List<UserSessionListener> userSessionListeners) {
+			this.privilegeListeners = Collections.unmodifiableList(privilegeListeners);
+			this.userSessionListeners = Collections.unmodifiableList(userSessionListeners);
+		}
+	}
+
+	/**
+	 * A privilege check waiting in the queue
+	 */
+	private static class PrivilegeCheck {
+
+		private final User user;
+
+		private final String privilege;
+
+		private final boolean hasPrivilege;
+
+		private PrivilegeCheck(User user, String privilege, boolean hasPrivilege) {
+			this.user = user;
+			this.privilege = privilege;
+			this.hasPrivilege = hasPrivilege;
+		}
+	}
+}
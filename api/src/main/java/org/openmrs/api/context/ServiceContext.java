@@ -17,6 +17,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.aopalliance.aop.Advice;
 import org.openmrs.api.APIException;
@@ -80,9 +83,12 @@ public class ServiceContext implements ApplicationContextAware {
 
 	private ApplicationContext applicationContext;
 	
-	private static boolean refreshingContext = false;
+	// read without the lock by getService, so that getting a service does not block or pin a virtual thread
+	private static volatile boolean refreshingContext = false;
 	
-	private static final Object refreshingContextLock = new Object();
+	private static final ReentrantLock refreshingContextLock = new ReentrantLock();
+	
+	private static final Condition contextRefreshed = refreshingContextLock.newCondition();
 	
 	/**
 	 * Static variable holding whether or not to use the system classloader. By default this is
@@ -90,8 +96,8 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	private boolean useSystemClassLoader = false;
 	
-	// Cached service objects
-	Map<Class, Object> services = new HashMap<>();
+	// Cached service objects, read concurrently by getService
+	Map<Class, Object> services = new ConcurrentHashMap<>();
 	
 	// Advisors added to services by this service
 	Map<Class, Set<Advisor>> addedAdvisors = new HashMap<>();
@@ -674,23 +680,16 @@ public class ServiceContext implements ApplicationContextAware {
 		
 		// if the context is refreshing, wait until it is
 		// done -- otherwise a null service might be returned
-		synchronized (refreshingContextLock) {
+		if (refreshingContext) {
 			try {
-				while (refreshingContext) {
-					log.debug("Waiting to get service: {} while the context is being refreshed", cls);
-					
-					refreshingContextLock.wait();
-					
-					log.debug("Finished waiting to get service {} while the context was being refreshed", cls);
-				}
-				
+				awaitContextRefreshed(cls);
 			}
 			catch (InterruptedException e) {
 				log.warn("Refresh lock was interrupted", e);
 			}
 		}
 		
-		Object service = services.get(cls);
+		Object service = cls != null ? services.get(cls) : null;
 		if (service == null) {
 			throw new ServiceNotFoundException(cls);
 		}
@@ -828,7 +827,37 @@ public class ServiceContext implements ApplicationContextAware {
 	}
 	
 	public static void setRefreshingContext(boolean refreshingContext) {
-		ServiceContext.refreshingContext = refreshingContext;
+		refreshingContextLock.lock();
+		try {
+			ServiceContext.refreshingContext = refreshingContext;
+			if (!refreshingContext) {
+				contextRefreshed.signalAll();
+			}
+		}
+		finally {
+			refreshingContextLock.unlock();
+		}
+	}
+	
+	/**
+	 * Waits until the context is no longer being refreshed
+	 *
+	 * @param waiter what is waiting, for the logs
+	 */
+	private static void awaitContextRefreshed(Object waiter) throws InterruptedException {
+		refreshingContextLock.lock();
+		try {
+			while (refreshingContext) {
+				log.debug("Waiting to get service: {} while the context is being refreshed", waiter);
+				
+				contextRefreshed.await();
+				
+				log.debug("Finished waiting to get service {} while the context was being refreshed", waiter);
+			}
+		}
+		finally {
+			refreshingContextLock.unlock();
+		}
 	}
 	
 	/**
@@ -836,10 +865,9 @@ public class ServiceContext implements ApplicationContextAware {
 	 * getService to wait until <code>doneRefreshingContext</code> is called
 	 */
 	public void startRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			log.info("Refreshing Context");
-			setRefreshingContext(true);
-		}
+		log.info("Refreshing Context");
+		setRefreshingContext(true);
+		ListenerDispatcher.reset();
 	}
 	
 	/**
@@ -847,11 +875,9 @@ public class ServiceContext implements ApplicationContextAware {
 	 * getService that were waiting because <code>startRefreshingContext</code> was called
 	 */
 	public void doneRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			log.info("Done refreshing Context");
-			setRefreshingContext(false);
-			refreshingContextLock.notifyAll();
-		}
+		log.info("Done refreshing Context");
+		ListenerDispatcher.reset();
+		setRefreshingContext(false);
 	}
 	
 	/**
@@ -863,9 +889,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 *         doneRefreshingContext()
 	 */
 	public boolean isRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			return refreshingContext;
-		}
+		return refreshingContext;
 	}
 	
 	/**
@@ -932,6 +956,7 @@ public class ServiceContext implements ApplicationContextAware {
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) {
 		this.applicationContext = applicationContext;
+		ListenerDispatcher.reset();
 	}
 	
 	public ApplicationContext getApplicationContext() {
@@ -949,16 +974,8 @@ public class ServiceContext implements ApplicationContextAware {
 	private void runOpenmrsServiceOnStartup(final OpenmrsService openmrsService, final String classString) {
 		OpenmrsThreadPoolHolder.threadExecutor.execute(() -> {
 			try {
-				synchronized (refreshingContextLock) {
-					//Need to wait for application context to finish refreshing otherwise we get into trouble.
-					while (refreshingContext) {
-						log.debug("Waiting to get service: {} while the context is being refreshed", classString);
-	
-						refreshingContextLock.wait();
-	
-						log.debug("Finished waiting to get service {} while the context was being refreshed", classString);
-					}
-				}
+				//Need to wait for application context to finish refreshing otherwise we get into trouble.
+				awaitContextRefreshed(classString);
 	
 				Daemon.runStartupForService(openmrsService);
 			}
@@ -22,7 +22,6 @@ import org.openmrs.Location;
 import org.openmrs.PrivilegeListener;
 import org.openmrs.Role;
 import org.openmrs.User;
-import org.openmrs.UserSessionListener;
 import org.openmrs.UserSessionListener.Event;
 import org.openmrs.UserSessionListener.Status;
 import org.openmrs.api.APIAuthenticationException;
@@ -56,6 +55,11 @@ public class UserContext implements Serializable {
 	 */
 	private User user = null;
 	
+	/**
+	 * The snapshot of the user last used by this context, see {@link AuthenticatedPrincipalCache}
+	 */
+	private transient AuthenticatedPrincipal principal = null;
+	
 	/**
 	 * User's permission proxies
 	 */
@@ -114,6 +118,9 @@ public class UserContext implements Serializable {
 		try {
 			authenticated = authenticationScheme.authenticate(credentials);
 			this.user = authenticated.getUser();
+			// the user was just loaded, snapshot it again
+			this.principal = null;
+			AuthenticatedPrincipalCache.invalidate(this.user.getUserId());
 			notifyUserSessionListener(this.user, Event.LOGIN, Status.SUCCESS);
 		}
 		catch (ContextAuthenticationException e) {
@@ -143,6 +150,8 @@ public class UserContext implements Serializable {
 		
 		if (user != null) {
 			user = Context.getUserService().getUser(user.getUserId());
+			principal = null;
+			AuthenticatedPrincipalCache.invalidate(user.getUserId());
 			//update the stored location in the user's session
 			setUserLocation(false);
 			setUserLocale(false);
@@ -184,6 +193,7 @@ public class UserContext implements Serializable {
 		}
 		
 		this.user = userToBecome;
+		this.principal = null;
 		
 		//update the user's location and locale
 		setUserLocation(false);
@@ -217,6 +227,7 @@ public class UserContext implements Serializable {
 		log.debug("setting user to null on logout");
 		notifyUserSessionListener(user, Event.LOGOUT, Status.SUCCESS);
 		user = null;
+		principal = null;
 		locationId = null;
 		locale = null;
 		proxies.clear();
@@ -338,10 +349,21 @@ public class UserContext implements Serializable {
 			}
 		}
 		
-		// if a user has logged in, check their privileges
+		// if a user has logged in, check the snapshot of their privileges first
+		if (isAuthenticated() && getPrincipal().hasPrivilege(privilege)) {
+			notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
+			return true;
+		}
+		
+		// then their roles, which may have been changed since the snapshot was taken
 		if (isAuthenticated()
 			&& (getAuthenticatedUser().hasPrivilege(privilege) || getAuthenticatedRole().hasPrivilege(privilege))) {
 			
+			// take a snapshot with the roles given to every user next time, once they are loaded
+			if (!principal.isSharedRolesIncluded() && authenticatedRole != null && anonymousRole != null) {
+				AuthenticatedPrincipalCache.invalidate(user.getUserId());
+			}
+			
 			// check user's privileges
 			notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
 			return true;
@@ -358,6 +380,26 @@ public class UserContext implements Serializable {
 		return false;
 	}
 	
+	/**
+	 * Gets the snapshot of the authenticated user, taking it if the user was saved since the last one.
+	 * The roles given to every user are only included once they are loaded, so that taking the
+	 * snapshot does not check privileges itself.
+	 *
+	 * @return the snapshot of the authenticated user
+	 * @since 2.8.0
+	 */
+	public AuthenticatedPrincipal getPrincipal() {
+		if (user == null) {
+			return null;
+		}
+		final User authenticatedUser = user;
+		final Role authenticated = authenticatedRole;
+		final Role anonymous = anonymousRole;
+		principal = AuthenticatedPrincipalCache.get(authenticatedUser.getUserId(), this,
+		    () -> AuthenticatedPrincipal.of(authenticatedUser, authenticated, anonymous));
+		return principal;
+	}
+	
 	/**
 	 * Convenience method to get the Role in the system designed to be given to all users
 	 *
@@ -509,7 +551,8 @@ public class UserContext implements Serializable {
 	/**
 	 * Notifies privilege listener beans about any privilege check.
 	 * <p>
-	 * It is called by {@link UserContext#hasPrivilege(java.lang.String)}.
+	 * It is called by {@link UserContext#hasPrivilege(java.lang.String)}. The listeners may be
+	 * notified asynchronously, see {@link ListenerDispatcher}.
 	 *
 	 * @param user         the authenticated user or <code>null</code> if not authenticated
 	 * @param privilege    the checked privilege
@@ -519,19 +562,10 @@ public class UserContext implements Serializable {
 	 * @since 1.8.4, 1.9.1, 1.10
 	 */
 	private void notifyPrivilegeListeners(User user, String privilege, boolean hasPrivilege) {
-		for (PrivilegeListener privilegeListener : Context.getRegisteredComponents(PrivilegeListener.class)) {
-			try {
-				privilegeListener.privilegeChecked(user, privilege, hasPrivilege);
-			}
-			catch (Exception e) {
-				log.error("Privilege listener has failed", e);
-			}
-		}
+		ListenerDispatcher.privilegeChecked(user, privilege, hasPrivilege);
 	}
 	
 	private void notifyUserSessionListener(User user, Event event, Status status) {
-		for (UserSessionListener userSessionListener : Context.getRegisteredComponents(UserSessionListener.class)) {
-			userSessionListener.loggedInOrOut(user, event, status);
-		}
+		ListenerDispatcher.loggedInOrOut(user, event, status);
 	}
 }
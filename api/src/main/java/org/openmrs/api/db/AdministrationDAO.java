@@ -14,6 +14,7 @@ import java.util.List;
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.api.AdministrationService;
+import org.openmrs.api.cache.CacheMetrics;
 import org.springframework.validation.Errors;
 
 /**
@@ -85,4 +86,9 @@ public interface AdministrationDAO {
 	 * @see AdministrationService#updatePostgresSequence()
 	 */
 	public void updatePostgresSequence() throws DAOException;
+	
+	/**
+	 * @see AdministrationService#getCacheMetrics(int)
+	 */
+	public CacheMetrics getCacheMetrics(int slowestQueryCount);
 }
@@ -12,6 +12,7 @@ package org.openmrs.api.db;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.openmrs.Cohort;
 import org.openmrs.Encounter;
@@ -168,6 +169,38 @@ public interface EncounterDAO {
 	 */
 	public Map<Integer, List<Encounter>> getAllEncounters(Cohort patients);
 	
+	/**
+	 * Gets the ids of all patients having at least one non voided encounter
+	 * 
+	 * @return the patient ids in ascending order
+	 * @since 2.8.0
+	 */
+	public List<Integer> getPatientIdsWithEncounters();
+	
+	/**
+	 * Gets the non voided encounters of the given patients with their obs and encounter providers
+	 * already fetched, so that reading them does not trigger a query per encounter
+	 * 
+	 * @param patientIds the ids of the patients to get encounters for
+	 * @return map of patient id to the patient's encounters, ordered by patient id
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 * @since 2.8.0
+	 */
+	public Map<Integer, List<Encounter>> getEncountersWithObsAndProviders(List<Integer> patientIds);
+	
+	/**
+	 * Passes the encounters of the given patients, fetched as by
+	 * {@link #getEncountersWithObsAndProviders(List)}, to the handler and then evicts the entities
+	 * loaded meanwhile from the session, without flushing it or detaching the entities it held before
+	 * 
+	 * @param patientIds the ids of the patients to get encounters for
+	 * @param handler called with the map of patient id to the patient's encounters
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 * @since 2.8.0
+	 */
+	public void getEncountersWithObsAndProviders(List<Integer> patientIds,
+	        Consumer<Map<Integer, List<Encounter>>> handler);
+	
 	/**
 	 * Return the number of encounters matching a patient name or patient identifier
 	 * 
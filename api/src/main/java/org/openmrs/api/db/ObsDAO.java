@@ -9,6 +9,7 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -21,6 +22,7 @@ import org.openmrs.ObsReferenceRange;
 import org.openmrs.Person;
 import org.openmrs.Visit;
 import org.openmrs.api.ObsService;
+import org.openmrs.obs.ObsValues;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
 
 /**
@@ -110,4 +112,31 @@ public interface ObsDAO {
 			List<Concept> answers, List<PERSON_TYPE> personTypes, List<Location> locations, Integer obsGroupId,
 			Date fromDate, Date toDate, List<ConceptName> valueCodedNameAnswers, List<Visit> visits,
 			boolean includeVoidedObs, String accessionNumber) throws DAOException;
+
+	/**
+	 * Reads the columnar value projection of the non voided obs matching the given criteria
+	 * without loading any Obs entities
+	 * 
+	 * @param personIds the person ids to restrict to, or null for all persons
+	 * @param conceptIds the question concept ids to restrict to (required)
+	 * @param fromDate the earliest obsDatetime (optional)
+	 * @param toDate the latest obsDatetime (optional)
+	 * @return the matching rows ordered by person, concept and obsDatetime
+	 * @see ObsService#getObsValues(org.openmrs.Cohort, List, Date, Date)
+	 * @since 2.8.0
+	 */
+	public ObsValues getObsValues(Collection<Integer> personIds, Collection<Integer> conceptIds, Date fromDate,
+	        Date toDate) throws DAOException;
+
+	/**
+	 * Gets the most recent non voided obs, by obsDatetime, of each of the given question concepts
+	 * for each of the given persons
+	 * 
+	 * @param personIds the person ids to look up (required)
+	 * @param conceptIds the question concept ids to look up (required)
+	 * @return at most one obs per person and concept pair
+	 * @see ObsService#getLatestObs(List, List)
+	 * @since 2.8.0
+	 */
+	public List<Obs> getLatestObs(Collection<Integer> personIds, Collection<Integer> conceptIds) throws DAOException;
 }
@@ -17,6 +17,7 @@ import java.util.Map;
 import org.openmrs.Concept;
 import org.openmrs.Location;
 import org.openmrs.Patient;
+import org.openmrs.User;
 import org.openmrs.Visit;
 import org.openmrs.VisitAttribute;
 import org.openmrs.VisitAttributeType;
@@ -169,4 +170,31 @@ public interface VisitDAO {
 	 */
 	public Visit getNextVisit(Visit previousVisit, Collection<VisitType> visitTypes, Date maximumStartDate);
 	
+	/**
+	 * Gets the ids of the next active visits which match the specified visit types, in ascending order
+	 * 
+	 * @param previousVisitId the id of the visit that precedes the ones we are fetching, null to start
+	 *            from the first one
+	 * @param visitTypes a collection of visit types to match against
+	 * @param maximumStartDate the next visits should have been created before or at this date time
+	 * @param maxResults the maximum number of ids to return
+	 * @return the visit ids
+	 * @since 2.8.0
+	 */
+	List<Integer> getNextVisitIds(Integer previousVisitId, Collection<VisitType> visitTypes, Date maximumStartDate,
+	        int maxResults);
+	
+	/**
+	 * Stops the specified visits which are still active, with set based updates of the database. A
+	 * visit with an unvoided encounter after the stop date is stopped at its last encounter instead.
+	 * When auditing is enabled, the visits are updated one by one so that the audit sees the changes.
+	 * 
+	 * @param visitIds the ids of the visits to stop
+	 * @param stopDate the date time at which to stop the visits
+	 * @param changedBy the user stopping the visits
+	 * @return the number of visits stopped
+	 * @since 2.8.0
+	 */
+	int stopVisits(Collection<Integer> visitIds, Date stopDate, User changedBy);
+	
 }
@@ -18,6 +18,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import org.hibernate.FlushMode;
@@ -30,12 +31,15 @@ import org.hibernate.jdbc.Work;
 import org.hibernate.mapping.Column;
 import org.hibernate.mapping.PersistentClass;
 import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
 import org.hibernate.type.StringType;
 import org.hibernate.type.TextType;
 import org.hibernate.type.Type;
 import org.openmrs.GlobalProperty;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.api.APIException;
+import org.openmrs.api.cache.CacheMetrics;
 import org.openmrs.api.db.AdministrationDAO;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.util.DatabaseUtil;
@@ -49,6 +53,11 @@ import org.springframework.context.ApplicationContextAware;
 import org.springframework.validation.Errors;
 import org.springframework.validation.Validator;
 
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Status;
+import net.sf.ehcache.statistics.StatisticsGateway;
+
 /**
  * Hibernate specific database methods for the AdministrationService
  *
@@ -429,4 +438,47 @@ public class HibernateAdministrationDAO implements AdministrationDAO, Applicatio
 			});
 		}
 	}
+	
+	/**
+	 * @see org.openmrs.api.db.AdministrationDAO#getCacheMetrics(int)
+	 */
+	@Override
+	public CacheMetrics getCacheMetrics(int slowestQueryCount) {
+		List<CacheMetrics.Region> regions = new ArrayList<>();
+		for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
+			if (cacheManager.getStatus() != Status.STATUS_ALIVE) {
+				continue;
+			}
+			for (String cacheName : cacheManager.getCacheNames()) {
+				Ehcache cache = cacheManager.getEhcache(cacheName);
+				if (cache == null) {
+					continue;
+				}
+				StatisticsGateway cacheStatistics = cache.getStatistics();
+				regions.add(new CacheMetrics.Region(cacheManager.getName(), cacheName, cacheStatistics.cacheHitCount(),
+				        cacheStatistics.cacheMissCount(), cacheStatistics.cachePutCount(),
+				        cacheStatistics.cacheEvictedCount(), cacheStatistics.cacheExpiredCount(), cacheStatistics.getSize()));
+			}
+		}
+		
+		Statistics statistics = sessionFactory.getStatistics();
+		List<CacheMetrics.Query> queries = new ArrayList<>();
+		for (String query : statistics.getQueries()) {
+			QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+			queries.add(new CacheMetrics.Query(query, queryStatistics.getExecutionCount(),
+			        queryStatistics.getExecutionRowCount(), queryStatistics.getExecutionAvgTime(),
+			        queryStatistics.getExecutionMaxTime(), queryStatistics.getExecutionTotalTime()));
+		}
+		queries.sort(Comparator.comparingLong(CacheMetrics.Query::getMaxTimeMillis)
+		        .thenComparingLong(CacheMetrics.Query::getAverageTimeMillis).reversed());
+		
+		return new CacheMetrics(statistics.isStatisticsEnabled(), regions, statistics.getEntityLoadCount(),
+		        statistics.getEntityFetchCount(), statistics.getEntityInsertCount(), statistics.getEntityUpdateCount(),
+		        statistics.getEntityDeleteCount(), statistics.getCollectionLoadCount(),
+		        statistics.getCollectionFetchCount(), statistics.getQueryExecutionCount(),
+		        statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+		        statistics.getQueryCachePutCount(), statistics.getSecondLevelCacheHitCount(),
+		        statistics.getSecondLevelCacheMissCount(), statistics.getSecondLevelCachePutCount(),
+		        new ArrayList<>(queries.subList(0, Math.min(Math.max(0, slowestQueryCount), queries.size()))));
+	}
 }
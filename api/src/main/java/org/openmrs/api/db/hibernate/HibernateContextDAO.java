@@ -27,6 +27,7 @@ import org.openmrs.api.context.Context;
 import org.openmrs.api.context.ContextAuthenticationException;
 import org.openmrs.api.context.Daemon;
 import org.openmrs.api.db.ContextDAO;
+import org.openmrs.api.db.LoginCredential;
 import org.openmrs.api.db.FullTextSessionFactory;
 import org.openmrs.api.db.UserDAO;
 import org.openmrs.util.OpenmrsConstants;
@@ -165,6 +166,14 @@ public class HibernateContextDAO implements ContextDAO {
 
 			// if the username and password match, hydrate the user and return it
 			if (passwordOnRecord != null && Security.hashMatches(passwordOnRecord, password + saltOnRecord)) {
+				// replace a hash of an older algorithm or cost now that the password is known
+				if (Security.needsRehash(passwordOnRecord)) {
+					session.createNativeQuery("update users set password = ?1 where user_id = ?2")
+						.addSynchronizedEntityClass(LoginCredential.class)
+						.setParameter(1, Security.hashPassword(password + saltOnRecord))
+						.setParameter(2, candidateUser.getUserId()).executeUpdate();
+				}
+				
 				// hydrate the user object
 				candidateUser.getAllRoles().size();
 				candidateUser.getUserProperties().size();
@@ -20,10 +20,15 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -31,6 +36,9 @@ import org.hibernate.FlushMode;
 import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.openmrs.Cohort;
 import org.openmrs.Encounter;
 import org.openmrs.EncounterProvider;
@@ -59,6 +67,12 @@ import org.openmrs.parameter.EncounterSearchCriteria;
  */
 public class HibernateEncounterDAO implements EncounterDAO {
 
+	/**
+	 * The maximum number of patient ids bound into a single <code>in</code> clause when reading the
+	 * encounters of many patients, some databases reject larger lists
+	 */
+	private static final int PATIENT_ID_BATCH_SIZE = 1000;
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -384,6 +398,81 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	}
 
 
+	/**
+	 * @see EncounterDAO#getPatientIdsWithEncounters()
+	 */
+	@Override
+	public List<Integer> getPatientIdsWithEncounters() {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("select distinct e.patient.patientId from Encounter e where e.voided = false "
+		                + "order by e.patient.patientId", Integer.class)
+		        .getResultList();
+	}
+	
+	/**
+	 * @see EncounterDAO#getEncountersWithObsAndProviders(List)
+	 */
+	@Override
+	public Map<Integer, List<Encounter>> getEncountersWithObsAndProviders(List<Integer> patientIds) {
+		Map<Integer, List<Encounter>> encountersByPatient = new LinkedHashMap<>();
+		if (patientIds == null || patientIds.isEmpty()) {
+			return encountersByPatient;
+		}
+		
+		Session session = sessionFactory.getCurrentSession();
+		List<Encounter> encounters = new ArrayList<>();
+		for (int i = 0; i < patientIds.size(); i += PATIENT_ID_BATCH_SIZE) {
+			List<Integer> batch = patientIds.subList(i, Math.min(i + PATIENT_ID_BATCH_SIZE, patientIds.size()));
+			List<Encounter> batchEncounters = session
+			        .createQuery("select distinct e from Encounter e left join fetch e.encounterProviders "
+			                + "where e.voided = false and e.patient.patientId in (:patientIds)", Encounter.class)
+			        .setParameterList("patientIds", batch).getResultList();
+			if (!batchEncounters.isEmpty()) {
+				// the encounters are already in the session, so this initializes their obs
+				// collections with a single query instead of one per encounter, selecting them by
+				// patient keeps the number of parameters independent of the number of encounters
+				session.createQuery("select distinct e from Encounter e left join fetch e.obs "
+				        + "where e.voided = false and e.patient.patientId in (:patientIds)", Encounter.class)
+				        .setParameterList("patientIds", batch).getResultList();
+				encounters.addAll(batchEncounters);
+			}
+		}
+		
+		encounters.sort(Comparator.comparing((Encounter e) -> e.getPatient().getPersonId())
+		        .thenComparing(Encounter::getEncounterDatetime, Comparator.reverseOrder()));
+		for (Encounter encounter : encounters) {
+			encountersByPatient.computeIfAbsent(encounter.getPatient().getPersonId(), id -> new ArrayList<>())
+			        .add(encounter);
+		}
+		return encountersByPatient;
+	}
+	
+	/**
+	 * @see EncounterDAO#getEncountersWithObsAndProviders(List, Consumer)
+	 */
+	@Override
+	public void getEncountersWithObsAndProviders(List<Integer> patientIds,
+	        Consumer<Map<Integer, List<Encounter>>> handler) {
+		Session session = sessionFactory.getCurrentSession();
+		Set<?> heldEntityKeys = new HashSet<>(session.getStatistics().getEntityKeys());
+		try {
+			handler.accept(getEncountersWithObsAndProviders(patientIds));
+		}
+		finally {
+			// only the entities loaded for this batch are evicted, the ones the caller already
+			// held stay attached
+			PersistenceContext persistenceContext = ((SharedSessionContractImplementor) session).getPersistenceContext();
+			for (Object key : new ArrayList<>(session.getStatistics().getEntityKeys())) {
+				if (!heldEntityKeys.contains(key)) {
+					Object entity = persistenceContext.getEntity((EntityKey) key);
+					if (entity != null && session.contains(entity)) {
+						session.evict(entity);
+					}
+				}
+			}
+		}
+	}
+	
 	/**
 	 * Create the criteria for fetching all encounters based on cohort
 	 *
@@ -10,8 +10,10 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.TreeSet;
 
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -25,6 +27,8 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.FlushMode;
 import org.hibernate.SQLQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.openmrs.Concept;
@@ -39,6 +43,7 @@ import org.openmrs.User;
 import org.openmrs.Visit;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.ObsDAO;
+import org.openmrs.obs.ObsValues;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
 
 /**
@@ -50,6 +55,20 @@ import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
  */
 public class HibernateObsDAO implements ObsDAO {
 	
+	/**
+	 * The maximum number of person ids bound into a single <code>in</code> clause when reading obs
+	 * for many persons, some databases reject larger lists
+	 */
+	private static final int PERSON_ID_BATCH_SIZE = 1000;
+	
+	private static final int OBS_VALUES_FETCH_SIZE = 1000;
+	
+	/**
+	 * The maximum number of person, concept and obsDatetime keys looked up by a single query, which
+	 * binds three parameters per key
+	 */
+	private static final int LATEST_OBS_KEY_BATCH_SIZE = 300;
+	
 	protected SessionFactory sessionFactory;
 	
 	/**
@@ -352,4 +371,147 @@ public class HibernateObsDAO implements ObsDAO {
 			session.setHibernateFlushMode(flushMode);
 		}
 	}
+
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getObsValues(Collection, Collection, Date, Date)
+	 */
+	@Override
+	public ObsValues getObsValues(Collection<Integer> personIds, Collection<Integer> conceptIds, Date fromDate,
+	        Date toDate) throws DAOException {
+		ObsValues.Builder builder = new ObsValues.Builder();
+		if (CollectionUtils.isEmpty(conceptIds) || (personIds != null && personIds.isEmpty())) {
+			return builder.build();
+		}
+		
+		if (personIds == null) {
+			readObsValues(builder, null, conceptIds, fromDate, toDate);
+		} else {
+			// sorting the ids keeps the rows ordered by person across batches
+			for (List<Integer> batch : partitionPersonIds(personIds)) {
+				readObsValues(builder, batch, conceptIds, fromDate, toDate);
+			}
+		}
+		
+		return builder.build();
+	}
+	
+	/**
+	 * Scrolls through the scalar columns of the matching obs and appends them to the builder, no
+	 * entity is instantiated or added to the session
+	 */
+	private void readObsValues(ObsValues.Builder builder, Collection<Integer> personIds, Collection<Integer> conceptIds,
+	        Date fromDate, Date toDate) {
+		StringBuilder hql = new StringBuilder("select o.obsId, o.person.personId, o.concept.conceptId, o.obsDatetime, ");
+		hql.append("o.valueNumeric, vc.conceptId from Obs o left join o.valueCoded vc ");
+		hql.append("where o.voided = false and o.concept.conceptId in (:conceptIds)");
+		if (personIds != null) {
+			hql.append(" and o.person.personId in (:personIds)");
+		}
+		if (fromDate != null) {
+			hql.append(" and o.obsDatetime >= :fromDate");
+		}
+		if (toDate != null) {
+			hql.append(" and o.obsDatetime <= :toDate");
+		}
+		hql.append(" order by o.person.personId, o.concept.conceptId, o.obsDatetime, o.obsId");
+		
+		org.hibernate.query.Query<?> query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+		query.setParameterList("conceptIds", conceptIds);
+		if (personIds != null) {
+			query.setParameterList("personIds", personIds);
+		}
+		if (fromDate != null) {
+			query.setParameter("fromDate", fromDate);
+		}
+		if (toDate != null) {
+			query.setParameter("toDate", toDate);
+		}
+		query.setReadOnly(true);
+		query.setFetchSize(OBS_VALUES_FETCH_SIZE);
+		
+		try (ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+			while (results.next()) {
+				Object[] row = results.get();
+				builder.add((Integer) row[0], (Integer) row[1], (Integer) row[2], ((Date) row[3]).getTime(),
+				    (Double) row[4], (Integer) row[5]);
+			}
+		}
+	}
+
+	/**
+	 * @see org.openmrs.api.db.ObsDAO#getLatestObs(Collection, Collection)
+	 */
+	@Override
+	public List<Obs> getLatestObs(Collection<Integer> personIds, Collection<Integer> conceptIds) throws DAOException {
+		List<Obs> latestObs = new ArrayList<>();
+		if (CollectionUtils.isEmpty(personIds) || CollectionUtils.isEmpty(conceptIds)) {
+			return latestObs;
+		}
+		
+		// a grouped max() served by the obs_person_concept_datetime index, a correlated max() in the
+		// where clause would run as a dependent subquery for every candidate row on MySQL
+		String hql = "select o.person.personId, o.concept.conceptId, max(o.obsDatetime) from Obs o "
+		        + "where o.voided = false and o.person.personId in (:personIds) and o.concept.conceptId in (:conceptIds) "
+		        + "group by o.person.personId, o.concept.conceptId order by o.person.personId, o.concept.conceptId";
+		
+		Session session = sessionFactory.getCurrentSession();
+		for (List<Integer> batch : partitionPersonIds(personIds)) {
+			List<Object[]> latest = session.createQuery(hql, Object[].class).setParameterList("personIds", batch)
+			        .setParameterList("conceptIds", conceptIds).getResultList();
+			for (int i = 0; i < latest.size(); i += LATEST_OBS_KEY_BATCH_SIZE) {
+				latestObs.addAll(getObsAt(session, latest.subList(i, Math.min(i + LATEST_OBS_KEY_BATCH_SIZE,
+				    latest.size()))));
+			}
+		}
+		
+		return latestObs;
+	}
+	
+	/**
+	 * Gets the non voided obs of the given person id, concept id and obsDatetime keys, the one with
+	 * the highest id when several share a key
+	 */
+	private List<Obs> getObsAt(Session session, List<Object[]> keys) {
+		StringBuilder hql = new StringBuilder("select o from Obs o where o.voided = false and (");
+		for (int i = 0; i < keys.size(); i++) {
+			if (i > 0) {
+				hql.append(" or ");
+			}
+			hql.append("(o.person.personId = :person").append(i).append(" and o.concept.conceptId = :concept").append(i)
+			        .append(" and o.obsDatetime = :datetime").append(i).append(")");
+		}
+		hql.append(") order by o.person.personId, o.concept.conceptId, o.obsId desc");
+		
+		TypedQuery<Obs> query = session.createQuery(hql.toString(), Obs.class);
+		for (int i = 0; i < keys.size(); i++) {
+			query.setParameter("person" + i, keys.get(i)[0]);
+			query.setParameter("concept" + i, keys.get(i)[1]);
+			query.setParameter("datetime" + i, keys.get(i)[2]);
+		}
+		
+		List<Obs> latestObs = new ArrayList<>();
+		Obs previous = null;
+		for (Obs obs : query.getResultList()) {
+			// obs sharing the latest obsDatetime are ordered by descending id, keep the first one
+			if (previous == null || !previous.getPersonId().equals(obs.getPersonId())
+			        || !previous.getConcept().equals(obs.getConcept())) {
+				latestObs.add(obs);
+			}
+			previous = obs;
+		}
+		return latestObs;
+	}
+	
+	/**
+	 * Sorts the given person ids and splits them into lists no longer than
+	 * {@link #PERSON_ID_BATCH_SIZE}
+	 */
+	private List<List<Integer>> partitionPersonIds(Collection<Integer> personIds) {
+		List<Integer> sortedPersonIds = new ArrayList<>(new TreeSet<>(personIds));
+		List<List<Integer>> batches = new ArrayList<>();
+		for (int i = 0; i < sortedPersonIds.size(); i += PERSON_ID_BATCH_SIZE) {
+			batches.add(sortedPersonIds.subList(i, Math.min(i + PERSON_ID_BATCH_SIZE, sortedPersonIds.size())));
+		}
+		return batches;
+	}
 }
@@ -32,6 +32,7 @@ import org.openmrs.api.context.Context;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleFactory;
 import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.StartupTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MarkerFactory;
@@ -187,7 +188,9 @@ public class HibernateSessionFactoryBean extends LocalSessionFactoryBean impleme
 		
 		setHibernateIntegrators(this);
 		
-		super.afterPropertiesSet();
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_HIBERNATE, "sessionFactory")) {
+			super.afterPropertiesSet();
+		}
 	}
 	
 	/**
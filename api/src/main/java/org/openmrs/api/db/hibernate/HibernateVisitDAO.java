@@ -16,6 +16,7 @@ import javax.persistence.criteria.Root;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +26,7 @@ import org.hibernate.SessionFactory;
 import org.openmrs.Concept;
 import org.openmrs.Location;
 import org.openmrs.Patient;
+import org.openmrs.User;
 import org.openmrs.Visit;
 import org.openmrs.VisitAttribute;
 import org.openmrs.VisitAttributeType;
@@ -391,4 +393,95 @@ public class HibernateVisitDAO implements VisitDAO {
 
 		return session.createQuery(cq).setMaxResults(1).uniqueResult();
 	}
+
+	/**
+	 * @see org.openmrs.api.db.VisitDAO#getNextVisitIds(Integer, Collection, Date, int)
+	 */
+	@Override
+	public List<Integer> getNextVisitIds(Integer previousVisitId, Collection<VisitType> visitTypes,
+	        Date maximumStartDate, int maxResults) {
+		Session session = sessionFactory.getCurrentSession();
+		CriteriaBuilder cb = session.getCriteriaBuilder();
+		CriteriaQuery<Integer> cq = cb.createQuery(Integer.class);
+		Root<Visit> root = cq.from(Visit.class);
+
+		List<Predicate> predicates = new ArrayList<>();
+
+		predicates.add(cb.isFalse(root.get("voided")));
+		predicates.add(cb.greaterThan(root.get("visitId"), (previousVisitId != null) ? previousVisitId : 0));
+		predicates.add(cb.isNull(root.get("stopDatetime")));
+
+		if (maximumStartDate != null) {
+			predicates.add(cb.lessThanOrEqualTo(root.get("startDatetime"), maximumStartDate));
+		}
+
+		if (CollectionUtils.isNotEmpty(visitTypes)) {
+			predicates.add(root.get("visitType").in(visitTypes));
+		}
+
+		cq.select(root.get("visitId")).where(predicates.toArray(new Predicate[]{}))
+			.orderBy(cb.asc(root.get("visitId")));
+
+		return session.createQuery(cq).setMaxResults(maxResults).getResultList();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.VisitDAO#stopVisits(Collection, Date, User)
+	 */
+	@Override
+	public int stopVisits(Collection<Integer> visitIds, Date stopDate, User changedBy) {
+		if (visitIds.isEmpty()) {
+			return 0;
+		}
+		Session session = sessionFactory.getCurrentSession();
+		
+		// the visits with an encounter after the stop date are stopped at their last encounter
+		List<Object[]> lastEncounters = session.createQuery(
+		    "select e.visit.visitId, max(e.encounterDatetime) from Encounter e where e.visit.visitId in (:visitIds)"
+		            + " and e.voided = false group by e.visit.visitId having max(e.encounterDatetime) > :stopDate",
+		    Object[].class).setParameterList("visitIds", visitIds).setParameter("stopDate", stopDate).getResultList();
+		Map<Integer, Date> stopDates = new HashMap<>();
+		for (Object[] lastEncounter : lastEncounters) {
+			stopDates.put((Integer) lastEncounter[0], (Date) lastEncounter[1]);
+		}
+		
+		if (isAuditEnabled()) {
+			// envers does not see bulk updates
+			int stopped = 0;
+			for (Integer visitId : visitIds) {
+				Visit visit = session.get(Visit.class, visitId);
+				if (visit != null && visit.getStopDatetime() == null) {
+					visit.setStopDatetime(stopDates.getOrDefault(visitId, stopDate));
+					session.saveOrUpdate(visit);
+					stopped++;
+				}
+			}
+			session.flush();
+			return stopped;
+		}
+		
+		// write the pending changes first, the bulk updates bypass the session
+		session.flush();
+		Date dateChanged = new Date();
+		int stopped = 0;
+		for (Map.Entry<Integer, Date> entry : stopDates.entrySet()) {
+			stopped += session.createQuery(
+			    "update Visit set stopDatetime = :stopDate, changedBy = :changedBy, dateChanged = :dateChanged"
+			            + " where visitId = :visitId and stopDatetime is null")
+			        .setParameter("stopDate", entry.getValue()).setParameter("changedBy", changedBy)
+			        .setParameter("dateChanged", dateChanged).setParameter("visitId", entry.getKey()).executeUpdate();
+		}
+		stopped += session.createQuery(
+		    "update Visit set stopDatetime = :stopDate, changedBy = :changedBy, dateChanged = :dateChanged"
+		            + " where visitId in (:visitIds) and stopDatetime is null")
+		        .setParameter("stopDate", stopDate).setParameter("changedBy", changedBy)
+		        .setParameter("dateChanged", dateChanged).setParameterList("visitIds", visitIds).executeUpdate();
+		return stopped;
+	}
+	
+	private boolean isAuditEnabled() {
+		// envers is enabled by default when it is on the classpath
+		Object enabled = sessionFactory.getProperties().get("hibernate.integration.envers.enabled");
+		return enabled == null || Boolean.parseBoolean(enabled.toString().trim());
+	}
 }
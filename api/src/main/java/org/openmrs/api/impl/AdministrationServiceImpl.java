@@ -44,6 +44,7 @@ import org.openmrs.api.AdministrationService;
 import org.openmrs.api.EventListeners;
 import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.cache.CacheMetrics;
 import org.openmrs.api.db.AdministrationDAO;
 import org.openmrs.customdatatype.CustomDatatype;
 import org.openmrs.customdatatype.CustomDatatypeUtil;
@@ -953,6 +954,15 @@ public class AdministrationServiceImpl extends BaseOpenmrsService implements Adm
 	public void updatePostgresSequence() {
 		dao.updatePostgresSequence();
 	}
+	
+	/**
+	 * @see org.openmrs.api.AdministrationService#getCacheMetrics(int)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public CacheMetrics getCacheMetrics(int slowestQueryCount) {
+		return dao.getCacheMetrics(slowestQueryCount);
+	}
 
 	@Override
 	public List<String> getSerializerWhitelistTypes() {
@@ -12,10 +12,13 @@ package org.openmrs.api.impl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -397,11 +400,54 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 */
 	@Override
 	public List<Encounter> getEncounters(EncounterSearchCriteria encounterSearchCriteria) {
+		EncounterSearchCriteria viewableCriteria = restrictToViewableEncounterTypes(encounterSearchCriteria,
+		    Context.getAuthenticatedUser());
+		if (viewableCriteria == null) {
+			return new ArrayList<>();
+		}
 		// the second search parameter is null as it defaults to authenticated user from context
-		return Context.getEncounterService().filterEncountersByViewPermissions(dao.getEncounters(encounterSearchCriteria),
+		return Context.getEncounterService().filterEncountersByViewPermissions(dao.getEncounters(viewableCriteria),
 		    null);
 	}
 	
+	/**
+	 * Narrows the encounter types of the given criteria to the ones the given user can view, so that
+	 * encounters of the other types are already excluded by the query instead of being loaded and
+	 * filtered out afterwards
+	 * 
+	 * @param criteria the search criteria to restrict
+	 * @param user the user to check the view privileges for
+	 * @return the given criteria if the user can view all the requested encounter types, criteria
+	 *         limited to the viewable types otherwise, or null if none of them can be viewed
+	 */
+	private EncounterSearchCriteria restrictToViewableEncounterTypes(EncounterSearchCriteria criteria, User user) {
+		if (user == null || user.isSuperUser()) {
+			return criteria;
+		}
+		
+		List<EncounterType> encounterTypes = dao.getAllEncounterTypes(true);
+		List<EncounterType> viewableTypes = new ArrayList<>(encounterTypes.size());
+		for (EncounterType encounterType : encounterTypes) {
+			if (userHasEncounterPrivilege(encounterType.getViewPrivilege(), user)) {
+				viewableTypes.add(encounterType);
+			}
+		}
+		if (viewableTypes.size() == encounterTypes.size()) {
+			return criteria;
+		}
+		
+		if (CollectionUtils.isNotEmpty(criteria.getEncounterTypes())) {
+			viewableTypes.retainAll(criteria.getEncounterTypes());
+		}
+		if (viewableTypes.isEmpty()) {
+			return null;
+		}
+		
+		return new EncounterSearchCriteria(criteria.getPatient(), criteria.getLocation(), criteria.getFromDate(),
+		        criteria.getToDate(), criteria.getDateChanged(), criteria.getEnteredViaForms(), viewableTypes,
+		        criteria.getProviders(), criteria.getVisitTypes(), criteria.getVisits(), criteria.getIncludeVoided());
+	}
+	
 	/**
 	 * @see org.openmrs.api.EncounterService#voidEncounter(org.openmrs.Encounter, java.lang.String)
 	 */
@@ -649,6 +695,42 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 		return dao.getAllEncounters(patients);
 	}
 	
+	/**
+	 * @see org.openmrs.api.EncounterService#getAllEncounters(org.openmrs.Cohort, int,
+	 *      java.util.function.Consumer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void getAllEncounters(Cohort patients, int batchSize, Consumer<Map<Integer, List<Encounter>>> batchHandler) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The 'batchSize' parameter must be greater than zero");
+		}
+		
+		List<Integer> patientIds;
+		if (patients == null) {
+			patientIds = dao.getPatientIdsWithEncounters();
+		} else {
+			Set<Integer> memberIds = new TreeSet<>();
+			patients.getMemberships(false).forEach(m -> memberIds.add(m.getPatientId()));
+			patientIds = new ArrayList<>(memberIds);
+		}
+		
+		for (int i = 0; i < patientIds.size(); i += batchSize) {
+			List<Integer> batch = patientIds.subList(i, Math.min(i + batchSize, patientIds.size()));
+			//the session only ever holds a single batch, the dao evicts it once handled
+			dao.getEncountersWithObsAndProviders(batch, encountersByPatient -> {
+				for (List<Encounter> encounters : encountersByPatient.values()) {
+					Context.getEncounterService().filterEncountersByViewPermissions(encounters, null);
+				}
+				encountersByPatient.values().removeIf(List::isEmpty);
+				
+				if (!encountersByPatient.isEmpty()) {
+					batchHandler.accept(encountersByPatient);
+				}
+			});
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.EncounterService#getEncounters(java.lang.String, java.lang.Integer,
 	 *      java.lang.Integer, boolean)
@@ -858,12 +940,22 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 			if (user == null) {
 				user = Context.getAuthenticatedUser();
 			}
+			// the privilege check only depends on the encounter type, so it is done once per type
+			Map<EncounterType, Boolean> canViewByType = new HashMap<>();
 			for (Iterator<Encounter> iterator = encounters.iterator(); iterator.hasNext();) {
 				Encounter encounter = iterator.next();
 				// determine whether it's need to include this encounter into result or not
 				// as it can be not accessed by current user due to permissions lack
 				EncounterType et = encounter.getEncounterType();
-				if (et != null && !userHasEncounterPrivilege(et.getViewPrivilege(), user)) {
+				if (et == null) {
+					continue;
+				}
+				Boolean canView = canViewByType.get(et);
+				if (canView == null) {
+					canView = userHasEncounterPrivilege(et.getViewPrivilege(), user);
+					canViewByType.put(et, canView);
+				}
+				if (!canView) {
 					// exclude this encounter from result
 					iterator.remove();
 				}
@@ -11,10 +11,14 @@ package org.openmrs.api.impl;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.openmrs.Cohort;
+import org.openmrs.CohortMembership;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.Encounter;
@@ -33,6 +37,7 @@ import org.openmrs.api.db.ObsDAO;
 import org.openmrs.api.handler.SaveHandler;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ObsValues;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
 import org.openmrs.util.OpenmrsUtil;
@@ -672,4 +677,49 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 	public void removeHandler(String key) {
 		handlers.remove(key);
 	}
+
+	/**
+	 * @see org.openmrs.api.ObsService#getObsValues(org.openmrs.Cohort, java.util.List,
+	 *      java.util.Date, java.util.Date)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public ObsValues getObsValues(Cohort cohort, List<Concept> questions, Date fromDate, Date toDate)
+	        throws APIException {
+		Set<Integer> personIds = null;
+		if (cohort != null) {
+			personIds = new HashSet<>();
+			for (CohortMembership membership : cohort.getMemberships(false)) {
+				personIds.add(membership.getPatientId());
+			}
+		}
+		
+		return dao.getObsValues(personIds, getConceptIds(questions), fromDate, toDate);
+	}
+	
+	/**
+	 * @see org.openmrs.api.ObsService#getLatestObs(java.util.List, java.util.List)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Obs> getLatestObs(List<Person> whom, List<Concept> questions) throws APIException {
+		Set<Integer> personIds = new HashSet<>();
+		if (whom != null) {
+			for (Person person : whom) {
+				personIds.add(person.getPersonId());
+			}
+		}
+		
+		return dao.getLatestObs(personIds, getConceptIds(questions));
+	}
+	
+	private Set<Integer> getConceptIds(List<Concept> concepts) {
+		Set<Integer> conceptIds = new HashSet<>();
+		if (concepts != null) {
+			for (Concept concept : concepts) {
+				conceptIds.add(concept.getConceptId());
+			}
+		}
+		return conceptIds;
+	}
 }
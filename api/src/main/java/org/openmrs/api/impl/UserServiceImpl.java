@@ -18,6 +18,7 @@ import org.openmrs.User;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.annotation.Logging;
 import org.openmrs.api.*;
+import org.openmrs.api.context.AuthenticatedPrincipalCache;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.Daemon;
 import org.openmrs.api.db.DAOException;
@@ -175,7 +176,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 				+ " is already in use.");
 		}
 		
-		return dao.saveUser(user, null);
+		User savedUser = dao.saveUser(user, null);
+		AuthenticatedPrincipalCache.invalidate(user.getUserId());
+		return savedUser;
 	}
 	
 	public User voidUser(User user, String reason) throws APIException {
@@ -249,6 +252,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deletePrivilege(privilege);
+		AuthenticatedPrincipalCache.invalidateAll();
 	}
 	
 	/**
@@ -256,7 +260,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 */
 	@Override
 	public Privilege savePrivilege(Privilege privilege) throws APIException {
-		return dao.savePrivilege(privilege);
+		Privilege savedPrivilege = dao.savePrivilege(privilege);
+		AuthenticatedPrincipalCache.invalidateAll();
+		return savedPrivilege;
 	}
 	
 	/**
@@ -295,6 +301,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteRole(role);
+		AuthenticatedPrincipalCache.invalidateAll();
 	}
 	
 	/**
@@ -310,7 +317,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(role);
 		
-		return dao.saveRole(role);
+		Role savedRole = dao.saveRole(role);
+		AuthenticatedPrincipalCache.invalidateAll();
+		return savedRole;
 	}
 	
 	/**
@@ -497,6 +506,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	@Override
 	public void purgeUser(User user) throws APIException {
 		dao.deleteUser(user);
+		AuthenticatedPrincipalCache.invalidate(user.getUserId());
 	}
 	
 	/**
@@ -509,6 +519,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteUser(user);
+		AuthenticatedPrincipalCache.invalidate(user.getUserId());
 	}
 	
 	/**
@@ -614,7 +625,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			throw new APIException("no.authenticated.user.found", (Object[]) null);
 		}
 		user.setUserProperty(key, value);
-		return dao.saveUser(user, null);
+		User savedUser = dao.saveUser(user, null);
+		AuthenticatedPrincipalCache.invalidate(user.getUserId());
+		return savedUser;
 	}
 	
 	@Override
@@ -627,7 +640,9 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		for (Map.Entry<String, String> entry : properties.entrySet()) {
 			user.setUserProperty(entry.getKey(), entry.getValue());
 		}
-		return dao.saveUser(user, null);
+		User savedUser = dao.saveUser(user, null);
+		AuthenticatedPrincipalCache.invalidate(user.getUserId());
+		return savedUser;
 	}
 	
 	/**
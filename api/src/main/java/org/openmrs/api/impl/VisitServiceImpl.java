@@ -45,6 +45,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class VisitServiceImpl extends BaseOpenmrsService implements VisitService {
 	
+	private static final int STOP_VISITS_BATCH_SIZE = 500;
+	
 	private VisitDAO dao;
 	
 	/**
@@ -360,6 +362,21 @@ public class VisitServiceImpl extends BaseOpenmrsService implements VisitService
 	 */
 	@Override
 	public void stopVisits(Date maximumStartDate) {
+		if (maximumStartDate == null) {
+			maximumStartDate = new Date();
+		}
+		
+		List<Integer> visitIds = stopVisits(maximumStartDate, null, STOP_VISITS_BATCH_SIZE);
+		while (!visitIds.isEmpty()) {
+			visitIds = stopVisits(maximumStartDate, visitIds.get(visitIds.size() - 1), STOP_VISITS_BATCH_SIZE);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.api.VisitService#stopVisits(Date, Integer, int)
+	 */
+	@Override
+	public List<Integer> stopVisits(Date maximumStartDate, Integer previousVisitId, int batchSize) {
 		
 		final List<VisitType> visitTypesToStop = getVisitTypesToStop();
 		
@@ -368,24 +385,16 @@ public class VisitServiceImpl extends BaseOpenmrsService implements VisitService
 		}
 			
 		if (visitTypesToStop.isEmpty()) {
-			return;
+			return Collections.emptyList();
 		}
 		
-		int counter = 0;
-		Date stopDate = new Date();
-		Visit nextVisit = dao.getNextVisit(null, visitTypesToStop, maximumStartDate);
-		while (nextVisit != null) {
-			nextVisit.setStopDatetime(stopDate);
-			dao.saveVisit(nextVisit);
-			if (counter++ > 50) {
-				//ensure changes are persisted to DB before reclaiming memory
-				Context.flushSession();
-				Context.clearSession();
-				counter = 0;
-			}
-					
-		nextVisit = dao.getNextVisit(nextVisit, visitTypesToStop, maximumStartDate);
+		List<Integer> visitIds = dao.getNextVisitIds(previousVisitId, visitTypesToStop, maximumStartDate, batchSize);
+		if (!visitIds.isEmpty()) {
+			dao.stopVisits(visitIds, new Date(), Context.getAuthenticatedUser());
+			//the bulk updates bypass the visits loaded so far, and reclaim memory
+			Context.clearSession();
 		}
+		return visitIds;
 	}
 	
 	private List<VisitType> getVisitTypesToStop() {
@@ -11,7 +11,6 @@ package org.openmrs.module;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,12 +34,13 @@ import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -58,21 +58,61 @@ import org.slf4j.LoggerFactory;
  */
 public class ModuleClassLoader extends URLClassLoader {
 	
+	static {
+		// classes are defined under per class name locks instead of a lock on the whole loader
+		ClassLoader.registerAsParallelCapable();
+	}
+	
 	private static final Logger log = LoggerFactory.getLogger(ModuleClassLoader.class);
 	
+	/**
+	 * The maximum number of class names remembered as not found by a single module class loader
+	 */
+	private static final int MAX_NOT_FOUND_CLASSES = 10000;
+	
+	/**
+	 * Incremented whenever a module class loader is created or disposed, since either can change
+	 * which classes are visible through the module imports
+	 */
+	private static final AtomicInteger moduleClassLoadersVersion = new AtomicInteger();
+	
 	private final Module module;
 	
-	private Module[] requiredModules;
+	private volatile Module[] requiredModules;
 	
-	private Module[] awareOfModules;
+	private volatile Module[] awareOfModules;
 	
 	private Map<URI, File> libraryCache;
 	
 	private boolean probeParentLoaderLast = true;
 	
-	private Set<String> providedPackages = new LinkedHashSet<>();
+	private Set<String> providedPackages = ConcurrentHashMap.newKeySet();
 	
-	private boolean disposed = false;
+	/**
+	 * Whether the packages of the classes of all the urls of this class loader are in
+	 * {@link #providedPackages}, if not the imported modules are asked for any class
+	 */
+	private volatile boolean packagesIndexed = false;
+	
+	private final Set<String> providedResourceFolders = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Whether all the urls of this class loader are jars whose folders are in
+	 * {@link #providedResourceFolders}, if not every resource lookup has to search the urls
+	 */
+	private volatile boolean resourceFoldersIndexed = false;
+	
+	private final Set<String> notFoundClasses = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Guards the clearing of {@link #notFoundClasses} together with the additions to it, so that a
+	 * class name missed before the module set changed is not remembered after the clear
+	 */
+	private final Object notFoundClassesLock = new Object();
+	
+	private int notFoundClassesVersion;
+	
+	private volatile boolean disposed = false;
 	
 	
 	/**
@@ -98,6 +138,7 @@ public class ModuleClassLoader extends URLClassLoader {
 		requiredModules = collectRequiredModuleImports(module);
 		awareOfModules = collectAwareOfModuleImports(module);
 		libraryCache = new WeakHashMap<>();
+		notFoundClassesVersion = moduleClassLoadersVersion.incrementAndGet();
 	}
 	
 	/**
@@ -110,11 +151,8 @@ public class ModuleClassLoader extends URLClassLoader {
 		this(module, urls, parent, null);
 		
 		File devDir = ModuleUtil.getDevelopmentDirectory(module.getModuleId());
-		if (devDir != null) {
-			File[] fileList = devDir.listFiles();
-			if (fileList == null) {
-				return;
-			}
+		File[] fileList = devDir != null ? devDir.listFiles() : null;
+		if (fileList != null) {
 			for (File file : fileList) {
 				if (!file.isDirectory()) {
 					continue;
@@ -125,11 +163,55 @@ public class ModuleClassLoader extends URLClassLoader {
 					addClassFilePackages(files, dir.getAbsolutePath().length() + 1);
 				}
 			}
-		} else {
-			for (URL url : urls) {
-				providedPackages.addAll(ModuleUtil.getPackagesFromFile(OpenmrsUtil.url2file(url)));
-			}
 		}
+		// the packages of the jars are indexed in development mode as well, since a class is only
+		// looked up in the loaders of the modules that provide its package
+		boolean allPackagesIndexed = true;
+		boolean allUrlsIndexed = true;
+		for (URL url : urls) {
+			allPackagesIndexed &= addClassPackages(url);
+			allUrlsIndexed &= addResourceFolders(url);
+		}
+		packagesIndexed = allPackagesIndexed;
+		resourceFoldersIndexed = allUrlsIndexed;
+	}
+	
+	/**
+	 * Adds the packages of the classes of the given url to {@link #providedPackages}
+	 * 
+	 * @param url the url to index
+	 * @return false if the url is neither a jar nor a folder and its packages could not be indexed
+	 */
+	private boolean addClassPackages(URL url) {
+		File file = OpenmrsUtil.url2file(url);
+		if (file == null) {
+			return false;
+		}
+		if (file.isDirectory()) {
+			Collection<File> files = FileUtils.listFiles(file, new String[] { "class" }, true);
+			addClassFilePackages(files, file.getAbsolutePath().length() + 1);
+			return true;
+		}
+		if (file.isFile() && file.getName().endsWith(".jar")) {
+			providedPackages.addAll(ModuleUtil.getClassPackagesFromFile(file));
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Adds the folders of the given url to {@link #providedResourceFolders}
+	 * 
+	 * @param url the url to index
+	 * @return false if the url is not a jar and its folders could not be indexed
+	 */
+	private boolean addResourceFolders(URL url) {
+		File file = OpenmrsUtil.url2file(url);
+		if (file == null || !file.isFile() || !file.getName().endsWith(".jar")) {
+			return false;
+		}
+		providedResourceFolders.addAll(ModuleUtil.getResourceFoldersFromFile(file));
+		return true;
 	}
 	
 	private void addClassFilePackages(Collection<File> files, int dirLength) {
@@ -229,60 +311,22 @@ public class ModuleClassLoader extends URLClassLoader {
 			log.error("Failed to add development folder to the classpath", ex);
 		}
 		
-		File tmpModuleDir = getLibCacheFolderForModule(module);
-		
 		//add module jar to classpath only if we are not in dev mode
 		if (devDir == null) {
-			File tmpModuleJar = new File(tmpModuleDir, module.getModuleId() + ".jar");
-			
-			if (!tmpModuleJar.exists()) {
-				try {
-					tmpModuleJar.createNewFile();
-				}
-				catch (IOException io) {
-					log.warn("Unable to create tmpModuleFile", io);
-				}
-			}
-			
-			// copy the module jar into that temporary folder
-			FileInputStream in = null;
-			FileOutputStream out = null;
+			// the copy of the module jar, made once per version of the jar
 			try {
-				in = new FileInputStream(module.getFile());
-				out = new FileOutputStream(tmpModuleJar);
-				OpenmrsUtil.copyFile(in, out);
+				result.add(ModuleUtil.file2url(ModuleExtractionCache.getModuleJar(module)));
 			}
-			catch (IOException io) {
-				log.warn("Unable to copy tmpModuleFile", io);
-			}
-			finally {
-				try {
-					in.close();
-				}
-				catch (Exception e) { /* pass */}
-				try {
-					out.close();
-				}
-				catch (Exception e) { /* pass */}
-			}
-			
-			// add the module jar as a url in the classpath of the classloader
-			URL moduleFileURL;
-			try {
-				moduleFileURL = ModuleUtil.file2url(tmpModuleJar);
-				result.add(moduleFileURL);
-			}
-			catch (MalformedURLException e) {
+			catch (IOException e) {
 				log.warn("Unable to add files from module to URL list: " + module.getModuleId(), e);
 			}
 		}
 		
 		// add each defined jar in the /lib folder, add as a url in the classpath of the classloader
 		try {
-			log.debug("Expanding /lib folder in module");
+			log.debug("Getting the expanded /lib folder of module");
 			
-			ModuleUtil.expandJar(module.getFile(), tmpModuleDir, "lib", true);
-			File libdir = new File(tmpModuleDir, "lib");
+			File libdir = new File(ModuleExtractionCache.getExtractedModuleFolder(module), "lib");
 			
 			if (libdir != null && libdir.exists()) {
 				Map<String, String> startedRelatedModules = new HashMap<>();
@@ -540,6 +584,12 @@ public class ModuleClassLoader extends URLClassLoader {
 		List<URL> newUrls = getUrls(getModule(), getURLs());
 		for (URL u : newUrls) {
 			addURL(u);
+			if (!addClassPackages(u)) {
+				packagesIndexed = false;
+			}
+			if (!addResourceFolders(u)) {
+				resourceFoldersIndexed = false;
+			}
 		}
 		
 		if (log.isDebugEnabled()) {
@@ -555,6 +605,18 @@ public class ModuleClassLoader extends URLClassLoader {
 		requiredModules = collectRequiredModuleImports(getModule());
 		awareOfModules = collectAwareOfModuleImports(getModule());
 		libraryCache.entrySet().removeIf(uriFileEntry -> uriFileEntry.getValue() == null);
+		clearNotFoundClasses();
+	}
+	
+	/**
+	 * Forgets the class names remembered as not found, the lookups in progress do not remember their
+	 * misses either since the version they started with is outdated
+	 */
+	private void clearNotFoundClasses() {
+		moduleClassLoadersVersion.incrementAndGet();
+		synchronized (notFoundClassesLock) {
+			notFoundClasses.clear();
+		}
 	}
 	
 	/**
@@ -570,6 +632,7 @@ public class ModuleClassLoader extends URLClassLoader {
 		requiredModules = null;
 		awareOfModules = null;
 		disposed = true;
+		clearNotFoundClasses();
 	}
 	
 	/**
@@ -592,7 +655,7 @@ public class ModuleClassLoader extends URLClassLoader {
 		if (result == null) {
 			if (probeParentLoaderLast) {
 				try {
-					result = loadClass(name, resolve, this, null);
+					result = loadClassFromModules(name, resolve);
 				}
 				catch (ClassNotFoundException cnfe) {
 					// Continue trying...
@@ -612,7 +675,7 @@ public class ModuleClassLoader extends URLClassLoader {
 				}
 				
 				if (result == null) {
-					result = loadClass(name, resolve, this, null);
+					result = loadClassFromModules(name, resolve);
 				}
 			}
 		}
@@ -624,6 +687,58 @@ public class ModuleClassLoader extends URLClassLoader {
 		return result;
 	}
 	
+	/**
+	 * Loads the class from this module or its imported modules, remembering the names of the
+	 * classes that could not be found so that repeated lookups of missing classes do not walk the
+	 * module imports again
+	 * 
+	 * @param name String path and name of the class to load
+	 * @param resolve boolean whether or not to resolve this class before returning
+	 * @return Class that has been loaded
+	 * @throws ClassNotFoundException if no class found
+	 */
+	private Class<?> loadClassFromModules(final String name, final boolean resolve) throws ClassNotFoundException {
+		int version = moduleClassLoadersVersion.get();
+		synchronized (notFoundClassesLock) {
+			if (notFoundClassesVersion != version) {
+				notFoundClasses.clear();
+				notFoundClassesVersion = version;
+			}
+			if (notFoundClasses.contains(name)) {
+				throw new ClassNotFoundException(name);
+			}
+		}
+		
+		try {
+			return loadClass(name, resolve, this, null);
+		}
+		catch (ClassNotFoundException e) {
+			synchronized (notFoundClassesLock) {
+				// a miss from before a change of the module set may no longer be one
+				if (notFoundClassesVersion == version && moduleClassLoadersVersion.get() == version) {
+					if (notFoundClasses.size() >= MAX_NOT_FOUND_CLASSES) {
+						notFoundClasses.clear();
+					}
+					notFoundClasses.add(name);
+				}
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * Checks whether the package of the given class is one of the packages provided by this module,
+	 * classes in the default package and modules whose packages are not all indexed are not pruned
+	 * 
+	 * @param name the binary name of the class
+	 * @return false if this module can not provide the class
+	 */
+	private boolean mayProvideClass(String name) {
+		int indexOfLastDot = name.lastIndexOf('.');
+		return indexOfLastDot < 0 || !packagesIndexed || providedPackages.isEmpty()
+		        || providedPackages.contains(name.substring(0, indexOfLastDot));
+	}
+	
 	/**
 	 * Custom loadClass implementation to allow for loading from a given ModuleClassLoader and skip
 	 * the modules that have been tried already
@@ -635,7 +750,7 @@ public class ModuleClassLoader extends URLClassLoader {
 	 * @return Class that has been loaded
 	 * @throws ClassNotFoundException if no class found
 	 */
-	protected synchronized Class<?> loadClass(final String name, final boolean resolve, final ModuleClassLoader requestor,
+	protected Class<?> loadClass(final String name, final boolean resolve, final ModuleClassLoader requestor,
 	        Set<String> seenModules) throws ClassNotFoundException {
 		
 		if (log.isTraceEnabled()) {
@@ -667,16 +782,24 @@ public class ModuleClassLoader extends URLClassLoader {
 			throw new ClassNotFoundException(msg);
 		}
 		
-		// Check if the class has already been loaded by this class loader
-		Class<?> result = findLoadedClass(name);
-		
-		// Try loading the class with this class loader 
-		if (result == null) {
-			try {
-				result = findClass(name);
-			}
-			catch (ClassNotFoundException e) {
-				// Continue trying...
+		Class<?> result = null;
+		// the index only prunes the imported modules, a loader always looks up its own classes
+		if (this == requestor || mayProvideClass(name)) {
+			// only the lookup in this loader is locked, so that walking the imported modules
+			// never holds the lock of one module class loader while waiting for another
+			synchronized (getClassLoadingLock(name)) {
+				// Check if the class has already been loaded by this class loader
+				result = findLoadedClass(name);
+				
+				// Try loading the class with this class loader 
+				if (result == null) {
+					try {
+						result = findClass(name);
+					}
+					catch (ClassNotFoundException e) {
+						// Continue trying...
+					}
+				}
 			}
 		}
 		
@@ -697,12 +820,21 @@ public class ModuleClassLoader extends URLClassLoader {
 		// Add this module to the list of modules we've tried already
 		seenModules.add(getModule().getModuleId());
 		
-		List<Module> importedModules = new ArrayList<>();
-		if (requiredModules != null) {
-			Collections.addAll(importedModules, requiredModules);
+		result = loadClassFromImports(requiredModules, name, resolve, requestor, seenModules);
+		if (result == null) {
+			result = loadClassFromImports(awareOfModules, name, resolve, requestor, seenModules);
+		}
+		if (result != null) {
+			return result;
 		}
-		if (awareOfModules != null) {
-			Collections.addAll(importedModules, awareOfModules);
+		
+		throw new ClassNotFoundException(name);
+	}
+	
+	private Class<?> loadClassFromImports(Module[] importedModules, final String name, final boolean resolve,
+	        final ModuleClassLoader requestor, Set<String> seenModules) {
+		if (importedModules == null) {
+			return null;
 		}
 		
 		for (Module importedModule : importedModules) {
@@ -715,17 +847,14 @@ public class ModuleClassLoader extends URLClassLoader {
 			// Module class loader may be null if module has not been started yet
 			if (moduleClassLoader != null) {
 				try {
-					result = moduleClassLoader.loadClass(name, resolve, requestor, seenModules);
-					
-					return result;
+					return moduleClassLoader.loadClass(name, resolve, requestor, seenModules);
 				}
 				catch (ClassNotFoundException e) {
 					// Continue trying...
 				}
 			}
 		}
-		
-		throw new ClassNotFoundException(name);
+		return null;
 	}
 	
 	/**
@@ -1083,6 +1212,31 @@ public class ModuleClassLoader extends URLClassLoader {
 		return providedPackages;
 	}
 	
+	/**
+	 * Checks the folders of the jars of this module to tell whether the resource with the given name
+	 * may be found by {@link #findResource(String)} without looking into the imported modules.
+	 * <p>
+	 * It is used by {@link ModuleFactory#getModuleClassLoadersForResource(String)} so that resource
+	 * lookups through the {@link OpenmrsClassLoader} skip the modules that do not have the folder of
+	 * the resource, instead of searching the jars of every module.
+	 * 
+	 * @param name the resource name, e.g. "org/openmrs/module/xyz/messages.properties"
+	 * @return false if none of the jars of this module contain the resource
+	 * @since 2.8.0
+	 */
+	public boolean mayProvideResource(String name) {
+		if (!resourceFoldersIndexed) {
+			return true;
+		}
+		String path = StringUtils.removeStart(StringUtils.removeEnd(name, "/"), "/");
+		// the name itself may be a folder, e.g. when scanning for classes in a package
+		if (providedResourceFolders.contains(path)) {
+			return true;
+		}
+		int indexOfLastSlash = path.lastIndexOf('/');
+		return providedResourceFolders.contains(indexOfLastSlash < 0 ? "" : path.substring(0, indexOfLastSlash));
+	}
+	
 	/**
 	 * @see java.lang.Object#toString()
 	 */
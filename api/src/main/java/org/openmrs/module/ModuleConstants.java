@@ -72,6 +72,15 @@ public class ModuleConstants {
 	 */
 	public static final String RUNTIMEPROPERTY_MODULE_LIST_TO_LOAD = "module.list_to_load";
 	
+	/**
+	 * Name of the runtime property setting how many modules may be started at the same time at
+	 * startup, modules only start once the modules they require or are aware of have started.
+	 * Defaults to 1, which starts the modules one after another.
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String RUNTIMEPROPERTY_MODULE_STARTUP_THREADS = "module.startup_threads";
+	
 	/**
 	 * Name of the runtime property that will tell the system where to look for modules to load. Can
 	 * be either relative or absolute
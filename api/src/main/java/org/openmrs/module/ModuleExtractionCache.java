@@ -0,0 +1,336 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import org.openmrs.util.OpenmrsUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of the files extracted from the module jars, keyed by the SHA-256 checksum of
+ * the jar. <br>
+ * <br>
+ * The first time a given jar is seen, a copy of it, its /lib and /web/module folders and its top
+ * level files are extracted in a single pass over the jar, the entries being written in parallel.
+ * Later startups with the same jar reuse the extracted files, so the class loader and the web layer
+ * do not expand nor copy the jar on every boot. Each module has a folder holding one sub folder per
+ * checksum, the other checksums of a module are deleted once a new one has been extracted. <br>
+ * <br>
+ * The size and the last modified time of the jar are recorded next to the checksum, the jar being
+ * only hashed again when one of them changed.
+ *
+ * @since 2.8.0
+ */
+public class ModuleExtractionCache {
+
+	private static final Logger log = LoggerFactory.getLogger(ModuleExtractionCache.class);
+
+	private static final String CACHE_FOLDER_NAME = ".openmrs-module-cache";
+
+	private static final String[] EXTRACTED_FOLDERS = { "lib/", "web/module/" };
+
+	private static final String TEMP_FOLDER_SUFFIX = ".tmp";
+
+	// records the size, the last modified time and the checksum of the jar last seen for a module
+	private static final String JAR_PROPERTIES_FILE_NAME = "jar.properties";
+
+	private static final String LENGTH_PROPERTY = "length";
+
+	private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+
+	private static final String CHECKSUM_PROPERTY = "checksum";
+
+	private static final Map<String, Object> moduleLocks = new ConcurrentHashMap<>();
+
+	private ModuleExtractionCache() {
+	}
+
+	/**
+	 * @return the folder holding the extracted files of all modules
+	 */
+	public static File getCacheFolder() {
+		return new File(OpenmrsUtil.getApplicationDataDirectory(), CACHE_FOLDER_NAME);
+	}
+
+	/**
+	 * Gets the folder where the /lib and /web/module folders and the top level files of the given
+	 * module's jar are extracted, extracting them if this version of the jar has not been seen
+	 * before
+	 *
+	 * @param module the module whose files to get
+	 * @return the folder holding the extracted files
+	 * @throws IOException if the jar cannot be read or extracted
+	 */
+	public static File getExtractedModuleFolder(Module module) throws IOException {
+		File moduleFile = module.getFile();
+		File moduleFolder = new File(getCacheFolder(), module.getModuleId());
+
+		synchronized (moduleLocks.computeIfAbsent(module.getModuleId(), moduleId -> new Object())) {
+			String checksum = getChecksum(moduleFile, moduleFolder);
+			File folder = new File(moduleFolder, checksum);
+			if (!folder.isDirectory()) {
+				long start = System.currentTimeMillis();
+				extract(module, moduleFolder, folder);
+				log.debug("Extracted module {} in {} ms", module.getModuleId(), System.currentTimeMillis() - start);
+
+				deleteOtherChecksums(moduleFolder, checksum);
+			} else {
+				log.debug("Reusing the files extracted from module {}", module.getModuleId());
+			}
+			return folder;
+		}
+	}
+
+	/**
+	 * Gets the copy of the given module's jar to put on the class path, so that the jar in the
+	 * modules folder is not locked and can be replaced
+	 *
+	 * @param module the module whose jar to get
+	 * @return the copy of the jar
+	 * @throws IOException if the jar cannot be read or extracted
+	 */
+	public static File getModuleJar(Module module) throws IOException {
+		return new File(getExtractedModuleFolder(module), getJarFileName(module));
+	}
+
+	/**
+	 * Deletes the extracted files of the modules which are not loaded anymore, and the files
+	 * extracted from the previous jars of the loaded ones which could not be deleted on upgrading
+	 * them, for instance because the jars were still in use
+	 *
+	 * @param loadedModules the modules whose current files to keep
+	 */
+	public static void deleteUnusedFolders(Collection<Module> loadedModules) {
+		File[] moduleFolders = getCacheFolder().listFiles(File::isDirectory);
+		if (moduleFolders == null) {
+			return;
+		}
+		Set<String> moduleIds = loadedModules.stream().map(Module::getModuleId).collect(Collectors.toSet());
+		for (File moduleFolder : moduleFolders) {
+			synchronized (moduleLocks.computeIfAbsent(moduleFolder.getName(), moduleId -> new Object())) {
+				if (!moduleIds.contains(moduleFolder.getName())) {
+					log.debug("Deleting the files extracted from module {} which is not loaded", moduleFolder.getName());
+					delete(moduleFolder);
+				} else {
+					String checksum = readJarProperties(moduleFolder).getProperty(CHECKSUM_PROPERTY);
+					if (checksum != null) {
+						deleteOtherChecksums(moduleFolder, checksum);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the files extracted from the given module's jar, e.g. once the module is unloaded
+	 *
+	 * @param module the module whose files to delete
+	 */
+	public static void deleteModuleFolder(Module module) {
+		synchronized (moduleLocks.computeIfAbsent(module.getModuleId(), moduleId -> new Object())) {
+			delete(new File(getCacheFolder(), module.getModuleId()));
+		}
+	}
+
+	private static String getJarFileName(Module module) {
+		return module.getModuleId() + ".jar";
+	}
+
+	private static boolean isExtracted(String entryName) {
+		if (entryName.indexOf('/') < 0) {
+			return true;
+		}
+		for (String extractedFolder : EXTRACTED_FOLDERS) {
+			if (entryName.startsWith(extractedFolder)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Extracts into a temporary folder renamed once complete, so that an interrupted extraction is
+	 * never taken for a complete one
+	 */
+	private static void extract(Module module, File moduleFolder, File folder) throws IOException {
+		File moduleFile = module.getFile();
+		if (!moduleFolder.isDirectory() && !moduleFolder.mkdirs()) {
+			throw new IOException("Unable to create the folder " + moduleFolder);
+		}
+
+		Path tempFolder = Files.createTempDirectory(moduleFolder.toPath(), folder.getName() + TEMP_FOLDER_SUFFIX);
+		try {
+			Path root = tempFolder.toAbsolutePath().normalize();
+			try (JarFile jarFile = new JarFile(moduleFile)) {
+				List<JarEntry> entries = jarFile.stream().filter(entry -> isExtracted(entry.getName())).collect(
+				    Collectors.toList());
+
+				// the jar can be read concurrently, each entry getting its own stream
+				entries.parallelStream().forEach(entry -> {
+					try {
+						extractEntry(jarFile, entry, root);
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			Files.copy(moduleFile.toPath(), root.resolve(getJarFileName(module)), StandardCopyOption.REPLACE_EXISTING);
+
+			Files.move(tempFolder, folder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			if (Files.exists(tempFolder)) {
+				OpenmrsUtil.deleteDirectory(tempFolder.toFile());
+			}
+		}
+	}
+
+	private static void extractEntry(JarFile jarFile, JarEntry entry, Path root) throws IOException {
+		Path target = root.resolve(entry.getName()).normalize();
+		if (!target.startsWith(root)) {
+			throw new UnsupportedOperationException("Attempted to write file '" + entry.getName()
+			        + "' rejected as it attempts to write outside the chosen directory. This may be the result of a zip-slip style attack.");
+		}
+
+		if (entry.isDirectory()) {
+			Files.createDirectories(target);
+			return;
+		}
+
+		Files.createDirectories(target.getParent());
+		try (InputStream input = jarFile.getInputStream(entry)) {
+			Files.copy(input, target);
+		}
+		// the entry time lets copies of the file be checked for changes
+		if (entry.getTime() != -1) {
+			target.toFile().setLastModified(entry.getTime());
+		}
+	}
+
+	private static void deleteOtherChecksums(File moduleFolder, String checksum) {
+		File[] files = moduleFolder.listFiles(File::isDirectory);
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (!file.getName().equals(checksum)) {
+				delete(file);
+			}
+		}
+	}
+
+	private static void delete(File folder) {
+		try {
+			OpenmrsUtil.deleteDirectory(folder);
+		}
+		catch (IOException e) {
+			// the jars may still be in use by a class loader
+			log.debug("Unable to delete {}", folder, e);
+		}
+	}
+
+	/**
+	 * Gets the hex encoded SHA-256 checksum of the given file. The checksum recorded in the module
+	 * folder is returned as long as the size and the last modified time of the file are unchanged, the
+	 * file being only hashed otherwise
+	 */
+	private static String getChecksum(File file, File moduleFolder) throws IOException {
+		long length = file.length();
+		long lastModified = file.lastModified();
+		Properties jarProperties = readJarProperties(moduleFolder);
+		String checksum = jarProperties.getProperty(CHECKSUM_PROPERTY);
+		if (checksum != null && NumberUtils.toLong(jarProperties.getProperty(LENGTH_PROPERTY), -1) == length
+		        && NumberUtils.toLong(jarProperties.getProperty(LAST_MODIFIED_PROPERTY), -1) == lastModified) {
+			return checksum;
+		}
+
+		checksum = computeChecksum(file);
+		jarProperties.setProperty(LENGTH_PROPERTY, String.valueOf(length));
+		jarProperties.setProperty(LAST_MODIFIED_PROPERTY, String.valueOf(lastModified));
+		jarProperties.setProperty(CHECKSUM_PROPERTY, checksum);
+		writeJarProperties(moduleFolder, jarProperties);
+		return checksum;
+	}
+
+	private static String computeChecksum(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+		}
+
+		byte[] buffer = new byte[8192];
+		try (InputStream input = new FileInputStream(file)) {
+			for (int read = input.read(buffer); read != -1; read = input.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		StringBuilder value = new StringBuilder();
+		for (byte b : digest.digest()) {
+			value.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return value.toString();
+	}
+
+	private static Properties readJarProperties(File moduleFolder) {
+		Properties jarProperties = new Properties();
+		File file = new File(moduleFolder, JAR_PROPERTIES_FILE_NAME);
+		if (file.isFile()) {
+			try (InputStream input = new FileInputStream(file)) {
+				jarProperties.load(input);
+			}
+			catch (IOException e) {
+				// the jar is then hashed again
+				log.debug("Unable to read {}", file, e);
+			}
+		}
+		return jarProperties;
+	}
+
+	private static void writeJarProperties(File moduleFolder, Properties jarProperties) throws IOException {
+		if (!moduleFolder.isDirectory() && !moduleFolder.mkdirs()) {
+			throw new IOException("Unable to create the folder " + moduleFolder);
+		}
+		try (OutputStream output = new FileOutputStream(new File(moduleFolder, JAR_PROPERTIES_FILE_NAME))) {
+			jarProperties.store(output, null);
+		}
+	}
+}
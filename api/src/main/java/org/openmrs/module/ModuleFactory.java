@@ -27,7 +27,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutionException;
 
 import com.google.common.cache.Cache;
@@ -45,10 +48,12 @@ import org.openmrs.util.CycleException;
 import org.openmrs.util.DatabaseUpdater;
 import org.openmrs.util.Graph;
 import org.openmrs.util.InputRequiredException;
+import org.openmrs.util.ManagedExecutor;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
+import org.openmrs.util.StartupTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.Advisor;
@@ -86,7 +91,12 @@ public class ModuleFactory {
 	
 	private static final Cache<String, DaemonToken> daemonTokens = CacheBuilder.newBuilder().softValues().build();
 	
-	private static final Set<String> actualStartupOrder = new LinkedHashSet<>();
+	private static final Set<String> actualStartupOrder = Collections.synchronizedSet(new LinkedHashSet<>());
+	
+	private static final Map<String, Long> moduleStartupTimes = new ConcurrentHashMap<>();
+	
+	// modules started concurrently must not add the core dataset at the same time
+	private static final Object coreDatasetLock = new Object();
 	
 	/**
 	 * Add a module (in the form of a jar file) to the list of openmrs modules Returns null if an error
@@ -234,6 +244,7 @@ public class ModuleFactory {
 		if (!getLoadedModules().isEmpty()) {
 			
 			List<Module> modules = getModulesThatShouldStart();
+			boolean sorted = true;
 			
 			try {
 				modules = getModulesInStartupOrder(modules);
@@ -243,38 +254,179 @@ public class ModuleFactory {
 				log.error(message, ex);
 				notifySuperUsersAboutCyclicDependencies(ex);
 				modules = (List<Module>) ex.getExtraData();
+				// without a dependency graph the modules can only be started one after another
+				sorted = false;
 			}
 			
-			// try and start the modules that should be started
-			for (Module mod : modules) {
-				
-				if (mod.isStarted()) {
-					// skip over modules that are already started
-					continue;
+			int threads = getModuleStartupThreads();
+			if (sorted && threads > 1 && modules.size() > 1) {
+				startModulesConcurrently(modules, threads);
+			} else {
+				// try and start the modules that should be started
+				for (Module mod : modules) {
+					
+					if (mod.isStarted()) {
+						// skip over modules that are already started
+						continue;
+					}
+					
+					// Skip module if required ones are not started
+					if (!requiredModulesStarted(mod)) {
+						reportRequiredModulesNotStarted(mod);
+						continue;
+					}
+					
+					try {
+						startModuleTimed(mod);
+					}
+					catch (Exception e) {
+						reportModuleStartupError(mod, e);
+					}
 				}
-				
-				// Skip module if required ones are not started
-				if (!requiredModulesStarted(mod)) {
-					String message = getFailedToStartModuleMessage(mod);
-					log.error(message);
-					mod.setStartupErrorMessage(message);
-					notifySuperUsersAboutModuleFailure(mod);
-					continue;
+			}
+		}
+	}
+	
+	/**
+	 * Starts the given modules on a pool of threads, each module being started as soon as all the
+	 * modules it requires or is aware of are done starting, so that independent modules start at the
+	 * same time. Errors are reported on the calling thread once all the modules are done, the same way
+	 * as when the modules are started one after another.
+	 *
+	 * @param modules the modules to start, in startup order
+	 * @param threads the maximum number of modules to start at the same time
+	 */
+	private static void startModulesConcurrently(List<Module> modules, int threads) {
+		log.debug("Starting {} modules using {} threads", modules.size(), threads);
+		
+		Set<Module> requiredModulesNotStarted = ConcurrentHashMap.newKeySet();
+		Map<Module, Exception> startupErrors = new ConcurrentHashMap<>();
+		Map<String, CompletableFuture<Void>> moduleStartups = new HashMap<>();
+		
+		// daemon threads, so that a module hanging in its activator cannot keep the JVM from exiting
+		ExecutorService executor = new ManagedExecutor("moduleStartup", Math.min(threads, modules.size()),
+		        modules.size(), 0, false);
+		try {
+			for (Module mod : modules) {
+				// the startup order puts the modules a module depends on before it
+				List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+				for (String dependency : getStartupDependencies(mod)) {
+					CompletableFuture<Void> dependencyStartup = moduleStartups.get(dependency);
+					if (dependencyStartup != null) {
+						dependencies.add(dependencyStartup);
+					}
 				}
 				
-				try {
-					log.debug("starting module: {}", mod.getModuleId());
-					startModule(mod);
-				}
-				catch (Exception e) {
-					log.error("Error while starting module: " + mod.getName(), e);
-					mod.setStartupErrorMessage("Error while starting module", e);
-					notifySuperUsersAboutModuleFailure(mod);
-				}
+				moduleStartups.put(mod.getModuleId(),
+					CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+						if (mod.isStarted()) {
+							return;
+						}
+						if (!requiredModulesStarted(mod)) {
+							requiredModulesNotStarted.add(mod);
+							return;
+						}
+						try {
+							startModuleTimed(mod);
+						}
+						catch (Exception e) {
+							startupErrors.put(mod, e);
+						}
+					}, executor));
+			}
+			
+			CompletableFuture.allOf(moduleStartups.values().toArray(new CompletableFuture[0])).join();
+		}
+		finally {
+			executor.shutdown();
+		}
+		
+		for (Module mod : modules) {
+			if (requiredModulesNotStarted.contains(mod)) {
+				reportRequiredModulesNotStarted(mod);
+			} else if (startupErrors.containsKey(mod)) {
+				reportModuleStartupError(mod, startupErrors.get(mod));
 			}
 		}
 	}
 	
+	/**
+	 * @param mod the module
+	 * @return the ids of the loaded modules the given module requires or is aware of
+	 */
+	private static Set<String> getStartupDependencies(Module mod) {
+		Set<String> dependencies = new HashSet<>();
+		for (String key : mod.getRequiredModules()) {
+			Module module = getModuleByPackage(key);
+			if (module != null) {
+				dependencies.add(module.getModuleId());
+			}
+		}
+		for (String key : mod.getAwareOfModules()) {
+			Module module = getModuleByPackage(key);
+			if (module != null) {
+				dependencies.add(module.getModuleId());
+			}
+		}
+		return dependencies;
+	}
+	
+	private static void startModuleTimed(Module mod) throws ModuleException {
+		log.debug("starting module: {}", mod.getModuleId());
+		long start = System.nanoTime();
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_MODULE_START,
+		    mod.getModuleId())) {
+			startModule(mod);
+		}
+		finally {
+			long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			moduleStartupTimes.put(mod.getModuleId(), millis);
+			log.info("Module {} took {} ms to start", mod.getModuleId(), millis);
+		}
+	}
+	
+	private static void reportRequiredModulesNotStarted(Module mod) {
+		String message = getFailedToStartModuleMessage(mod);
+		log.error(message);
+		mod.setStartupErrorMessage(message);
+		notifySuperUsersAboutModuleFailure(mod);
+	}
+	
+	private static void reportModuleStartupError(Module mod, Exception e) {
+		log.error("Error while starting module: " + mod.getName(), e);
+		mod.setStartupErrorMessage("Error while starting module", e);
+		notifySuperUsersAboutModuleFailure(mod);
+	}
+	
+	/**
+	 * @return the number of threads set by the {@link ModuleConstants#RUNTIMEPROPERTY_MODULE_STARTUP_THREADS}
+	 *         runtime property, defaulting to 1 so that the modules start one after another
+	 */
+	private static int getModuleStartupThreads() {
+		String threads = Context.getRuntimeProperties().getProperty(ModuleConstants.RUNTIMEPROPERTY_MODULE_STARTUP_THREADS);
+		if (StringUtils.hasText(threads)) {
+			try {
+				return Integer.parseInt(threads.trim());
+			}
+			catch (NumberFormatException e) {
+				log.warn("Invalid value for the runtime property {}: {}", ModuleConstants.RUNTIMEPROPERTY_MODULE_STARTUP_THREADS,
+					threads);
+			}
+		}
+		return 1;
+	}
+	
+	/**
+	 * Gets how long it took to start each module during the last call to {@link #startModules()}, or
+	 * to any later start of a module through it
+	 *
+	 * @return the startup times in milliseconds keyed by module id
+	 * @since 2.8.0
+	 */
+	public static Map<String, Long> getModuleStartupTimes() {
+		return Collections.unmodifiableMap(moduleStartupTimes);
+	}
+	
 	/**
 	 * Obtain the list of modules that should be started
 	 *
@@ -492,8 +644,10 @@ public class ModuleFactory {
 	public static List<Module> getStartedModulesInOrder() {
 		List<Module> modules = new ArrayList<>();
 		if (actualStartupOrder != null) {
-			for (String moduleId : actualStartupOrder) {
-				modules.add(getStartedModulesMap().get(moduleId));
+			synchronized (actualStartupOrder) {
+				for (String moduleId : actualStartupOrder) {
+					modules.add(getStartedModulesMap().get(moduleId));
+				}
 			}
 		} else {
 			modules.addAll(getStartedModules());
@@ -671,17 +825,19 @@ public class ModuleFactory {
 				
 				// Sort this module's extensions, and merge them into the full extensions map
 				Comparator<Extension> sortOrder = (e1, e2) -> Integer.valueOf(e1.getOrder()).compareTo(e2.getOrder());
-				for (Map.Entry<String, List<Extension>> moduleExtensionEntry : moduleExtensionMap.entrySet()) {
-					// Sort this module's extensions for current extension point
-					List<Extension> sortedModuleExtensions = moduleExtensionEntry.getValue();
-					sortedModuleExtensions.sort(sortOrder);
-					
-					// Get existing extensions, and append the ones from the new module
-					List<Extension> extensions = getExtensionMap().computeIfAbsent(moduleExtensionEntry.getKey(),
-						k -> new ArrayList<>());
-					for (Extension ext : sortedModuleExtensions) {
-						log.debug("Adding to mapping ext: " + ext.getExtensionId() + " ext.class: " + ext.getClass());
-						extensions.add(ext);
+				synchronized (extensionMap) {
+					for (Map.Entry<String, List<Extension>> moduleExtensionEntry : moduleExtensionMap.entrySet()) {
+						// Sort this module's extensions for current extension point
+						List<Extension> sortedModuleExtensions = moduleExtensionEntry.getValue();
+						sortedModuleExtensions.sort(sortOrder);
+						
+						// Get existing extensions, and append the ones from the new module
+						List<Extension> extensions = getExtensionMap().computeIfAbsent(moduleExtensionEntry.getKey(),
+							k -> new ArrayList<>());
+						for (Extension ext : sortedModuleExtensions) {
+							log.debug("Adding to mapping ext: " + ext.getExtensionId() + " ext.class: " + ext.getClass());
+							extensions.add(ext);
+						}
 					}
 				}
 				
@@ -742,7 +898,9 @@ public class ModuleFactory {
 				// done at initial app startup)
 				if (!module.getPrivileges().isEmpty() || !module.getGlobalProperties().isEmpty()) {
 					log.debug("Updating core dataset");
-					Context.checkCoreDataset();
+					synchronized (coreDatasetLock) {
+						Context.checkCoreDataset();
+					}
 					// checkCoreDataset() currently doesn't throw an error. If
 					// it did, it needs to be
 					// caught and the module needs to be stopped and given a
@@ -801,29 +959,28 @@ public class ModuleFactory {
 	
 	private static void registerProvidedPackages(ModuleClassLoader moduleClassLoader) {
 		for (String providedPackage : moduleClassLoader.getProvidedPackages()) {
-			Set<ModuleClassLoader> newSet = new HashSet<>();
-			
-			Set<ModuleClassLoader> set = providedPackages.get(providedPackage);
-			if (set != null) {
-				newSet.addAll(set);
-			}
-			
-			newSet.add(moduleClassLoader);
-			providedPackages.put(providedPackage, newSet);
+			// copy on write within compute, so that modules starting at the same time do not lose updates
+			providedPackages.compute(providedPackage, (key, set) -> {
+				Set<ModuleClassLoader> newSet = new HashSet<>();
+				if (set != null) {
+					newSet.addAll(set);
+				}
+				newSet.add(moduleClassLoader);
+				return newSet;
+			});
 		}
 	}
 	
 	private static void unregisterProvidedPackages(ModuleClassLoader moduleClassLoader) {
 		for (String providedPackage : moduleClassLoader.getProvidedPackages()) {
-			Set<ModuleClassLoader> newSet = new HashSet<>();
-			
-			Set<ModuleClassLoader> set = providedPackages.get(providedPackage);
-			if (set != null) {
-				newSet.addAll(set);
-			}
-			newSet.remove(moduleClassLoader);
-			
-			providedPackages.put(providedPackage, newSet);
+			providedPackages.compute(providedPackage, (key, set) -> {
+				Set<ModuleClassLoader> newSet = new HashSet<>();
+				if (set != null) {
+					newSet.addAll(set);
+				}
+				newSet.remove(moduleClassLoader);
+				return newSet;
+			});
 		}
 	}
 	
@@ -836,6 +993,25 @@ public class ModuleFactory {
 		}
 	}
 	
+	/**
+	 * Gets the class loaders of the started modules whose jars may contain the given resource, in the
+	 * same order as {@link #getModuleClassLoaders()}
+	 *
+	 * @param name the resource name
+	 * @return the module class loaders to search for the resource
+	 * @see ModuleClassLoader#mayProvideResource(String)
+	 * @since 2.8.0
+	 */
+	public static List<ModuleClassLoader> getModuleClassLoadersForResource(String name) {
+		List<ModuleClassLoader> result = new ArrayList<>();
+		for (ModuleClassLoader moduleClassLoader : getModuleClassLoaders()) {
+			if (moduleClassLoader.mayProvideResource(name)) {
+				result.add(moduleClassLoader);
+			}
+		}
+		return result;
+	}
+	
 	/**
 	 * Gets the error message of a module which fails to start.
 	 *
@@ -865,23 +1041,30 @@ public class ModuleFactory {
 	 * @param module
 	 */
 	public static void loadAdvice(Module module) {
-		for (AdvicePoint advice : module.getAdvicePoints()) {
-			Class<?> cls;
-			try {
-				cls = Context.loadClass(advice.getPoint());
-				Object aopObject = advice.getClassInstance();
-				if (aopObject instanceof Advisor) {
-					log.debug("adding advisor [{}]", aopObject.getClass());
-					Context.addAdvisor(cls, (Advisor) aopObject);
-				} else if (aopObject != null) {
-					log.debug("adding advice [{}]", aopObject.getClass());
-					Context.addAdvice(cls, (Advice) aopObject);
-				} else {
-					log.debug("Could not load advice class for {} [{}]", advice.getPoint(), advice.getClassName());
+		if (module.getAdvicePoints().isEmpty()) {
+			return;
+		}
+		
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_MODULE_ADVICE,
+		    module.getModuleId())) {
+			for (AdvicePoint advice : module.getAdvicePoints()) {
+				Class<?> cls;
+				try {
+					cls = Context.loadClass(advice.getPoint());
+					Object aopObject = advice.getClassInstance();
+					if (aopObject instanceof Advisor) {
+						log.debug("adding advisor [{}]", aopObject.getClass());
+						Context.addAdvisor(cls, (Advisor) aopObject);
+					} else if (aopObject != null) {
+						log.debug("adding advice [{}]", aopObject.getClass());
+						Context.addAdvice(cls, (Advice) aopObject);
+					} else {
+						log.debug("Could not load advice class for {} [{}]", advice.getPoint(), advice.getClassName());
+					}
+				}
+				catch (ClassNotFoundException | NoClassDefFoundError e) {
+					log.warn("Could not load advice point [{}]", advice.getPoint(), e);
 				}
-			}
-			catch (ClassNotFoundException | NoClassDefFoundError e) {
-				log.warn("Could not load advice point [{}]", advice.getPoint(), e);
 			}
 		}
 	}
@@ -1124,9 +1307,11 @@ public class ModuleFactory {
 					for (Extension ext : mod.getExtensions()) {
 						String extId = ext.getExtensionId();
 						try {
-							List<Extension> tmpExtensions = getExtensions(extId);
-							tmpExtensions.remove(ext);
-							getExtensionMap().put(extId, tmpExtensions);
+							synchronized (extensionMap) {
+								List<Extension> tmpExtensions = getExtensions(extId);
+								tmpExtensions.remove(ext);
+								getExtensionMap().put(extId, tmpExtensions);
+							}
 						}
 						catch (Exception exterror) {
 							log.warn("Error while getting extension: " + ext, exterror);
@@ -1235,6 +1420,7 @@ public class ModuleFactory {
 				log.warn("Could not delete " + file.getAbsolutePath());
 			}
 			
+			ModuleExtractionCache.deleteModuleFolder(mod);
 		}
 	}
 	
@@ -21,6 +21,7 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -31,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -48,6 +50,7 @@ import org.openmrs.scheduler.SchedulerUtil;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.StartupTimeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.support.AbstractRefreshableApplicationContext;
@@ -62,6 +65,8 @@ public class ModuleUtil {
 	
 	private static final Logger log = LoggerFactory.getLogger(ModuleUtil.class);
 	
+	private static final String MULTI_RELEASE_VERSIONS_FOLDER = "META-INF/versions/";
+	
 	/**
 	 * Start up the module system with the given properties.
 	 *
@@ -129,6 +134,9 @@ public class ModuleUtil {
 		// start all of the modules we just loaded
 		ModuleFactory.startModules();
 		
+		// the files extracted from removed or upgraded modules are not needed anymore
+		ModuleExtractionCache.deleteUnusedFolders(ModuleFactory.getLoadedModules());
+		
 		// some debugging info
 		if (log.isDebugEnabled()) {
 			Collection<Module> modules = ModuleFactory.getStartedModules();
@@ -842,6 +850,49 @@ public class ModuleUtil {
 	 */
 	public static AbstractRefreshableApplicationContext refreshApplicationContext(AbstractRefreshableApplicationContext ctx,
 	        boolean isOpenmrsStartup, Module startedModule) {
+		Collection<Module> startedModules = startedModule == null ? Collections.emptySet()
+		        : Collections.singleton(startedModule);
+		return refreshApplicationContextForModules(ctx, isOpenmrsStartup, startedModules);
+	}
+	
+	/**
+	 * Refreshes the given application context once for all the given modules, so that starting several
+	 * modules at the same time only needs one refresh.
+	 *
+	 * @param ctx Spring application context that needs refreshing.
+	 * @param isOpenmrsStartup if this refresh is being done at application startup.
+	 * @param justStartedModules the modules that were just started and waiting on the context refresh,
+	 *            their activators get {@link ModuleActivator#started()} called after the refresh
+	 * @return AbstractRefreshableApplicationContext The newly refreshed application context.
+	 * @see #refreshApplicationContext(AbstractRefreshableApplicationContext, boolean, Module)
+	 * @since 2.8.0
+	 */
+	public static AbstractRefreshableApplicationContext refreshApplicationContextForModules(
+	        AbstractRefreshableApplicationContext ctx, boolean isOpenmrsStartup, Collection<Module> justStartedModules) {
+		long refreshStart = System.nanoTime();
+		Set<String> beanNamesBeforeRefresh = getBeanDefinitionNames(ctx);
+		
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_CONTEXT_REFRESH,
+		    StartupTimeline.PHASE_APPLICATION_CONTEXT)) {
+			doRefreshApplicationContext(ctx, isOpenmrsStartup, justStartedModules);
+		}
+		
+		if (log.isInfoEnabled()) {
+			Set<String> addedBeanNames = getBeanDefinitionNames(ctx);
+			Set<String> removedBeanNames = new HashSet<>(beanNamesBeforeRefresh);
+			removedBeanNames.removeAll(addedBeanNames);
+			addedBeanNames.removeAll(beanNamesBeforeRefresh);
+			log.info("Refreshed the application context in {} ms for {} started module(s), {} bean definition(s) added, {} removed",
+			    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - refreshStart), justStartedModules.size(),
+			    addedBeanNames.size(), removedBeanNames.size());
+			log.debug("Added bean definitions: {}, removed bean definitions: {}", addedBeanNames, removedBeanNames);
+		}
+		
+		return ctx;
+	}
+	
+	private static void doRefreshApplicationContext(AbstractRefreshableApplicationContext ctx, boolean isOpenmrsStartup,
+	        Collection<Module> justStartedModules) {
 		//notify all started modules that we are about to refresh the context
 		Set<Module> startedModules = new LinkedHashSet<>(ModuleFactory.getStartedModulesInOrder());
 		for (Module module : startedModules) {
@@ -914,8 +965,8 @@ public class ModuleUtil {
 							if (isOpenmrsStartup) {
 								module.getModuleActivator().started();
 							}
-							//if refreshing the context after a user started or uploaded a new module
-							else if (!isOpenmrsStartup && module.equals(startedModule)) {
+							//if refreshing the context after a user started or uploaded new modules
+							else if (justStartedModules.contains(module)) {
 								module.getModuleActivator().started();
 							}
 						}
@@ -934,8 +985,23 @@ public class ModuleUtil {
 		finally {
 			Context.closeSessionWithCurrentUser();
 		}
-		
-		return ctx;
+	}
+	
+	/**
+	 * @param ctx the application context
+	 * @return the names of the bean definitions of the context, empty if it is not active
+	 */
+	private static Set<String> getBeanDefinitionNames(AbstractRefreshableApplicationContext ctx) {
+		if (!ctx.isActive()) {
+			return new HashSet<>();
+		}
+		try {
+			return new HashSet<>(Arrays.asList(ctx.getBeanDefinitionNames()));
+		}
+		catch (IllegalStateException e) {
+			// the context is being closed or refreshed
+			return new HashSet<>();
+		}
 	}
 	
 	/**
@@ -1096,6 +1162,83 @@ public class ModuleUtil {
 		return path.substring(module.getModuleIdAsPath().length());
 	}
 	
+	/**
+	 * Gets the folders holding the files in this jar, including all of their parent folders, with
+	 * the empty string standing for the root of the jar. Folders are separated by "/" and have no
+	 * trailing slash.
+	 *
+	 * @param file jar file to look into
+	 * @return the folder names in this jar or an empty set if the file is not a jar
+	 * @since 2.8.0
+	 */
+	public static Set<String> getResourceFoldersFromFile(File file) {
+		if (!file.getName().endsWith(".jar")) {
+			return Collections.emptySet();
+		}
+		
+		Set<String> folders = new HashSet<>();
+		try (JarFile jar = new JarFile(file)) {
+			Enumeration<JarEntry> jarEntries = jar.entries();
+			while (jarEntries.hasMoreElements()) {
+				String name = jarEntries.nextElement().getName();
+				int indexOfLastSlash = name.lastIndexOf('/');
+				// add the folder and its parents until one that is already known
+				while (indexOfLastSlash > 0 && folders.add(name.substring(0, indexOfLastSlash))) {
+					indexOfLastSlash = name.lastIndexOf('/', indexOfLastSlash - 1);
+				}
+			}
+			folders.add("");
+		}
+		catch (IOException e) {
+			log.error("Error while reading file: " + file.getAbsolutePath(), e);
+		}
+		
+		return folders;
+	}
+	
+	/**
+	 * Gets the packages of the classes in this jar. Unlike {@link #getPackagesFromFile(File)} no
+	 * folder is skipped, so packages such as <code>library.*</code> are included, and the classes of
+	 * a multi-release jar under <code>META-INF/versions/&lt;version&gt;/</code> are indexed by their
+	 * actual package.
+	 *
+	 * @param file jar file to look into
+	 * @return the package names of the classes in this jar or an empty set if the file is not a jar
+	 * @since 2.8.0
+	 */
+	public static Set<String> getClassPackagesFromFile(File file) {
+		if (!file.getName().endsWith(".jar")) {
+			return Collections.emptySet();
+		}
+		
+		Set<String> packages = new HashSet<>();
+		try (JarFile jar = new JarFile(file)) {
+			Enumeration<JarEntry> jarEntries = jar.entries();
+			while (jarEntries.hasMoreElements()) {
+				String name = jarEntries.nextElement().getName();
+				if (!name.endsWith(".class")) {
+					continue;
+				}
+				if (name.startsWith(MULTI_RELEASE_VERSIONS_FOLDER)) {
+					int indexOfVersionEnd = name.indexOf('/', MULTI_RELEASE_VERSIONS_FOLDER.length());
+					if (indexOfVersionEnd < 0) {
+						continue;
+					}
+					name = name.substring(indexOfVersionEnd + 1);
+				}
+				int indexOfLastSlash = name.lastIndexOf('/');
+				if (indexOfLastSlash > 0) {
+					packages.add(name.substring(0, indexOfLastSlash).replace('/', '.'));
+				}
+			}
+		}
+		catch (IOException e) {
+			log.error("Error while reading file: " + file.getAbsolutePath(), e);
+		}
+		
+		return packages;
+	}
+	
 	/**
 	 * This loops over all FILES in this jar to get the package names. If there is an empty
 	 * directory in this jar it is not returned as a providedPackage.
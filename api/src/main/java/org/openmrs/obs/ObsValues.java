@@ -0,0 +1,251 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.obs;
+
+import java.util.Arrays;
+
+/**
+ * A read-only, columnar projection of observation values. Each row <code>i</code> is spread across
+ * the parallel primitive arrays returned by the getters, so bulk reads (e.g. for indicators or
+ * trends) do not need to hydrate {@link org.openmrs.Obs} entities and their associations. The array
+ * getters return copies, the getters taking a row index read a single value without copying. <br>
+ * <br>
+ * Missing values are represented by {@link Double#NaN} in {@link #getValueNumeric()} and by
+ * {@link #NO_VALUE} in {@link #getValueCoded()}.
+ *
+ * @see org.openmrs.api.ObsService#getObsValues(org.openmrs.Cohort, java.util.List, java.util.Date,
+ *      java.util.Date)
+ * @since 2.8.0
+ */
+public class ObsValues {
+
+	/**
+	 * Marker used in the integer columns for a null value
+	 */
+	public static final int NO_VALUE = 0;
+
+	private final int size;
+
+	private final int[] obsId;
+
+	private final int[] personId;
+
+	private final int[] conceptId;
+
+	private final long[] obsDatetime;
+
+	private final double[] valueNumeric;
+
+	private final int[] valueCoded;
+
+	private ObsValues(Builder builder) {
+		this.size = builder.size;
+		this.obsId = Arrays.copyOf(builder.obsId, size);
+		this.personId = Arrays.copyOf(builder.personId, size);
+		this.conceptId = Arrays.copyOf(builder.conceptId, size);
+		this.obsDatetime = Arrays.copyOf(builder.obsDatetime, size);
+		this.valueNumeric = Arrays.copyOf(builder.valueNumeric, size);
+		this.valueCoded = Arrays.copyOf(builder.valueCoded, size);
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if there are no rows
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return a copy of the obs ids, one per row
+	 */
+	public int[] getObsId() {
+		return obsId.clone();
+	}
+
+	/**
+	 * @param row the index of the row
+	 * @return the obs id of the row
+	 */
+	public int getObsId(int row) {
+		return obsId[checkRow(row)];
+	}
+
+	/**
+	 * @return a copy of the person ids, one per row
+	 */
+	public int[] getPersonId() {
+		return personId.clone();
+	}
+
+	/**
+	 * @param row the index of the row
+	 * @return the person id of the row
+	 */
+	public int getPersonId(int row) {
+		return personId[checkRow(row)];
+	}
+
+	/**
+	 * @return a copy of the question concept ids, one per row
+	 */
+	public int[] getConceptId() {
+		return conceptId.clone();
+	}
+
+	/**
+	 * @param row the index of the row
+	 * @return the question concept id of the row
+	 */
+	public int getConceptId(int row) {
+		return conceptId[checkRow(row)];
+	}
+
+	/**
+	 * @return a copy of the obs datetimes as milliseconds since the epoch, one per row
+	 */
+	public long[] getObsDatetime() {
+		return obsDatetime.clone();
+	}
+
+	/**
+	 * @param row the index of the row
+	 * @return the obs datetime as milliseconds since the epoch of the row
+	 */
+	public long getObsDatetime(int row) {
+		return obsDatetime[checkRow(row)];
+	}
+
+	/**
+	 * @return a copy of the numeric values, one per row, {@link Double#NaN} where there is none
+	 */
+	public double[] getValueNumeric() {
+		return valueNumeric.clone();
+	}
+
+	/**
+	 * @param row the index of the row
+	 * @return the numeric value, {@link Double#NaN} if there is none of the row
+	 */
+	public double getValueNumeric(int row) {
+		return valueNumeric[checkRow(row)];
+	}
+
+	/**
+	 * @return a copy of the coded answer concept ids, one per row, {@link #NO_VALUE} where there is none
+	 */
+	public int[] getValueCoded() {
+		return valueCoded.clone();
+	}
+
+	/**
+	 * @param row the index of the row
+	 * @return the coded answer concept id, {@link #NO_VALUE} if there is none of the row
+	 */
+	public int getValueCoded(int row) {
+		return valueCoded[checkRow(row)];
+	}
+
+	private int checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for " + size + " rows");
+		}
+		return row;
+	}
+
+	/**
+	 * Accumulates rows into growing primitive arrays, used by the data access layer to build an
+	 * {@link ObsValues} without boxing every value.
+	 */
+	public static class Builder {
+
+		private static final int DEFAULT_CAPACITY = 256;
+
+		private int size = 0;
+
+		private int[] obsId;
+
+		private int[] personId;
+
+		private int[] conceptId;
+
+		private long[] obsDatetime;
+
+		private double[] valueNumeric;
+
+		private int[] valueCoded;
+
+		public Builder() {
+			this(DEFAULT_CAPACITY);
+		}
+
+		/**
+		 * @param initialCapacity the number of rows to allocate room for up front
+		 */
+		public Builder(int initialCapacity) {
+			int capacity = Math.max(initialCapacity, 1);
+			obsId = new int[capacity];
+			personId = new int[capacity];
+			conceptId = new int[capacity];
+			obsDatetime = new long[capacity];
+			valueNumeric = new double[capacity];
+			valueCoded = new int[capacity];
+		}
+
+		/**
+		 * Appends a row, null values are converted to the markers documented on {@link ObsValues}
+		 *
+		 * @param obsId the obs id
+		 * @param personId the person id
+		 * @param conceptId the question concept id
+		 * @param obsDatetime the obs datetime in milliseconds since the epoch
+		 * @param valueNumeric the numeric value or null
+		 * @param valueCoded the coded answer concept id or null
+		 * @return this builder
+		 */
+		public Builder add(int obsId, int personId, int conceptId, long obsDatetime, Double valueNumeric,
+		        Integer valueCoded) {
+			if (size == this.obsId.length) {
+				grow();
+			}
+			this.obsId[size] = obsId;
+			this.personId[size] = personId;
+			this.conceptId[size] = conceptId;
+			this.obsDatetime[size] = obsDatetime;
+			this.valueNumeric[size] = valueNumeric == null ? Double.NaN : valueNumeric;
+			this.valueCoded[size] = valueCoded == null ? NO_VALUE : valueCoded;
+			size++;
+			return this;
+		}
+
+		private void grow() {
+			int capacity = obsId.length + (obsId.length >> 1) + 1;
+			obsId = Arrays.copyOf(obsId, capacity);
+			personId = Arrays.copyOf(personId, capacity);
+			conceptId = Arrays.copyOf(conceptId, capacity);
+			obsDatetime = Arrays.copyOf(obsDatetime, capacity);
+			valueNumeric = Arrays.copyOf(valueNumeric, capacity);
+			valueCoded = Arrays.copyOf(valueCoded, capacity);
+		}
+
+		/**
+		 * @return the accumulated rows, trimmed to size
+		 */
+		public ObsValues build() {
+			return new ObsValues(this);
+		}
+	}
+}
@@ -0,0 +1,281 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler;
+
+import java.net.InetAddress;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the scheduled tasks in cluster mode, when several nodes share the database and each of
+ * them schedules the same started tasks. <br>
+ * <br>
+ * Before each execution, the node acquires the {@link TaskLease} of the task, keyed by the uuid of
+ * its task definition, and skips the execution if another node holds it. The lease is renewed while
+ * the execution runs, so that long executions keep it, and the execution is interrupted if another
+ * node takes the lease over anyway, e.g. after a long pause of the node. A renewal failing because
+ * of an error, e.g. of the database, is retried until the lease expires. Once the execution ends,
+ * the lease is held until one repeat interval after the execution started, so that the other nodes,
+ * which fire the same task at about the same time, skip it until its next execution. The node
+ * holding the lease keeps executing the task since it renews its own lease. If a node dies, its
+ * leases expire and the next execution of the tasks on another node takes them over. A task which
+ * does not repeat is released at the end of its execution. <br>
+ * <br>
+ * The partitions of a {@link PartitionedTask} are leased and held separately, each node going
+ * through them from a different partition, so that the nodes running an execution at the same time
+ * share its partitions. <br>
+ * <br>
+ * Cluster mode is enabled by the {@link SchedulerConstants#SCHEDULER_CLUSTER_ENABLED_RUNTIME_PROPERTY}
+ * runtime property. Lease expiry is decided with the clock of each node, so the clocks of the nodes
+ * must differ by much less than the lease duration.
+ *
+ * @since 2.8.0
+ */
+public class ClusteredTaskRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(ClusteredTaskRunner.class);
+
+	private static volatile Boolean enabled;
+
+	private static volatile String nodeId;
+
+	private static volatile long leaseDurationMillis;
+
+	private ClusteredTaskRunner() {
+	}
+
+	/**
+	 * @return whether the scheduler runs in cluster mode
+	 */
+	public static boolean isEnabled() {
+		if (enabled == null) {
+			configure(Context.getRuntimeProperties());
+		}
+		return enabled;
+	}
+
+	/**
+	 * @return the id of this node in cluster mode
+	 */
+	public static String getNodeId() {
+		if (enabled == null) {
+			configure(Context.getRuntimeProperties());
+		}
+		return nodeId;
+	}
+
+	/**
+	 * Reads the cluster mode settings from the given runtime properties
+	 *
+	 * @param props the runtime properties
+	 */
+	static synchronized void configure(Properties props) {
+		String id = props.getProperty(SchedulerConstants.SCHEDULER_CLUSTER_NODE_ID_RUNTIME_PROPERTY);
+		if (StringUtils.isBlank(id)) {
+			id = getHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+		}
+		nodeId = id.trim();
+		leaseDurationMillis = TimeUnit.SECONDS.toMillis(Math.max(1, NumberUtils.toLong(
+		    props.getProperty(SchedulerConstants.SCHEDULER_CLUSTER_LEASE_DURATION_RUNTIME_PROPERTY),
+		    SchedulerConstants.SCHEDULER_CLUSTER_DEFAULT_LEASE_DURATION)));
+		enabled = Boolean.parseBoolean(props.getProperty(SchedulerConstants.SCHEDULER_CLUSTER_ENABLED_RUNTIME_PROPERTY,
+		    "false").trim());
+		if (enabled) {
+			log.info("The scheduler runs in cluster mode as node {} with leases of {} ms", nodeId, leaseDurationMillis);
+		}
+	}
+
+	private static String getHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		}
+		catch (Exception e) {
+			return "openmrs";
+		}
+	}
+
+	/**
+	 * Executes the given task, or the partitions of it, for which this node gets the lease. Must be
+	 * called from a daemon thread.
+	 *
+	 * @param task the task to execute
+	 * @return true if this node executed the task or at least one of its partitions
+	 */
+	public static boolean execute(Task task) throws InterruptedException, ExecutionException {
+		TaskDefinition taskDefinition = task.getTaskDefinition();
+		if (taskDefinition == null || taskDefinition.getUuid() == null) {
+			log.warn("Executing task {} without a lease because it has no task definition", task.getClass());
+			task.execute();
+			return true;
+		}
+
+		// the other nodes skip the task until its next execution
+		long repeatInterval = taskDefinition.getRepeatInterval() != null ? taskDefinition.getRepeatInterval() : 0;
+		long holdUntil = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(Math.max(0, repeatInterval));
+
+		int partitionCount = task instanceof PartitionedTask ? ((PartitionedTask) task).getPartitionCount() : 1;
+		if (partitionCount <= 1) {
+			return executeWithLease(taskDefinition.getUuid(), holdUntil, task::execute);
+		}
+
+		// start from a partition depending on the node so that the nodes do not compete for the same ones
+		boolean executed = false;
+		int first = Math.floorMod(getNodeId().hashCode(), partitionCount);
+		for (int i = 0; i < partitionCount; i++) {
+			final int partition = (first + i) % partitionCount;
+			String leaseKey = taskDefinition.getUuid() + ":" + partition + "/" + partitionCount;
+			executed |= executeWithLease(leaseKey, holdUntil,
+			    () -> ((PartitionedTask) task).execute(partition, partitionCount));
+		}
+		return executed;
+	}
+
+	private static boolean executeWithLease(String leaseKey, long holdUntil, Execution execution)
+	        throws InterruptedException, ExecutionException {
+		if (!acquire(leaseKey)) {
+			log.debug("Skipping {} because another node holds its lease", leaseKey);
+			return false;
+		}
+
+		CountDownLatch finished = new CountDownLatch(1);
+		AtomicBoolean lost = new AtomicBoolean(false);
+		Thread executingThread = Thread.currentThread();
+		Future<?> renewal = Daemon.runNewDaemonTask(() -> renewUntilFinished(leaseKey, finished, executingThread, lost));
+		try {
+			execution.execute();
+		}
+		catch (InterruptedException e) {
+			if (!lost.get()) {
+				throw e;
+			}
+		}
+		finally {
+			finished.countDown();
+			// so that a renewal running right now does not acquire the lease again after it is held or released
+			awaitRenewal(leaseKey, renewal, lost);
+		}
+
+		if (lost.get()) {
+			// the interrupt aborting the execution must not leak into the next use of the thread
+			Thread.interrupted();
+			log.warn("Aborted {} after losing its lease, another node may execute it", leaseKey);
+			return false;
+		}
+		hold(leaseKey, holdUntil);
+		return true;
+	}
+
+	private static void awaitRenewal(String leaseKey, Future<?> renewal, AtomicBoolean lost) throws InterruptedException {
+		while (true) {
+			try {
+				renewal.get();
+				return;
+			}
+			catch (InterruptedException e) {
+				// unless the renewal interrupted this thread on losing the lease
+				if (!lost.get()) {
+					throw e;
+				}
+			}
+			catch (ExecutionException e) {
+				log.debug("Failed to renew the lease " + leaseKey, e);
+				return;
+			}
+		}
+	}
+
+	private static void hold(String leaseKey, long holdUntil) {
+		try {
+			long holdMillis = holdUntil - System.currentTimeMillis();
+			if (holdMillis > 0) {
+				Context.getSchedulerService().acquireTaskLease(leaseKey, getNodeId(), holdMillis);
+			} else {
+				Context.getSchedulerService().releaseTaskLease(leaseKey, getNodeId());
+			}
+		}
+		catch (Exception e) {
+			log.warn("Failed to hold the lease " + leaseKey + " until the next execution, it will expire", e);
+		}
+	}
+
+	private static boolean acquire(String leaseKey) {
+		try {
+			return Context.getSchedulerService().acquireTaskLease(leaseKey, getNodeId(), leaseDurationMillis);
+		}
+		catch (Exception e) {
+			// e.g. another node inserted the lease at the same time
+			log.debug("Failed to acquire the lease " + leaseKey, e);
+			return false;
+		}
+	}
+
+	private static void renewUntilFinished(String leaseKey, CountDownLatch finished, Thread executingThread,
+	        AtomicBoolean lost) {
+		long renewInterval = Math.max(1, leaseDurationMillis / 3);
+		// the lease was acquired right before the execution started
+		long expiryTime = System.currentTimeMillis() + leaseDurationMillis;
+		try {
+			while (!finished.await(renewInterval, TimeUnit.MILLISECONDS)) {
+				long renewalTime = System.currentTimeMillis();
+				try {
+					if (Context.getSchedulerService().acquireTaskLease(leaseKey, getNodeId(), leaseDurationMillis)) {
+						expiryTime = renewalTime + leaseDurationMillis;
+						continue;
+					}
+					if (isHeldByAnotherNode(leaseKey)) {
+						log.warn("Lost the lease {} to another node while executing it, interrupting the execution",
+						    leaseKey);
+						lose(executingThread, lost);
+						return;
+					}
+				}
+				catch (Exception e) {
+					// e.g. the database is briefly unreachable, the lease is still held until it expires
+					log.warn("Failed to renew the lease {}, retrying until it expires", leaseKey, e);
+				}
+				if (System.currentTimeMillis() >= expiryTime) {
+					log.warn("The lease {} expired before it could be renewed, interrupting the execution", leaseKey);
+					lose(executingThread, lost);
+					return;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static boolean isHeldByAnotherNode(String leaseKey) {
+		TaskLease lease = Context.getSchedulerService().getTaskLease(leaseKey);
+		return lease != null && !getNodeId().equals(lease.getOwner());
+	}
+
+	private static void lose(Thread executingThread, AtomicBoolean lost) {
+		lost.set(true);
+		executingThread.interrupt();
+	}
+
+	private interface Execution {
+
+		void execute() throws InterruptedException, ExecutionException;
+	}
+}
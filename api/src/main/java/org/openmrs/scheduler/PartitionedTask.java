@@ -0,0 +1,37 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A task whose work can be split into partitions executed independently, e.g. by patient id
+ * modulo the partition count. When the scheduler runs in cluster mode, each partition is leased
+ * separately so that the nodes of the cluster share the partitions of an execution. Outside of
+ * cluster mode, all the partitions are executed by {@link #execute()}.
+ *
+ * @see ClusteredTaskRunner
+ * @since 2.8.0
+ */
+public interface PartitionedTask extends Task {
+
+	/**
+	 * @return the number of partitions of the work of this task, 1 if it can not be partitioned
+	 */
+	int getPartitionCount();
+
+	/**
+	 * Executes one partition of the work of this task
+	 *
+	 * @param partition the partition to execute, from 0 to partitionCount - 1
+	 * @param partitionCount the number of partitions
+	 */
+	void execute(int partition, int partitionCount) throws InterruptedException, ExecutionException;
+}
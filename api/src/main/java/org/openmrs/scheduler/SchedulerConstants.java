@@ -33,6 +33,90 @@ public class SchedulerConstants {
 	/** Scheduler admin email property - Used to email administrator if a task fails */
 	public static final String SCHEDULER_ADMIN_EMAIL_PROPERTY = "scheduler.admin_email";
 	
+	/**
+	 * Runtime property selecting the engine which runs the scheduled tasks, either
+	 * {@link #SCHEDULER_ENGINE_TIMER} (the default) or {@link #SCHEDULER_ENGINE_EXECUTOR}
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_ENGINE_RUNTIME_PROPERTY = "scheduler.engine";
+	
+	/**
+	 * Runs each scheduled task on its own {@link java.util.Timer} thread at a fixed rate
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_ENGINE_TIMER = "timer";
+	
+	/**
+	 * Runs the scheduled tasks on a bounded pool of threads with a fixed delay between executions
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_ENGINE_EXECUTOR = "executor";
+	
+	/**
+	 * Runtime property with the number of threads running the scheduled tasks when using the
+	 * executor engine
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_POOL_SIZE_RUNTIME_PROPERTY = "scheduler.pool_size";
+	
+	/**
+	 * The default number of threads running the scheduled tasks when using the executor engine
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final int SCHEDULER_DEFAULT_POOL_SIZE = 4;
+	
+	/**
+	 * Runtime property with the maximum random delay in seconds added before the first execution of
+	 * a repeating task without a start time when using the executor engine
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_MAX_JITTER_RUNTIME_PROPERTY = "scheduler.max_jitter";
+	
+	/**
+	 * The default maximum random delay in seconds added before the first execution of a repeating
+	 * task without a start time
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final long SCHEDULER_DEFAULT_MAX_JITTER = 30;
+	
+	/**
+	 * Runtime property enabling the cluster mode of the scheduler, in which a node executes a task
+	 * only while it holds the lease of the task
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_CLUSTER_ENABLED_RUNTIME_PROPERTY = "scheduler.cluster.enabled";
+	
+	/**
+	 * Runtime property with the id of this node in cluster mode, the host name followed by a random
+	 * suffix by default
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_CLUSTER_NODE_ID_RUNTIME_PROPERTY = "scheduler.cluster.node_id";
+	
+	/**
+	 * Runtime property with how long in seconds a task lease is held unless it is renewed, which is
+	 * also how long it takes for another node to take over the tasks of a node which died
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String SCHEDULER_CLUSTER_LEASE_DURATION_RUNTIME_PROPERTY = "scheduler.cluster.lease_duration";
+	
+	/**
+	 * The default duration in seconds of a task lease
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final long SCHEDULER_CLUSTER_DEFAULT_LEASE_DURATION = 60;
+	
 	private SchedulerConstants() {
 	}
 	
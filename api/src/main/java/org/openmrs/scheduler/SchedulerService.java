@@ -167,4 +167,56 @@ public interface SchedulerService extends OpenmrsService {
 	 */
 	public void scheduleIfNotRunning(TaskDefinition taskDef);
 	
+	/**
+	 * Acquires or renews the lease of a task in its own transaction, used in cluster mode so that
+	 * only one node executes a task at a time
+	 * 
+	 * @param leaseKey the key of the lease
+	 * @param owner the id of the node acquiring the lease
+	 * @param durationMillis how long the lease is held unless it is renewed
+	 * @return true if the node holds the lease, false if another node holds it
+	 * @see ClusteredTaskRunner
+	 * @since 2.8.0
+	 * <strong>Should</strong> acquire a new lease
+	 * <strong>Should</strong> renew a lease held by the same owner
+	 * <strong>Should</strong> not acquire a lease held by another owner
+	 * <strong>Should</strong> acquire an expired lease held by another owner
+	 */
+	@Authorized( { "Manage Scheduler" })
+	@Logging(ignore = true)
+	public boolean acquireTaskLease(String leaseKey, String owner, long durationMillis);
+	
+	/**
+	 * Releases the lease of a task held by the given owner in its own transaction
+	 * 
+	 * @param leaseKey the key of the lease
+	 * @param owner the id of the node releasing the lease
+	 * @since 2.8.0
+	 * <strong>Should</strong> let another owner acquire the released lease
+	 */
+	@Authorized( { "Manage Scheduler" })
+	@Logging(ignore = true)
+	public void releaseTaskLease(String leaseKey, String owner);
+	
+	/**
+	 * Gets the lease of a task
+	 * 
+	 * @param leaseKey the key of the lease
+	 * @return the lease, null if no node ever acquired it
+	 * @since 2.8.0
+	 */
+	@Authorized( { "Manage Scheduler" })
+	public TaskLease getTaskLease(String leaseKey);
+	
+	/**
+	 * Deletes the lease of a task and the leases of its partitions in its own transaction, which is
+	 * also done when the task is deleted
+	 * 
+	 * @param leaseKey the key of the lease of the task, the uuid of its task definition
+	 * @since 2.8.0
+	 * <strong>Should</strong> delete the lease and the leases of the partitions
+	 */
+	@Authorized( { "Manage Scheduler" })
+	public void deleteTaskLeases(String leaseKey);
+	
 }
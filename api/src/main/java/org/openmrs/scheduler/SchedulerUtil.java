@@ -15,8 +15,11 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.scheduler.timer.ExecutorSchedulerServiceImpl;
+import org.openmrs.scheduler.timer.TimerSchedulerServiceImpl;
 import org.openmrs.util.PrivilegeConstants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +31,36 @@ public class SchedulerUtil {
 	
 	private static final Logger log = LoggerFactory.getLogger(SchedulerUtil.class);
 	
+	/**
+	 * Creates the scheduler service selected by the
+	 * {@link SchedulerConstants#SCHEDULER_ENGINE_RUNTIME_PROPERTY} runtime property, used by spring
+	 * to create the scheduler service bean
+	 * 
+	 * @return a {@link TimerSchedulerServiceImpl}, or an {@link ExecutorSchedulerServiceImpl} when
+	 *         the executor engine is selected
+	 * @since 2.8.0
+	 */
+	public static TimerSchedulerServiceImpl createSchedulerService() {
+		Properties props = Context.getRuntimeProperties();
+		String engine = props.getProperty(SchedulerConstants.SCHEDULER_ENGINE_RUNTIME_PROPERTY,
+		    SchedulerConstants.SCHEDULER_ENGINE_TIMER).trim();
+		
+		if (SchedulerConstants.SCHEDULER_ENGINE_EXECUTOR.equalsIgnoreCase(engine)) {
+			ExecutorSchedulerServiceImpl service = new ExecutorSchedulerServiceImpl();
+			service.setPoolSize(NumberUtils.toInt(props.getProperty(SchedulerConstants.SCHEDULER_POOL_SIZE_RUNTIME_PROPERTY),
+			    SchedulerConstants.SCHEDULER_DEFAULT_POOL_SIZE));
+			service.setMaxJitter(NumberUtils.toLong(props.getProperty(SchedulerConstants.SCHEDULER_MAX_JITTER_RUNTIME_PROPERTY),
+			    SchedulerConstants.SCHEDULER_DEFAULT_MAX_JITTER));
+			log.info("Using the executor scheduler engine");
+			return service;
+		}
+		
+		if (!SchedulerConstants.SCHEDULER_ENGINE_TIMER.equalsIgnoreCase(engine)) {
+			log.warn("Unknown scheduler engine '{}', using the timer scheduler engine", engine);
+		}
+		return new TimerSchedulerServiceImpl();
+	}
+	
 	/**
 	 * Start the scheduler given the following start up properties.
 	 * 
@@ -0,0 +1,91 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The right of a node of a cluster to execute a scheduled task, or a partition of it, until the
+ * expiry time of the lease. A lease is taken over by another node once it has expired, e.g. because
+ * its owner died.
+ *
+ * @see ClusteredTaskRunner
+ * @since 2.8.0
+ */
+@Entity
+@Table(name = "scheduler_task_lease")
+public class TaskLease implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(name = "lease_key", length = 255)
+	private String leaseKey;
+
+	@Column(name = "owner", length = 255, nullable = false)
+	private String owner;
+
+	@Column(name = "expiry_time", nullable = false)
+	private Date expiryTime;
+
+	public TaskLease() {
+	}
+
+	public TaskLease(String leaseKey, String owner, Date expiryTime) {
+		this.leaseKey = leaseKey;
+		this.owner = owner;
+		this.expiryTime = expiryTime;
+	}
+
+	/**
+	 * @return the key of the lease, the uuid of the task definition followed by the partition for a
+	 *         partitioned task
+	 */
+	public String getLeaseKey() {
+		return leaseKey;
+	}
+
+	public void setLeaseKey(String leaseKey) {
+		this.leaseKey = leaseKey;
+	}
+
+	/**
+	 * @return the id of the node which holds or last held the lease
+	 */
+	public String getOwner() {
+		return owner;
+	}
+
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * @return when the lease expires unless it is renewed
+	 */
+	public Date getExpiryTime() {
+		return expiryTime;
+	}
+
+	public void setExpiryTime(Date expiryTime) {
+		this.expiryTime = expiryTime;
+	}
+
+	@Override
+	public String toString() {
+		return "TaskLease[" + leaseKey + " held by " + owner + " until " + expiryTime + "]";
+	}
+}
@@ -9,10 +9,12 @@
  */
 package org.openmrs.scheduler.db;
 
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.api.db.DAOException;
 import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.TaskLease;
 
 /**
  * Scheduler-related database methods.
@@ -85,4 +87,57 @@ public interface SchedulerDAO {
 	 * @throws DAOException
 	 */
 	public TaskDefinition getTaskByName(String name) throws DAOException;
+	
+	/**
+	 * Gets a task lease
+	 * 
+	 * @param leaseKey the key of the lease
+	 * @return the lease, null if no node ever acquired it
+	 * @throws DAOException
+	 * @since 2.8.0
+	 */
+	public TaskLease getTaskLease(String leaseKey) throws DAOException;
+	
+	/**
+	 * Saves a new task lease
+	 * 
+	 * @param taskLease the lease to save
+	 * @throws DAOException
+	 * @since 2.8.0
+	 */
+	public void saveTaskLease(TaskLease taskLease) throws DAOException;
+	
+	/**
+	 * Gives an existing task lease to the given owner if it already holds it or if the lease has
+	 * expired, in a single update statement so that only one node can get an expired lease
+	 * 
+	 * @param leaseKey the key of the lease
+	 * @param owner the id of the node acquiring the lease
+	 * @param now the current time
+	 * @param expiryTime the new expiry time of the lease
+	 * @return true if the owner now holds the lease
+	 * @throws DAOException
+	 * @since 2.8.0
+	 */
+	public boolean updateTaskLease(String leaseKey, String owner, Date now, Date expiryTime) throws DAOException;
+	
+	/**
+	 * Expires a task lease if it is held by the given owner
+	 * 
+	 * @param leaseKey the key of the lease
+	 * @param owner the id of the node releasing the lease
+	 * @param now the current time, which becomes the expiry time of the lease
+	 * @throws DAOException
+	 * @since 2.8.0
+	 */
+	public void releaseTaskLease(String leaseKey, String owner, Date now) throws DAOException;
+	
+	/**
+	 * Deletes the lease of a task and the leases of its partitions
+	 * 
+	 * @param leaseKey the key of the lease of the task, the uuid of its task definition
+	 * @throws DAOException
+	 * @since 2.8.0
+	 */
+	public void deleteTaskLeases(String leaseKey) throws DAOException;
 }
@@ -12,6 +12,7 @@ package org.openmrs.scheduler.db.hibernate;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import java.util.Date;
 import java.util.List;
 
 import org.hibernate.Session;
@@ -19,6 +20,7 @@ import org.hibernate.SessionFactory;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.hibernate.HibernateUtil;
 import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.TaskLease;
 import org.openmrs.scheduler.db.SchedulerDAO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -166,4 +168,60 @@ public class HibernateSchedulerDAO implements SchedulerDAO {
 	public TaskDefinition getTaskByUuid(String uuid) throws DAOException {
 		return HibernateUtil.getUniqueEntityByUUID(sessionFactory, TaskDefinition.class, uuid);
 	}
+	
+	/**
+	 * @see org.openmrs.scheduler.db.SchedulerDAO#getTaskLease(java.lang.String)
+	 */
+	@Override
+	public TaskLease getTaskLease(String leaseKey) throws DAOException {
+		return sessionFactory.getCurrentSession().get(TaskLease.class, leaseKey);
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.db.SchedulerDAO#saveTaskLease(org.openmrs.scheduler.TaskLease)
+	 */
+	@Override
+	public void saveTaskLease(TaskLease taskLease) throws DAOException {
+		Session session = sessionFactory.getCurrentSession();
+		session.save(taskLease);
+		// flush so that a concurrent insert of the same lease by another node fails here
+		session.flush();
+		// the lease is updated and deleted by bulk statements, which do not update it in the session
+		session.evict(taskLease);
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.db.SchedulerDAO#updateTaskLease(java.lang.String, java.lang.String,
+	 *      java.util.Date, java.util.Date)
+	 */
+	@Override
+	public boolean updateTaskLease(String leaseKey, String owner, Date now, Date expiryTime) throws DAOException {
+		return sessionFactory.getCurrentSession()
+		        .createQuery("update TaskLease set owner = :owner, expiryTime = :expiryTime "
+		                + "where leaseKey = :leaseKey and (owner = :owner or expiryTime < :now)")
+		        .setParameter("owner", owner).setParameter("expiryTime", expiryTime).setParameter("leaseKey", leaseKey)
+		        .setParameter("now", now).executeUpdate() > 0;
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.db.SchedulerDAO#releaseTaskLease(java.lang.String, java.lang.String,
+	 *      java.util.Date)
+	 */
+	@Override
+	public void releaseTaskLease(String leaseKey, String owner, Date now) throws DAOException {
+		sessionFactory.getCurrentSession()
+		        .createQuery("update TaskLease set expiryTime = :now where leaseKey = :leaseKey and owner = :owner")
+		        .setParameter("now", now).setParameter("leaseKey", leaseKey).setParameter("owner", owner).executeUpdate();
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.db.SchedulerDAO#deleteTaskLeases(java.lang.String)
+	 */
+	@Override
+	public void deleteTaskLeases(String leaseKey) throws DAOException {
+		// the partitions are leased as <leaseKey>:<partition>/<partitionCount>
+		sessionFactory.getCurrentSession()
+		        .createQuery("delete TaskLease where leaseKey = :leaseKey or leaseKey like :partitionLeaseKeys")
+		        .setParameter("leaseKey", leaseKey).setParameter("partitionLeaseKeys", leaseKey + ":%").executeUpdate();
+	}
 }
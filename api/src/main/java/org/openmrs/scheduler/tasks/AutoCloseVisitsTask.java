@@ -10,6 +10,9 @@
 package org.openmrs.scheduler.tasks;
 
 import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang3.math.NumberUtils;
 
 import org.openmrs.api.context.Context;
 import org.openmrs.util.OpenmrsConstants;
@@ -19,7 +22,10 @@ import org.slf4j.LoggerFactory;
 /**
  * A scheduled task that automatically closes all unvoided active visits that match the visit
  * type(s) set as the value of the global property
- * {@link OpenmrsConstants#GP_VISIT_TYPES_TO_AUTO_CLOSE}
+ * {@link OpenmrsConstants#GP_VISIT_TYPES_TO_AUTO_CLOSE}. <br>
+ * <br>
+ * The visits are stopped in batches of {@value #DEFAULT_BATCH_SIZE}, or of the value of the
+ * {@value #BATCH_SIZE_PROPERTY} task property, each batch in a transaction of its own.
  *
  * @since 1.9
  */
@@ -27,6 +33,16 @@ public class AutoCloseVisitsTask extends AbstractTask {
 	
 	private static final Logger log = LoggerFactory.getLogger(AutoCloseVisitsTask.class);
 	
+	/**
+	 * The task property setting the number of visits stopped per transaction
+	 */
+	public static final String BATCH_SIZE_PROPERTY = "batchSize";
+	
+	/**
+	 * The number of visits stopped per transaction when the task property is not set
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	
 	/**
 	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
 	 */
@@ -37,7 +53,16 @@ public class AutoCloseVisitsTask extends AbstractTask {
 
 			startExecuting();
 			try {
-				Context.getVisitService().stopVisits(new Date());
+				Date maximumStartDate = new Date();
+				int batchSize = getBatchSize();
+				int stopped = 0;
+				List<Integer> visitIds = Context.getVisitService().stopVisits(maximumStartDate, null, batchSize);
+				while (!visitIds.isEmpty()) {
+					stopped += visitIds.size();
+					visitIds = Context.getVisitService().stopVisits(maximumStartDate, visitIds.get(visitIds.size() - 1),
+					    batchSize);
+				}
+				log.debug("Auto closed {} visits", stopped);
 			}
 			catch (Exception e) {
 				log.error("Error while auto closing visits:", e);
@@ -47,4 +72,9 @@ public class AutoCloseVisitsTask extends AbstractTask {
 			}
 		}
 	}
+	
+	private int getBatchSize() {
+		String batchSize = taskDefinition != null ? taskDefinition.getProperty(BATCH_SIZE_PROPERTY) : null;
+		return Math.max(1, NumberUtils.toInt(batchSize, DEFAULT_BATCH_SIZE));
+	}
 }
@@ -14,6 +14,7 @@ import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.openmrs.scheduler.PartitionedTask;
 import org.openmrs.scheduler.Task;
 import org.openmrs.scheduler.TaskDefinition;
 import org.openmrs.util.OpenmrsThreadPoolHolder;
@@ -25,7 +26,7 @@ import org.slf4j.LoggerFactory;
  * your {@link #initialize(TaskDefinition)} method to run in a new thread (and hence not hold up the
  * "startup" processes)
  */
-public class TaskThreadedInitializationWrapper implements Task {
+public class TaskThreadedInitializationWrapper implements PartitionedTask {
 	
 	// Logger 
 	private static final Logger log = LoggerFactory.getLogger(TaskThreadedInitializationWrapper.class);
@@ -53,25 +54,70 @@ public class TaskThreadedInitializationWrapper implements Task {
 	 */
 	@Override
 	public void execute() {
+		if (!awaitInitialization()) {
+			return;
+		}
+
+		try {
+			task.execute();
+		} catch (InterruptedException | ExecutionException e) {
+			log.error("Exception occurred while executing task.", e);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.PartitionedTask#getPartitionCount()
+	 * @return the partition count of the wrapped task, 1 if it is not a {@link PartitionedTask}
+	 */
+	@Override
+	public int getPartitionCount() {
+		if (!(task instanceof PartitionedTask) || !awaitInitialization()) {
+			return 1;
+		}
+		return ((PartitionedTask) task).getPartitionCount();
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.PartitionedTask#execute(int, int) Executes the given partition of
+	 *      the wrapped task, or the whole task if it is not a {@link PartitionedTask}
+	 */
+	@Override
+	public void execute(int partition, int partitionCount) {
+		if (!(task instanceof PartitionedTask)) {
+			execute();
+			return;
+		}
+		if (!awaitInitialization()) {
+			return;
+		}
+
+		try {
+			((PartitionedTask) task).execute(partition, partitionCount);
+		} catch (InterruptedException | ExecutionException e) {
+			log.error("Exception occurred while executing partition " + partition + " of task.", e);
+		}
+	}
+	
+	/**
+	 * Waits until the initialize method of the wrapped task has finished
+	 * 
+	 * @return false if the wait was interrupted
+	 */
+	private boolean awaitInitialization() {
 		lock.lock();
 		try {
 			while (!initialized) {
 				initializedCond.await();
 			}
+			return true;
 		}
 		catch (InterruptedException e) {
 			log.error("Task could not be initialized hence not be executed.", e);
-			return;
+			return false;
 		}
 		finally {
 			lock.unlock();
 		}
-
-		try {
-			task.execute();
-		} catch (InterruptedException | ExecutionException e) {
-			log.error("Exception occurred while executing task.", e);
-		}
 	}
 	
 	/**
@@ -81,7 +127,7 @@ public class TaskThreadedInitializationWrapper implements Task {
 	 */
 	@Override
 	public void initialize(final TaskDefinition config) {
-		OpenmrsThreadPoolHolder.threadExecutor.submit(() -> {
+		OpenmrsThreadPoolHolder.getExecutor(OpenmrsThreadPoolHolder.POOL_SCHEDULER).submit(() -> {
 			lock.lock();
 			try {
 				task.initialize(config);
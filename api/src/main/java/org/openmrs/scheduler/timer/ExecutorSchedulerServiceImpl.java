@@ -0,0 +1,263 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.timer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openmrs.scheduler.SchedulerConstants;
+import org.openmrs.scheduler.SchedulerException;
+import org.openmrs.scheduler.SchedulerUtil;
+import org.openmrs.scheduler.Task;
+import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.TaskFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Scheduler service that runs the scheduled tasks on a bounded pool of daemon threads instead of a
+ * JDK timer thread per task. <br>
+ * <br>
+ * Repeating tasks run with a fixed delay between the end of an execution and the start of the next
+ * one, so that a slow execution or a pause of the JVM does not cause a burst of catch-up
+ * executions. An execution is skipped while the previous one of the same task definition is still
+ * running, e.g. right after the task was rescheduled. Repeating tasks without a start time get a
+ * random delay before their first execution so that the tasks started together at startup do not
+ * keep running at the same time. The executions of each task definition are recorded in its
+ * {@link TaskExecutionMetrics}. <br>
+ * <br>
+ * It is used instead of the {@link TimerSchedulerServiceImpl} when the
+ * {@link SchedulerConstants#SCHEDULER_ENGINE_RUNTIME_PROPERTY} runtime property is set to
+ * {@link SchedulerConstants#SCHEDULER_ENGINE_EXECUTOR}.
+ *
+ * @since 2.8.0
+ */
+@Transactional
+public class ExecutorSchedulerServiceImpl extends TimerSchedulerServiceImpl {
+
+	private static final Logger log = LoggerFactory.getLogger(ExecutorSchedulerServiceImpl.class);
+
+	private final Map<Integer, ExecutorSchedulerTask> scheduledTasks = new ConcurrentHashMap<>();
+
+	private final Map<Integer, TaskExecutionMetrics> taskMetrics = new ConcurrentHashMap<>();
+
+	private int poolSize = SchedulerConstants.SCHEDULER_DEFAULT_POOL_SIZE;
+
+	private long maxJitter = SchedulerConstants.SCHEDULER_DEFAULT_MAX_JITTER;
+
+	private ScheduledThreadPoolExecutor executor;
+
+	/**
+	 * @param poolSize the number of threads running the scheduled tasks
+	 */
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * @param maxJitter the maximum random delay in seconds before the first execution of a repeating
+	 *            task without a start time, 0 to disable it
+	 */
+	public void setMaxJitter(long maxJitter) {
+		this.maxJitter = maxJitter;
+	}
+
+	private synchronized ScheduledThreadPoolExecutor getExecutor() {
+		if (executor == null || executor.isShutdown()) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			executor = new ScheduledThreadPoolExecutor(Math.max(1, poolSize), runnable -> {
+				Thread thread = new Thread(runnable, "OpenMRS Scheduler " + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		}
+		return executor;
+	}
+
+	/**
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerServiceImpl#onShutdown()
+	 */
+	@Override
+	public void onShutdown() {
+		try {
+			super.onShutdown();
+		}
+		finally {
+			synchronized (this) {
+				if (executor != null) {
+					executor.shutdownNow();
+					executor = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerServiceImpl#scheduleTask(org.openmrs.scheduler.TaskDefinition)
+	 */
+	@Override
+	public Task scheduleTask(TaskDefinition taskDefinition) throws SchedulerException {
+		Task clientTask = null;
+		if (taskDefinition != null) {
+
+			// Cancel any existing instance of the same task definition
+			if (taskDefinition.getId() != null) {
+				ExecutorSchedulerTask schedulerTask = scheduledTasks.remove(taskDefinition.getId());
+				if (schedulerTask != null) {
+					log.info("Shutting down the existing instance of this task to avoid conflicts!!");
+					schedulerTask.shutdown();
+				}
+			}
+
+			try {
+				clientTask = TaskFactory.getInstance().createInstance(taskDefinition);
+
+				// if we were unable to get a class, just quit
+				if (clientTask != null) {
+					taskDefinition.setTaskInstance(clientTask);
+
+					// save first so that a new task definition has the id the metrics are kept under
+					taskDefinition.setStarted(true);
+					saveTaskDefinition(taskDefinition);
+
+					TaskExecutionMetrics metrics = taskMetrics.computeIfAbsent(taskDefinition.getId(),
+					    id -> new TaskExecutionMetrics());
+					ExecutorSchedulerTask schedulerTask = new ExecutorSchedulerTask(clientTask, metrics);
+
+					long repeatInterval = 0;
+					if (taskDefinition.getRepeatInterval() != null) {
+						repeatInterval = taskDefinition.getRepeatInterval() * SchedulerConstants.SCHEDULER_MILLIS_PER_SECOND;
+					}
+
+					long initialDelay;
+					if (taskDefinition.getStartTime() != null) {
+						Date nextTime = SchedulerUtil.getNextExecution(taskDefinition);
+						initialDelay = Math.max(0, nextTime.getTime() - System.currentTimeMillis());
+					} else {
+						initialDelay = SchedulerConstants.SCHEDULER_DEFAULT_DELAY
+						        * SchedulerConstants.SCHEDULER_MILLIS_PER_SECOND
+						        + getJitter(repeatInterval, maxJitter * SchedulerConstants.SCHEDULER_MILLIS_PER_SECOND);
+					}
+
+					ScheduledFuture<?> future;
+					if (repeatInterval > 0) {
+						log.info("Starting task ... the task will execute for the first time at "
+						        + new Date(System.currentTimeMillis() + initialDelay));
+						future = getExecutor().scheduleWithFixedDelay(schedulerTask, initialDelay, repeatInterval,
+						    TimeUnit.MILLISECONDS);
+					} else {
+						log.info("Starting one-shot task");
+						future = getExecutor().schedule(schedulerTask, initialDelay, TimeUnit.MILLISECONDS);
+					}
+					schedulerTask.setFuture(future);
+
+					log.debug("Registering executor task for task " + taskDefinition.getId());
+					scheduledTasks.put(taskDefinition.getId(), schedulerTask);
+				}
+			}
+			catch (Exception e) {
+				log.error("Failed to schedule task " + taskDefinition.getName(), e);
+				throw new SchedulerException("Failed to schedule task", e);
+			}
+		}
+		return clientTask;
+	}
+
+	/**
+	 * Gets a random delay for the first execution of a repeating task, at most a tenth of its repeat
+	 * interval
+	 *
+	 * @param repeatInterval the repeat interval of the task in milliseconds, 0 for a one-shot task
+	 * @param maxJitter the maximum delay in milliseconds
+	 * @return the delay in milliseconds
+	 */
+	static long getJitter(long repeatInterval, long maxJitter) {
+		long bound = Math.min(repeatInterval / 10, maxJitter);
+		if (bound <= 0) {
+			return 0;
+		}
+		return ThreadLocalRandom.current().nextLong(bound);
+	}
+
+	/**
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerServiceImpl#shutdownTask(org.openmrs.scheduler.TaskDefinition)
+	 */
+	@Override
+	public void shutdownTask(TaskDefinition taskDefinition) throws SchedulerException {
+		if (taskDefinition != null) {
+			if (taskDefinition.getId() != null) {
+				ExecutorSchedulerTask schedulerTask = scheduledTasks.remove(taskDefinition.getId());
+				if (schedulerTask != null) {
+					schedulerTask.shutdown();
+				}
+			}
+
+			taskDefinition.setStarted(false);
+			saveTaskDefinition(taskDefinition);
+		}
+	}
+
+	/**
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerServiceImpl#getScheduledTasks()
+	 */
+	@Override
+	public Collection<TaskDefinition> getScheduledTasks() {
+		List<TaskDefinition> list = new ArrayList<>();
+		for (Integer id : scheduledTasks.keySet()) {
+			list.add(getTask(id));
+		}
+		return list;
+	}
+
+	/**
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerServiceImpl#getStatus(java.lang.Integer)
+	 */
+	@Override
+	public String getStatus(Integer id) {
+		ExecutorSchedulerTask schedulerTask = id == null ? null : scheduledTasks.get(id);
+		TaskExecutionMetrics metrics = id == null ? null : taskMetrics.get(id);
+		String status = "Not Running";
+		if (schedulerTask != null) {
+			ScheduledFuture<?> future = schedulerTask.getFuture();
+			if (metrics != null && metrics.isExecuting()) {
+				status = "Currently executing";
+			} else if (future != null && !future.isDone()) {
+				status = "Scheduled to execute at "
+				        + new Date(System.currentTimeMillis() + future.getDelay(TimeUnit.MILLISECONDS));
+			}
+		}
+		if (metrics != null && metrics.getExecutionCount() + metrics.getSkippedCount() > 0) {
+			status += " (" + metrics + ")";
+		}
+		return status;
+	}
+
+	/**
+	 * Gets the executions of a task definition since the scheduler started
+	 *
+	 * @param id the id of the task definition
+	 * @return the metrics of the task definition, null if it was never scheduled
+	 */
+	public TaskExecutionMetrics getTaskExecutionMetrics(Integer id) {
+		return id == null ? null : taskMetrics.get(id);
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.timer;
+
+import java.util.concurrent.ScheduledFuture;
+
+import org.openmrs.api.context.Daemon;
+import org.openmrs.scheduler.SchedulerUtil;
+import org.openmrs.scheduler.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The scheduler task run by the {@link ExecutorSchedulerServiceImpl}. It skips an execution while
+ * the previous one of the same task definition is still running and records every execution in the
+ * {@link TaskExecutionMetrics} of the task definition.
+ *
+ * @since 2.8.0
+ */
+public class ExecutorSchedulerTask extends TimerSchedulerTask {
+
+	private static final Logger log = LoggerFactory.getLogger(ExecutorSchedulerTask.class);
+
+	private final Task task;
+
+	private final TaskExecutionMetrics metrics;
+
+	private volatile ScheduledFuture<?> future;
+
+	public ExecutorSchedulerTask(Task task, TaskExecutionMetrics metrics) {
+		super(task);
+		this.task = task;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerTask#run()
+	 */
+	@Override
+	public void run() {
+		if (!metrics.tryStart()) {
+			log.warn("Skipping an execution of task [{}] because the previous one is still running", task.getClass());
+			return;
+		}
+
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			Daemon.executeScheduledTask(task);
+		}
+		catch (Exception t) {
+			// an exception escaping from here would cancel all the later executions of the task
+			failed = true;
+			log.error(
+			    "FATAL ERROR: Task [" + task.getClass() + "] failed due to exception [" + t.getClass().getName() + "]", t);
+			SchedulerUtil.sendSchedulerError(t);
+		}
+		finally {
+			metrics.finish(System.nanoTime() - start, failed);
+		}
+	}
+
+	/**
+	 * @return the future of the executions of this task, null if it is not scheduled yet
+	 */
+	public ScheduledFuture<?> getFuture() {
+		return future;
+	}
+
+	void setFuture(ScheduledFuture<?> future) {
+		this.future = future;
+	}
+
+	/**
+	 * Cancels the later executions of this task without interrupting the running one and invokes
+	 * the task's shutdown() callback method.
+	 *
+	 * @see org.openmrs.scheduler.timer.TimerSchedulerTask#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		if (future != null) {
+			future.cancel(false);
+		}
+		super.shutdown();
+	}
+}
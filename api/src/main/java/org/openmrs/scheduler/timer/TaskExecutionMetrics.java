@@ -0,0 +1,125 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.timer;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executions of a task definition run by the {@link ExecutorSchedulerServiceImpl}, kept
+ * across the reschedules of the task
+ *
+ * @since 2.8.0
+ */
+public class TaskExecutionMetrics {
+
+	private final AtomicBoolean executing = new AtomicBoolean(false);
+
+	private final AtomicLong executionCount = new AtomicLong();
+
+	private final AtomicLong failureCount = new AtomicLong();
+
+	private final AtomicLong skippedCount = new AtomicLong();
+
+	private final AtomicLong totalDurationNanos = new AtomicLong();
+
+	private volatile long lastStartTime = 0;
+
+	private volatile long lastDurationNanos = 0;
+
+	/**
+	 * Marks the task as executing
+	 *
+	 * @return false if the task was already executing, in which case the execution is counted as
+	 *         skipped
+	 */
+	boolean tryStart() {
+		if (!executing.compareAndSet(false, true)) {
+			skippedCount.incrementAndGet();
+			return false;
+		}
+		lastStartTime = System.currentTimeMillis();
+		return true;
+	}
+
+	/**
+	 * Marks the task as no longer executing
+	 *
+	 * @param durationNanos how long the execution took
+	 * @param failed whether the execution threw an exception
+	 */
+	void finish(long durationNanos, boolean failed) {
+		executionCount.incrementAndGet();
+		if (failed) {
+			failureCount.incrementAndGet();
+		}
+		totalDurationNanos.addAndGet(durationNanos);
+		lastDurationNanos = durationNanos;
+		executing.set(false);
+	}
+
+	/**
+	 * @return whether the task is executing right now
+	 */
+	public boolean isExecuting() {
+		return executing.get();
+	}
+
+	/**
+	 * @return the number of finished executions, including the failed ones
+	 */
+	public long getExecutionCount() {
+		return executionCount.get();
+	}
+
+	/**
+	 * @return the number of executions which threw an exception
+	 */
+	public long getFailureCount() {
+		return failureCount.get();
+	}
+
+	/**
+	 * @return the number of executions skipped because the previous one was still running
+	 */
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	/**
+	 * @return when the last execution started, null if the task never executed
+	 */
+	public Date getLastStartTime() {
+		return lastStartTime == 0 ? null : new Date(lastStartTime);
+	}
+
+	/**
+	 * @return how long the last finished execution took in milliseconds
+	 */
+	public long getLastDurationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastDurationNanos);
+	}
+
+	/**
+	 * @return how long the finished executions took on average in milliseconds
+	 */
+	public long getAverageDurationMillis() {
+		long count = executionCount.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalDurationNanos.get() / count);
+	}
+
+	@Override
+	public String toString() {
+		return executionCount + " executions, " + failureCount + " failed, " + skippedCount + " skipped, last took "
+		        + getLastDurationMillis() + " ms";
+	}
+}
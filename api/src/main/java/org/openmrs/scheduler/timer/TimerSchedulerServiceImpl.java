@@ -31,11 +31,13 @@ import org.openmrs.scheduler.SchedulerUtil;
 import org.openmrs.scheduler.Task;
 import org.openmrs.scheduler.TaskDefinition;
 import org.openmrs.scheduler.TaskFactory;
+import org.openmrs.scheduler.TaskLease;
 import org.openmrs.scheduler.db.SchedulerDAO;
 import org.openmrs.util.OpenmrsMemento;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.orm.ObjectRetrievalFailureException;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -428,6 +430,9 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		
 		// delete the task
 		getSchedulerDAO().deleteTask(id);
+		if (task.getUuid() != null) {
+			getSchedulerDAO().deleteTaskLeases(task.getUuid());
+		}
 	}
 	
 	/**
@@ -549,4 +554,51 @@ public class TimerSchedulerServiceImpl extends BaseOpenmrsService implements Sch
 		return getSchedulerDAO().getTaskByUuid(uuid);
 	}
 	
+	/**
+	 * @see org.openmrs.scheduler.SchedulerService#acquireTaskLease(java.lang.String, java.lang.String,
+	 *      long)
+	 */
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public boolean acquireTaskLease(String leaseKey, String owner, long durationMillis) {
+		Date now = new Date();
+		Date expiryTime = new Date(now.getTime() + durationMillis);
+		if (getSchedulerDAO().updateTaskLease(leaseKey, owner, now, expiryTime)) {
+			return true;
+		}
+		if (getSchedulerDAO().getTaskLease(leaseKey) != null) {
+			return false;
+		}
+		// fails if another node inserted the same lease first
+		getSchedulerDAO().saveTaskLease(new TaskLease(leaseKey, owner, expiryTime));
+		return true;
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.SchedulerService#releaseTaskLease(java.lang.String, java.lang.String)
+	 */
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public void releaseTaskLease(String leaseKey, String owner) {
+		getSchedulerDAO().releaseTaskLease(leaseKey, owner, new Date());
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.SchedulerService#getTaskLease(java.lang.String)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public TaskLease getTaskLease(String leaseKey) {
+		return getSchedulerDAO().getTaskLease(leaseKey);
+	}
+	
+	/**
+	 * @see org.openmrs.scheduler.SchedulerService#deleteTaskLeases(java.lang.String)
+	 */
+	@Override
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public void deleteTaskLeases(String leaseKey) {
+		getSchedulerDAO().deleteTaskLeases(leaseKey);
+	}
+	
 }
@@ -15,6 +15,7 @@ import java.util.concurrent.ExecutionException;
 
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.Daemon;
+import org.openmrs.scheduler.ClusteredTaskRunner;
 import org.openmrs.scheduler.SchedulerService;
 import org.openmrs.scheduler.SchedulerUtil;
 import org.openmrs.scheduler.Task;
@@ -93,7 +94,14 @@ public class TimerSchedulerTask extends TimerTask {
 	 */
 	public static void execute(Task task) {
 		try {
-			task.execute();
+			if (ClusteredTaskRunner.isEnabled()) {
+				if (!ClusteredTaskRunner.execute(task)) {
+					// another node executed it
+					return;
+				}
+			} else {
+				task.execute();
+			}
 		} catch (InterruptedException | ExecutionException e) {
 			// ignored
 		} 
@@ -212,6 +212,13 @@ public class DatabaseUpdater {
 		
 		Thread.currentThread().setContextClassLoader(cl);
 		
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_DATABASE_UPDATE, changeLogFile)) {
+			return runChangelog(changeLogFile, contexts, callback, cl);
+		}
+	}
+	
+	private static List<String> runChangelog(String changeLogFile, Contexts contexts, ChangeSetExecutorCallback callback,
+	        ClassLoader cl) throws Exception {
 		log.debug("Setting up liquibase object to run changelog: {}", changeLogFile);
 		Liquibase liquibase = getLiquibase(changeLogFile, cl);
 
@@ -0,0 +1,142 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+/**
+ * A snapshot of the state of a {@link ManagedExecutor}
+ *
+ * @see OpenmrsThreadPoolHolder#getMetrics()
+ * @since 2.8.0
+ */
+public class ExecutorMetrics {
+
+	private final String name;
+
+	private final int poolSize;
+
+	private final int maxPoolSize;
+
+	private final int activeCount;
+
+	private final int queuedCount;
+
+	private final int queueCapacity;
+
+	private final long completedCount;
+
+	private final long rejectedCount;
+
+	private final long p50LatencyMillis;
+
+	private final long p99LatencyMillis;
+
+	private final long maxLatencyMillis;
+
+	ExecutorMetrics(String name, int poolSize, int maxPoolSize, int activeCount, int queuedCount, int queueCapacity,
+	    long completedCount, long rejectedCount, long p50LatencyMillis, long p99LatencyMillis, long maxLatencyMillis) {
+		this.name = name;
+		this.poolSize = poolSize;
+		this.maxPoolSize = maxPoolSize;
+		this.activeCount = activeCount;
+		this.queuedCount = queuedCount;
+		this.queueCapacity = queueCapacity;
+		this.completedCount = completedCount;
+		this.rejectedCount = rejectedCount;
+		this.p50LatencyMillis = p50LatencyMillis;
+		this.p99LatencyMillis = p99LatencyMillis;
+		this.maxLatencyMillis = maxLatencyMillis;
+	}
+
+	/**
+	 * @return the name of the pool
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the current number of threads
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * @return the maximum number of threads
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * @return the approximate number of threads running a task
+	 */
+	public int getActiveCount() {
+		return activeCount;
+	}
+
+	/**
+	 * @return the number of tasks waiting for a thread
+	 */
+	public int getQueuedCount() {
+		return queuedCount;
+	}
+
+	/**
+	 * @return the maximum number of tasks waiting for a thread
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @return the approximate number of tasks run to the end
+	 */
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	/**
+	 * @return the number of tasks rejected because the pool was full
+	 */
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * @return the median time from the submission to the end of the recent tasks in milliseconds
+	 */
+	public long getP50LatencyMillis() {
+		return p50LatencyMillis;
+	}
+
+	/**
+	 * @return the 99th percentile of the time from the submission to the end of the recent tasks in
+	 *         milliseconds
+	 */
+	public long getP99LatencyMillis() {
+		return p99LatencyMillis;
+	}
+
+	/**
+	 * @return the longest time from the submission to the end of the recent tasks in milliseconds
+	 */
+	public long getMaxLatencyMillis() {
+		return maxLatencyMillis;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + activeCount + "/" + poolSize + "/" + maxPoolSize + " threads active/started/max, "
+		        + queuedCount + "/" + queueCapacity + " queued, " + completedCount + " completed, " + rejectedCount
+		        + " rejected, latency p50 " + p50LatencyMillis + " ms, p99 " + p99LatencyMillis + " ms, max "
+		        + maxLatencyMillis + " ms";
+	}
+}
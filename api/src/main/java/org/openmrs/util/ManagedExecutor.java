@@ -0,0 +1,328 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A named thread pool of {@link OpenmrsThreadPoolHolder} for one kind of work. <br>
+ * <br>
+ * Unlike a plain {@link ThreadPoolExecutor}, it hands tasks to its idle threads, then starts new
+ * threads up to its maximum pool size before queueing tasks, and it queues at most its queue
+ * capacity. When both are exhausted, the
+ * submitting thread waits for room in the queue for up to the rejection timeout, after which the
+ * task is rejected with a {@link RejectedExecutionException}. Idle threads, including the first
+ * one, stop after a minute. <br>
+ * <br>
+ * It records the latency of its tasks, from their submission to their end, so that
+ * {@link #getMetrics()} can report percentiles of the recent ones.
+ *
+ * @since 2.8.0
+ */
+public class ManagedExecutor extends ThreadPoolExecutor {
+
+	private static final Logger log = LoggerFactory.getLogger(ManagedExecutor.class);
+
+	/**
+	 * The number of the most recent task latencies kept for the percentiles
+	 */
+	private static final int LATENCY_SAMPLES = 1024;
+
+	private final String name;
+
+	private volatile boolean virtualThreads;
+
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+
+	private int latencyCount = 0;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	// the tasks submitted and not yet completed, queued or running
+	private final AtomicInteger submittedCount = new AtomicInteger();
+
+	private volatile long rejectionTimeoutMillis;
+
+	/**
+	 * @param name the name of the pool, which prefixes the names of its threads
+	 * @param maxPoolSize the maximum number of threads
+	 * @param queueCapacity the maximum number of queued tasks
+	 * @param rejectionTimeoutMillis how long a submitting thread waits for room in a full queue
+	 * @param virtualThreads whether to use virtual threads when the JVM supports them
+	 */
+	public ManagedExecutor(String name, int maxPoolSize, int queueCapacity, long rejectionTimeoutMillis,
+	    boolean virtualThreads) {
+		super(1, Math.max(1, maxPoolSize), 60, TimeUnit.SECONDS, new TaskQueue(queueCapacity));
+		allowCoreThreadTimeOut(true);
+		this.name = name;
+		this.rejectionTimeoutMillis = rejectionTimeoutMillis;
+		setVirtualThreads(virtualThreads);
+		setRejectedExecutionHandler(new WaitForRoomPolicy());
+		((TaskQueue) getQueue()).executor = this;
+	}
+
+	/**
+	 * @return the name of the pool
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return whether the pool runs its tasks on virtual threads
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Changes the kind of the threads started from now on, the running threads are kept until they are
+	 * idle
+	 *
+	 * @param virtualThreads whether to use virtual threads when the JVM supports them
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		if (virtualThreads && this.virtualThreads) {
+			return;
+		}
+		ThreadFactory virtualThreadFactory = virtualThreads ? getVirtualThreadFactory(name) : null;
+		this.virtualThreads = virtualThreadFactory != null;
+		setThreadFactory(virtualThreadFactory != null ? virtualThreadFactory : new PlatformThreadFactory(name));
+	}
+
+	/**
+	 * Changes the bounds of the pool, the tasks already queued are kept
+	 *
+	 * @param maxPoolSize the maximum number of threads
+	 * @param queueCapacity the maximum number of queued tasks
+	 * @param rejectionTimeoutMillis how long a submitting thread waits for room in a full queue
+	 */
+	public void setBounds(int maxPoolSize, int queueCapacity, long rejectionTimeoutMillis) {
+		setMaximumPoolSize(Math.max(1, maxPoolSize));
+		((TaskQueue) getQueue()).capacity = Math.max(0, queueCapacity);
+		this.rejectionTimeoutMillis = rejectionTimeoutMillis;
+	}
+
+	/**
+	 * @see java.util.concurrent.ThreadPoolExecutor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(Runnable command) {
+		submittedCount.incrementAndGet();
+		try {
+			super.execute(new TimedRunnable(command));
+		}
+		catch (RejectedExecutionException e) {
+			submittedCount.decrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * @see java.util.concurrent.ThreadPoolExecutor#afterExecute(java.lang.Runnable,
+	 *      java.lang.Throwable)
+	 */
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		super.afterExecute(r, t);
+		submittedCount.decrementAndGet();
+		if (r instanceof TimedRunnable) {
+			long latency = System.nanoTime() - ((TimedRunnable) r).submitted;
+			synchronized (latencies) {
+				latencies[latencyCount++ % LATENCY_SAMPLES] = latency;
+			}
+		}
+	}
+
+	/**
+	 * @return a snapshot of the state of the pool and of the latency of its recent tasks
+	 */
+	public ExecutorMetrics getMetrics() {
+		long[] samples;
+		synchronized (latencies) {
+			samples = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+		}
+		Arrays.sort(samples);
+		return new ExecutorMetrics(name, getPoolSize(), getMaximumPoolSize(), getActiveCount(), getQueue().size(),
+		        ((TaskQueue) getQueue()).capacity, getCompletedTaskCount(), rejectedCount.get(), percentile(samples, 50),
+		        percentile(samples, 99), samples.length == 0 ? 0 : toMillis(samples[samples.length - 1]));
+	}
+
+	private static long percentile(long[] sortedSamples, int percentile) {
+		if (sortedSamples.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile / 100.0 * sortedSamples.length) - 1;
+		return toMillis(sortedSamples[Math.max(0, index)]);
+	}
+
+	private static long toMillis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * Gets a factory of virtual threads through reflection, since the api is compiled for Java 8
+	 *
+	 * @return the factory, null if the JVM does not support virtual threads
+	 */
+	private static ThreadFactory getVirtualThreadFactory(String name) {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method nameMethod = builderClass.getMethod("name", String.class, long.class);
+			builder = nameMethod.invoke(builder, "openmrs-" + name + "-", 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		}
+		catch (ReflectiveOperationException | RuntimeException e) {
+			log.warn("Virtual threads are not supported by this JVM, the {} pool uses platform threads", name);
+			return null;
+		}
+	}
+
+	/**
+	 * Keeps the submission time of a task to compute its latency
+	 */
+	private static class TimedRunnable implements Runnable {
+
+		private final Runnable runnable;
+
+		private final long submitted = System.nanoTime();
+
+		private TimedRunnable(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		@Override
+		public void run() {
+			runnable.run();
+		}
+	}
+
+	/**
+	 * Creates daemon threads named after the pool
+	 */
+	private static class PlatformThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		private PlatformThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "openmrs-" + name + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * A queue taking the tasks which an idle thread can run right away, and otherwise refusing tasks
+	 * while the pool can start more threads, so that the executor starts a thread instead of queueing
+	 * the task, and refusing tasks beyond its capacity
+	 */
+	private static class TaskQueue extends LinkedBlockingQueue<Runnable> {
+
+		private static final long serialVersionUID = 1L;
+
+		private transient volatile ManagedExecutor executor;
+
+		private volatile int capacity;
+
+		private final ReentrantLock forceOfferLock = new ReentrantLock();
+
+		private final Condition roomInQueue = forceOfferLock.newCondition();
+
+		private TaskQueue(int capacity) {
+			this.capacity = Math.max(0, capacity);
+		}
+
+		@Override
+		public boolean offer(Runnable runnable) {
+			if (executor != null) {
+				// there are no more submitted tasks than threads, so one of them is idle and takes the task
+				if (executor.submittedCount.get() <= executor.getPoolSize()) {
+					return super.offer(runnable);
+				}
+				if (executor.getPoolSize() < executor.getMaximumPoolSize()) {
+					return false;
+				}
+			}
+			return size() < capacity && super.offer(runnable);
+		}
+
+		/**
+		 * Queues a task refused by the executor, waiting for room in the queue
+		 */
+		private boolean forceOffer(Runnable runnable, long timeoutMillis) throws InterruptedException {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			// not a monitor, which would pin a waiting virtual thread to its carrier thread
+			forceOfferLock.lockInterruptibly();
+			try {
+				while (size() >= capacity) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return false;
+					}
+					roomInQueue.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)));
+				}
+				return super.offer(runnable);
+			}
+			finally {
+				forceOfferLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Makes the submitting thread wait for room in the queue, then rejects the task
+	 */
+	private static class WaitForRoomPolicy implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+			ManagedExecutor managedExecutor = (ManagedExecutor) executor;
+			if (!executor.isShutdown()) {
+				try {
+					if (((TaskQueue) executor.getQueue()).forceOffer(runnable, managedExecutor.rejectionTimeoutMillis)) {
+						// a thread may have stopped since the task was refused
+						if (executor.getPoolSize() == 0) {
+							executor.prestartCoreThread();
+						}
+						return;
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			managedExecutor.rejectedCount.incrementAndGet();
+			throw new RejectedExecutionException("The " + managedExecutor.name + " pool is full with "
+			        + executor.getActiveCount() + " active threads and " + executor.getQueue().size() + " queued tasks");
+		}
+	}
+}
@@ -52,6 +52,11 @@ import net.sf.ehcache.CacheManager;
  */
 public class OpenmrsClassLoader extends URLClassLoader {
 	
+	static {
+		// classes are loaded concurrently, relying on the module class loaders and the parent for locking
+		ClassLoader.registerAsParallelCapable();
+	}
+	
 	private static Logger log = LoggerFactory.getLogger(OpenmrsClassLoader.class);
 	
 	private static File libCacheFolder;
@@ -139,7 +144,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 * <strong>Should</strong> load class if two module class loaders have same packages
 	 */
 	@Override
-	public synchronized Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
+	public Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
 		// Check if the class has already been requested from this class loader
 		Class<?> c = getCachedClass(name);
 		if (c == null) {
@@ -211,7 +216,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 		log.trace("finding resource: {}", name);
 		
 		URL result;
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoadersForResource(name)) {
 			result = classLoader.findResource(name);
 			if (result != null) {
 				return result;
@@ -235,7 +240,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	@Override
 	public Enumeration<URL> findResources(final String name) throws IOException {
 		Set<URI> results = new HashSet<>();
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoadersForResource(name)) {
 			Enumeration<URL> urls = classLoader.findResources(name);
 			while (urls.hasMoreElements()) {
 				URL result = urls.nextElement();
@@ -279,7 +284,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 */
 	@Override
 	public InputStream getResourceAsStream(String file) {
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoadersForResource(file)) {
 			InputStream result = classLoader.getResourceAsStream(file);
 			if (result != null) {
 				return result;
@@ -297,7 +302,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	@Override
 	public Enumeration<URL> getResources(String packageName) throws IOException {
 		Set<URI> results = new HashSet<>();
-		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoaders()) {
+		for (ModuleClassLoader classLoader : ModuleFactory.getModuleClassLoadersForResource(packageName)) {
 			Enumeration<URL> urls = classLoader.getResources(packageName);
 			while (urls.hasMoreElements()) {
 				URL result = urls.nextElement();
@@ -10,10 +10,16 @@
 package org.openmrs.util;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.StringUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,7 +34,13 @@ import org.springframework.core.type.filter.TypeFilter;
 
 /**
  * Reflection utilities to search the classpath for classes that have a given annotation, implement
- * a given interface, etc
+ * a given interface, etc <br>
+ * <br>
+ * Jars built with the annotation processor of openmrs-tools contain an index of the classes carrying
+ * the most commonly looked up annotations, see {@link #ANNOTATION_INDEX_LOCATION}. The classes of
+ * such jars are read from the index, only the jars and folders without an index for the annotation
+ * are scanned. An index listing a class that cannot be loaded, e.g. one deleted since the last full
+ * build, is ignored and its jar or folder is scanned instead.
  * 
  * @since 1.10
  */
@@ -36,15 +48,32 @@ public class OpenmrsClassScanner {
 	
 	private static final Logger log = LoggerFactory.getLogger(OpenmrsClassScanner.class);
 	
+	/**
+	 * The location of the annotation index written at build time, a properties file with the names
+	 * of the annotated classes keyed by annotation class name
+	 * 
+	 * @since 2.8.0
+	 */
+	public static final String ANNOTATION_INDEX_LOCATION = "META-INF/openmrs-annotation-index.properties";
+	
+	private static final String ROOT_PACKAGE_PATTERN = "classpath*:org/openmrs/";
+	
+	private final ClassLoader classLoader;
+	
 	private final MetadataReaderFactory metadataReaderFactory;
 	
 	private final ResourcePatternResolver resourceResolver;
 	
-	private Map<Class<?>, Set<Class<?>>> annotationToClassMap;
+	private final Map<Class<?>, Set<Class<?>>> annotationToClassMap = new ConcurrentHashMap<>();
 	
 	private OpenmrsClassScanner() {
-		this.metadataReaderFactory = new SimpleMetadataReaderFactory(OpenmrsClassLoader.getInstance());
-		this.resourceResolver = new PathMatchingResourcePatternResolver(OpenmrsClassLoader.getInstance());
+		this(OpenmrsClassLoader.getInstance());
+	}
+	
+	OpenmrsClassScanner(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+		this.metadataReaderFactory = new SimpleMetadataReaderFactory(classLoader);
+		this.resourceResolver = new PathMatchingResourcePatternResolver(classLoader);
 	}
 	
 	/**
@@ -69,37 +98,47 @@ public class OpenmrsClassScanner {
 	 * @return the list of found classes
 	 */
 	public Set<Class<?>> getClassesWithAnnotation(Class annotationClass) {
-		
-		if (annotationToClassMap != null) {
-			if (annotationToClassMap.containsKey(annotationClass)) {
-				return annotationToClassMap.get(annotationClass);
+		Set<Class<?>> types = annotationToClassMap.get(annotationClass);
+		if (types == null) {
+			types = findClassesWithAnnotation(annotationClass);
+			Set<Class<?>> existing = annotationToClassMap.putIfAbsent(annotationClass, types);
+			if (existing != null) {
+				types = existing;
 			}
-		} else {
-			annotationToClassMap = new HashMap<>();
 		}
 		
+		return types;
+	}
+	
+	private Set<Class<?>> findClassesWithAnnotation(Class<?> annotationClass) {
 		Set<Class<?>> types = new HashSet<>();
-		String pattern = "classpath*:org/openmrs/**/*.class";
+		Set<String> indexedLocations = readAnnotationIndexes(annotationClass, types);
 		
 		try {
-			Resource[] resources = resourceResolver.getResources(pattern);
-			TypeFilter typeFilter = new AnnotationTypeFilter(annotationClass);
-			for (Resource resource : resources) {
-				try {
-					MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
-					if (typeFilter.match(metadataReader, metadataReaderFactory)) {
-						String classname = metadataReader.getClassMetadata().getClassName();
-						try {
-							Class<?> metadata = OpenmrsClassLoader.getInstance().loadClass(classname);
-							types.add(metadata);
-						}
-						catch (ClassNotFoundException e) {
-							throw new IOException("Class cannot be loaded: " + classname, e);
+			TypeFilter typeFilter = new AnnotationTypeFilter((Class) annotationClass);
+			for (Resource root : resourceResolver.getResources(ROOT_PACKAGE_PATTERN)) {
+				String rootLocation = root.getURL().toString();
+				if (isIndexed(rootLocation, indexedLocations)) {
+					continue;
+				}
+				
+				for (Resource resource : resourceResolver.getResources(rootLocation + "**/*.class")) {
+					try {
+						MetadataReader metadataReader = metadataReaderFactory.getMetadataReader(resource);
+						if (typeFilter.match(metadataReader, metadataReaderFactory)) {
+							String classname = metadataReader.getClassMetadata().getClassName();
+							try {
+								Class<?> metadata = classLoader.loadClass(classname);
+								types.add(metadata);
+							}
+							catch (ClassNotFoundException e) {
+								throw new IOException("Class cannot be loaded: " + classname, e);
+							}
 						}
 					}
-				}
-				catch (IOException e) {
-					log.debug("Resource cannot be loaded: " + resource);
+					catch (IOException e) {
+						log.debug("Resource cannot be loaded: " + resource);
+					}
 				}
 			}
 		}
@@ -107,11 +146,65 @@ public class OpenmrsClassScanner {
 			log.error("Failed to look for classes with annocation" + annotationClass, ex);
 		}
 		
-		annotationToClassMap.put(annotationClass, types);
-		
 		return types;
 	}
 	
+	/**
+	 * Adds the classes listed for the given annotation in the annotation indexes on the classpath
+	 * 
+	 * @param annotationClass the annotation class
+	 * @param types the set to add the classes to
+	 * @return the locations of the jars and folders whose index lists the annotation
+	 */
+	private Set<String> readAnnotationIndexes(Class<?> annotationClass, Set<Class<?>> types) {
+		Set<String> indexedLocations = new HashSet<>();
+		try {
+			Enumeration<URL> indexes = classLoader.getResources(ANNOTATION_INDEX_LOCATION);
+			while (indexes.hasMoreElements()) {
+				URL index = indexes.nextElement();
+				Properties properties = new Properties();
+				try (InputStream in = index.openStream()) {
+					properties.load(in);
+				}
+				
+				String classnames = properties.getProperty(annotationClass.getName());
+				if (classnames == null) {
+					// the jar has not been indexed for this annotation
+					continue;
+				}
+				
+				Set<Class<?>> indexedTypes = new HashSet<>();
+				try {
+					for (String classname : StringUtils.split(classnames, ',')) {
+						indexedTypes.add(classLoader.loadClass(classname.trim()));
+					}
+				}
+				catch (ClassNotFoundException | LinkageError e) {
+					log.info("The annotation index {} is out of date, scanning its classes instead", index, e);
+					continue;
+				}
+				
+				indexedLocations.add(StringUtils.removeEnd(index.toString(), ANNOTATION_INDEX_LOCATION));
+				types.addAll(indexedTypes);
+			}
+		}
+		catch (IOException e) {
+			log.warn("Failed to read the annotation indexes, falling back to scanning the classpath", e);
+			types.clear();
+			indexedLocations.clear();
+		}
+		return indexedLocations;
+	}
+	
+	private boolean isIndexed(String location, Set<String> indexedLocations) {
+		for (String indexedLocation : indexedLocations) {
+			if (location.startsWith(indexedLocation)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Private class to hold the one class scanner used throughout openmrs. This is an alternative
 	 * to storing the instance object on {@link OpenmrsClassScanner} itself so that garbage
@@ -291,6 +291,27 @@ public final class OpenmrsConstants {
 	
 	public static final String GLOBAL_PROPERTY_GZIP_ACCEPT_COMPRESSED_REQUESTS_FOR_PATHS = "gzip.acceptCompressedRequestsForPaths";
 	
+	/**
+	 * @since 2.8.0
+	 */
+	public static final String GLOBAL_PROPERTY_GZIP_MIN_SIZE = "gzip.minSize";
+	
+	public static final String GLOBAL_PROPERTY_GZIP_MIN_SIZE_DEFAULT_VALUE = "1024";
+	
+	/**
+	 * @since 2.8.0
+	 */
+	public static final String GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL = "gzip.compressionLevel";
+	
+	public static final String GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL_DEFAULT_VALUE = "6";
+	
+	/**
+	 * @since 2.8.0
+	 */
+	public static final String GLOBAL_PROPERTY_GZIP_MIME_TYPES = "gzip.mimeTypes";
+	
+	public static final String GLOBAL_PROPERTY_GZIP_MIME_TYPES_DEFAULT_VALUE = "text/html,text/css,text/plain,text/xml,text/csv,text/javascript,application/javascript,application/json,application/xml,application/fhir+json,application/fhir+xml,image/svg+xml";
+	
 	public static final String GLOBAL_PROPERTY_MEDICAL_RECORD_OBSERVATIONS = "concept.medicalRecordObservations";
 	
 	public static final String GLOBAL_PROPERTY_PROBLEM_LIST = "concept.problemList";
@@ -424,6 +445,22 @@ public final class OpenmrsConstants {
 	 */
 	public static final String GP_PASSWORD_MINIMUM_LENGTH = "security.passwordMinimumLength";
 	
+	/**
+	 * Global property name of the number of PBKDF2 iterations used to hash the passwords, the higher
+	 * the slower both to log in and to crack the hashes. Existing passwords are hashed again with it
+	 * when their users log in.
+	 *
+	 * @since 2.8.0
+	 */
+	public static final String GP_PASSWORD_HASH_ITERATIONS = "security.passwordHashIterations";
+	
+	/**
+	 * The default value of {@link #GP_PASSWORD_HASH_ITERATIONS}
+	 *
+	 * @since 2.8.0
+	 */
+	public static final int DEFAULT_PASSWORD_HASH_ITERATIONS = 310000;
+	
 	/**
 	 * Global property that stores the duration for which the password reset token is valid
 	 */
@@ -814,6 +851,16 @@ public final class OpenmrsConstants {
 		                "Set to 'true' to turn on OpenMRS's gzip filter, and have the webapp compress data before sending it to any client that supports it. Generally use this if you are running Tomcat standalone. If you are running Tomcat behind Apache, then you'd want to use Apache to do gzip compression.",
 		                BooleanDatatype.class, null));
 		
+		props.add(new GlobalProperty(GLOBAL_PROPERTY_GZIP_MIN_SIZE, GLOBAL_PROPERTY_GZIP_MIN_SIZE_DEFAULT_VALUE,
+		        "The minimum size in bytes of the responses compressed by the gzip filter, smaller responses are sent as is"));
+		
+		props.add(new GlobalProperty(GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL,
+		        GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL_DEFAULT_VALUE,
+		        "The compression level used by the gzip filter, from 1 (fastest) to 9 (smallest output)"));
+		
+		props.add(new GlobalProperty(GLOBAL_PROPERTY_GZIP_MIME_TYPES, GLOBAL_PROPERTY_GZIP_MIME_TYPES_DEFAULT_VALUE,
+		        "Comma separated list of the content types compressed by the gzip filter, a type ending with /* matches all its subtypes"));
+		
 	
 		props
 		        .add(new GlobalProperty(
@@ -879,6 +926,10 @@ public final class OpenmrsConstants {
 		props.add(new GlobalProperty(GP_PASSWORD_MINIMUM_LENGTH, "8",
 		        "Configure the minimum length required of all passwords"));
 		
+		props.add(new GlobalProperty(GP_PASSWORD_HASH_ITERATIONS, String.valueOf(DEFAULT_PASSWORD_HASH_ITERATIONS),
+		        "The number of PBKDF2 iterations used to hash passwords, the higher the slower to log in and to crack "
+		                + "the hashes. Passwords are hashed again with a new value when their users log in."));
+		
 		props.add(new GlobalProperty(GP_PASSWORD_RESET_VALIDTIME, "600000",
 		        " Specifies the duration of time in seconds for which a password reset token is valid, the default value is 10 minutes and the allowed values range from 1 minute to 12hrs"));
 		
@@ -9,10 +9,157 @@
  */
 package org.openmrs.util;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Holds the named thread pools running the background work of OpenMRS, one per kind of work so that
+ * a burst of one kind does not starve the others. <br>
+ * <br>
+ * Each pool is a bounded {@link ManagedExecutor}, configured by the runtime properties
+ * <code>executor.&lt;pool name&gt;.max_threads</code>, <code>executor.&lt;pool name&gt;.queue_size</code>,
+ * <code>executor.&lt;pool name&gt;.rejection_timeout</code> in seconds and
+ * <code>executor.&lt;pool name&gt;.virtual_threads</code>. Modules can get their own pools by name. <br>
+ * <br>
+ * Virtual threads are opt-in per pool, since the code running in a pool may pin them to their
+ * carrier threads, and are only used when the JVM supports them. <br>
+ * <br>
+ * The pools only run background work. The web requests run on the threads of the servlet
+ * container, which serves them on virtual threads when its connector is configured to, e.g. with
+ * the <code>useVirtualThreads="true"</code> attribute of a Tomcat <code>Connector</code> on a Java 21
+ * runtime.
+ */
 public class OpenmrsThreadPoolHolder {
-	
-	public static final ExecutorService threadExecutor = Executors.newCachedThreadPool();
+
+	/**
+	 * The pool running the daemon threads started by {@link org.openmrs.api.context.Daemon} on behalf
+	 * of modules and services
+	 *
+	 * @since 2.8.0
+	 */
+	public static final String POOL_DAEMON = "daemon";
+
+	/**
+	 * The pool running the daemon threads which start the modules
+	 *
+	 * @since 2.8.0
+	 */
+	public static final String POOL_MODULE_START = "moduleStart";
+
+	/**
+	 * The pool running the executions and the initializations of the scheduled tasks
+	 *
+	 * @since 2.8.0
+	 */
+	public static final String POOL_SCHEDULER = "scheduler";
+
+	/**
+	 * The pool notifying the privilege listeners, only used when they are configured to be notified
+	 * asynchronously
+	 *
+	 * @since 2.8.0
+	 */
+	public static final String POOL_LISTENERS = "listeners";
+
+	private static final int DEFAULT_MAX_THREADS = 16;
+
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	private static final long DEFAULT_REJECTION_TIMEOUT = 30;
+
+	private static final Map<String, ManagedExecutor> executors = new ConcurrentHashMap<>();
+
+	private static volatile Properties properties = new Properties();
+
+	/**
+	 * The pool of the daemon threads, see {@link #POOL_DAEMON}
+	 */
+	public static final ExecutorService threadExecutor = getExecutor(POOL_DAEMON);
+
+	private OpenmrsThreadPoolHolder() {
+	}
+
+	/**
+	 * Gets a pool by name, creating it on first use
+	 *
+	 * @param name the name of the pool, e.g. {@link #POOL_SCHEDULER}
+	 * @return the pool
+	 * @since 2.8.0
+	 */
+	public static ManagedExecutor getExecutor(String name) {
+		return executors.computeIfAbsent(name, key -> new ManagedExecutor(key, getMaxThreads(key), getQueueSize(key),
+		        getRejectionTimeoutMillis(key), isVirtualThreads(key)));
+	}
+
+	/**
+	 * Tells whether a pool is configured to use virtual threads, it may still use platform threads if
+	 * the JVM does not support them
+	 *
+	 * @param name the name of the pool
+	 * @return true if the runtime properties ask for virtual threads in the pool
+	 * @since 2.8.0
+	 */
+	public static boolean isVirtualThreads(String name) {
+		return Boolean.parseBoolean(getProperty(name, "virtual_threads"));
+	}
+
+	/**
+	 * @return the metrics of all the pools created so far
+	 * @since 2.8.0
+	 */
+	public static List<ExecutorMetrics> getMetrics() {
+		List<ExecutorMetrics> metrics = new ArrayList<>();
+		for (ManagedExecutor executor : executors.values()) {
+			metrics.add(executor.getMetrics());
+		}
+		return metrics;
+	}
+
+	/**
+	 * Applies the pool settings of the given runtime properties to the pools created so far and to
+	 * the ones created later. Whether a pool uses virtual threads only changes for the threads it
+	 * starts later.
+	 *
+	 * @param props the runtime properties
+	 * @since 2.8.0
+	 */
+	public static void configure(Properties props) {
+		properties = props != null ? props : new Properties();
+		for (ManagedExecutor executor : executors.values()) {
+			String name = executor.getName();
+			executor.setBounds(getMaxThreads(name), getQueueSize(name), getRejectionTimeoutMillis(name));
+			executor.setVirtualThreads(isVirtualThreads(name));
+		}
+	}
+
+	private static int getMaxThreads(String name) {
+		int defaultValue = DEFAULT_MAX_THREADS;
+		if (POOL_DAEMON.equals(name)) {
+			defaultValue = 100;
+		} else if (POOL_SCHEDULER.equals(name)) {
+			defaultValue = 50;
+		}
+		return NumberUtils.toInt(getProperty(name, "max_threads"), defaultValue);
+	}
+
+	private static int getQueueSize(String name) {
+		return NumberUtils.toInt(getProperty(name, "queue_size"), DEFAULT_QUEUE_SIZE);
+	}
+
+	private static long getRejectionTimeoutMillis(String name) {
+		return TimeUnit.SECONDS
+		        .toMillis(NumberUtils.toLong(getProperty(name, "rejection_timeout"), DEFAULT_REJECTION_TIMEOUT));
+	}
+
+	private static String getProperty(String name, String setting) {
+		String value = properties.getProperty("executor." + name + "." + setting);
+		return value != null ? value.trim() : null;
+	}
 }
@@ -20,7 +20,9 @@ import java.util.Random;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.openmrs.api.APIException;
@@ -40,6 +42,18 @@ public class Security {
 	private static final Logger log = LoggerFactory.getLogger(Security.class);
 	
 	private static final Random RANDOM = new SecureRandom();
+	
+	private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+	
+	private static final String PBKDF2_PREFIX = "$pbkdf2-sha256$";
+	
+	private static final int PBKDF2_SALT_LENGTH = 16;
+	
+	private static final int PBKDF2_HASH_LENGTH = 32;
+	
+	private static final int SHA512_HEX_LENGTH = 128;
+	
+	private static final int SHA1_HEX_LENGTH = 40;
 
 	private Security() {
 	}
@@ -48,8 +62,10 @@ public class Security {
 	 * Compare the given hash and the given string-to-hash to see if they are equal. The
 	 * string-to-hash is usually of the form password + salt. <br>
 	 * <br>
-	 * This should be used so that this class can compare against the new correct hashing algorithm
-	 * and the old incorrect hashing algorithm.
+	 * This should be used so that this class can compare against the current password hashing
+	 * algorithm and the older ones. Only the algorithm of the given hash is evaluated, identified by
+	 * the prefix of a {@link #hashPassword(String)} hash or else by the length of a legacy hex
+	 * digest, and the hashes are compared in constant time.
 	 *
 	 * @param hashedPassword a stored password that has been hashed previously
 	 * @param passwordToHash a string to encode/hash and compare to hashedPassword
@@ -58,15 +74,126 @@ public class Security {
 	 * <strong>Should</strong> match strings hashed with incorrect sha1 algorithm
 	 * <strong>Should</strong> match strings hashed with sha1 algorithm
 	 * <strong>Should</strong> match strings hashed with sha512 algorithm and 128 characters salt
+	 * <strong>Should</strong> match strings hashed with pbkdf2 algorithm
 	 */
 	public static boolean hashMatches(String hashedPassword, String passwordToHash) {
 		if (hashedPassword == null || passwordToHash == null) {
 			throw new APIException("password.cannot.be.null", (Object[]) null);
 		}
 		
-		return hashedPassword.equals(encodeString(passwordToHash))
-			|| hashedPassword.equals(encodeStringSHA1(passwordToHash))
-			|| hashedPassword.equals(incorrectlyEncodeString(passwordToHash));
+		if (hashedPassword.startsWith(PBKDF2_PREFIX)) {
+			String[] parts = hashedPassword.substring(PBKDF2_PREFIX.length()).split("\\$");
+			if (parts.length != 3) {
+				return false;
+			}
+			try {
+				int iterations = Integer.parseInt(parts[0]);
+				byte[] salt = Base64.getDecoder().decode(parts[1]);
+				byte[] hash = Base64.getDecoder().decode(parts[2]);
+				return MessageDigest.isEqual(hash, pbkdf2(passwordToHash, salt, iterations, hash.length));
+			}
+			catch (IllegalArgumentException e) {
+				log.warn("Invalid password hash", e);
+				return false;
+			}
+		}
+		
+		String expected;
+		if (hashedPassword.length() == SHA512_HEX_LENGTH) {
+			expected = encodeString(passwordToHash);
+		} else if (hashedPassword.length() == SHA1_HEX_LENGTH) {
+			expected = encodeStringSHA1(passwordToHash);
+		} else if (hashedPassword.length() < SHA1_HEX_LENGTH) {
+			expected = incorrectlyEncodeString(passwordToHash);
+		} else {
+			return false;
+		}
+		return MessageDigest.isEqual(hashedPassword.getBytes(StandardCharsets.UTF_8),
+		    expected.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Hashes a password with PBKDF2, using a random salt and the number of iterations of the
+	 * {@link OpenmrsConstants#GP_PASSWORD_HASH_ITERATIONS} global property. The hash is prefixed with
+	 * the algorithm and its parameters, so that {@link #hashMatches(String, String)} can verify it.
+	 *
+	 * @param passwordToHash the string to hash, usually of the form password + salt
+	 * @return the hash
+	 * @since 2.8.0
+	 * <strong>Should</strong> hash to a string matching the password
+	 * <strong>Should</strong> hash the same password to different strings
+	 */
+	public static String hashPassword(String passwordToHash) {
+		return hashPassword(passwordToHash, getPasswordHashIterations());
+	}
+	
+	/**
+	 * Hashes a password with PBKDF2 and the given number of iterations
+	 *
+	 * @param passwordToHash the string to hash, usually of the form password + salt
+	 * @param iterations the number of iterations, the higher the slower to hash
+	 * @return the hash
+	 * @since 2.8.0
+	 */
+	public static String hashPassword(String passwordToHash, int iterations) {
+		byte[] salt = new byte[PBKDF2_SALT_LENGTH];
+		RANDOM.nextBytes(salt);
+		byte[] hash = pbkdf2(passwordToHash, salt, iterations, PBKDF2_HASH_LENGTH);
+		Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+		return PBKDF2_PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+	}
+	
+	/**
+	 * Tells whether a stored password hash should be replaced by a {@link #hashPassword(String)}
+	 * hash, because it uses an older algorithm or fewer iterations than configured
+	 *
+	 * @param hashedPassword a stored password that has been hashed previously
+	 * @return true if the password should be hashed again
+	 * @since 2.8.0
+	 * <strong>Should</strong> return true for a sha512 hash
+	 * <strong>Should</strong> return true for a pbkdf2 hash with fewer iterations than configured
+	 * <strong>Should</strong> return false for a pbkdf2 hash with the configured iterations
+	 */
+	public static boolean needsRehash(String hashedPassword) {
+		if (hashedPassword == null || !hashedPassword.startsWith(PBKDF2_PREFIX)) {
+			return true;
+		}
+		String iterations = hashedPassword.substring(PBKDF2_PREFIX.length()).split("\\$")[0];
+		try {
+			return Integer.parseInt(iterations) < getPasswordHashIterations();
+		}
+		catch (NumberFormatException e) {
+			return true;
+		}
+	}
+	
+	private static int getPasswordHashIterations() {
+		try {
+			String iterations = Context.getAdministrationService().getGlobalProperty(
+			    OpenmrsConstants.GP_PASSWORD_HASH_ITERATIONS);
+			if (iterations != null) {
+				return Math.max(1, Integer.parseInt(iterations.trim()));
+			}
+		}
+		catch (Exception e) {
+			// e.g. before the context is started, or a bad value
+			log.debug("Using the default number of password hash iterations", e);
+		}
+		return OpenmrsConstants.DEFAULT_PASSWORD_HASH_ITERATIONS;
+	}
+	
+	private static byte[] pbkdf2(String password, byte[] salt, int iterations, int length) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, length * 8);
+		try {
+			return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+		}
+		catch (GeneralSecurityException e) {
+			log.error("Can't hash password because the algorithm " + PBKDF2_ALGORITHM + " is not available", e);
+			throw new APIException("system.cannot.find.encryption.algorithm", null, e);
+		}
+		finally {
+			spec.clearPassword();
+		}
 	}
 
 	/**
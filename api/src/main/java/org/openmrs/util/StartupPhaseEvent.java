@@ -0,0 +1,142 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits the flight recorder event of each phase recorded by {@link StartupTimeline}. <br>
+ * <br>
+ * The event type is defined through the reflective <code>jdk.jfr.EventFactory</code> since the api
+ * targets Java 8, whose runtimes and compilers may lack the <code>jdk.jfr</code> package. No event
+ * is emitted when the package is missing.
+ *
+ * @since 2.8.0
+ */
+class StartupPhaseEvent {
+
+	private static final Logger log = LoggerFactory.getLogger(StartupPhaseEvent.class);
+
+	private static final int CATEGORY_FIELD = 0;
+
+	private static final int NAME_FIELD = 1;
+
+	private static final int LOADED_CLASS_COUNT_FIELD = 2;
+
+	// null when flight recorder is not available
+	private static final Object eventFactory;
+
+	private static Method newEvent;
+
+	private static Method isEnabled;
+
+	private static Method begin;
+
+	private static Method set;
+
+	private static Method commit;
+
+	static {
+		Object factory = null;
+		try {
+			ClassLoader cl = StartupPhaseEvent.class.getClassLoader();
+			Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", false, cl);
+			Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+			Class<?> label = Class.forName("jdk.jfr.Label", false, cl);
+
+			List<Object> annotations = Arrays.asList(
+			    annotationElement.newInstance(Class.forName("jdk.jfr.Name", false, cl), "org.openmrs.StartupPhase"),
+			    annotationElement.newInstance(label, "OpenMRS Startup Phase"),
+			    annotationElement.newInstance(Class.forName("jdk.jfr.Category", false, cl),
+			        new String[] { "OpenMRS", "Startup" }),
+			    annotationElement.newInstance(Class.forName("jdk.jfr.Description", false, cl),
+			        "A timed phase of the startup of OpenMRS, of a module start or of a context refresh"));
+
+			// in the order of the field indexes
+			Constructor<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor", false, cl).getConstructor(
+			    Class.class, String.class, List.class);
+			List<Object> fields = Arrays.asList(
+			    valueDescriptor.newInstance(String.class, "category",
+			        Collections.singletonList(annotationElement.newInstance(label, "Category"))),
+			    valueDescriptor.newInstance(String.class, "name",
+			        Collections.singletonList(annotationElement.newInstance(label, "Name"))),
+			    valueDescriptor.newInstance(long.class, "loadedClassCount",
+			        Collections.singletonList(annotationElement.newInstance(label, "Loaded Classes"))));
+
+			Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", false, cl);
+			Class<?> eventClass = Class.forName("jdk.jfr.Event", false, cl);
+			factory = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+			newEvent = eventFactoryClass.getMethod("newEvent");
+			isEnabled = eventClass.getMethod("isEnabled");
+			begin = eventClass.getMethod("begin");
+			set = eventClass.getMethod("set", int.class, Object.class);
+			commit = eventClass.getMethod("commit");
+		}
+		catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			log.debug("Flight recorder is not available, the startup phases are not emitted as events", e);
+			factory = null;
+		}
+		eventFactory = factory;
+	}
+
+	private StartupPhaseEvent() {
+	}
+
+	/**
+	 * Begins the event of a phase
+	 *
+	 * @return the event to pass to {@link #commit(Object, long)}, null if flight recorder is not
+	 *         available or the event is not enabled
+	 */
+	static Object begin(String category, String name) {
+		if (eventFactory == null) {
+			return null;
+		}
+		try {
+			Object event = newEvent.invoke(eventFactory);
+			if (!(Boolean) isEnabled.invoke(event)) {
+				return null;
+			}
+			set.invoke(event, CATEGORY_FIELD, category);
+			set.invoke(event, NAME_FIELD, name);
+			begin.invoke(event);
+			return event;
+		}
+		catch (ReflectiveOperationException e) {
+			log.debug("Unable to begin the flight recorder event of {} {}", category, name, e);
+			return null;
+		}
+	}
+
+	/**
+	 * Commits the event of a phase
+	 *
+	 * @param event the event returned by {@link #begin(String, String)}, ignored if null
+	 */
+	static void commit(Object event, long loadedClassCount) {
+		if (event == null) {
+			return;
+		}
+		try {
+			set.invoke(event, LOADED_CLASS_COUNT_FIELD, loadedClassCount);
+			commit.invoke(event);
+		}
+		catch (ReflectiveOperationException e) {
+			log.debug("Unable to commit a flight recorder event", e);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records how long the phases of the startup of OpenMRS and of the later module starts and context
+ * refreshes take, so that slow modules and startup regressions can be found without parsing the
+ * logs. <br>
+ * <br>
+ * A phase is timed by closing the {@link Timer} returned by {@link #start(String, String)}, usually
+ * in a try-with-resources block. Each recorded {@link Phase} has a category, e.g.
+ * {@link #CATEGORY_MODULE_START}, a name, e.g. the module id, its start time, its duration and the
+ * number of classes loaded by the JVM while it ran. Phases running concurrently share the loaded
+ * class count, so it is only exact for phases run alone. <br>
+ * <br>
+ * When the JVM supports JDK Flight Recorder, each phase is also emitted as an
+ * <code>org.openmrs.StartupPhase</code> event.
+ *
+ * @since 2.8.0
+ */
+public class StartupTimeline {
+
+	private static final Logger log = LoggerFactory.getLogger(StartupTimeline.class);
+
+	/**
+	 * The whole startup of OpenMRS, from loading the bundled modules to starting the scheduler
+	 */
+	public static final String CATEGORY_STARTUP = "startup";
+
+	/**
+	 * The run of a liquibase changelog, named after the changelog
+	 */
+	public static final String CATEGORY_DATABASE_UPDATE = "databaseUpdate";
+
+	/**
+	 * The build of the hibernate session factory, including loading the mappings
+	 */
+	public static final String CATEGORY_HIBERNATE = "hibernate";
+
+	/**
+	 * The start of a module, named after the module id
+	 */
+	public static final String CATEGORY_MODULE_START = "moduleStart";
+
+	/**
+	 * The loading of the advice of a module, named after the module id
+	 */
+	public static final String CATEGORY_MODULE_ADVICE = "moduleAdvice";
+
+	/**
+	 * The refresh of the spring application context, named {@link #PHASE_APPLICATION_CONTEXT}. In the
+	 * web application, it is nested in the {@link #PHASE_WEB_APPLICATION_CONTEXT} phase which also
+	 * covers the refresh of the dispatcher servlets
+	 */
+	public static final String CATEGORY_CONTEXT_REFRESH = "contextRefresh";
+
+	/**
+	 * The name of the refresh of the spring application context and of the module advice
+	 */
+	public static final String PHASE_APPLICATION_CONTEXT = "applicationContext";
+
+	/**
+	 * The name of the refresh of the web application, including the nested
+	 * {@link #PHASE_APPLICATION_CONTEXT} phase and the refresh of the dispatcher servlets
+	 */
+	public static final String PHASE_WEB_APPLICATION_CONTEXT = "webApplicationContext";
+
+	/**
+	 * The maximum number of phases kept, the oldest ones are dropped beyond
+	 */
+	private static final int MAX_PHASES = 10000;
+
+	private static final Deque<Phase> phases = new ArrayDeque<>();
+
+	private static final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+	private StartupTimeline() {
+	}
+
+	/**
+	 * Starts timing a phase, which is recorded when the returned timer is closed
+	 *
+	 * @param category the category of the phase, one of the CATEGORY_ constants for the core phases
+	 * @param name the name of the phase within its category
+	 * @return the timer to close at the end of the phase
+	 */
+	public static Timer start(String category, String name) {
+		return new Timer(category, name);
+	}
+
+	/**
+	 * @return the recorded phases in the order they ended
+	 */
+	public static List<Phase> getPhases() {
+		synchronized (phases) {
+			return Collections.unmodifiableList(new ArrayList<>(phases));
+		}
+	}
+
+	/**
+	 * @param category the category of the phases to get
+	 * @return the recorded phases of the given category in the order they ended
+	 */
+	public static List<Phase> getPhases(String category) {
+		List<Phase> result = new ArrayList<>();
+		for (Phase phase : getPhases()) {
+			if (phase.getCategory().equals(category)) {
+				result.add(phase);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Forgets the recorded phases, called when OpenMRS starts
+	 */
+	public static void clear() {
+		synchronized (phases) {
+			phases.clear();
+		}
+	}
+
+	private static void record(Phase phase) {
+		synchronized (phases) {
+			if (phases.size() >= MAX_PHASES) {
+				phases.removeFirst();
+			}
+			phases.add(phase);
+		}
+		log.debug("{} {} took {} ms and loaded {} classes", phase.getCategory(), phase.getName(),
+		    phase.getDurationMillis(), phase.getLoadedClassCount());
+	}
+
+	/**
+	 * Times a phase, see {@link StartupTimeline#start(String, String)}
+	 */
+	public static class Timer implements AutoCloseable {
+
+		private final String category;
+
+		private final String name;
+
+		private final long startTime = System.currentTimeMillis();
+
+		private final long startNanos = System.nanoTime();
+
+		private final long startLoadedClassCount = classLoading.getTotalLoadedClassCount();
+
+		// null when flight recorder is not available
+		private final Object event;
+
+		private boolean closed = false;
+
+		private Timer(String category, String name) {
+			this.category = category;
+			this.name = name;
+			this.event = StartupPhaseEvent.begin(category, name);
+		}
+
+		/**
+		 * Records the phase, does nothing if it was already recorded
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+
+			long loadedClassCount = classLoading.getTotalLoadedClassCount() - startLoadedClassCount;
+			Phase phase = new Phase(category, name, startTime, System.nanoTime() - startNanos, loadedClassCount, Thread
+			        .currentThread().getName());
+			record(phase);
+			StartupPhaseEvent.commit(event, loadedClassCount);
+		}
+	}
+
+	/**
+	 * A recorded phase
+	 */
+	public static class Phase {
+
+		private final String category;
+
+		private final String name;
+
+		private final long startTime;
+
+		private final long durationNanos;
+
+		private final long loadedClassCount;
+
+		private final String threadName;
+
+		private Phase(String category, String name, long startTime, long durationNanos, long loadedClassCount,
+		    String threadName) {
+			this.category = category;
+			this.name = name;
+			this.startTime = startTime;
+			this.durationNanos = durationNanos;
+			this.loadedClassCount = loadedClassCount;
+			this.threadName = threadName;
+		}
+
+		/**
+		 * @return the category of the phase
+		 */
+		public String getCategory() {
+			return category;
+		}
+
+		/**
+		 * @return the name of the phase within its category
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return when the phase started in milliseconds since the epoch
+		 */
+		public long getStartTime() {
+			return startTime;
+		}
+
+		/**
+		 * @return how long the phase took in milliseconds
+		 */
+		public long getDurationMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+		}
+
+		/**
+		 * @return how long the phase took in nanoseconds
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		/**
+		 * @return the number of classes loaded by the JVM while the phase ran
+		 */
+		public long getLoadedClassCount() {
+			return loadedClassCount;
+		}
+
+		/**
+		 * @return the name of the thread which ran the phase
+		 */
+		public String getThreadName() {
+			return threadName;
+		}
+
+		@Override
+		public String toString() {
+			return category + " " + name + ": " + getDurationMillis() + " ms, " + loadedClassCount + " classes loaded";
+		}
+	}
+}
@@ -44,6 +44,7 @@ import org.openmrs.ImplementationId;
 import org.openmrs.Privilege;
 import org.openmrs.Role;
 import org.openmrs.User;
+import org.openmrs.api.cache.CacheMetrics;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.Credentials;
 import org.openmrs.api.context.UsernamePasswordCredentials;
@@ -1160,4 +1161,31 @@ public class AdministrationServiceTest extends BaseContextSensitiveTest {
 			"hierarchyOf:org.openmrs.messagesource.PresentationMessage",
 			"hierarchyOf:org.openmrs.person.PersonMergeLogData"));
 	}
+
+	@Test
+	public void getCacheMetrics_shouldIncludeTheRegionsOfTheSecondLevelCacheAndTheApiCaches() {
+		Context.getUserService().getUser(1);
+		
+		CacheMetrics metrics = adminService.getCacheMetrics(10);
+		
+		List<String> regionNames = new ArrayList<>();
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			regionNames.add(region.getName());
+		}
+		assertThat(regionNames, hasItems("org.openmrs.User", "userSearchLocales", "conceptIdsByMapping"));
+		assertTrue(metrics.isStatisticsEnabled());
+		assertTrue(metrics.getEntityLoadCount() > 0);
+	}
+
+	@Test
+	public void getCacheMetrics_shouldIncludeAtMostTheGivenNumberOfSlowestQueries() {
+		Context.getConceptService().getAllConcepts();
+		Context.getUserService().getAllUsers();
+		
+		List<CacheMetrics.Query> slowestQueries = adminService.getCacheMetrics(1).getSlowestQueries();
+		
+		assertEquals(1, slowestQueries.size());
+		assertTrue(slowestQueries.get(0).getExecutionCount() > 0);
+		assertTrue(adminService.getCacheMetrics(100).getSlowestQueries().size() > 1);
+	}
 }
@@ -32,6 +32,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -39,6 +40,9 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.time.DateUtils;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -47,6 +51,7 @@ import org.openmrs.AllergenType;
 import org.openmrs.Allergy;
 import org.openmrs.CodedOrFreeText;
 import org.openmrs.Cohort;
+import org.openmrs.CohortMembership;
 import org.openmrs.Concept;
 import org.openmrs.Condition;
 import org.openmrs.ConditionClinicalStatus;
@@ -1858,6 +1863,125 @@ public class EncounterServiceTest extends BaseContextSensitiveTest {
 		assertEquals(3, allEncounters.get(7).size());
 	}
 	
+	/**
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 */
+	@Test
+	public void getAllEncounters_shouldPassAllEncountersForACohortOfPatientsInBatches() {
+		Cohort cohort = new Cohort();
+		cohort.addMember(7);
+		cohort.addMember(2);
+		cohort.addMember(3);
+		List<Map<Integer, List<Encounter>>> batches = new ArrayList<>();
+		
+		Context.getEncounterService().getAllEncounters(cohort, 2, batches::add);
+		
+		assertEquals(2, batches.size());
+		assertEquals(Arrays.asList(2, 3), new ArrayList<>(batches.get(0).keySet()));
+		assertEquals(Collections.singleton(7), batches.get(1).keySet());
+		assertEquals(3, batches.get(1).get(7).size());
+	}
+	
+	/**
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 */
+	@Test
+	public void getAllEncounters_shouldFetchObsAndProvidersOfTheEncounters() {
+		Cohort cohort = new Cohort();
+		cohort.addMember(7);
+		List<Encounter> encounters = new ArrayList<>();
+		
+		Context.getEncounterService().getAllEncounters(cohort, 10, batch -> {
+			for (Encounter encounter : batch.get(7)) {
+				assertTrue(Hibernate.isInitialized(encounter.getAllObs(true)));
+				assertTrue(Hibernate.isInitialized(encounter.getEncounterProviders()));
+				encounters.add(encounter);
+			}
+		});
+		
+		assertEquals(3, encounters.size());
+	}
+	
+	/**
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 */
+	@Test
+	public void getAllEncounters_shouldFetchObsOfABatchWithMoreEncountersThanFitInOneInClause() {
+		Session session = ((SessionFactory) applicationContext.getBean("sessionFactory")).getCurrentSession();
+		Patient patient = Context.getPatientService().getPatient(7);
+		EncounterType encounterType = Context.getEncounterService().getEncounterType(1);
+		for (int i = 0; i < 1001; i++) {
+			Encounter encounter = new Encounter();
+			encounter.setPatient(patient);
+			encounter.setEncounterType(encounterType);
+			encounter.setEncounterDatetime(new Date());
+			session.save(encounter);
+		}
+		session.flush();
+		session.clear();
+		Cohort cohort = new Cohort();
+		cohort.addMember(7);
+		List<Encounter> encounters = new ArrayList<>();
+	
+		Context.getEncounterService().getAllEncounters(cohort, 10, batch -> {
+			for (Encounter encounter : batch.get(7)) {
+				assertTrue(Hibernate.isInitialized(encounter.getAllObs(true)));
+				encounters.add(encounter);
+			}
+		});
+	
+		assertEquals(1004, encounters.size());
+	}
+	
+	/**
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 */
+	@Test
+	public void getAllEncounters_shouldNotDetachEntitiesLoadedBeforeTheCall() {
+		Encounter held = Context.getEncounterService().getEncounter(3);
+		Cohort cohort = new Cohort();
+		cohort.addMember(7);
+		List<Encounter> handled = new ArrayList<>();
+		
+		Context.getEncounterService().getAllEncounters(cohort, 10, batch -> handled.addAll(batch.get(7)));
+		
+		Session session = ((SessionFactory) applicationContext.getBean("sessionFactory")).getCurrentSession();
+		assertTrue(handled.contains(held));
+		assertTrue(session.contains(held));
+		handled.remove(held);
+		assertFalse(handled.isEmpty());
+		for (Encounter encounter : handled) {
+			assertFalse(session.contains(encounter));
+		}
+	}
+	
+	/**
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 */
+	@Test
+	public void getAllEncounters_shouldIgnoreVoidedCohortMemberships() {
+		Cohort cohort = new Cohort();
+		cohort.addMember(3);
+		CohortMembership voided = new CohortMembership(7);
+		voided.setVoided(true);
+		cohort.addMembership(voided);
+		List<Map<Integer, List<Encounter>>> batches = new ArrayList<>();
+		
+		Context.getEncounterService().getAllEncounters(cohort, 10, batches::add);
+		
+		assertEquals(1, batches.size());
+		assertEquals(Collections.singleton(3), batches.get(0).keySet());
+	}
+	
+	/**
+	 * @see EncounterService#getAllEncounters(Cohort, int, java.util.function.Consumer)
+	 */
+	@Test
+	public void getAllEncounters_shouldFailIfBatchSizeIsNotPositive() {
+		assertThrows(IllegalArgumentException.class,
+		    () -> Context.getEncounterService().getAllEncounters(null, 0, batch -> {}));
+	}
+	
 	/**
 	 * @see EncounterService#getEncounters(Patient, Location, Date, Date, java.util.Collection,
 	 *      java.util.Collection, java.util.Collection, java.util.Collection, java.util.Collection,
@@ -2493,6 +2617,41 @@ public class EncounterServiceTest extends BaseContextSensitiveTest {
 		assertEquals(beforeSize + 1, patientEncounters.size());
 	}
 	
+	/**
+	 * @see EncounterService#getEncounters(EncounterSearchCriteria)
+	 */
+	@Test
+	public void getEncounters_shouldExcludeEncountersOfTypesTheUserIsNotAllowedToView() {
+		EncounterService encounterService = Context.getEncounterService();
+		EncounterType restrictedType = encounterService.getEncounterType(1);
+		restrictedType.setViewPrivilege(Context.getUserService().getPrivilege("Some Privilege For View Encounter Types"));
+		encounterService.saveEncounterType(restrictedType);
+		
+		Patient patient = Context.getPatientService().getPatient(7);
+		EncounterSearchCriteria allTypes = new EncounterSearchCriteriaBuilder().setPatient(patient)
+		        .createEncounterSearchCriteria();
+		EncounterSearchCriteria restrictedTypeOnly = new EncounterSearchCriteriaBuilder().setPatient(patient)
+		        .setEncounterTypes(Collections.singletonList(restrictedType)).createEncounterSearchCriteria();
+		List<Encounter> encounters = encounterService.getEncounters(allTypes);
+		assertTrue(encounters.stream().anyMatch(e -> e.getEncounterType().equals(restrictedType)));
+		
+		Context.logout();
+		Context.authenticate("test_user", "test");
+		Context.addProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+		try {
+			List<Encounter> viewableEncounters = encounterService.getEncounters(allTypes);
+			assertFalse(viewableEncounters.isEmpty());
+			assertFalse(viewableEncounters.stream().anyMatch(e -> e.getEncounterType().equals(restrictedType)));
+			assertEquals(encounters.stream().filter(e -> !e.getEncounterType().equals(restrictedType)).count(),
+			    viewableEncounters.size());
+			assertTrue(encounterService.getEncounters(restrictedTypeOnly).isEmpty());
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+			Context.logout();
+		}
+	}
+	
 	/**
 	 * @see EncounterService#canViewAllEncounterTypes(User)
 	 */
@@ -11,6 +11,7 @@ package org.openmrs.api;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -43,6 +44,8 @@ import java.util.Set;
 
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
+import org.openmrs.Cohort;
+import org.openmrs.CohortMembership;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.ConceptProposal;
@@ -59,6 +62,7 @@ import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.ObsServiceImpl;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.obs.ComplexObsHandler;
+import org.openmrs.obs.ObsValues;
 import org.openmrs.obs.handler.BinaryDataHandler;
 import org.openmrs.obs.handler.ImageHandler;
 import org.openmrs.obs.handler.TextHandler;
@@ -1982,6 +1986,137 @@ public class ObsServiceTest extends BaseContextSensitiveTest {
 		assertEquals(expectedHiAbsolute, obsReferenceRange.getHiAbsolute());
 	}
 	
+	/**
+	 * @see ObsService#getObsValues(Cohort, List, Date, Date)
+	 */
+	@Test
+	public void getObsValues_shouldReturnValuesOfObsMatchingGivenCohortAndQuestions() {
+		ConceptService cs = Context.getConceptService();
+		ObsValues values = obsService.getObsValues(new Cohort("7"), Arrays.asList(cs.getConcept(5089), cs.getConcept(18)),
+		    null, null);
+		
+		assertEquals(4, values.size());
+		assertArrayEquals(new int[] { 13, 7, 10, 16 }, values.getObsId());
+		assertArrayEquals(new int[] { 7, 7, 7, 7 }, values.getPersonId());
+		assertArrayEquals(new int[] { 18, 5089, 5089, 5089 }, values.getConceptId());
+		assertArrayEquals(new int[] { 7, ObsValues.NO_VALUE, ObsValues.NO_VALUE, ObsValues.NO_VALUE },
+		    values.getValueCoded());
+		assertTrue(Double.isNaN(values.getValueNumeric()[0]));
+		assertEquals(50.0, values.getValueNumeric()[1], 0);
+		assertEquals(61.0, values.getValueNumeric()[3], 0);
+		assertEquals(obsService.getObs(16).getObsDatetime().getTime(), values.getObsDatetime()[3]);
+	}
+	
+	/**
+	 * @see ObsService#getObsValues(Cohort, List, Date, Date)
+	 */
+	@Test
+	public void getObsValues_shouldReturnEmptyValuesIfNoQuestionsAreGiven() {
+		assertTrue(obsService.getObsValues(new Cohort("7"), Collections.emptyList(), null, null).isEmpty());
+	}
+	
+	/**
+	 * @see ObsService#getObsValues(Cohort, List, Date, Date)
+	 */
+	@Test
+	public void getObsValues_shouldNotIncludeVoidedObs() {
+		obsService.voidObs(obsService.getObs(10), "testing");
+		
+		ObsValues values = obsService.getObsValues(new Cohort("7"),
+		    Collections.singletonList(Context.getConceptService().getConcept(5089)), null, null);
+		
+		assertArrayEquals(new int[] { 7, 16 }, values.getObsId());
+	}
+	
+	/**
+	 * @see ObsService#getObsValues(Cohort, List, Date, Date)
+	 */
+	@Test
+	public void getObsValues_shouldNotIncludeVoidedCohortMemberships() {
+		Cohort cohort = new Cohort();
+		CohortMembership membership = new CohortMembership(7);
+		membership.setVoided(true);
+		cohort.addMembership(membership);
+		
+		ObsValues values = obsService.getObsValues(cohort,
+		    Collections.singletonList(Context.getConceptService().getConcept(5089)), null, null);
+		
+		assertTrue(values.isEmpty());
+	}
+	
+	/**
+	 * @see ObsValues#getObsId()
+	 */
+	@Test
+	public void getObsValues_shouldNotExposeTheInternalArrays() {
+		ObsValues values = obsService.getObsValues(new Cohort("7"),
+		    Collections.singletonList(Context.getConceptService().getConcept(5089)), null, null);
+		
+		values.getObsId()[0] = -1;
+		values.getValueNumeric()[0] = -1;
+		
+		assertEquals(7, values.getObsId(0));
+		assertEquals(50.0, values.getValueNumeric(0), 0);
+		assertThrows(IndexOutOfBoundsException.class, () -> values.getObsId(values.size()));
+	}
+	
+	/**
+	 * @see ObsService#getObsValues(Cohort, List, Date, Date)
+	 */
+	@Test
+	public void getObsValues_shouldRestrictByFromDateAndToDate() throws ParseException {
+		DateFormat ymd = new SimpleDateFormat("yyyy-MM-dd");
+		
+		ObsValues values = obsService.getObsValues(new Cohort("7"),
+		    Collections.singletonList(Context.getConceptService().getConcept(5089)), ymd.parse("2008-08-01"),
+		    ymd.parse("2008-08-16"));
+		
+		assertArrayEquals(new int[] { 10 }, values.getObsId());
+	}
+	
+	/**
+	 * @see ObsService#getLatestObs(List, List)
+	 */
+	@Test
+	public void getLatestObs_shouldReturnTheLatestObsForEachPersonAndQuestion() {
+		ConceptService cs = Context.getConceptService();
+		PersonService ps = Context.getPersonService();
+		
+		List<Obs> latestObs = obsService.getLatestObs(Arrays.asList(ps.getPerson(7), ps.getPerson(1)),
+		    Arrays.asList(cs.getConcept(5089), cs.getConcept(18)));
+		
+		assertEquals(3, latestObs.size());
+		assertEquals(77, latestObs.get(0).getObsId().intValue());
+		assertEquals(13, latestObs.get(1).getObsId().intValue());
+		assertEquals(16, latestObs.get(2).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#getLatestObs(List, List)
+	 */
+	@Test
+	public void getLatestObs_shouldNotReturnVoidedObs() {
+		obsService.voidObs(obsService.getObs(16), "testing");
+		
+		List<Obs> latestObs = obsService.getLatestObs(Collections.singletonList(Context.getPersonService().getPerson(7)),
+		    Collections.singletonList(Context.getConceptService().getConcept(5089)));
+		
+		assertEquals(1, latestObs.size());
+		assertEquals(10, latestObs.get(0).getObsId().intValue());
+	}
+	
+	/**
+	 * @see ObsService#getLatestObs(List, List)
+	 */
+	@Test
+	public void getLatestObs_shouldReturnAnEmptyListIfNoPersonsOrQuestionsAreGiven() {
+		Person person = Context.getPersonService().getPerson(7);
+		Concept concept = Context.getConceptService().getConcept(5089);
+		
+		assertTrue(obsService.getLatestObs(Collections.emptyList(), Collections.singletonList(concept)).isEmpty());
+		assertTrue(obsService.getLatestObs(Collections.singletonList(person), null).isEmpty());
+	}
+	
 	private Obs buildObservation() {
 		Concept concept = Context.getConceptService().getConcept(4089);
 		Patient patient = new Patient(2);
@@ -889,6 +889,21 @@ public class VisitServiceTest extends BaseContextSensitiveTest {
 		assertTrue(activeVisitCount == 0, "Not all active unvoided vists were closed");
 	}
 	
+	@Test
+	public void stopVisits_shouldStopAtMostTheGivenNumberOfVisits() {
+		executeDataSet("org/openmrs/api/include/VisitServiceTest-includeVisitsAndTypeToAutoClose.xml");
+		
+		List<Integer> visitIds = visitService.stopVisits(null, null, 2);
+		
+		assertEquals(2, visitIds.size());
+		for (Integer visitId : visitIds) {
+			assertNotNull(visitService.getVisit(visitId).getStopDatetime());
+		}
+		List<Integer> nextVisitIds = visitService.stopVisits(null, visitIds.get(1), 2);
+		assertFalse(nextVisitIds.isEmpty());
+		assertTrue(nextVisitIds.get(0) > visitIds.get(1));
+	}
+	
 	/**
 	 * @see VisitService#saveVisit(Visit)
 	 */
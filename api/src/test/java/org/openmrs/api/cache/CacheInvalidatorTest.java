@@ -0,0 +1,209 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hibernate.cache.spi.RegionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openmrs.api.context.AuthenticatedPrincipalCache;
+import org.openmrs.api.context.Context;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+
+/**
+ * Tests the {@link CacheInvalidator} with two nodes connected by a
+ * {@link LoopbackCacheInvalidationTransport}
+ */
+public class CacheInvalidatorTest {
+
+	private static final String CACHE = "org.openmrs.Concept";
+
+	private LoopbackCacheInvalidationTransport transportA;
+
+	private LoopbackCacheInvalidationTransport transportB;
+
+	private CacheManager nodeA;
+
+	private CacheManager nodeB;
+
+	@BeforeEach
+	public void startNodes() {
+		transportA = new LoopbackCacheInvalidationTransport();
+		transportB = new LoopbackCacheInvalidationTransport();
+		nodeA = createCacheManager("nodeA");
+		nodeB = createCacheManager("nodeB");
+		CacheInvalidator.register(nodeA, transportA);
+		CacheInvalidator.register(nodeB, transportB);
+	}
+
+	@AfterEach
+	public void stopNodes() {
+		transportA.close();
+		transportB.close();
+		nodeA.shutdown();
+		nodeB.shutdown();
+		CacheInvalidator.resetTransport();
+	}
+
+	private CacheManager createCacheManager(String name) {
+		CacheManager cacheManager = CacheManager.newInstance(new Configuration().name(name));
+		cacheManager.addCache(new Cache(new CacheConfiguration(CACHE, 100)));
+		cacheManager.addCache(new Cache(
+		        new CacheConfiguration(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 100)));
+		cacheManager.addCache(
+		    new Cache(new CacheConfiguration(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, 100)));
+		return cacheManager;
+	}
+
+	/**
+	 * @see CacheInvalidator#notifyElementUpdated(net.sf.ehcache.Ehcache, Element)
+	 */
+	@Test
+	public void notifyElementUpdated_shouldRemoveTheEntryFromTheOtherNodes() {
+		nodeA.getCache(CACHE).put(new Element(1, "old"));
+		nodeB.getCache(CACHE).put(new Element(1, "old"));
+
+		nodeA.getCache(CACHE).put(new Element(1, "new"));
+
+		assertEquals("new", nodeA.getCache(CACHE).get(1).getObjectValue());
+		assertNull(nodeB.getCache(CACHE).get(1));
+	}
+
+	/**
+	 * @see CacheInvalidator#notifyElementPut(net.sf.ehcache.Ehcache, Element)
+	 */
+	@Test
+	public void notifyElementPut_shouldNotRemoveALoadedEntryFromTheOtherNodes() {
+		nodeB.getCache(CACHE).put(new Element(1, "loaded"));
+
+		nodeA.getCache(CACHE).put(new Element(1, "loaded"));
+
+		assertNotNull(nodeB.getCache(CACHE).get(1));
+	}
+
+	/**
+	 * @see CacheInvalidator#notifyElementRemoved(net.sf.ehcache.Ehcache, Element)
+	 */
+	@Test
+	public void notifyElementRemoved_shouldRemoveTheEntryFromTheOtherNodes() {
+		nodeA.getCache(CACHE).put(new Element(1, "value"));
+		nodeB.getCache(CACHE).put(new Element(1, "value"));
+		nodeB.getCache(CACHE).put(new Element(2, "other"));
+
+		nodeA.getCache(CACHE).remove(1);
+
+		assertNull(nodeB.getCache(CACHE).get(1));
+		assertNotNull(nodeB.getCache(CACHE).get(2));
+	}
+
+	/**
+	 * @see CacheInvalidator#notifyRemoveAll(net.sf.ehcache.Ehcache)
+	 */
+	@Test
+	public void notifyRemoveAll_shouldRemoveAllTheEntriesFromTheOtherNodes() {
+		nodeB.getCache(CACHE).put(new Element(1, "value"));
+		nodeB.getCache(CACHE).put(new Element(2, "value"));
+
+		nodeA.getCache(CACHE).removeAll();
+
+		assertEquals(0, nodeB.getCache(CACHE).getSize());
+	}
+
+	/**
+	 * @see CacheInvalidator#notifyElementPut(net.sf.ehcache.Ehcache, Element)
+	 */
+	@Test
+	public void notifyElementPut_shouldCopyTheUpdateTimestampOfATableToTheOtherNodes() {
+		nodeB.getCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME).put(new Element("query", "b"));
+		nodeB.getCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME).put(new Element("concept", 1L));
+
+		nodeA.getCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME).put(new Element("concept", 2L));
+
+		assertEquals(2L,
+		    nodeB.getCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME).get("concept").getObjectValue());
+		// the query results are discarded by Hibernate only if they read the updated table
+		assertNotNull(nodeB.getCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME).get("query"));
+	}
+
+	/**
+	 * @see CacheInvalidator#getTransport()
+	 */
+	@Test
+	public void getTransport_shouldCreateTheTransportAgainIfItCouldNotBeLoaded() {
+		Properties runtimeProperties = Context.getRuntimeProperties();
+		CacheInvalidationTransport transport = null;
+		try {
+			Properties props = new Properties();
+			props.putAll(runtimeProperties);
+			props.setProperty(CacheInvalidator.TRANSPORT_RUNTIME_PROPERTY, "org.openmrs.module.NotStartedTransport");
+			Context.setRuntimeProperties(props);
+			assertNull(CacheInvalidator.getTransport());
+
+			props.setProperty(CacheInvalidator.TRANSPORT_RUNTIME_PROPERTY,
+			    LoopbackCacheInvalidationTransport.class.getName());
+			Context.setRuntimeProperties(props);
+			transport = CacheInvalidator.getTransport();
+			assertTrue(transport instanceof LoopbackCacheInvalidationTransport);
+		}
+		finally {
+			if (transport != null) {
+				((LoopbackCacheInvalidationTransport) transport).close();
+			}
+			Context.setRuntimeProperties(runtimeProperties);
+		}
+	}
+
+	/**
+	 * @see AuthenticatedPrincipalCache#invalidate(Integer)
+	 */
+	@Test
+	public void invalidate_shouldInvalidateTheAuthenticatedPrincipalOnTheOtherNodes() {
+		List<CacheInvalidationMessage> received = new CopyOnWriteArrayList<>();
+		transportB.addReceiver(received::add);
+		CacheInvalidator.setTransport(transportA);
+
+		AuthenticatedPrincipalCache.invalidate(1);
+		AuthenticatedPrincipalCache.invalidateAll();
+
+		assertEquals(2, received.size());
+		assertEquals(AuthenticatedPrincipalCache.CACHE_NAME, received.get(0).getCacheName());
+		assertEquals(1, received.get(0).getKey());
+		assertTrue(received.get(1).isAllEntries());
+	}
+
+	/**
+	 * @see CacheInvalidator#register(CacheManager, CacheInvalidationTransport)
+	 */
+	@Test
+	public void register_shouldInvalidateTheCachesAddedLater() {
+		nodeA.addCache(new Cache(new CacheConfiguration("added", 100)));
+		nodeB.addCache(new Cache(new CacheConfiguration("added", 100)));
+		nodeA.getCache("added").put(new Element(1, "old"));
+		nodeB.getCache("added").put(new Element(1, "old"));
+
+		nodeA.getCache("added").put(new Element(1, "new"));
+
+		assertNull(nodeB.getCache("added").get(1));
+	}
+}
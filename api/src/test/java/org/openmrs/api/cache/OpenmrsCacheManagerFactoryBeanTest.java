@@ -13,6 +13,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.util.Collection;
 
@@ -20,6 +21,10 @@ import org.junit.jupiter.api.Test;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.core.io.ClassPathResource;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 
 public class OpenmrsCacheManagerFactoryBeanTest extends BaseContextSensitiveTest{
     
@@ -33,4 +38,40 @@ public class OpenmrsCacheManagerFactoryBeanTest extends BaseContextSensitiveTest
         assertThat(actualCaches.size(), is(expectedCaches.length));
         assertThat(actualCaches, containsInAnyOrder(expectedCaches));
     }
+    
+    @Test
+    public void shouldInvalidateTheCachesOfTheOtherNodes() {
+        LoopbackCacheInvalidationTransport transportA = new LoopbackCacheInvalidationTransport();
+        LoopbackCacheInvalidationTransport transportB = new LoopbackCacheInvalidationTransport();
+        OpenmrsCacheManagerFactoryBean nodeA = createNode("nodeA", transportA);
+        OpenmrsCacheManagerFactoryBean nodeB = createNode("nodeB", transportB);
+        try {
+            Ehcache cacheA = nodeA.getObject().getEhcache("conceptIdsByMapping");
+            Ehcache cacheB = nodeB.getObject().getEhcache("conceptIdsByMapping");
+            cacheA.put(new Element("CIEL:1000", 1));
+            cacheB.put(new Element("CIEL:1000", 1));
+            
+            cacheA.put(new Element("CIEL:1000", 2));
+            
+            assertThat(cacheA.get("CIEL:1000").getObjectValue(), is(2));
+            assertThat(cacheB.get("CIEL:1000"), is(nullValue()));
+        }
+        finally {
+            CacheInvalidator.setTransport(null);
+            nodeA.destroy();
+            nodeB.destroy();
+            transportA.close();
+            transportB.close();
+        }
+    }
+    
+    private OpenmrsCacheManagerFactoryBean createNode(String name, CacheInvalidationTransport transport) {
+        CacheInvalidator.setTransport(transport);
+        OpenmrsCacheManagerFactoryBean cacheManagerFactoryBean = new OpenmrsCacheManagerFactoryBean();
+        cacheManagerFactoryBean.setConfigLocation(new ClassPathResource("ehcache-api.xml"));
+        cacheManagerFactoryBean.setCacheManagerName(name);
+        cacheManagerFactoryBean.setShared(false);
+        cacheManagerFactoryBean.afterPropertiesSet();
+        return cacheManagerFactoryBean;
+    }
 }
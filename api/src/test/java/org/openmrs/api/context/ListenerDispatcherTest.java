@@ -0,0 +1,185 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openmrs.PrivilegeListener;
+import org.openmrs.User;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsThreadPoolHolder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tests the {@link ListenerDispatcher}
+ */
+public class ListenerDispatcherTest extends BaseContextSensitiveTest {
+
+	@Autowired
+	private RecordingPrivilegeListener listener;
+
+	@BeforeEach
+	public void clearListener() {
+		listener.clear();
+	}
+
+	@AfterEach
+	public void restoreDispatch() {
+		ListenerDispatcher.configure(Context.getRuntimeProperties());
+	}
+
+	/**
+	 * @see ListenerDispatcher#privilegeChecked(User, String, boolean)
+	 */
+	@Test
+	public void privilegeChecked_shouldNotifyTheListenersOnTheCheckingThreadByDefault() {
+		ListenerDispatcher.configure(new Properties());
+
+		ListenerDispatcher.privilegeChecked(null, "first", true);
+		ListenerDispatcher.privilegeChecked(null, "second", false);
+
+		assertThat(listener.getPrivileges(), contains("first:true", "second:false"));
+		assertThat(listener.getThreads(), everyItem(is(Thread.currentThread().getName())));
+	}
+
+	/**
+	 * @see ListenerDispatcher#privilegeChecked(User, String, boolean)
+	 */
+	@Test
+	public void privilegeChecked_shouldNotifyTheListenersInOrderOffTheCheckingThreadWhenAsync() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(ListenerDispatcher.ASYNC_RUNTIME_PROPERTY, "true");
+		props.setProperty(ListenerDispatcher.BATCH_SIZE_RUNTIME_PROPERTY, "2");
+		ListenerDispatcher.configure(props);
+
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			ListenerDispatcher.privilegeChecked(null, "privilege" + i, true);
+			expected.add("privilege" + i + ":true");
+		}
+		long deadline = System.currentTimeMillis() + 10000;
+		while (listener.getPrivileges().size() < expected.size() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertThat(listener.getPrivileges(), is(expected));
+		assertThat(listener.getThreads(), everyItem(startsWith("openmrs-" + OpenmrsThreadPoolHolder.POOL_LISTENERS)));
+	}
+
+	/**
+	 * @see ListenerDispatcher#privilegeChecked(User, String, boolean)
+	 */
+	@Test
+	public void privilegeChecked_shouldNotifyTheQueuedChecksFirstWhenTheQueueIsFull() throws Exception {
+		Properties props = new Properties();
+		props.setProperty(ListenerDispatcher.ASYNC_RUNTIME_PROPERTY, "true");
+		props.setProperty(ListenerDispatcher.QUEUE_SIZE_RUNTIME_PROPERTY, "1");
+		props.setProperty(ListenerDispatcher.BATCH_SIZE_RUNTIME_PROPERTY, "1");
+		ListenerDispatcher.configure(props);
+		CountDownLatch release = new CountDownLatch(1);
+		listener.block("first:true", release);
+
+		// the pool thread waits in the listener while the next check fills the queue
+		ListenerDispatcher.privilegeChecked(null, "first", true);
+		long deadline = System.currentTimeMillis() + 10000;
+		while (listener.getPrivileges().isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		ListenerDispatcher.privilegeChecked(null, "second", true);
+		Thread checkingThread = new Thread(() -> ListenerDispatcher.privilegeChecked(null, "third", true));
+		checkingThread.start();
+		while (checkingThread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertThat(checkingThread.getState(), is(Thread.State.WAITING));
+		assertThat(listener.getPrivileges(), contains("first:true"));
+		release.countDown();
+		checkingThread.join(10000);
+		assertThat(listener.getPrivileges(), contains("first:true", "second:true", "third:true"));
+	}
+
+	/**
+	 * @see ListenerDispatcher#reset()
+	 */
+	@Test
+	public void reset_shouldLookUpTheListenersAgain() {
+		ListenerDispatcher.configure(new Properties());
+		ListenerDispatcher.reset();
+
+		ListenerDispatcher.privilegeChecked(null, "afterReset", true);
+
+		assertThat(listener.getPrivileges(), contains("afterReset:true"));
+	}
+
+	@Component("recordingPrivilegeListener")
+	public static class RecordingPrivilegeListener implements PrivilegeListener {
+
+		private final List<String> privileges = Collections.synchronizedList(new ArrayList<>());
+
+		private final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+		private volatile String blockedCheck;
+
+		private volatile CountDownLatch release;
+
+		@Override
+		public void privilegeChecked(User user, String privilege, boolean hasPrivilege) {
+			String check = privilege + ":" + hasPrivilege;
+			privileges.add(check);
+			threads.add(Thread.currentThread().getName());
+			if (check.equals(blockedCheck)) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * Makes the notification of the given check wait until the latch is released
+		 */
+		public void block(String check, CountDownLatch release) {
+			this.release = release;
+			this.blockedCheck = check;
+		}
+
+		public List<String> getPrivileges() {
+			return new ArrayList<>(privileges);
+		}
+
+		public List<String> getThreads() {
+			return new ArrayList<>(threads);
+		}
+
+		public void clear() {
+			privileges.clear();
+			threads.clear();
+			blockedCheck = null;
+		}
+	}
+}
@@ -19,11 +19,16 @@ import static org.mockito.MockitoAnnotations.openMocks;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openmrs.api.APIException;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.ServiceNotFoundException;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 import org.openmrs.util.DatabaseUpdateException;
 import org.openmrs.util.InputRequiredException;
@@ -96,4 +101,24 @@ public class ServiceContextTest extends BaseContextSensitiveTest {
 		verify(spiedServiceContext, never()).getMessageService();
 		verify(spiedServiceContext, never()).getMessageSourceService();
 	}
+	
+	@Test
+	public void getService_shouldWaitUntilTheContextIsDoneRefreshing() throws Exception {
+		serviceContext.startRefreshingContext();
+		FutureTask<PatientService> getService = new FutureTask<>(() -> serviceContext.getService(PatientService.class));
+		try {
+			new Thread(getService).start();
+			
+			assertThrows(TimeoutException.class, () -> getService.get(200, TimeUnit.MILLISECONDS));
+		}
+		finally {
+			serviceContext.doneRefreshingContext();
+		}
+		assertNotNull(getService.get(10, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void getService_shouldFailWithANullClass() {
+		assertThrows(ServiceNotFoundException.class, () -> serviceContext.getService(null));
+	}
 }
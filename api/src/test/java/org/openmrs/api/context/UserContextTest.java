@@ -14,16 +14,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.UserService;
+import org.openmrs.api.cache.CacheInvalidationMessage;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 import org.openmrs.util.OpenmrsConstants;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class UserContextTest extends BaseContextSensitiveTest {
 	
@@ -111,4 +116,72 @@ public class UserContextTest extends BaseContextSensitiveTest {
 		// assert
 		assertThat(locationId, nullValue());
 	}
+
+	@Test
+	void getPrincipal_shouldReuseTheSnapshotOfTheAuthenticatedUser() {
+		AuthenticatedPrincipal principal = Context.getUserContext().getPrincipal();
+		
+		assertThat(principal.getUserId(), equalTo(Context.getAuthenticatedUser().getUserId()));
+		assertThat(principal.isSuperUser(), equalTo(true));
+		assertThat(Context.getUserContext().getPrincipal(), sameInstance(principal));
+	}
+	
+	@Test
+	void getPrincipal_shouldTakeANewSnapshotAfterTheUserIsSaved() {
+		AuthenticatedPrincipal principal = Context.getUserContext().getPrincipal();
+		
+		userService.saveUser(userService.getUser(principal.getUserId()));
+		
+		assertThat(AuthenticatedPrincipalCache.get(principal.getUserId(), Context.getUserContext()), nullValue());
+		assertThat(Context.getUserContext().getPrincipal(), not(sameInstance(principal)));
+	}
+	
+	@Test
+	void getPrincipal_shouldTakeANewSnapshotAfterAnotherNodeInvalidatesIt() {
+		AuthenticatedPrincipal principal = Context.getUserContext().getPrincipal();
+		
+		AuthenticatedPrincipalCache.receive(
+			new CacheInvalidationMessage(AuthenticatedPrincipalCache.CACHE_NAME, principal.getUserId()));
+		
+		assertThat(AuthenticatedPrincipalCache.get(principal.getUserId(), Context.getUserContext()), nullValue());
+		assertThat(Context.getUserContext().getPrincipal(), not(sameInstance(principal)));
+	}
+	
+	@Test
+	void getPrincipal_shouldNotShareTheSnapshotOfASessionHoldingAnOutdatedUser() {
+		Privilege privilege = userService.savePrivilege(new Privilege("Revoked Privilege", "A privilege to revoke"));
+		Role role = new Role("Revoked Role", "A role to revoke");
+		role.addPrivilege(privilege);
+		userService.saveRole(role);
+		testUser.addRole(role);
+		userService.saveUser(testUser);
+		
+		UserContext outdatedSession = new UserContext(Context.getAuthenticationScheme());
+		outdatedSession.authenticate(new UsernamePasswordCredentials("testUser", "Test1234"));
+		// this session keeps the user as it was before the role is revoked
+		Context.evictFromSession(outdatedSession.getAuthenticatedUser());
+		UserContext session = new UserContext(Context.getAuthenticationScheme());
+		session.authenticate(new UsernamePasswordCredentials("testUser", "Test1234"));
+		
+		User user = session.getAuthenticatedUser();
+		user.removeRole(role);
+		userService.saveUser(user);
+		
+		assertThat(outdatedSession.hasPrivilege(privilege.getPrivilege()), equalTo(true));
+		assertThat(session.hasPrivilege(privilege.getPrivilege()), equalTo(false));
+		
+		// so that the outdated user can be purged
+		Context.flushSession();
+		Context.evictFromSession(user);
+	}
+	
+	@Test
+	void refreshAuthenticatedUser_shouldTakeANewSnapshotOfTheUser() {
+		AuthenticatedPrincipal principal = Context.getUserContext().getPrincipal();
+		
+		Context.refreshAuthenticatedUser();
+		
+		assertThat(AuthenticatedPrincipalCache.get(principal.getUserId(), Context.getUserContext()), nullValue());
+		assertThat(Context.getUserContext().getPrincipal(), not(sameInstance(principal)));
+	}
 }
@@ -15,6 +15,7 @@ import static org.hamcrest.Matchers.empty;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import javax.annotation.Resource;
@@ -86,6 +87,19 @@ public class ContextDAOTest extends BaseContextSensitiveTest {
 		assertEquals("admin", u.getUsername(), "Should be the admin user");
 	}
 	
+	/**
+	 * @see ContextDAO#authenticate(String,String)
+	 */
+	@Test
+	public void authenticate_shouldHashALegacyPasswordAgainWithTheCurrentAlgorithm() {
+		dao.authenticate("admin", "test");
+		
+		String password = (String) Context.getAdministrationService().executeSQL(
+		    "select password from users where user_id = 1", true).get(0).get(0);
+		assertTrue(password.startsWith("$pbkdf2-sha256$"));
+		assertEquals("admin", dao.authenticate("admin", "test").getUsername());
+	}
+	
 	/**
 	 * @see ContextDAO#authenticate(String,String)
 	 */
@@ -10,14 +10,20 @@
 package org.openmrs.api.db;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.openmrs.Visit;
 import org.openmrs.VisitType;
 import org.openmrs.api.VisitService;
+import org.openmrs.api.context.Context;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 
 /**
@@ -76,4 +82,53 @@ public class VisitDAOTest extends BaseContextSensitiveTest {
 		cal.set(Calendar.MILLISECOND, 999);
 		assertEquals(105, dao.getNextVisit(dao.getVisit(1), visitTypes, cal.getTime()).getVisitId().intValue());
 	}
+	
+	/**
+	 * @see VisitDAO#getNextVisitIds(Integer, java.util.Collection, java.util.Date, int)
+	 */
+	@Test
+	public void getNextVisitIds_shouldReturnTheIdsOfTheNextUnvoidedActiveVisitsMatchingTheSpecifiedTypes() {
+		executeDataSet(VISITS_INCLUDE_VISITS_TO_AUTO_CLOSE_XML);
+		ArrayList<VisitType> visitTypes = new ArrayList<>();
+		visitTypes.add(dao.getVisitType(4));
+		
+		assertEquals(Arrays.asList(104, 105), dao.getNextVisitIds(null, visitTypes, new Date(), 2));
+		assertEquals(Collections.singletonList(106), dao.getNextVisitIds(105, visitTypes, new Date(), 2));
+	}
+	
+	/**
+	 * @see VisitDAO#stopVisits(java.util.Collection, java.util.Date, org.openmrs.User)
+	 */
+	@Test
+	public void stopVisits_shouldStopAVisitAtItsLastEncounterIfItIsAfterTheStopDate() {
+		Calendar cal = Calendar.getInstance();
+		cal.set(2007, 0, 1, 0, 0, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		Date stopDate = cal.getTime();
+		
+		assertEquals(2, dao.stopVisits(Arrays.asList(2, 8), stopDate, Context.getAuthenticatedUser()));
+		Context.clearSession();
+		
+		Visit visit = dao.getVisit(2);
+		assertEquals(stopDate, visit.getStopDatetime());
+		assertEquals(Context.getAuthenticatedUser(), visit.getChangedBy());
+		assertNotNull(visit.getDateChanged());
+		Visit visitWithLaterEncounter = dao.getVisit(8);
+		assertEquals(Context.getEncounterService().getEncounter(3).getEncounterDatetime(),
+		    visitWithLaterEncounter.getStopDatetime());
+	}
+	
+	/**
+	 * @see VisitDAO#stopVisits(java.util.Collection, java.util.Date, org.openmrs.User)
+	 */
+	@Test
+	public void stopVisits_shouldNotChangeTheStopDateOfAStoppedVisit() {
+		executeDataSet(VISITS_INCLUDE_VISITS_TO_AUTO_CLOSE_XML);
+		Date stopDatetime = dao.getVisit(102).getStopDatetime();
+		
+		assertEquals(0, dao.stopVisits(Collections.singletonList(102), new Date(), Context.getAuthenticatedUser()));
+		Context.clearSession();
+		
+		assertEquals(stopDatetime, dao.getVisit(102).getStopDatetime());
+	}
 }
@@ -10,11 +10,13 @@
 package org.openmrs.api.db.hibernate;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
 import javax.persistence.criteria.Root;
+import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -25,6 +27,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.openmrs.Obs;
 import org.openmrs.Person;
+import org.openmrs.api.context.Context;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 
 /**
@@ -97,4 +100,39 @@ public class HibernateObsDAOTest extends BaseContextSensitiveTest {
 			null, null, null, null, false, null);
 		assertArrayEquals(obsListExpected.toArray(), obsListActual.toArray());
 	}
+	
+	/**
+	 * @see HibernateObsDAO#getLatestObs(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getLatestObs_shouldReturnTheLatestObsByObsDatetimeAndNotByDateCreated() throws Exception {
+		Obs latest = Context.getObsService().getObs(16);
+		Obs backdated = new Obs(latest.getPerson(), latest.getConcept(), new SimpleDateFormat("yyyy-MM-dd").parse("2000-01-01"),
+		        latest.getLocation());
+		backdated.setValueNumeric(70.0);
+		Context.getObsService().saveObs(backdated, null);
+		
+		List<Obs> latestObs = dao.getLatestObs(Collections.singleton(7), Collections.singleton(5089));
+		
+		assertEquals(1, latestObs.size());
+		assertEquals(latest, latestObs.get(0));
+	}
+	
+	/**
+	 * @see HibernateObsDAO#getLatestObs(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getLatestObs_shouldReturnTheObsWithTheHighestIdAmongObsSharingTheLatestObsDatetime() {
+		Obs latest = Context.getObsService().getObs(16);
+		Obs sameDatetime = new Obs(latest.getPerson(), latest.getConcept(), latest.getObsDatetime(), latest.getLocation());
+		sameDatetime.setValueNumeric(70.0);
+		Context.getObsService().saveObs(sameDatetime, null);
+		
+		List<Obs> latestObs = dao.getLatestObs(Arrays.asList(7, 1), Arrays.asList(5089, 18));
+		
+		assertEquals(3, latestObs.size());
+		assertEquals(77, latestObs.get(0).getObsId().intValue());
+		assertEquals(13, latestObs.get(1).getObsId().intValue());
+		assertEquals(sameDatetime, latestObs.get(2));
+	}
 }
@@ -61,6 +61,13 @@ public class ModuleActivatorTest extends BaseModuleActivatorTest {
 		assertTrue(moduleTestData.getStartedCallTime(MODULE2_ID) <= moduleTestData.getStartedCallTime(MODULE3_ID));
 	}
 	
+	@Test
+	public void shouldRecordTheStartupTimeOfEachModule() {
+		assertTrue(ModuleFactory.getModuleStartupTimes().containsKey(MODULE1_ID));
+		assertTrue(ModuleFactory.getModuleStartupTimes().containsKey(MODULE2_ID));
+		assertTrue(ModuleFactory.getModuleStartupTimes().containsKey(MODULE3_ID));
+	}
+	
 	@Test
 	public void shouldCallWillStopAndStoppedOnlyForStoppedModule() {
 		ModuleFactory.stopModule(ModuleFactory.getModuleById(MODULE3_ID));
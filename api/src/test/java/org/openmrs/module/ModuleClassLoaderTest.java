@@ -12,19 +12,30 @@ package org.openmrs.module;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.openmrs.Patient;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 
 public class ModuleClassLoaderTest extends BaseContextSensitiveTest {
@@ -492,4 +503,56 @@ public class ModuleClassLoaderTest extends BaseContextSensitiveTest {
 			"file:/atomfeed/lib/jackson-mapper-asl-1.9.13.jar").toURL();
 		assertFalse(ModuleClassLoader.isMatchingConditionalResource(moduleWithNullConfigVersions, fileUrl, conditionalResource));
 	}
+
+	@Test
+	public void loadClass_shouldKeepThrowingClassNotFoundExceptionForAMissingClassAndStillLoadFromTheParent()
+	        throws Exception {
+		mockModuleV1_0.setRequiredModulesMap(new HashMap<>());
+		mockModuleV1_0.setAwareOfModulesMap(new HashMap<>());
+		ModuleClassLoader moduleClassLoader = new ModuleClassLoader(mockModuleV1_0, Collections.emptyList(),
+		        getClass().getClassLoader());
+		try {
+			final String missingClass = "org.openmrs.module.mockmodule.DoesNotExist";
+			assertThrows(ClassNotFoundException.class, () -> moduleClassLoader.loadClass(missingClass));
+			assertThrows(ClassNotFoundException.class, () -> moduleClassLoader.loadClass(missingClass));
+			assertSame(Patient.class, moduleClassLoader.loadClass(Patient.class.getName()));
+		}
+		finally {
+			moduleClassLoader.dispose();
+		}
+	}
+	
+	@Test
+	public void loadClass_shouldLoadItsOwnClassesFromMultiReleaseFolders() throws Exception {
+		mockModuleV1_0.setRequiredModulesMap(new HashMap<>());
+		mockModuleV1_0.setAwareOfModulesMap(new HashMap<>());
+		String className = Versioned.class.getName();
+		String classFile = className.replace('.', '/') + ".class";
+		File jar = File.createTempFile("multiRelease", ".jar");
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().put(new Attributes.Name("Multi-Release"), "true");
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest);
+		        InputStream in = getClass().getClassLoader().getResourceAsStream(classFile)) {
+			out.putNextEntry(new JarEntry("org/example/Other.class"));
+			out.closeEntry();
+			out.putNextEntry(new JarEntry("META-INF/versions/9/" + classFile));
+			IOUtils.copy(in, out);
+			out.closeEntry();
+		}
+		
+		ModuleClassLoader moduleClassLoader = new ModuleClassLoader(mockModuleV1_0,
+		        Collections.singletonList(jar.toURI().toURL()), getClass().getClassLoader());
+		try {
+			assertTrue(moduleClassLoader.getProvidedPackages().contains(Versioned.class.getPackage().getName()));
+			assertSame(moduleClassLoader, moduleClassLoader.loadClass(className).getClassLoader());
+		}
+		finally {
+			moduleClassLoader.dispose();
+			jar.delete();
+		}
+	}
+	
+	public static class Versioned {
+	}
 }
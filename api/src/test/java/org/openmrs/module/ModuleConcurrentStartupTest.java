@@ -0,0 +1,99 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+
+/**
+ * Tests starting the modules on several threads, see
+ * {@link ModuleConstants#RUNTIMEPROPERTY_MODULE_STARTUP_THREADS}
+ */
+public class ModuleConcurrentStartupTest extends BaseModuleActivatorTest {
+
+	@Override
+	protected void init() {
+		super.init();
+		runtimeProperties.setProperty(ModuleConstants.RUNTIMEPROPERTY_MODULE_STARTUP_THREADS, "4");
+		Context.setRuntimeProperties(runtimeProperties);
+	}
+
+	@AfterEach
+	public void after() {
+		// a failed start is recorded outside of the test transaction, so start the module again for
+		// the other tests to start it
+		Module test2 = ModuleFactory.getModuleById(MODULE2_ID);
+		if (test2 != null && !test2.isStarted()) {
+			moduleTestData.init(MODULE2_ID);
+			ModuleFactory.startModule(test2);
+		}
+		ModuleUtil.shutdown();
+		runtimeProperties.remove(ModuleConstants.RUNTIMEPROPERTY_MODULE_STARTUP_THREADS);
+		Context.setRuntimeProperties(runtimeProperties);
+	}
+
+	/**
+	 * @see ModuleFactory#startModules()
+	 */
+	@Test
+	public void startModules_shouldStartAModuleOnlyOnceTheModulesItRequiresAreStarted() {
+		assertNotNull(ModuleFactory.getStartedModuleById(MODULE1_ID));
+		assertNotNull(ModuleFactory.getStartedModuleById(MODULE2_ID));
+		assertNotNull(ModuleFactory.getStartedModuleById(MODULE3_ID));
+
+		//module2 requires module1 while module3 requires module2
+		assertTrue(moduleTestData.getStartedModulesOnWillStart(MODULE2_ID).contains(MODULE1_ID));
+		assertTrue(moduleTestData.getStartedModulesOnWillStart(MODULE3_ID).contains(MODULE2_ID));
+	}
+
+	/**
+	 * @see ModuleFactory#startModules()
+	 */
+	@Test
+	public void startModules_shouldReportAModuleWhichFailedToStartAndTheModulesRequiringIt() {
+		ModuleUtil.shutdown();
+		init();
+		moduleTestData.setFailing(MODULE2_ID);
+
+		ModuleUtil.startup(runtimeProperties);
+
+		Module test2 = ModuleFactory.getModuleById(MODULE2_ID);
+		assertFalse(test2.isStarted());
+		assertNotNull(test2.getStartupErrorMessage());
+		Module test3 = ModuleFactory.getModuleById(MODULE3_ID);
+		assertFalse(test3.isStarted());
+		assertNotNull(test3.getStartupErrorMessage());
+		assertEquals(0, moduleTestData.getWillStartCallCount(MODULE3_ID));
+
+		assertNotNull(ModuleFactory.getStartedModuleById(MODULE1_ID));
+	}
+
+	/**
+	 * @see ModuleUtil#startup(java.util.Properties)
+	 */
+	@Test
+	public void startup_shouldFailIfAMandatoryModuleFailedToStart() {
+		ModuleUtil.shutdown();
+		init();
+		moduleTestData.setFailing(MODULE2_ID);
+		//module3 cannot start without module2
+		Context.getAdministrationService().saveGlobalProperty(new GlobalProperty(MODULE3_ID + ".mandatory", "true"));
+
+		assertThrows(MandatoryModuleException.class, () -> ModuleUtil.startup(runtimeProperties));
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+
+/**
+ * Tests methods on the {@link ModuleExtractionCache} class
+ */
+public class ModuleExtractionCacheTest extends BaseContextSensitiveTest {
+
+	@TempDir
+	public File tempDir;
+
+	private File writeModuleFile(String name, String version) throws IOException {
+		File file = new File(tempDir, name);
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(file))) {
+			for (String entry : new String[] { "config.xml", "lib/extractiontest-api.jar", "web/module/index.jsp",
+			        "web/module/resources/style.css", "org/openmrs/module/extractiontest/Activator.class" }) {
+				out.putNextEntry(new JarEntry(entry));
+				out.write((entry + version).getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+		return file;
+	}
+
+	private Module buildModule(File file) {
+		Module module = new Module("Extraction test", "extractiontest", "org.openmrs.module.extractiontest", "", "",
+		        "1.0", "");
+		module.setFile(file);
+		return module;
+	}
+
+	/**
+	 * @see ModuleExtractionCache#getExtractedModuleFolder(Module)
+	 */
+	@Test
+	public void getExtractedModuleFolder_shouldExtractTheLibAndWebFoldersAndTopLevelFiles() throws Exception {
+		File folder = ModuleExtractionCache.getExtractedModuleFolder(buildModule(writeModuleFile("test.omod", "1")));
+
+		assertEquals("lib/extractiontest-api.jar1",
+		    new String(Files.readAllBytes(new File(folder, "lib/extractiontest-api.jar").toPath()), StandardCharsets.UTF_8));
+		assertTrue(new File(folder, "web/module/index.jsp").isFile());
+		assertTrue(new File(folder, "web/module/resources/style.css").isFile());
+		assertTrue(new File(folder, "config.xml").isFile());
+		assertFalse(new File(folder, "org").exists());
+	}
+
+	/**
+	 * @see ModuleExtractionCache#getExtractedModuleFolder(Module)
+	 */
+	@Test
+	public void getExtractedModuleFolder_shouldReuseTheFilesExtractedFromTheSameJar() throws Exception {
+		Module module = buildModule(writeModuleFile("test.omod", "1"));
+		File folder = ModuleExtractionCache.getExtractedModuleFolder(module);
+		File marker = new File(folder, "lib/marker");
+		assertTrue(marker.createNewFile());
+
+		// a copy of the jar has the same checksum
+		File copy = new File(tempDir, "copy.omod");
+		Files.copy(module.getFile().toPath(), copy.toPath());
+		assertEquals(folder, ModuleExtractionCache.getExtractedModuleFolder(buildModule(copy)));
+		assertTrue(marker.exists());
+	}
+
+	/**
+	 * @see ModuleExtractionCache#getExtractedModuleFolder(Module)
+	 */
+	@Test
+	public void getExtractedModuleFolder_shouldExtractAChangedJarAndDeleteThePreviousFiles() throws Exception {
+		File oldFolder = ModuleExtractionCache.getExtractedModuleFolder(buildModule(writeModuleFile("old.omod", "1")));
+		File newFolder = ModuleExtractionCache.getExtractedModuleFolder(buildModule(writeModuleFile("new.omod", "2")));
+
+		assertNotEquals(oldFolder, newFolder);
+		assertFalse(oldFolder.exists());
+		assertEquals(oldFolder.getParentFile(), newFolder.getParentFile());
+		assertEquals(1, newFolder.getParentFile().listFiles(File::isDirectory).length);
+	}
+
+	/**
+	 * @see ModuleExtractionCache#getExtractedModuleFolder(Module)
+	 */
+	@Test
+	public void getExtractedModuleFolder_shouldNotHashTheJarAgainIfItsSizeAndLastModifiedTimeAreUnchanged()
+	        throws Exception {
+		File file = writeModuleFile("test.omod", "1");
+		File folder = ModuleExtractionCache.getExtractedModuleFolder(buildModule(file));
+
+		// rewritten with the same size and last modified time, the jar is taken for the same one
+		long lastModified = file.lastModified();
+		writeModuleFile("test.omod", "2");
+		assertTrue(file.setLastModified(lastModified));
+		assertEquals(folder, ModuleExtractionCache.getExtractedModuleFolder(buildModule(file)));
+
+		assertTrue(file.setLastModified(lastModified + 2000));
+		assertNotEquals(folder, ModuleExtractionCache.getExtractedModuleFolder(buildModule(file)));
+	}
+
+	/**
+	 * @see ModuleExtractionCache#getModuleJar(Module)
+	 */
+	@Test
+	public void getModuleJar_shouldCopyTheJarOnlyOnce() throws Exception {
+		Module module = buildModule(writeModuleFile("test.omod", "1"));
+		File jar = ModuleExtractionCache.getModuleJar(module);
+		assertEquals("extractiontest.jar", jar.getName());
+		assertTrue(Arrays.equals(Files.readAllBytes(module.getFile().toPath()), Files.readAllBytes(jar.toPath())));
+
+		long lastModified = jar.lastModified() - 10000;
+		assertTrue(jar.setLastModified(lastModified));
+		assertEquals(jar, ModuleExtractionCache.getModuleJar(module));
+		assertEquals(lastModified, jar.lastModified());
+	}
+
+	/**
+	 * @see ModuleExtractionCache#deleteUnusedFolders(java.util.Collection)
+	 */
+	@Test
+	public void deleteUnusedFolders_shouldDeleteTheFilesOfTheModulesWhichAreNotLoaded() throws Exception {
+		Module module = buildModule(writeModuleFile("test.omod", "1"));
+		File folder = ModuleExtractionCache.getExtractedModuleFolder(module);
+
+		ModuleExtractionCache.deleteUnusedFolders(Collections.singletonList(module));
+		assertTrue(folder.isDirectory());
+
+		ModuleExtractionCache.deleteUnusedFolders(Collections.emptyList());
+		assertFalse(folder.getParentFile().exists());
+	}
+}
@@ -11,7 +11,9 @@ package org.openmrs.module;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class ModuleTestData {
 	
@@ -39,6 +41,10 @@ public class ModuleTestData {
 	
 	private Map<String, Long> stoppedCallTime = new HashMap<>();
 	
+	private Map<String, Set<String>> startedModulesOnWillStart = new HashMap<>();
+	
+	private Set<String> failingModules = new HashSet<>();
+	
 	private ModuleTestData() {
 		
 	}
@@ -66,6 +72,9 @@ public class ModuleTestData {
 		startedCallTime.put(moduleId, 0L);
 		willStopCallTime.put(moduleId, 0L);
 		stoppedCallTime.put(moduleId, 0L);
+		
+		startedModulesOnWillStart.remove(moduleId);
+		failingModules.remove(moduleId);
 	}
 	
 	public synchronized Integer getWillRefreshContextCallCount(String moduleId) {
@@ -138,12 +147,17 @@ public class ModuleTestData {
 	
 	public synchronized void willStart(String moduleId) {
 		willStartCallTime.put(moduleId, new Date().getTime());
+		startedModulesOnWillStart.put(moduleId, new HashSet<>(ModuleFactory.getStartedModulesMap().keySet()));
 		
 		Integer count = willStartCallCount.get(moduleId);
 		if (count == null) {
 			count = 0;
 		}
 		willStartCallCount.put(moduleId, count + 1);
+		
+		if (failingModules.contains(moduleId)) {
+			throw new ModuleException("Failing to start " + moduleId + " as asked by the test");
+		}
 	}
 	
 	public synchronized void started(String moduleId) {
@@ -184,6 +198,21 @@ public class ModuleTestData {
 		return contextRefreshedCallTime.get(moduleId);
 	}
 	
+	/**
+	 * @return the ids of the modules which were started when the given module's activator was told
+	 *         it will start
+	 */
+	public synchronized Set<String> getStartedModulesOnWillStart(String moduleId) {
+		return startedModulesOnWillStart.get(moduleId);
+	}
+	
+	/**
+	 * Makes the activator of the given module fail in willStart, until the next {@link #init(String)}
+	 */
+	public synchronized void setFailing(String moduleId) {
+		failingModules.add(moduleId);
+	}
+	
 	public synchronized Long getWillStartCallTime(String moduleId) {
 		return willStartCallTime.get(moduleId);
 	}
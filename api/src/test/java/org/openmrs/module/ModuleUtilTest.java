@@ -11,6 +11,7 @@ package org.openmrs.module;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -30,7 +31,9 @@ import java.net.URL;
 import java.util.Collection;
 import java.util.List;
 import java.util.Properties;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -804,6 +807,60 @@ public class ModuleUtilTest extends BaseContextSensitiveTest {
 		}
 	}
 
+	/**
+	 * @see ModuleUtil#getClassPackagesFromFile(File)
+	 */
+	@Test
+	public void getClassPackagesFromFile_shouldIncludeLibraryAndMultiReleasePackages() throws IOException {
+		File jar = File.createTempFile("classPackages", ".jar");
+		try {
+			try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+				for (String entry : new String[] { "library/util/Helper.class", "META-INF/versions/11/org/example/Foo.class",
+				        "META-INF/MANIFEST.MF", "web/module/resources/script.js", "Default.class" }) {
+					out.putNextEntry(new JarEntry(entry));
+					out.closeEntry();
+				}
+			}
+			
+			Collection<String> packages = ModuleUtil.getClassPackagesFromFile(jar);
+			
+			assertThat(packages, containsInAnyOrder("library.util", "org.example"));
+		}
+		finally {
+			jar.delete();
+		}
+	}
+	
+	/**
+	 * @see ModuleUtil#getResourceFoldersFromFile(File)
+	 */
+	@Test
+	public void getResourceFoldersFromFile_shouldReturnTheFoldersAndTheirParentsIfJarFile() throws IOException {
+		File f = new File(this.getClass().getResource("/org/openmrs/module/include/test1-1.0-SNAPSHOT.omod").getFile());
+		File d = new File("/tmp/test1-1.0-SNAPSHOT.jar");
+		FileUtils.copyFile(f, d);
+		Collection<String> folders = ModuleUtil.getResourceFoldersFromFile(d);
+		
+		assertTrue(folders.contains(""));
+		assertTrue(folders.contains("META-INF"));
+		assertTrue(folders.contains("org/openmrs/module/test1/web/controller"));
+		assertTrue(folders.contains("org/openmrs/module/test1/web"));
+		assertTrue(folders.contains("org"));
+		assertFalse(folders.contains("org/openmrs/module/test1/web/controller/Test1ManageController.class"));
+		for (String folder : folders) {
+			assertFalse(folder.endsWith("/"));
+		}
+	}
+	
+	/**
+	 * @see ModuleUtil#getResourceFoldersFromFile(File)
+	 */
+	@Test
+	public void getResourceFoldersFromFile_shouldReturnEmptySetIfNonJarFile() {
+		File f = new File(this.getClass().getResource("/org/openmrs/module/include/test1-1.0-SNAPSHOT.omod").getFile());
+		assertThat(ModuleUtil.getResourceFoldersFromFile(f), is(empty()));
+	}
+	
 	/**
 	 * @see ModuleUtil#matchRequiredVersions(String, String) 
 	 */
@@ -0,0 +1,207 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.api.db.DAOException;
+import org.openmrs.scheduler.db.SchedulerDAO;
+import org.openmrs.scheduler.tasks.AbstractTask;
+import org.openmrs.scheduler.timer.TimerSchedulerServiceImpl;
+import org.openmrs.scheduler.timer.TimerSchedulerTask;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+
+/**
+ * Tests methods on the {@link ClusteredTaskRunner} class
+ */
+public class ClusteredTaskRunnerTest extends BaseContextSensitiveTest {
+
+	@Autowired
+	private SchedulerDAO schedulerDAO;
+
+	private TaskDefinition taskDefinition;
+
+	private final AtomicBoolean interruptedAfterExecution = new AtomicBoolean(false);
+
+	@BeforeEach
+	public void before() {
+		taskDefinition = new TaskDefinition();
+		taskDefinition.setUuid(UUID.randomUUID().toString());
+		taskDefinition.setRepeatInterval(3600L);
+	}
+
+	@AfterEach
+	public void after() {
+		// the leases are saved in their own transactions, which the test transaction does not roll back
+		Context.getSchedulerService().deleteTaskLeases(taskDefinition.getUuid());
+		ClusteredTaskRunner.configure(new Properties());
+		getSchedulerServiceTarget().setSchedulerDAO(schedulerDAO);
+	}
+
+	private void configure(String nodeId) {
+		Properties props = new Properties();
+		props.setProperty(SchedulerConstants.SCHEDULER_CLUSTER_ENABLED_RUNTIME_PROPERTY, "true");
+		props.setProperty(SchedulerConstants.SCHEDULER_CLUSTER_NODE_ID_RUNTIME_PROPERTY, nodeId);
+		props.setProperty(SchedulerConstants.SCHEDULER_CLUSTER_LEASE_DURATION_RUNTIME_PROPERTY, "1");
+		ClusteredTaskRunner.configure(props);
+	}
+
+	private TimerSchedulerServiceImpl getSchedulerServiceTarget() {
+		return AopTestUtils.getUltimateTargetObject(Context.getSchedulerService());
+	}
+
+	/**
+	 * Executes the task with the runner in a daemon thread, like the scheduler does
+	 */
+	private boolean execute(Task task) throws Exception {
+		AtomicBoolean executed = new AtomicBoolean(false);
+		// without a task definition, this task is not leased itself
+		Task runner = new AbstractTask() {
+
+			@Override
+			public void execute() throws InterruptedException, ExecutionException {
+				executed.set(ClusteredTaskRunner.execute(task));
+				interruptedAfterExecution.set(Thread.currentThread().isInterrupted());
+			}
+		};
+		new DaemonTaskRunner(runner).runTask();
+		return executed.get();
+	}
+
+	/**
+	 * @see ClusteredTaskRunner#execute(Task)
+	 */
+	@Test
+	public void execute_shouldHoldTheLeaseUntilTheNextExecutionOfTheTask() throws Exception {
+		CountingTask task = new CountingTask();
+		task.initialize(taskDefinition);
+
+		configure("node1");
+		assertTrue(execute(task));
+		long expiryTime = Context.getSchedulerService().getTaskLease(taskDefinition.getUuid()).getExpiryTime().getTime();
+		assertTrue(expiryTime > System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(59));
+
+		// the other nodes firing the same execution skip it
+		configure("node2");
+		assertFalse(execute(task));
+		assertEquals(1, task.executionCount);
+
+		// while the node holding the lease executes the next one
+		configure("node1");
+		assertTrue(execute(task));
+		assertEquals(2, task.executionCount);
+	}
+
+	/**
+	 * @see ClusteredTaskRunner#execute(Task)
+	 */
+	@Test
+	public void execute_shouldInterruptTheExecutionOnLosingTheLease() throws Exception {
+		CountDownLatch interrupted = new CountDownLatch(1);
+		Task task = new AbstractTask() {
+
+			@Override
+			public void execute() throws InterruptedException {
+				// another node takes the lease over
+				SchedulerService schedulerService = Context.getSchedulerService();
+				schedulerService.deleteTaskLeases(taskDefinition.getUuid());
+				assertTrue(schedulerService.acquireTaskLease(taskDefinition.getUuid(), "node2", 60000));
+				try {
+					new CountDownLatch(1).await(30, TimeUnit.SECONDS);
+				}
+				catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+			}
+		};
+		task.initialize(taskDefinition);
+
+		configure("node1");
+		assertFalse(execute(task));
+
+		assertEquals(0, interrupted.getCount());
+		assertFalse(interruptedAfterExecution.get());
+		assertEquals("node2", Context.getSchedulerService().getTaskLease(taskDefinition.getUuid()).getOwner());
+	}
+
+	/**
+	 * @see ClusteredTaskRunner#execute(Task)
+	 */
+	@Test
+	public void execute_shouldKeepExecutingIfARenewalFailsBeforeTheLeaseExpires() throws Exception {
+		// the first call acquires the lease, the second one is the first renewal
+		SchedulerDAO failingDAO = spy(schedulerDAO);
+		doCallRealMethod().doThrow(new DAOException("The database is unreachable")).doCallRealMethod().when(failingDAO)
+		        .updateTaskLease(any(), any(), any(), any());
+		getSchedulerServiceTarget().setSchedulerDAO(failingDAO);
+		Task task = new AbstractTask() {
+
+			@Override
+			public void execute() throws InterruptedException {
+				// long enough for a few renewals of the lease of one second
+				Thread.sleep(1500);
+			}
+		};
+		task.initialize(taskDefinition);
+
+		configure("node1");
+		assertTrue(execute(task));
+
+		assertFalse(interruptedAfterExecution.get());
+		verify(failingDAO, atLeast(3)).updateTaskLease(any(), any(), any(), any());
+		assertEquals("node1", Context.getSchedulerService().getTaskLease(taskDefinition.getUuid()).getOwner());
+	}
+
+	private static class DaemonTaskRunner extends TimerSchedulerTask {
+
+		private final Task task;
+
+		private DaemonTaskRunner(Task task) {
+			super(task);
+			this.task = task;
+		}
+
+		private void runTask() throws Exception {
+			Daemon.executeScheduledTask(task);
+		}
+	}
+
+	private static class CountingTask extends AbstractTask {
+
+		private int executionCount = 0;
+
+		@Override
+		public void execute() {
+			executionCount++;
+		}
+	}
+}
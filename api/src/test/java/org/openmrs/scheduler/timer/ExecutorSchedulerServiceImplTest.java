@@ -0,0 +1,141 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.timer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.db.SchedulerDAO;
+import org.openmrs.scheduler.tasks.AbstractTask;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Tests methods in {@link ExecutorSchedulerServiceImpl}
+ */
+public class ExecutorSchedulerServiceImplTest extends BaseContextSensitiveTest {
+
+	@Autowired
+	private SchedulerDAO schedulerDAO;
+
+	private ExecutorSchedulerServiceImpl schedulerService;
+
+	@BeforeEach
+	public void setUp() {
+		schedulerService = new ExecutorSchedulerServiceImpl();
+		schedulerService.setSchedulerDAO(schedulerDAO);
+		schedulerService.setPoolSize(2);
+		schedulerService.setMaxJitter(0);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		schedulerService.onShutdown();
+	}
+
+	/**
+	 * A task which does nothing
+	 */
+	public static class EmptyTask extends AbstractTask {
+
+		@Override
+		public void execute() {
+		}
+	}
+
+	private TaskDefinition buildTaskDefinition(Long repeatInterval) {
+		TaskDefinition taskDefinition = new TaskDefinition();
+		taskDefinition.setName("Executor test task");
+		taskDefinition.setTaskClass(EmptyTask.class.getName());
+		taskDefinition.setStartOnStartup(false);
+		taskDefinition.setRepeatInterval(repeatInterval);
+		return taskDefinition;
+	}
+
+	/**
+	 * @see ExecutorSchedulerServiceImpl#scheduleTask(TaskDefinition)
+	 */
+	@Test
+	public void scheduleTask_shouldScheduleTheTaskAtItsNextExecutionTime() throws Exception {
+		TaskDefinition taskDefinition = buildTaskDefinition(3600L);
+		Calendar startTime = Calendar.getInstance();
+		startTime.add(Calendar.MINUTE, 30);
+		taskDefinition.setStartTime(startTime.getTime());
+
+		assertNotNull(schedulerService.scheduleTask(taskDefinition));
+
+		assertTrue(taskDefinition.getStarted());
+		assertNotNull(taskDefinition.getId());
+		assertTrue(schedulerService.getScheduledTasks().contains(taskDefinition));
+		assertTrue(schedulerService.getStatus(taskDefinition.getId()).startsWith("Scheduled to execute at"));
+		assertEquals(0, schedulerService.getTaskExecutionMetrics(taskDefinition.getId()).getExecutionCount());
+	}
+
+	/**
+	 * @see ExecutorSchedulerServiceImpl#shutdownTask(TaskDefinition)
+	 */
+	@Test
+	public void shutdownTask_shouldCancelTheLaterExecutionsOfTheTask() throws Exception {
+		TaskDefinition taskDefinition = buildTaskDefinition(3600L);
+		Calendar startTime = Calendar.getInstance();
+		startTime.add(Calendar.MINUTE, 30);
+		taskDefinition.setStartTime(startTime.getTime());
+		schedulerService.scheduleTask(taskDefinition);
+
+		schedulerService.shutdownTask(taskDefinition);
+
+		assertFalse(taskDefinition.getStarted());
+		assertTrue(schedulerService.getScheduledTasks().isEmpty());
+		assertEquals("Not Running", schedulerService.getStatus(taskDefinition.getId()));
+	}
+
+	/**
+	 * @see ExecutorSchedulerServiceImpl#getJitter(long, long)
+	 */
+	@Test
+	public void getJitter_shouldBeAtMostATenthOfTheRepeatIntervalAndTheMaximum() {
+		assertEquals(0, ExecutorSchedulerServiceImpl.getJitter(0, 30000));
+		assertEquals(0, ExecutorSchedulerServiceImpl.getJitter(60000, 0));
+		for (int x = 0; x < 100; x++) {
+			long jitter = ExecutorSchedulerServiceImpl.getJitter(60000, 30000);
+			assertTrue(jitter >= 0 && jitter < 6000);
+			jitter = ExecutorSchedulerServiceImpl.getJitter(3600000, 30000);
+			assertTrue(jitter >= 0 && jitter < 30000);
+		}
+	}
+
+	/**
+	 * @see TaskExecutionMetrics
+	 */
+	@Test
+	public void taskExecutionMetrics_shouldSkipAnExecutionWhileThePreviousOneIsRunning() {
+		TaskExecutionMetrics metrics = new TaskExecutionMetrics();
+
+		assertTrue(metrics.tryStart());
+		assertFalse(metrics.tryStart());
+		metrics.finish(TimeUnit.MILLISECONDS.toNanos(20), true);
+
+		assertFalse(metrics.isExecuting());
+		assertEquals(1, metrics.getExecutionCount());
+		assertEquals(1, metrics.getFailureCount());
+		assertEquals(1, metrics.getSkippedCount());
+		assertEquals(20, metrics.getLastDurationMillis());
+		assertTrue(metrics.tryStart());
+	}
+}
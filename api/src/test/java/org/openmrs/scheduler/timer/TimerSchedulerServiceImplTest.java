@@ -9,15 +9,24 @@
  */
 package org.openmrs.scheduler.timer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Calendar;
+import java.util.Date;
+import java.util.UUID;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.openmrs.api.context.Context;
 import org.openmrs.scheduler.SchedulerException;
+import org.openmrs.scheduler.SchedulerService;
 import org.openmrs.scheduler.Task;
 import org.openmrs.scheduler.TaskDefinition;
+import org.openmrs.scheduler.TaskLease;
 import org.openmrs.test.jupiter.BaseContextSensitiveTest;
 
 /**
@@ -64,4 +73,97 @@ public class TimerSchedulerServiceImplTest extends BaseContextSensitiveTest {
 		assertNotNull(clientTask, "The clientTask variable is null, so either the TimerSchedulerServiceImpl.scheduleTask method hasn't finished or didn't get run");
 	}
 	
+	// the leases are saved in their own transactions, which the test transaction does not roll back
+	private final String leaseKey = UUID.randomUUID().toString();
+	
+	@AfterEach
+	public void deleteTaskLeases() {
+		Context.getSchedulerService().deleteTaskLeases(leaseKey);
+	}
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#acquireTaskLease(String, String, long)
+	 */
+	@Test
+	public void acquireTaskLease_shouldAcquireANewLease() {
+		
+		assertTrue(Context.getSchedulerService().acquireTaskLease(leaseKey, "node1", 60000));
+		
+		TaskLease lease = Context.getSchedulerService().getTaskLease(leaseKey);
+		assertEquals("node1", lease.getOwner());
+		assertTrue(lease.getExpiryTime().after(new Date()));
+	}
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#acquireTaskLease(String, String, long)
+	 */
+	@Test
+	public void acquireTaskLease_shouldRenewALeaseHeldByTheSameOwner() {
+		SchedulerService schedulerService = Context.getSchedulerService();
+		
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node1", 60000));
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node1", 60000));
+	}
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#acquireTaskLease(String, String, long)
+	 */
+	@Test
+	public void acquireTaskLease_shouldNotAcquireALeaseHeldByAnotherOwner() {
+		SchedulerService schedulerService = Context.getSchedulerService();
+		
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node1", 60000));
+		assertFalse(schedulerService.acquireTaskLease(leaseKey, "node2", 60000));
+	}
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#acquireTaskLease(String, String, long)
+	 */
+	@Test
+	public void acquireTaskLease_shouldAcquireAnExpiredLeaseHeldByAnotherOwner() throws Exception {
+		SchedulerService schedulerService = Context.getSchedulerService();
+		
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node1", 1));
+		Thread.sleep(10);
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node2", 60000));
+		assertFalse(schedulerService.acquireTaskLease(leaseKey, "node1", 60000));
+	}
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#releaseTaskLease(String, String)
+	 */
+	@Test
+	public void releaseTaskLease_shouldLetAnotherOwnerAcquireTheReleasedLease() throws Exception {
+		SchedulerService schedulerService = Context.getSchedulerService();
+		
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node1", 60000));
+		// releasing a lease held by another owner does nothing
+		schedulerService.releaseTaskLease(leaseKey, "node2");
+		assertFalse(schedulerService.acquireTaskLease(leaseKey, "node2", 60000));
+		
+		schedulerService.releaseTaskLease(leaseKey, "node1");
+		Thread.sleep(10);
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node2", 60000));
+	}
+	
+	
+	/**
+	 * @see TimerSchedulerServiceImpl#deleteTaskLeases(String)
+	 */
+	@Test
+	public void deleteTaskLeases_shouldDeleteTheLeaseAndTheLeasesOfThePartitions() {
+		SchedulerService schedulerService = Context.getSchedulerService();
+		String otherLeaseKey = UUID.randomUUID().toString();
+		assertTrue(schedulerService.acquireTaskLease(leaseKey, "node1", 60000));
+		assertTrue(schedulerService.acquireTaskLease(leaseKey + ":0/2", "node1", 60000));
+		assertTrue(schedulerService.acquireTaskLease(otherLeaseKey, "node1", 60000));
+		
+		schedulerService.deleteTaskLeases(leaseKey);
+		
+		assertNull(schedulerService.getTaskLease(leaseKey));
+		assertNull(schedulerService.getTaskLease(leaseKey + ":0/2"));
+		assertNotNull(schedulerService.getTaskLease(otherLeaseKey));
+		schedulerService.deleteTaskLeases(otherLeaseKey);
+	}
+	
 }
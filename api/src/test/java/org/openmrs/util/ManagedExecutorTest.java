@@ -0,0 +1,197 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods on the {@link ManagedExecutor} and {@link OpenmrsThreadPoolHolder} classes
+ */
+public class ManagedExecutorTest {
+
+	private ManagedExecutor executor;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	public void shutdown() {
+		release.countDown();
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	private void block() {
+		try {
+			release.await(10, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @see ManagedExecutor#execute(Runnable)
+	 */
+	@Test
+	public void execute_shouldStartThreadsUpToTheMaximumBeforeQueueing() {
+		executor = new ManagedExecutor("test", 3, 10, 0, false);
+		for (int i = 0; i < 5; i++) {
+			executor.execute(this::block);
+		}
+
+		assertEquals(3, executor.getPoolSize());
+		assertEquals(2, executor.getQueue().size());
+	}
+
+	/**
+	 * @see ManagedExecutor#execute(Runnable)
+	 */
+	@Test
+	public void execute_shouldHandATaskToAnIdleThreadRatherThanStartingAThread() {
+		executor = new ManagedExecutor("test", 3, 0, 0, false);
+		assertTrue(executor.prestartCoreThread());
+
+		executor.execute(this::block);
+		assertEquals(1, executor.getPoolSize());
+
+		// the only thread is busy now
+		executor.execute(this::block);
+		assertEquals(2, executor.getPoolSize());
+	}
+
+	/**
+	 * @see ManagedExecutor#execute(Runnable)
+	 */
+	@Test
+	public void execute_shouldRejectATaskWhenThePoolAndTheQueueAreFull() {
+		executor = new ManagedExecutor("test", 1, 1, 50, false);
+		executor.execute(this::block);
+		executor.execute(this::block);
+
+		assertThrows(RejectedExecutionException.class, () -> executor.execute(this::block));
+		assertEquals(1, executor.getMetrics().getRejectedCount());
+	}
+
+	/**
+	 * @see ManagedExecutor#execute(Runnable)
+	 */
+	@Test
+	public void execute_shouldWaitForRoomInTheQueueBeforeRejectingATask() throws Exception {
+		executor = new ManagedExecutor("test", 1, 1, 10000, false);
+		CountDownLatch first = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				first.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		executor.execute(() -> {
+		});
+
+		AtomicReference<Future<?>> future = new AtomicReference<>();
+		Thread submitter = new Thread(() -> future.set(executor.submit(() -> {
+		})));
+		submitter.start();
+		// the full queue gets room when the first task ends, once the submitter waits for it
+		while (submitter.getState() != Thread.State.TIMED_WAITING && submitter.isAlive()) {
+			Thread.yield();
+		}
+		assertTrue(submitter.isAlive());
+		first.countDown();
+		submitter.join(10000);
+
+		future.get().get(10, TimeUnit.SECONDS);
+		assertEquals(0, executor.getMetrics().getRejectedCount());
+	}
+
+	/**
+	 * @see ManagedExecutor#getMetrics()
+	 */
+	@Test
+	public void getMetrics_shouldReportTheCompletedTasksAndTheirLatency() throws Exception {
+		executor = new ManagedExecutor("test", 2, 10, 0, false);
+		for (int i = 0; i < 10; i++) {
+			executor.submit(() -> {
+				try {
+					Thread.sleep(5);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}).get();
+		}
+		// the completed count is updated after the futures are done, and final once the pool terminated
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		ExecutorMetrics metrics = executor.getMetrics();
+		assertEquals("test", metrics.getName());
+		assertEquals(10, metrics.getCompletedCount());
+		assertEquals(0, metrics.getQueuedCount());
+		assertTrue(metrics.getP50LatencyMillis() >= 5);
+		assertTrue(metrics.getP99LatencyMillis() >= metrics.getP50LatencyMillis());
+		assertTrue(metrics.getMaxLatencyMillis() >= metrics.getP99LatencyMillis());
+	}
+
+	/**
+	 * @see OpenmrsThreadPoolHolder#configure(Properties)
+	 */
+	@Test
+	public void configure_shouldApplyTheRuntimePropertiesToTheExistingPools() {
+		ManagedExecutor pool = OpenmrsThreadPoolHolder.getExecutor("configureTest");
+		Properties props = new Properties();
+		props.setProperty("executor.configureTest.max_threads", "7");
+		props.setProperty("executor.configureTest.queue_size", "3");
+		try {
+			OpenmrsThreadPoolHolder.configure(props);
+
+			assertEquals(7, pool.getMaximumPoolSize());
+			assertEquals(3, pool.getMetrics().getQueueCapacity());
+		}
+		finally {
+			OpenmrsThreadPoolHolder.configure(new Properties());
+		}
+	}
+
+	/**
+	 * @see OpenmrsThreadPoolHolder#isVirtualThreads(String)
+	 */
+	@Test
+	public void isVirtualThreads_shouldOnlyBeTrueForThePoolsConfiguredToUseVirtualThreads() {
+		Properties props = new Properties();
+		props.setProperty("executor.scheduler.virtual_threads", "true");
+		try {
+			OpenmrsThreadPoolHolder.configure(props);
+
+			assertTrue(OpenmrsThreadPoolHolder.isVirtualThreads(OpenmrsThreadPoolHolder.POOL_SCHEDULER));
+			assertFalse(OpenmrsThreadPoolHolder.isVirtualThreads(OpenmrsThreadPoolHolder.POOL_DAEMON));
+		}
+		finally {
+			OpenmrsThreadPoolHolder.configure(new Properties());
+		}
+		assertFalse(OpenmrsThreadPoolHolder.isVirtualThreads(OpenmrsThreadPoolHolder.POOL_SCHEDULER));
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import javax.persistence.Entity;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openmrs.Allergy;
+import org.openmrs.Condition;
+import org.openmrs.annotation.HasAddOnStartupPrivileges;
+import org.openmrs.test.jupiter.BaseContextSensitiveTest;
+
+public class OpenmrsClassScannerTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see OpenmrsClassScanner#getClassesWithAnnotation(Class)
+	 */
+	@Test
+	public void getClassesWithAnnotation_shouldReturnTheClassesWithTheAnnotation() {
+		Set<Class<?>> classes = OpenmrsClassScanner.getInstance().getClassesWithAnnotation(
+		    HasAddOnStartupPrivileges.class);
+		
+		assertThat(classes, hasItem(PrivilegeConstants.class));
+		assertThat(classes, not(hasItem(OpenmrsUtil.class)));
+	}
+	
+	/**
+	 * @see OpenmrsClassScanner#getClassesWithAnnotation(Class)
+	 */
+	@Test
+	public void getClassesWithAnnotation_shouldReturnTheSameClassesOnTheSecondCall() {
+		Set<Class<?>> classes = OpenmrsClassScanner.getInstance().getClassesWithAnnotation(Entity.class);
+		
+		assertThat(classes, hasItem(Allergy.class));
+		assertThat(classes, hasItem(Condition.class));
+		assertSame(classes, OpenmrsClassScanner.getInstance().getClassesWithAnnotation(Entity.class));
+	}
+	
+	/**
+	 * @see OpenmrsClassScanner#getClassesWithAnnotation(Class)
+	 */
+	@Test
+	public void getClassesWithAnnotation_shouldReadTheClassesListedByAnIndex(@TempDir File dir) throws Exception {
+		Set<Class<?>> classes = scanWithIndex(dir, OpenmrsUtil.class.getName());
+		
+		// the index is trusted, so the class is returned although it does not carry the annotation
+		assertThat(classes, hasItem(OpenmrsUtil.class));
+		assertThat(classes, hasItem(Marked.class));
+	}
+	
+	/**
+	 * @see OpenmrsClassScanner#getClassesWithAnnotation(Class)
+	 */
+	@Test
+	public void getClassesWithAnnotation_shouldScanInsteadOfReadingAnIndexListingAMissingClass(@TempDir File dir)
+	        throws Exception {
+		Set<Class<?>> classes = scanWithIndex(dir, OpenmrsUtil.class.getName() + ",org.openmrs.DoesNotExist");
+		
+		assertThat(classes, not(hasItem(OpenmrsUtil.class)));
+		assertThat(classes, hasItem(Marked.class));
+	}
+	
+	private Set<Class<?>> scanWithIndex(File dir, String classnames) throws Exception {
+		File index = new File(dir, OpenmrsClassScanner.ANNOTATION_INDEX_LOCATION);
+		index.getParentFile().mkdirs();
+		FileUtils.writeStringToFile(index, Marker.class.getName() + "=" + classnames, StandardCharsets.ISO_8859_1);
+		
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { dir.toURI().toURL() },
+		        getClass().getClassLoader())) {
+			return new OpenmrsClassScanner(classLoader).getClassesWithAnnotation(Marker.class);
+		}
+	}
+	
+	@Retention(RetentionPolicy.RUNTIME)
+	public @interface Marker {
+	}
+	
+	@Marker
+	public static class Marked {
+	}
+}
@@ -10,6 +10,8 @@
 package org.openmrs.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Base64;
@@ -72,6 +74,40 @@ public class SecurityTest {
 		        + "c788c6ad82a157b712392ca695dfcf2eed193d7f"));
 	}
 	
+	/**
+	 * @see Security#hashMatches(String,String)
+	 */
+	@Test
+	public void hashMatches_shouldMatchStringsHashedWithPbkdf2Algorithm() {
+		String hash = Security.hashPassword("test" + "c788c6ad82a157b712392ca695dfcf2eed193d7f", 1000);
+		
+		assertTrue(Security.hashMatches(hash, "test" + "c788c6ad82a157b712392ca695dfcf2eed193d7f"));
+		assertFalse(Security.hashMatches(hash, "Test" + "c788c6ad82a157b712392ca695dfcf2eed193d7f"));
+	}
+	
+	/**
+	 * @see Security#hashPassword(String,int)
+	 */
+	@Test
+	public void hashPassword_shouldHashTheSamePasswordToDifferentStrings() {
+		String hash = Security.hashPassword("test", 1000);
+		
+		assertTrue(hash.startsWith("$pbkdf2-sha256$1000$"));
+		assertTrue(hash.length() <= HASH_LENGTH);
+		assertNotEquals(hash, Security.hashPassword("test", 1000));
+	}
+	
+	/**
+	 * @see Security#needsRehash(String)
+	 */
+	@Test
+	public void needsRehash_shouldReturnTrueForASha512HashOrAPbkdf2HashWithFewerIterations() {
+		assertTrue(Security.needsRehash(Security.encodeString("test")));
+		assertTrue(Security.needsRehash(Security.hashPassword("test", 1000)));
+		assertFalse(Security.needsRehash(Security.hashPassword("test",
+		    OpenmrsConstants.DEFAULT_PASSWORD_HASH_ITERATIONS)));
+	}
+	
 	/**
 	 * @see Security#decrypt(String)
 	 */
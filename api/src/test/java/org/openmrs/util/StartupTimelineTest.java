@@ -0,0 +1,83 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods on the {@link StartupTimeline} class
+ */
+public class StartupTimelineTest {
+
+	@BeforeEach
+	@AfterEach
+	public void clear() {
+		StartupTimeline.clear();
+	}
+
+	/**
+	 * @see StartupTimeline#start(String, String)
+	 */
+	@Test
+	public void start_shouldRecordThePhaseWhenTheTimerIsClosed() throws Exception {
+		long before = System.currentTimeMillis();
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_MODULE_START, "test")) {
+			assertTrue(StartupTimeline.getPhases().isEmpty());
+			Thread.sleep(5);
+		}
+
+		List<StartupTimeline.Phase> phases = StartupTimeline.getPhases();
+		assertEquals(1, phases.size());
+		StartupTimeline.Phase phase = phases.get(0);
+		assertEquals(StartupTimeline.CATEGORY_MODULE_START, phase.getCategory());
+		assertEquals("test", phase.getName());
+		assertTrue(phase.getStartTime() >= before);
+		assertTrue(phase.getDurationMillis() >= 5);
+		assertTrue(phase.getLoadedClassCount() >= 0);
+		assertEquals(Thread.currentThread().getName(), phase.getThreadName());
+	}
+
+	/**
+	 * @see StartupTimeline#start(String, String)
+	 */
+	@Test
+	public void start_shouldRecordAPhaseOnlyOnce() {
+		StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_CONTEXT_REFRESH, "api");
+		timer.close();
+		timer.close();
+
+		assertEquals(1, StartupTimeline.getPhases().size());
+	}
+
+	/**
+	 * @see StartupTimeline#getPhases(String)
+	 */
+	@Test
+	public void getPhases_shouldReturnThePhasesOfTheGivenCategoryInTheOrderTheyEnded() {
+		StartupTimeline.Timer outer = StartupTimeline.start(StartupTimeline.CATEGORY_STARTUP, "openmrs");
+		StartupTimeline.start(StartupTimeline.CATEGORY_MODULE_START, "first").close();
+		StartupTimeline.start(StartupTimeline.CATEGORY_MODULE_ADVICE, "first").close();
+		StartupTimeline.start(StartupTimeline.CATEGORY_MODULE_START, "second").close();
+		outer.close();
+
+		List<StartupTimeline.Phase> modulePhases = StartupTimeline.getPhases(StartupTimeline.CATEGORY_MODULE_START);
+		assertEquals(2, modulePhases.size());
+		assertEquals("first", modulePhases.get(0).getName());
+		assertEquals("second", modulePhases.get(1).getName());
+		assertEquals("openmrs", StartupTimeline.getPhases().get(3).getName());
+	}
+}
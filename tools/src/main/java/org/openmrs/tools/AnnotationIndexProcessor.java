@@ -0,0 +1,230 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.tools;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor writing the names of the classes carrying some annotations to
+ * {@value #INDEX_LOCATION}, so that the classes can be looked up at runtime without scanning and
+ * parsing every class file of the jar. <br>
+ * <br>
+ * The index is a properties file keyed by annotation class name, each value is the comma separated
+ * list of the binary names of the classes annotated with it, directly, through a meta-annotation or
+ * by inheriting it. Every indexed annotation has a key, even if no class is annotated with it, so
+ * that readers can tell which annotations a jar has been indexed for. <br>
+ * <br>
+ * The annotations to index default to {@link #DEFAULT_ANNOTATIONS} and can be replaced with the
+ * comma separated {@value #ANNOTATIONS_OPTION} processor option. <br>
+ * <br>
+ * An incremental compilation only passes the changed classes to the processor, so the classes listed
+ * by the existing index that were not compiled again are kept. A class that has been deleted since
+ * stays listed until the next full build, readers must therefore check that the listed classes exist.
+ *
+ * @since 2.8.0
+ */
+public class AnnotationIndexProcessor extends AbstractProcessor {
+
+	/**
+	 * The location of the index within the jar
+	 */
+	public static final String INDEX_LOCATION = "META-INF/openmrs-annotation-index.properties";
+
+	/**
+	 * The processor option to set the names of the annotations to index
+	 */
+	public static final String ANNOTATIONS_OPTION = "openmrs.annotationIndex.annotations";
+
+	/**
+	 * The annotations indexed when no {@value #ANNOTATIONS_OPTION} option is given
+	 */
+	public static final Set<String> DEFAULT_ANNOTATIONS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+	    "org.openmrs.annotation.Handler", "org.openmrs.annotation.OpenmrsProfile",
+	    "org.openmrs.annotation.HasAddOnStartupPrivileges", "javax.persistence.Entity")));
+
+	private final Map<String, Set<String>> index = new TreeMap<>();
+
+	/**
+	 * The classes listed by the index written by a previous compilation, keyed by annotation
+	 */
+	private final Map<String, Set<String>> previousIndex = new TreeMap<>();
+
+	/**
+	 * The binary names of the classes compiled in this compilation
+	 */
+	private final Set<String> processedTypes = new HashSet<>();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		// every class needs to be seen to find the meta-annotated and inherited annotations
+		return Collections.singleton("*");
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		return Collections.singleton(ANNOTATIONS_OPTION);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (index.isEmpty()) {
+			for (String annotation : getIndexedAnnotations()) {
+				index.put(annotation, new TreeSet<>());
+			}
+			readPreviousIndex();
+		}
+
+		if (roundEnv.processingOver()) {
+			writeIndex();
+		} else {
+			for (Element element : roundEnv.getRootElements()) {
+				indexType(element);
+			}
+		}
+
+		// the annotations are left to be claimed by other processors
+		return false;
+	}
+
+	private Set<String> getIndexedAnnotations() {
+		String option = processingEnv.getOptions().get(ANNOTATIONS_OPTION);
+		if (option == null || option.trim().isEmpty()) {
+			return DEFAULT_ANNOTATIONS;
+		}
+
+		Set<String> result = new LinkedHashSet<>();
+		for (String annotation : option.split(",")) {
+			if (!annotation.trim().isEmpty()) {
+				result.add(annotation.trim());
+			}
+		}
+		return result;
+	}
+
+	private void indexType(Element element) {
+		if (!(element instanceof TypeElement)) {
+			return;
+		}
+
+		TypeElement type = (TypeElement) element;
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		processedTypes.add(binaryName);
+		Set<String> present = new HashSet<>();
+		for (AnnotationMirror mirror : processingEnv.getElementUtils().getAllAnnotationMirrors(type)) {
+			collectAnnotations((TypeElement) mirror.getAnnotationType().asElement(), present);
+		}
+
+		for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+			if (present.contains(entry.getKey())) {
+				entry.getValue().add(binaryName);
+			}
+		}
+
+		// nested classes are separate class files, they are indexed on their own
+		for (Element enclosed : type.getEnclosedElements()) {
+			indexType(enclosed);
+		}
+	}
+
+	/**
+	 * Adds the name of the annotation and the names of its meta-annotations
+	 */
+	private void collectAnnotations(TypeElement annotation, Set<String> present) {
+		if (!present.add(annotation.getQualifiedName().toString())) {
+			return;
+		}
+		for (AnnotationMirror mirror : annotation.getAnnotationMirrors()) {
+			collectAnnotations((TypeElement) mirror.getAnnotationType().asElement(), present);
+		}
+	}
+
+	/**
+	 * Reads the index written to the class output by a previous compilation, if any
+	 */
+	private void readPreviousIndex() {
+		Properties properties = new Properties();
+		try {
+			FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+			try (InputStream in = file.openInputStream()) {
+				properties.load(in);
+			}
+		}
+		catch (IOException | IllegalArgumentException e) {
+			// there is no previous index, e.g. in a clean build
+			return;
+		}
+
+		for (String annotation : index.keySet()) {
+			String classnames = properties.getProperty(annotation);
+			if (classnames != null && !classnames.trim().isEmpty()) {
+				Set<String> classes = new TreeSet<>();
+				for (String classname : classnames.split(",")) {
+					classes.add(classname.trim());
+				}
+				previousIndex.put(annotation, classes);
+			}
+		}
+	}
+
+	private void writeIndex() {
+		// the classes of the previous index that were not compiled again are unchanged
+		for (Map.Entry<String, Set<String>> entry : previousIndex.entrySet()) {
+			for (String classname : entry.getValue()) {
+				if (!processedTypes.contains(classname)) {
+					index.get(entry.getKey()).add(classname);
+				}
+			}
+		}
+
+		StringBuilder content = new StringBuilder();
+		content.append("# Generated by ").append(getClass().getName()).append(", do not edit\n");
+		for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+			content.append(entry.getKey()).append('=').append(String.join(",", entry.getValue())).append('\n');
+		}
+
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+			try (OutputStream out = file.openOutputStream()) {
+				out.write(content.toString().getBytes(StandardCharsets.ISO_8859_1));
+			}
+		}
+		catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+			    "Failed to write " + INDEX_LOCATION + ": " + e.getMessage());
+		}
+	}
+}
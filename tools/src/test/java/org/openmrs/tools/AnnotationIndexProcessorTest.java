@@ -0,0 +1,102 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the {@link AnnotationIndexProcessor} by compiling sources with it
+ */
+public class AnnotationIndexProcessorTest {
+
+	private static final String MARKER = "test.Marker";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void shouldListTheClassesCarryingAnIndexedAnnotation() throws IOException {
+		compile(source("Marker", "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME) "
+		        + "public @interface Marker {}"), source("Meta", "@Marker public @interface Meta {}"),
+		    source("A", "@Marker public class A { @Marker public static class Nested {} }"),
+		    source("B", "@Meta public class B {}"), source("C", "public class C {}"));
+
+		assertEquals("test.A,test.A$Nested,test.B,test.Meta", readIndex().getProperty(MARKER));
+	}
+
+	@Test
+	public void shouldKeepTheClassesOfThePreviousIndexOnAnIncrementalCompilation() throws IOException {
+		compile(source("Marker", "public @interface Marker {}"), source("A", "@Marker public class A {}"),
+		    source("B", "@Marker public class B {}"));
+
+		// only B is compiled again, after its annotation was removed
+		compile(source("B", "public class B {}"));
+
+		assertEquals("test.A", readIndex().getProperty(MARKER));
+	}
+
+	@Test
+	public void shouldListAnIndexedAnnotationWithoutAnyClass() throws IOException {
+		compile(source("Marker", "public @interface Marker {}"), source("C", "public class C {}"));
+
+		assertEquals("", readIndex().getProperty(MARKER));
+	}
+
+	private File source(String name, String body) throws IOException {
+		File file = dir.resolve("src").resolve("test").resolve(name + ".java").toFile();
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), ("package test; " + body).getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private void compile(File... sources) throws IOException {
+		File classes = dir.resolve("classes").toFile();
+		classes.mkdirs();
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(Arrays.asList(sources));
+			List<String> options = new ArrayList<>(Arrays.asList("-d", classes.getPath(), "-classpath", classes.getPath(),
+			    "-A" + AnnotationIndexProcessor.ANNOTATIONS_OPTION + "=" + MARKER));
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+			task.setProcessors(Collections.singletonList(new AnnotationIndexProcessor()));
+			assertTrue(task.call());
+		}
+	}
+
+	private Properties readIndex() throws IOException {
+		Properties index = new Properties();
+		try (InputStream in = Files
+		        .newInputStream(dir.resolve("classes").resolve(AnnotationIndexProcessor.INDEX_LOCATION))) {
+			index.load(in);
+		}
+		return index;
+	}
+}
@@ -11,19 +11,48 @@ package org.openmrs.module.web;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.IOUtils;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleUtil;
-import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Serves the static resources of the started modules. <br>
+ * <br>
+ * The size, modification date, ETag and mime type of the most recently served files are kept in
+ * memory, revalidated by reading the attributes of the file once per request, and dropped when a
+ * module stops. Conditional requests on the ETag or the
+ * modification date are answered with a 304, single byte ranges are honored and the content is
+ * streamed with the container's sendfile support when available, else through a
+ * {@link FileChannel}. A gzip variant written next to a resource when the module is unpacked is
+ * served to the clients accepting it.
+ */
 public class ModuleResourcesServlet extends HttpServlet {
 	
 	private static final String MODULE_PATH = "/WEB-INF/view/module/";
@@ -33,19 +62,43 @@ public class ModuleResourcesServlet extends HttpServlet {
 	private static final Logger log = LoggerFactory.getLogger(ModuleResourcesServlet.class);
 	
 	/**
-	 * Used for caching purposes
+	 * The suffix of the precompressed variant of a resource
+	 */
+	static final String GZIP_SUFFIX = ".gz";
+	
+	/**
+	 * Resources smaller than this are not worth precompressing
+	 */
+	private static final long MIN_PRECOMPRESSED_LENGTH = 1024;
+	
+	private static final Set<String> PRECOMPRESSED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(
+	        Arrays.asList("css", "js", "map", "json", "html", "htm", "svg", "xml", "txt", "csv")));
+	
+	private static final int MAX_CACHED_RESOURCES = 10000;
+	
+	private static final long[] UNSATISFIABLE_RANGE = new long[0];
+	
+	private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+	
+	private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+	
+	private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+	
+	private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+	
+	// the metadata of the served files keyed by absolute path, least recently used first evicted
+	private static final Cache<String, Resource> RESOURCES = CacheBuilder.newBuilder()
+	        .maximumSize(MAX_CACHED_RESOURCES).build();
+	
+	/**
+	 * Conditional requests are handled by {@link #doGet(HttpServletRequest, HttpServletResponse)} so
+	 * that the ETag takes precedence over the modification date, hence -1 is returned here
 	 *
 	 * @see javax.servlet.http.HttpServlet#getLastModified(javax.servlet.http.HttpServletRequest)
 	 */
 	@Override
 	protected long getLastModified(HttpServletRequest req) {
-		File f = getFile(req);
-		
-		if (f == null) {
-			return super.getLastModified(req);
-		}
-		
-		return f.lastModified();
+		return -1;
 	}
 	
 	@Override
@@ -54,30 +107,279 @@ public class ModuleResourcesServlet extends HttpServlet {
 		log.debug("In service method for module servlet: " + request.getPathInfo());
 		
 		File f = getFile(request);
-		if (f == null) {
+		BasicFileAttributes attributes = f == null ? null : readAttributes(f);
+		if (attributes == null || !attributes.isRegularFile()) {
+			if (f != null) {
+				log.warn("No file with path '{}' exists", f);
+			}
 			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 			return;
 		}
 		
-		response.setDateHeader("Last-Modified", f.lastModified());
-		response.setContentLength(Long.valueOf(f.length()).intValue());
-		String mimeType = getServletContext().getMimeType(f.getName());
-		response.setContentType(mimeType);
+		Resource resource = getResource(f, attributes);
+		if (resource.gzipVariant != null) {
+			response.setHeader("Vary", "Accept-Encoding");
+			if (acceptsGzip(request)) {
+				resource = resource.gzipVariant;
+				response.setHeader("Content-Encoding", "gzip");
+			}
+		}
+		
+		response.setHeader("ETag", resource.etag);
+		response.setDateHeader("Last-Modified", resource.lastModified);
+		response.setHeader("Accept-Ranges", "bytes");
+		response.setContentType(resource.mimeType);
+		
+		if (isNotModified(request, resource)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		long start = 0;
+		long length = resource.length;
+		long[] range = getRange(request, resource);
+		if (range == UNSATISFIABLE_RANGE) {
+			response.setHeader("Content-Range", "bytes */" + resource.length);
+			response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+			return;
+		}
+		if (range != null) {
+			start = range[0];
+			length = range[1] - range[0] + 1;
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + resource.length);
+		}
+		
+		response.setContentLengthLong(length);
+		if (length > 0 && !"HEAD".equals(request.getMethod())) {
+			sendContent(request, response, resource.file, start, length);
+		}
+	}
+	
+	/**
+	 * Gets the cached metadata of the given file, reading it again if the file changed. The gzip
+	 * variant is only looked up again with the file since both are written when the module is
+	 * unpacked.
+	 */
+	private Resource getResource(File file, BasicFileAttributes attributes) {
+		String key = file.getAbsolutePath();
+		long lastModified = attributes.lastModifiedTime().toMillis();
+		long length = attributes.size();
+		
+		Resource resource = RESOURCES.getIfPresent(key);
+		if (resource == null || resource.lastModified != lastModified || resource.length != length) {
+			String mimeType = getServletContext().getMimeType(file.getName());
+			resource = new Resource(file, lastModified, length, mimeType);
+			File gzipFile = new File(file.getPath() + GZIP_SUFFIX);
+			BasicFileAttributes gzipAttributes = readAttributes(gzipFile);
+			// a variant older than the resource is stale, e.g. after an edit in development mode
+			if (gzipAttributes != null && gzipAttributes.isRegularFile()
+			        && gzipAttributes.lastModifiedTime().toMillis() >= lastModified) {
+				resource.gzipVariant = new Resource(gzipFile, gzipAttributes.lastModifiedTime().toMillis(),
+				        gzipAttributes.size(), mimeType);
+			}
+			RESOURCES.put(key, resource);
+		}
+		return resource;
+	}
+	
+	/**
+	 * @return the attributes of the given file, null if it does not exist
+	 */
+	private static BasicFileAttributes readAttributes(File file) {
+		try {
+			return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		}
+		catch (IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Drops the metadata of all the served files, called when a module stops since its resources are
+	 * deleted from the webapp
+	 */
+	static void clearCachedResources() {
+		RESOURCES.invalidateAll();
+	}
+	
+	private static boolean acceptsGzip(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader("Accept-Encoding");
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+				return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * If-None-Match takes precedence over If-Modified-Since as defined by RFC 7232
+	 */
+	private static boolean isNotModified(HttpServletRequest request, Resource resource) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null) {
+			return etagMatches(ifNoneMatch, resource.etag, true);
+		}
+		
+		long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+		// http dates have a precision of one second
+		return ifModifiedSince != -1 && resource.lastModified / 1000 <= ifModifiedSince / 1000;
+	}
+	
+	private static boolean etagMatches(String header, String etag, boolean weakComparison) {
+		for (String candidate : header.split(",")) {
+			candidate = candidate.trim();
+			if ("*".equals(candidate)) {
+				return true;
+			}
+			if (weakComparison && candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	private static long getDateHeader(HttpServletRequest request, String name) {
+		try {
+			return request.getDateHeader(name);
+		}
+		catch (IllegalArgumentException e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Parses the Range header, multiple ranges are not supported and get the whole content
+	 *
+	 * @return the first and last byte positions, {@link #UNSATISFIABLE_RANGE} or null for the whole
+	 *         content
+	 */
+	private static long[] getRange(HttpServletRequest request, Resource resource) {
+		String rangeHeader = request.getHeader("Range");
+		if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+			return null;
+		}
+		
+		// a range on a changed representation gets the whole content
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange != null) {
+			if (ifRange.trim().startsWith("\"") || ifRange.trim().startsWith("W/")) {
+				if (!etagMatches(ifRange, resource.etag, false)) {
+					return null;
+				}
+			} else if (resource.lastModified / 1000 != getDateHeader(request, "If-Range") / 1000) {
+				return null;
+			}
+		}
+		
+		String range = rangeHeader.substring(6).trim();
+		int dash = range.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
 		
-		FileInputStream is = new FileInputStream(f);
 		try {
-			OpenmrsUtil.copyFile(is, response.getOutputStream());
+			long start;
+			long end;
+			if (dash == 0) {
+				long suffixLength = Long.parseLong(range.substring(1));
+				if (suffixLength == 0) {
+					return UNSATISFIABLE_RANGE;
+				}
+				start = Math.max(resource.length - suffixLength, 0);
+				end = resource.length - 1;
+			} else {
+				start = Long.parseLong(range.substring(0, dash));
+				end = dash == range.length() - 1 ? resource.length - 1
+				        : Math.min(Long.parseLong(range.substring(dash + 1)), resource.length - 1);
+				if (end < start && start < resource.length) {
+					return null;
+				}
+			}
+			
+			if (start >= resource.length) {
+				return UNSATISFIABLE_RANGE;
+			}
+			return new long[] { start, end };
 		}
-		finally {
-			OpenmrsUtil.closeStream(is);
+		catch (NumberFormatException e) {
+			return null;
 		}
 	}
 	
 	/**
-	 * Turns the given request/path into a File object
+	 * Sends the given part of the file, handing it to the container's sendfile support if possible
+	 */
+	private void sendContent(HttpServletRequest request, HttpServletResponse response, File file, long start,
+	        long length) throws IOException {
+		if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+			request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getAbsolutePath());
+			request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+			request.setAttribute(SENDFILE_END_ATTRIBUTE, start + length);
+			return;
+		}
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			long end = start + length;
+			while (position < end) {
+				long transferred = channel.transferTo(position, end - position, out);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+		}
+	}
+	
+	/**
+	 * Writes a gzip variant next to the given module resource if it is of a compressible type and
+	 * large enough to benefit from it
+	 *
+	 * @param file the resource as unpacked in the webapp
+	 */
+	static void writePrecompressedVariant(File file) {
+		String name = file.getName();
+		int period = name.lastIndexOf('.');
+		if (period < 0 || file.length() < MIN_PRECOMPRESSED_LENGTH
+		        || !PRECOMPRESSED_EXTENSIONS.contains(name.substring(period + 1).toLowerCase(Locale.ROOT))) {
+			return;
+		}
+		
+		File gzipFile = new File(file.getPath() + GZIP_SUFFIX);
+		try (InputStream in = new FileInputStream(file);
+		        OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipFile, false))) {
+			IOUtils.copy(in, out);
+		}
+		catch (IOException e) {
+			log.warn("Unable to write the precompressed variant of {}", file, e);
+			if (!gzipFile.delete()) {
+				gzipFile.deleteOnExit();
+			}
+			return;
+		}
+		
+		// compressing is only worth it if it saves space
+		if (gzipFile.length() >= file.length() && !gzipFile.delete()) {
+			gzipFile.deleteOnExit();
+		}
+	}
+	
+	/**
+	 * Turns the given request/path into a File object, whether the file exists is checked by the
+	 * caller
 	 *
 	 * @param request the current http request
-	 * @return the file being requested or null if not found
+	 * @return the file being requested or null if no module handles the path
 	 */
 	protected File getFile(HttpServletRequest request) {
 		
@@ -99,15 +401,33 @@ public class ModuleResourcesServlet extends HttpServlet {
 			realPath = devDir.getAbsolutePath() + "/omod/target/classes/web/module/resources" + relativePath;
 		}
 		
-		realPath = realPath.replace("/", File.separator);
+		return new File(realPath.replace("/", File.separator));
+	}
+	
+	/**
+	 * The metadata of a served file
+	 */
+	private static final class Resource {
 		
-		File f = new File(realPath);
-		if (!f.exists()) {
-			log.warn("No file with path '" + realPath + "' exists for module '" + module.getModuleId() + "'");
-			return null;
-		}
+		private final File file;
 		
-		return f;
+		private final long lastModified;
+		
+		private final long length;
+		
+		private final String etag;
+		
+		private final String mimeType;
+		
+		private Resource gzipVariant;
+		
+		private Resource(File file, long lastModified, long length, String mimeType) {
+			this.file = file;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.mimeType = mimeType;
+			String suffix = file.getName().endsWith(GZIP_SUFFIX) ? "-gz" : "";
+			this.etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + suffix + "\"";
+		}
 	}
-	
 }
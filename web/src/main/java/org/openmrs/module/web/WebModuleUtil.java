@@ -12,18 +12,16 @@ package org.openmrs.module.web;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.StringReader;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -32,9 +30,9 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.servlet.Filter;
 import javax.servlet.ServletConfig;
@@ -52,20 +50,24 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
+import org.apache.commons.io.FileUtils;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleException;
+import org.openmrs.module.ModuleExtractionCache;
 import org.openmrs.module.ModuleFactory;
 import org.openmrs.module.ModuleUtil;
 import org.openmrs.module.web.filter.ModuleFilterConfig;
 import org.openmrs.module.web.filter.ModuleFilterDefinition;
+import org.openmrs.module.web.filter.ModuleFilterDispatchTable;
 import org.openmrs.module.web.filter.ModuleFilterMapping;
 import org.openmrs.scheduler.SchedulerException;
 import org.openmrs.scheduler.SchedulerService;
 import org.openmrs.scheduler.TaskDefinition;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
+import org.openmrs.util.StartupTimeline;
 import org.openmrs.web.DispatcherServlet;
 import org.openmrs.web.StaticDispatcherServlet;
 import org.slf4j.Logger;
@@ -100,6 +102,9 @@ public class WebModuleUtil {
 	
 	private static final Deque<ModuleFilterMapping> MODULE_FILTER_MAPPINGS = new ArrayDeque<>();
 	
+	// compiled from the filter mappings whenever filters are loaded or unloaded
+	private static volatile ModuleFilterDispatchTable filterDispatchTable = ModuleFilterDispatchTable.EMPTY;
+	
 	private static DispatcherServlet dispatcherServlet = null;
 	
 	private static StaticDispatcherServlet staticDispatcherServlet = null;
@@ -145,99 +150,24 @@ public class WebModuleUtil {
 			
 			// copy the html files into the webapp (from /web/module/ in the module)
 			// also looks for a spring context file. If found, schedules spring to be restarted
-			JarFile jarFile = null;
-			OutputStream outStream = null;
-			InputStream inStream = null;
 			try {
-				File modFile = mod.getFile();
-				jarFile = new JarFile(modFile);
-				Enumeration<JarEntry> entries = jarFile.entries();
+				File extractedFolder = ModuleExtractionCache.getExtractedModuleFolder(mod);
+				copyWebModuleFiles(mod, new File(extractedFolder, "web/module"), realPath);
 				
-				while (entries.hasMoreElements()) {
-					JarEntry entry = entries.nextElement();
-					String name = entry.getName();
-					if (Paths.get(name).startsWith("..")) {
-						throw new UnsupportedOperationException("Attempted to write file '" + name + "' rejected as it attempts to write outside the chosen directory. This may be the result of a zip-slip style attack.");
-					}
-					
-					log.debug("Entry name: {}", name);
-					if (name.startsWith("web/module/")) {
-						// trim out the starting path of "web/module/"
-						String filepath = name.substring(11);
-						
-						StringBuilder absPath = new StringBuilder(realPath + "/WEB-INF");
-						
-						// If this is within the tag file directory, copy it into /WEB-INF/tags/module/moduleId/...
-						if (filepath.startsWith("tags/")) {
-							filepath = filepath.substring(5);
-							absPath.append("/tags/module/");
-						}
-						// Otherwise, copy it into /WEB-INF/view/module/moduleId/...
-						else {
-							absPath.append("/view/module/");
-						}
-						
-						// if a module id has a . in it, we should treat that as a /, i.e. files in the module
-						// ui.springmvc should go in folder names like .../ui/springmvc/...
-						absPath.append(mod.getModuleIdAsPath()).append("/").append(filepath);
-						log.debug("Moving file from: {} to {}", name, absPath);
-						
-						// get the output file
-						File outFile = new File(absPath.toString().replace("/", File.separator));
-						if (entry.isDirectory()) {
-							if (!outFile.exists()) {
-								outFile.mkdirs();
-							}
-						} else {
-							// make the parent directories in case it doesn't exist
-							File parentDir = outFile.getParentFile();
-							if (!parentDir.exists()) {
-								parentDir.mkdirs();
-							}
-							
-							// copy the contents over to the webapp for non directories
-							outStream = new FileOutputStream(outFile, false);
-							inStream = jarFile.getInputStream(entry);
-							OpenmrsUtil.copyFile(inStream, outStream);
-						}
-					} else if ("moduleApplicationContext.xml".equals(name) || "webModuleApplicationContext.xml".equals(name)) {
-						moduleNeedsContextRefresh = true;
-					} else if (name.equals(mod.getModuleId() + "Context.xml")) {
-						String msg = "DEPRECATED: '" + name
-						        + "' should be named 'moduleApplicationContext.xml' now. Please update/upgrade. ";
-						throw new ModuleException(msg, mod.getModuleId());
-					}
+				if (new File(extractedFolder, "moduleApplicationContext.xml").exists()
+				        || new File(extractedFolder, "webModuleApplicationContext.xml").exists()) {
+					moduleNeedsContextRefresh = true;
+				}
+				String name = mod.getModuleId() + "Context.xml";
+				if (new File(extractedFolder, name).exists()) {
+					String msg = "DEPRECATED: '" + name
+					        + "' should be named 'moduleApplicationContext.xml' now. Please update/upgrade. ";
+					throw new ModuleException(msg, mod.getModuleId());
 				}
 			}
 			catch (IOException io) {
 				log.warn("Unable to copy files from module " + mod.getModuleId() + " to the web layer", io);
 			}
-			finally {
-				if (jarFile != null) {
-					try {
-						jarFile.close();
-					}
-					catch (IOException io) {
-						log.warn("Couldn't close jar file: " + jarFile.getName(), io);
-					}
-				}
-				if (inStream != null) {
-					try {
-						inStream.close();
-					}
-					catch (IOException io) {
-						log.warn("Couldn't close InputStream: " + io);
-					}
-				}
-				if (outStream != null) {
-					try {
-						outStream.close();
-					}
-					catch (IOException io) {
-						log.warn("Couldn't close OutputStream: " + io);
-					}
-				}
-			}
 			
 			// find and add the dwr code to the dwr-modules.xml file (if defined)
 			InputStream inputStream = null;
@@ -368,6 +298,156 @@ public class WebModuleUtil {
 		return false;
 	}
 	
+	/**
+	 * Copies the files extracted from the /web/module folder of the given module into the webapp,
+	 * skipping the files already copied by a previous startup
+	 *
+	 * @param mod the module whose files are copied
+	 * @param webModuleFolder the extracted /web/module folder of the module
+	 * @param realPath the real path of the webapp
+	 * @throws IOException if a file cannot be copied
+	 */
+	private static void copyWebModuleFiles(Module mod, File webModuleFolder, String realPath) throws IOException {
+		if (!webModuleFolder.isDirectory()) {
+			return;
+		}
+		
+		Path source = webModuleFolder.toPath();
+		List<Path> paths;
+		try (Stream<Path> walk = Files.walk(source)) {
+			paths = walk.filter(path -> !path.equals(source)).collect(Collectors.toList());
+		}
+		
+		for (Path path : paths) {
+			String filepath = source.relativize(path).toString().replace(File.separator, "/");
+			
+			StringBuilder absPath = new StringBuilder(realPath + "/WEB-INF");
+			
+			// If this is within the tag file directory, copy it into /WEB-INF/tags/module/moduleId/...
+			if (filepath.startsWith("tags/")) {
+				filepath = filepath.substring(5);
+				absPath.append("/tags/module/");
+			}
+			// Otherwise, copy it into /WEB-INF/view/module/moduleId/...
+			else {
+				absPath.append("/view/module/");
+			}
+			
+			// if a module id has a . in it, we should treat that as a /, i.e. files in the module
+			// ui.springmvc should go in folder names like .../ui/springmvc/...
+			absPath.append(mod.getModuleIdAsPath()).append("/").append(filepath);
+			
+			// get the output file
+			File inFile = path.toFile();
+			File outFile = new File(absPath.toString().replace("/", File.separator));
+			if (inFile.isDirectory()) {
+				if (!outFile.exists()) {
+					outFile.mkdirs();
+				}
+			} else if (!outFile.isFile() || outFile.length() != inFile.length()
+			        || outFile.lastModified() != inFile.lastModified()) {
+				log.debug("Copying file from: {} to {}", inFile, outFile);
+				
+				// copy the contents over to the webapp keeping the date to tell whether it changed
+				FileUtils.copyFile(inFile, outFile, true);
+				
+				if (filepath.startsWith("resources/")) {
+					ModuleResourcesServlet.writePrecompressedVariant(outFile);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Performs the webapp specific startup needs for several modules with a single refresh of the
+	 * spring context, instead of one refresh per module as when calling
+	 * {@link #startModule(Module, ServletContext, boolean)} for each of them. The context is only
+	 * refreshed if at least one of the modules adds spring configuration or advice. If the refresh
+	 * fails, none of the modules stay started since the error does not tell which module caused it.
+	 *
+	 * @param modules the modules to start, in startup order
+	 * @param servletContext the current ServletContext
+	 * @since 2.8.0
+	 */
+	public static void startModules(Collection<Module> modules, ServletContext servletContext) {
+		try {
+			startModules(modules, servletContext, false);
+		}
+		catch (Exception e) {
+			String msg = "Unable to refresh the WebApplicationContext";
+			List<Module> modulesToStop = new ArrayList<>();
+			for (Module mod : modules) {
+				if (ModuleFactory.isModuleStarted(mod)) {
+					modulesToStop.add(mod);
+				}
+			}
+			log.warn(msg + " for modules: " + modulesToStop, e);
+			
+			for (Module mod : modulesToStop) {
+				mod.setStartupErrorMessage(msg, e);
+				try {
+					stopModule(mod, servletContext, true);
+					ModuleFactory.stopModule(mod, true, true);
+				}
+				catch (Exception e2) {
+					log.warn("Error while stopping a module that had an error on refreshWAC", e2);
+				}
+			}
+			
+			// try starting the application context again
+			refreshWAC(servletContext, false, null);
+			
+			for (Module mod : modulesToStop) {
+				notifySuperUsersAboutModuleFailure(mod);
+			}
+		}
+	}
+	
+	/**
+	 * Performs the webapp specific startup needs for several modules with a single refresh of the
+	 * spring context, then loads the servlets and filters of the modules which started. Unlike
+	 * {@link #startModules(Collection, ServletContext)}, an error refreshing the context is thrown to
+	 * the caller, which is responsible for stopping the modules, as {@link org.openmrs.web.Listener}
+	 * does at startup.
+	 *
+	 * @param modules the modules to start, in startup order
+	 * @param servletContext the current ServletContext
+	 * @param isOpenmrsStartup if the modules are started at application startup, in which case
+	 *            {@link org.openmrs.module.ModuleActivator#started()} is called on all the started
+	 *            modules
+	 * @since 2.8.0
+	 */
+	public static void startModules(Collection<Module> modules, ServletContext servletContext, boolean isOpenmrsStartup) {
+		List<Module> modulesToStart = new ArrayList<>();
+		boolean someModuleNeedsARefresh = false;
+		for (Module mod : modules) {
+			try {
+				someModuleNeedsARefresh |= startModule(mod, servletContext, /* delayContextRefresh */true);
+			}
+			catch (Exception e) {
+				mod.setStartupErrorMessage("Unable to start module", e);
+			}
+			if (ModuleFactory.isModuleStarted(mod)) {
+				modulesToStart.add(mod);
+			}
+		}
+		
+		if (someModuleNeedsARefresh) {
+			log.debug("Refreshing context for modules {}", modulesToStart);
+			refreshWACForModules(servletContext, isOpenmrsStartup, modulesToStart);
+		}
+		
+		// the servlets and filters are loaded after the refresh since they may depend on the
+		// module's spring configuration
+		for (Module mod : modulesToStart) {
+			if (ModuleFactory.isModuleStarted(mod)) {
+				loadServlets(mod, servletContext);
+				loadFilters(mod, servletContext);
+			}
+		}
+		servletContext.setAttribute(OpenmrsJspServlet.OPENMRS_TLD_SCAN_NEEDED, true);
+	}
+	
 	/** Stops all tasks started by given module
 	 * @param mod
 	 */
@@ -654,6 +734,7 @@ public class WebModuleUtil {
 			// retrieveFilterMappings will return the list of filters in the order they occur in the config.xml file
 			// here we add them to the *front* of the filter mappings
 			modMappings.descendingIterator().forEachRemaining(MODULE_FILTER_MAPPINGS::addFirst);
+			rebuildFilterDispatchTable();
 			
 			log.debug("Module {} successfully loaded {} filter mappings.", module, modMappings.size());
 		} finally {
@@ -695,6 +776,20 @@ public class WebModuleUtil {
 
 			MODULE_FILTERS_BY_NAME.values().removeIf(filters::contains);
 		}
+		
+		FILTERS_LOCK.lock();
+		try {
+			rebuildFilterDispatchTable();
+		} finally {
+			FILTERS_LOCK.unlock();
+		}
+	}
+	
+	/**
+	 * Compiles the current filter mappings, must be called holding the filters lock
+	 */
+	private static void rebuildFilterDispatchTable() {
+		filterDispatchTable = new ModuleFilterDispatchTable(MODULE_FILTER_MAPPINGS, MODULE_FILTERS_BY_NAME);
 	}
 	
 	/**
@@ -721,11 +816,12 @@ public class WebModuleUtil {
 	 * the passed request
 	 *
 	 * @param request - The request to check for matching {@link Filter}s
-	 * @return List of all {@link Filter}s that have filter mappings that match the passed request
+	 * @return unmodifiable List of all {@link Filter}s that have filter mappings that match the passed
+	 *         request
+	 * @see ModuleFilterDispatchTable#getFilters(String)
 	 */
 	public static List<Filter> getFiltersForRequest(ServletRequest request) {
 		
-		List<Filter> filters = new ArrayList<>();
 		if (request != null) {
 			HttpServletRequest httpRequest = (HttpServletRequest) request;
 			String requestPath = httpRequest.getRequestURI();
@@ -734,20 +830,10 @@ public class WebModuleUtil {
 				if (requestPath.startsWith(httpRequest.getContextPath())) {
 					requestPath = requestPath.substring(httpRequest.getContextPath().length());
 				}
-				for (ModuleFilterMapping filterMapping : WebModuleUtil.getFilterMappings()) {
-					if (ModuleFilterMapping.filterMappingPasses(filterMapping, requestPath)) {
-						Filter passedFilter = MODULE_FILTERS_BY_NAME.get(filterMapping.getFilterName());
-						if (passedFilter != null) {
-							filters.add(passedFilter);
-						} else {
-							log.warn("Unable to retrieve filter that has a name of " + filterMapping.getFilterName()
-							        + " in filter mapping.");
-						}
-					}
-				}
+				return filterDispatchTable.getFilters(requestPath);
 			}
 		}
-		return filters;
+		return Collections.emptyList();
 	}
 	
 	/**
@@ -824,10 +910,10 @@ public class WebModuleUtil {
 		String moduleId = mod.getModuleId();
 		String modulePackage = mod.getPackageName();
 		
-		// stop all dependent modules
-		for (Module dependentModule : ModuleFactory.getStartedModules()) {
+		// stop all dependent modules, the context is refreshed once below for all of them
+		for (Module dependentModule : new ArrayList<>(ModuleFactory.getStartedModules())) {
 			if (!dependentModule.equals(mod) && dependentModule.getRequiredModules().contains(modulePackage)) {
-				stopModule(dependentModule, servletContext, skipRefresh);
+				stopModule(dependentModule, servletContext, true);
 			}
 		}
 		
@@ -845,6 +931,9 @@ public class WebModuleUtil {
 			}
 		}
 		
+		// the served resources of the module were deleted with its web files
+		ModuleResourcesServlet.clearCachedResources();
+		
 		// (not) deleting module message properties
 		
 		// remove the module's servlets
@@ -931,37 +1020,56 @@ public class WebModuleUtil {
 	 */
 	public static XmlWebApplicationContext refreshWAC(ServletContext servletContext, boolean isOpenmrsStartup,
 	        Module startedModule) {
+		return refreshWACForModules(servletContext, isOpenmrsStartup,
+		    startedModule == null ? Collections.emptySet() : Collections.singleton(startedModule));
+	}
+	
+	/**
+	 * Stops, closes, and refreshes the Spring context for the given <code>servletContext</code> once
+	 * for several modules
+	 *
+	 * @param servletContext
+	 * @param isOpenmrsStartup if this refresh is being done at application startup
+	 * @param startedModules the modules that were just started and waiting on the context refresh
+	 * @return The newly refreshed webApplicationContext
+	 * @since 2.8.0
+	 */
+	public static XmlWebApplicationContext refreshWACForModules(ServletContext servletContext, boolean isOpenmrsStartup,
+	        Collection<Module> startedModules) {
 		XmlWebApplicationContext wac = (XmlWebApplicationContext) WebApplicationContextUtils
 		        .getWebApplicationContext(servletContext);
 		log.debug("Refreshing web application Context of class: {}", wac.getClass().getName());
 		
-		if (dispatcherServlet != null) {
-			dispatcherServlet.stopAndCloseApplicationContext();
-		}
-		
-		if (staticDispatcherServlet != null) {
-			staticDispatcherServlet.stopAndCloseApplicationContext();
-		}
-		
-		XmlWebApplicationContext newAppContext = (XmlWebApplicationContext) ModuleUtil.refreshApplicationContext(wac,
-		    isOpenmrsStartup, startedModule);
-		
-		try {
-			// must "refresh" the spring dispatcherservlet as well to add in
-			//the new handlerMappings
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_CONTEXT_REFRESH,
+		    StartupTimeline.PHASE_WEB_APPLICATION_CONTEXT)) {
 			if (dispatcherServlet != null) {
-				dispatcherServlet.reInitFrameworkServlet();
+				dispatcherServlet.stopAndCloseApplicationContext();
 			}
 			
 			if (staticDispatcherServlet != null) {
-				staticDispatcherServlet.refreshApplicationContext();
+				staticDispatcherServlet.stopAndCloseApplicationContext();
 			}
+			
+			XmlWebApplicationContext newAppContext = (XmlWebApplicationContext) ModuleUtil
+			        .refreshApplicationContextForModules(wac, isOpenmrsStartup, startedModules);
+			
+			try {
+				// must "refresh" the spring dispatcherservlet as well to add in
+				//the new handlerMappings
+				if (dispatcherServlet != null) {
+					dispatcherServlet.reInitFrameworkServlet();
+				}
+				
+				if (staticDispatcherServlet != null) {
+					staticDispatcherServlet.refreshApplicationContext();
+				}
+			}
+			catch (ServletException se) {
+				log.warn("Caught a servlet exception while refreshing the dispatcher servlet", se);
+			}
+			
+			return newAppContext;
 		}
-		catch (ServletException se) {
-			log.warn("Caught a servlet exception while refreshing the dispatcher servlet", se);
-		}
-		
-		return newAppContext;
 	}
 	
 	/**
@@ -0,0 +1,181 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web.filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.Filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An immutable lookup structure compiled from the {@link ModuleFilterMapping}s of the started
+ * modules, giving the filters to apply to a request path without checking every mapping. <br>
+ * <br>
+ * The url patterns are split by kind, following
+ * {@link ModuleFilterMapping#urlPatternMatches(String, String)}: patterns matching every path, exact
+ * paths, path prefixes ending with "/*" and extensions starting with "*.". The mappings matching a
+ * path are found with one lookup per kind, or one per path segment for the prefixes, and the
+ * resulting filter chains are cached by set of matching mappings.
+ *
+ * @since 2.8.0
+ */
+public class ModuleFilterDispatchTable {
+
+	private static final Logger log = LoggerFactory.getLogger(ModuleFilterDispatchTable.class);
+
+	/**
+	 * The maximum number of distinct filter chains kept
+	 */
+	private static final int MAX_CACHED_CHAINS = 1024;
+
+	/**
+	 * A table without any filter mapping
+	 */
+	public static final ModuleFilterDispatchTable EMPTY = new ModuleFilterDispatchTable(Collections.emptyList(),
+	        Collections.emptyMap());
+
+	// the filter of each mapping, by mapping position, null if the filter is not loaded
+	private final Filter[] filters;
+
+	private final BitSet matchAll = new BitSet();
+
+	private final Map<String, BitSet> exactPaths = new HashMap<>();
+
+	private final Map<String, BitSet> pathPrefixes = new HashMap<>();
+
+	private final Map<String, BitSet> extensions = new HashMap<>();
+
+	private final Map<BitSet, List<Filter>> chains = new ConcurrentHashMap<>();
+
+	/**
+	 * Compiles the given mappings
+	 *
+	 * @param mappings the filter mappings in the order the filters are applied
+	 * @param filtersByName the loaded filters keyed by filter name
+	 */
+	public ModuleFilterDispatchTable(Collection<ModuleFilterMapping> mappings, Map<String, Filter> filtersByName) {
+		filters = new Filter[mappings.size()];
+		int index = 0;
+		for (ModuleFilterMapping mapping : mappings) {
+			filters[index] = filtersByName.get(mapping.getFilterName());
+			if (filters[index] == null) {
+				log.warn("Unable to retrieve filter that has a name of " + mapping.getFilterName() + " in filter mapping.");
+			} else {
+				for (String pattern : mapping.getUrlPatterns()) {
+					addUrlPattern(pattern, index);
+				}
+				for (String servletName : mapping.getServletNames()) {
+					addServletName(servletName, index);
+				}
+			}
+			index++;
+		}
+	}
+
+	private void addUrlPattern(String pattern, int index) {
+		if (pattern == null) {
+			return;
+		}
+		if ("*".equals(pattern) || "/*".equals(pattern)) {
+			matchAll.set(index);
+			return;
+		}
+
+		// every pattern matches the path equal to it
+		add(exactPaths, pattern, index);
+		if (pattern.endsWith("/*")) {
+			add(pathPrefixes, pattern.substring(0, pattern.length() - 2), index);
+		} else if (pattern.startsWith("*.")) {
+			add(extensions, pattern.substring(2), index);
+		}
+	}
+
+	private void addServletName(String servletName, int index) {
+		if (servletName == null) {
+			return;
+		}
+		if ("*".equals(servletName)) {
+			matchAll.set(index);
+		} else {
+			add(exactPaths, servletName, index);
+		}
+	}
+
+	private static void add(Map<String, BitSet> map, String key, int index) {
+		map.computeIfAbsent(key, k -> new BitSet()).set(index);
+	}
+
+	/**
+	 * Gets the filters whose mappings match the given context relative path, in mapping order
+	 *
+	 * @param requestPath the request path without the context path
+	 * @return an unmodifiable list of the filters to apply
+	 * @see ModuleFilterMapping#filterMappingPasses(ModuleFilterMapping, String)
+	 */
+	public List<Filter> getFilters(String requestPath) {
+		if (requestPath == null || filters.length == 0) {
+			return Collections.emptyList();
+		}
+
+		BitSet matched = (BitSet) matchAll.clone();
+		or(matched, exactPaths.get(requestPath));
+
+		if (!pathPrefixes.isEmpty()) {
+			// a prefix matches when it is followed by a slash or is the whole path
+			or(matched, pathPrefixes.get(requestPath));
+			for (int slash = requestPath.indexOf('/'); slash >= 0; slash = requestPath.indexOf('/', slash + 1)) {
+				or(matched, pathPrefixes.get(requestPath.substring(0, slash)));
+			}
+		}
+
+		if (!extensions.isEmpty()) {
+			int slash = requestPath.lastIndexOf('/');
+			int period = requestPath.lastIndexOf('.');
+			if (slash >= 0 && period > slash && period != requestPath.length() - 1) {
+				or(matched, extensions.get(requestPath.substring(period + 1)));
+			}
+		}
+
+		List<Filter> chain = chains.get(matched);
+		if (chain == null) {
+			chain = toFilters(matched);
+			if (chains.size() < MAX_CACHED_CHAINS) {
+				chains.putIfAbsent(matched, chain);
+			}
+		}
+		return chain;
+	}
+
+	private static void or(BitSet matched, BitSet mappings) {
+		if (mappings != null) {
+			matched.or(mappings);
+		}
+	}
+
+	private List<Filter> toFilters(BitSet matched) {
+		if (matched.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Filter> result = new ArrayList<>(matched.cardinality());
+		for (int index = matched.nextSetBit(0); index >= 0; index = matched.nextSetBit(index + 1)) {
+			result.add(filters[index]);
+		}
+		return Collections.unmodifiableList(result);
+	}
+}
@@ -0,0 +1,211 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.web;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.openmrs.api.cache.CacheMetrics;
+import org.openmrs.api.context.Context;
+import org.openmrs.util.PrivilegeConstants;
+import org.openmrs.util.Security;
+
+/**
+ * Exports the statistics of the caches and of Hibernate, see
+ * {@link org.openmrs.api.AdministrationService#getCacheMetrics(int)}, in the text format of
+ * Prometheus, for the users with the {@link PrivilegeConstants#VIEW_ADMIN_FUNCTIONS} privilege. <br>
+ * <br>
+ * A scraper which cannot log in, like Prometheus, sends the token set by the
+ * {@link #TOKEN_RUNTIME_PROPERTY} runtime property instead, as an
+ * <code>Authorization: Bearer &lt;token&gt;</code> header, e.g. with the
+ * <code>authorization.credentials_file</code> setting of its scrape config. No token is accepted
+ * when the property is not set. <br>
+ * <br>
+ * The <code>slowestQueries</code> parameter sets how many of the slowest queries are exported, 10 by
+ * default and 20 at most. A query is labelled by a hash of its text, and by its text shortened to
+ * 100 characters.
+ *
+ * @since 2.8.0
+ */
+public class CacheMetricsServlet extends HttpServlet {
+
+	private static final long serialVersionUID = 1L;
+
+	static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final int DEFAULT_SLOWEST_QUERIES = 10;
+
+	private static final int MAX_SLOWEST_QUERIES = 20;
+
+	private static final int MAX_QUERY_LABEL_LENGTH = 100;
+
+	private static final int QUERY_HASH_LENGTH = 16;
+
+	private static final String BEARER_PREFIX = "Bearer ";
+
+	/**
+	 * The runtime property holding the token which a scraper sends instead of logging in
+	 */
+	public static final String TOKEN_RUNTIME_PROPERTY = "cache.metrics.token";
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		boolean tokenAuthenticated = hasToken(request);
+		if (!tokenAuthenticated && !Context.isAuthenticated()) {
+			response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+			return;
+		}
+		if (!tokenAuthenticated && !Context.hasPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS)) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+
+		int slowestQueries = Math.min(MAX_SLOWEST_QUERIES,
+		    NumberUtils.toInt(request.getParameter("slowestQueries"), DEFAULT_SLOWEST_QUERIES));
+		CacheMetrics metrics;
+		if (tokenAuthenticated) {
+			try {
+				Context.addProxyPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+				metrics = Context.getAdministrationService().getCacheMetrics(slowestQueries);
+			}
+			finally {
+				Context.removeProxyPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+			}
+		} else {
+			metrics = Context.getAdministrationService().getCacheMetrics(slowestQueries);
+		}
+
+		response.setContentType(CONTENT_TYPE);
+		write(metrics, response.getWriter());
+	}
+
+	/**
+	 * @return whether the request sends the token of the {@link #TOKEN_RUNTIME_PROPERTY} runtime
+	 *         property
+	 */
+	private static boolean hasToken(HttpServletRequest request) {
+		String token = StringUtils.trimToNull(Context.getRuntimeProperties().getProperty(TOKEN_RUNTIME_PROPERTY));
+		String authorization = request.getHeader("Authorization");
+		if (token == null || authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+			return false;
+		}
+		// compared in constant time not to leak how much of the token was guessed
+		return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+		    authorization.substring(BEARER_PREFIX.length()).trim().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes the metrics in the text format of Prometheus
+	 */
+	static void write(CacheMetrics metrics, PrintWriter out) {
+		type(out, "openmrs_cache_hits_total", "counter", "Entries found in a cache");
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			sample(out, "openmrs_cache_hits_total", region, region.getHitCount());
+		}
+		type(out, "openmrs_cache_misses_total", "counter", "Entries looked up in vain in a cache");
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			sample(out, "openmrs_cache_misses_total", region, region.getMissCount());
+		}
+		type(out, "openmrs_cache_puts_total", "counter", "Entries added to or updated in a cache");
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			sample(out, "openmrs_cache_puts_total", region, region.getPutCount());
+		}
+		type(out, "openmrs_cache_evictions_total", "counter", "Entries evicted from a full cache");
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			sample(out, "openmrs_cache_evictions_total", region, region.getEvictionCount());
+		}
+		type(out, "openmrs_cache_expirations_total", "counter", "Entries which expired in a cache");
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			sample(out, "openmrs_cache_expirations_total", region, region.getExpiredCount());
+		}
+		type(out, "openmrs_cache_size", "gauge", "Entries in a cache");
+		for (CacheMetrics.Region region : metrics.getRegions()) {
+			sample(out, "openmrs_cache_size", region, region.getSize());
+		}
+
+		counter(out, "openmrs_hibernate_entity_loads_total", "Entities loaded", metrics.getEntityLoadCount());
+		counter(out, "openmrs_hibernate_entity_fetches_total", "Entities fetched by an extra query",
+		    metrics.getEntityFetchCount());
+		counter(out, "openmrs_hibernate_entity_inserts_total", "Entities inserted", metrics.getEntityInsertCount());
+		counter(out, "openmrs_hibernate_entity_updates_total", "Entities updated", metrics.getEntityUpdateCount());
+		counter(out, "openmrs_hibernate_entity_deletes_total", "Entities deleted", metrics.getEntityDeleteCount());
+		counter(out, "openmrs_hibernate_collection_loads_total", "Collections loaded", metrics.getCollectionLoadCount());
+		counter(out, "openmrs_hibernate_collection_fetches_total", "Collections fetched by an extra query",
+		    metrics.getCollectionFetchCount());
+		counter(out, "openmrs_hibernate_queries_total", "Queries run against the database",
+		    metrics.getQueryExecutionCount());
+		counter(out, "openmrs_hibernate_query_cache_hits_total", "Query results found in the query cache",
+		    metrics.getQueryCacheHitCount());
+		counter(out, "openmrs_hibernate_query_cache_misses_total", "Query results not found in the query cache",
+		    metrics.getQueryCacheMissCount());
+		counter(out, "openmrs_hibernate_query_cache_puts_total", "Query results put in the query cache",
+		    metrics.getQueryCachePutCount());
+		counter(out, "openmrs_hibernate_second_level_cache_hits_total", "Entries found in the second-level cache",
+		    metrics.getSecondLevelCacheHitCount());
+		counter(out, "openmrs_hibernate_second_level_cache_misses_total",
+		    "Entries looked up in vain in the second-level cache", metrics.getSecondLevelCacheMissCount());
+		counter(out, "openmrs_hibernate_second_level_cache_puts_total", "Entries put in the second-level cache",
+		    metrics.getSecondLevelCachePutCount());
+
+		type(out, "openmrs_hibernate_slow_query_executions_total", "counter", "Executions of one of the slowest queries");
+		for (CacheMetrics.Query query : metrics.getSlowestQueries()) {
+			sample(out, "openmrs_hibernate_slow_query_executions_total", query, query.getExecutionCount());
+		}
+		type(out, "openmrs_hibernate_slow_query_max_seconds", "gauge", "Longest execution of one of the slowest queries");
+		for (CacheMetrics.Query query : metrics.getSlowestQueries()) {
+			sample(out, "openmrs_hibernate_slow_query_max_seconds", query, query.getMaxTimeMillis() / 1000.0);
+		}
+		type(out, "openmrs_hibernate_slow_query_seconds_total", "counter", "Time spent in one of the slowest queries");
+		for (CacheMetrics.Query query : metrics.getSlowestQueries()) {
+			sample(out, "openmrs_hibernate_slow_query_seconds_total", query, query.getTotalTimeMillis() / 1000.0);
+		}
+		out.flush();
+	}
+
+	private static void type(PrintWriter out, String name, String type, String help) {
+		out.print("# HELP " + name + " " + help + "\n");
+		out.print("# TYPE " + name + " " + type + "\n");
+	}
+
+	private static void counter(PrintWriter out, String name, String help, long value) {
+		type(out, name, "counter", help);
+		out.print(name + " " + value + "\n");
+	}
+
+	private static void sample(PrintWriter out, String name, CacheMetrics.Region region, long value) {
+		out.print(name + "{cache_manager=\"" + escape(region.getCacheManagerName()) + "\",cache=\""
+		        + escape(region.getName()) + "\"} " + value + "\n");
+	}
+
+	private static void sample(PrintWriter out, String name, CacheMetrics.Query query, double value) {
+		String text = query.getQuery() == null ? "" : query.getQuery();
+		out.print(name + "{query_hash=\"" + Security.encodeString(text).substring(0, QUERY_HASH_LENGTH) + "\",query=\""
+		        + escape(StringUtils.abbreviate(text, MAX_QUERY_LABEL_LENGTH)) + "\"} " + value + "\n");
+	}
+
+	/**
+	 * Escapes a label value, in which backslashes, double quotes and line feeds must be escaped
+	 */
+	static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -27,6 +27,7 @@ import org.openmrs.util.MemoryLeakUtil;
 import org.openmrs.util.OpenmrsClassLoader;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.util.StartupTimeline;
 import org.openmrs.web.filter.initialization.DatabaseDetective;
 import org.openmrs.web.filter.initialization.InitializationFilter;
 import org.openmrs.web.filter.update.UpdateFilter;
@@ -341,42 +342,45 @@ public final class Listener extends ContextLoader implements ServletContextListe
 	 */
 	public static void startOpenmrs(ServletContext servletContext) throws ServletException {
 		openmrsStarted = false;
-		// start openmrs
-		try {
-			// load bundled modules that are packaged into the webapp
-			Listener.loadBundledModules(servletContext);
-			
-			Context.startup(getRuntimeProperties());
-		}
-		catch (DatabaseUpdateException | InputRequiredException updateEx) {
-			throw new ServletException("Should not be here because updates were run previously", updateEx);
-		}
-		catch (MandatoryModuleException mandatoryModEx) {
-			throw new ServletException(mandatoryModEx);
-		}
-		catch (OpenmrsCoreModuleException coreModEx) {
-			// don't wrap this error in a ServletException because we want to deal with it differently
-			// in the StartupErrorFilter class
-			throw coreModEx;
-		}
-		
-		// TODO catch openmrs errors here and drop the user back out to the setup screen
-		
-		try {
+		StartupTimeline.clear();
+		try (StartupTimeline.Timer timer = StartupTimeline.start(StartupTimeline.CATEGORY_STARTUP, "openmrs")) {
+			// start openmrs
+			try {
+				// load bundled modules that are packaged into the webapp
+				Listener.loadBundledModules(servletContext);
+				
+				Context.startup(getRuntimeProperties());
+			}
+			catch (DatabaseUpdateException | InputRequiredException updateEx) {
+				throw new ServletException("Should not be here because updates were run previously", updateEx);
+			}
+			catch (MandatoryModuleException mandatoryModEx) {
+				throw new ServletException(mandatoryModEx);
+			}
+			catch (OpenmrsCoreModuleException coreModEx) {
+				// don't wrap this error in a ServletException because we want to deal with it differently
+				// in the StartupErrorFilter class
+				throw coreModEx;
+			}
 			
-			// web load modules
-			Listener.performWebStartOfModules(servletContext);
+			// TODO catch openmrs errors here and drop the user back out to the setup screen
 			
-			// start the scheduled tasks
-			SchedulerUtil.startup(getRuntimeProperties());
-		}
-		catch (Exception t) {
-			Context.shutdown();
-			WebModuleUtil.shutdownModules(servletContext);
-			throw new ServletException(t);
-		}
-		finally {
-			Context.closeSession();
+			try {
+				
+				// web load modules
+				Listener.performWebStartOfModules(servletContext);
+				
+				// start the scheduled tasks
+				SchedulerUtil.startup(getRuntimeProperties());
+			}
+			catch (Exception t) {
+				Context.shutdown();
+				WebModuleUtil.shutdownModules(servletContext);
+				throw new ServletException(t);
+			}
+			finally {
+				Context.closeSession();
+			}
 		}
 		openmrsStarted = true;
 	}
@@ -691,87 +695,73 @@ public final class Listener extends ContextLoader implements ServletContextListe
 	}
 	
 	/**
-	 * Call WebModuleUtil.startModule on each started module
+	 * Call WebModuleUtil.startModule on each started module, with a single refresh of the spring
+	 * context
 	 *
 	 * @param servletContext
 	 * @throws ModuleMustStartException if the context cannot restart due to a
 	 *             {@link MandatoryModuleException} or {@link OpenmrsCoreModuleException}
 	 */
 	public static void performWebStartOfModules(ServletContext servletContext) throws ModuleMustStartException, Exception {
-		List<Module> startedModules = new ArrayList<>(ModuleFactory.getStartedModules());
+		List<Module> startedModules = new ArrayList<>(ModuleFactory.getStartedModulesInOrder());
 		performWebStartOfModules(startedModules, servletContext);
 	}
 	
 	public static void performWebStartOfModules(Collection<Module> startedModules, ServletContext servletContext)
 	        throws ModuleMustStartException, Exception {
 		
-		boolean someModuleNeedsARefresh = false;
-		for (Module mod : startedModules) {
-			try {
-				boolean thisModuleCausesRefresh = WebModuleUtil.startModule(mod, servletContext,
-				    /* delayContextRefresh */true);
-				someModuleNeedsARefresh = someModuleNeedsARefresh || thisModuleCausesRefresh;
-			}
-			catch (Exception e) {
-				mod.setStartupErrorMessage("Unable to start module", e);
-			}
+		try {
+			WebModuleUtil.startModules(startedModules, servletContext, /* isOpenmrsStartup */true);
 		}
-		
-		if (someModuleNeedsARefresh) {
+		catch (ModuleMustStartException | BeanCreationException ex) {
+			// pass this up to the calling method so that openmrs loading stops
+			throw ex;
+		}
+		catch (Exception e) {
+			Throwable rootCause = getActualRootCause(e, true);
+			if (rootCause != null) {
+				log.error(MarkerFactory.getMarker("FATAL"),
+				    "Unable to refresh the spring application context.  Root Cause was:", rootCause);
+			} else {
+				log.error(MarkerFactory.getMarker("FATAL"),
+				    "nable to refresh the spring application context. Unloading all modules,  Error was:", e);
+			}
+			
 			try {
+				WebModuleUtil.shutdownModules(servletContext);
+				for (Module mod : ModuleFactory.getLoadedModules()) {// use loadedModules to avoid a concurrentmodificationexception
+					if (!mod.isCoreModule() && !mod.isMandatory()) {
+						try {
+							ModuleFactory.stopModule(mod, true, true);
+						}
+						catch (Exception t3) {
+							// just keep going if we get an error shutting down.  was probably caused by the module
+							// that actually got us to this point!
+							log.trace("Unable to shutdown module:" + mod, t3);
+						}
+					}
+				}
 				WebModuleUtil.refreshWAC(servletContext, true, null);
 			}
-			catch (ModuleMustStartException | BeanCreationException ex) {
+			catch (MandatoryModuleException ex) {
 				// pass this up to the calling method so that openmrs loading stops
-				throw ex;
+				throw new MandatoryModuleException(ex.getModuleId(), "Got an error while starting a mandatory module: "
+				        + e.getMessage() + ". Check the server logs for more information");
 			}
-			catch (Exception e) {
-				Throwable rootCause = getActualRootCause(e, true);
-				if (rootCause != null) {
-					log.error(MarkerFactory.getMarker("FATAL"),
-					    "Unable to refresh the spring application context.  Root Cause was:", rootCause);
-				} else {
-					log.error(MarkerFactory.getMarker("FATAL"),
-					    "nable to refresh the spring application context. Unloading all modules,  Error was:", e);
-				}
-				
-				try {
-					WebModuleUtil.shutdownModules(servletContext);
-					for (Module mod : ModuleFactory.getLoadedModules()) {// use loadedModules to avoid a concurrentmodificationexception
-						if (!mod.isCoreModule() && !mod.isMandatory()) {
-							try {
-								ModuleFactory.stopModule(mod, true, true);
-							}
-							catch (Exception t3) {
-								// just keep going if we get an error shutting down.  was probably caused by the module
-								// that actually got us to this point!
-								log.trace("Unable to shutdown module:" + mod, t3);
-							}
-						}
-					}
-					WebModuleUtil.refreshWAC(servletContext, true, null);
-				}
-				catch (MandatoryModuleException ex) {
-					// pass this up to the calling method so that openmrs loading stops
-					throw new MandatoryModuleException(ex.getModuleId(), "Got an error while starting a mandatory module: "
-					        + e.getMessage() + ". Check the server logs for more information");
-				}
-				catch (Exception t2) {
-					// a mandatory or core module is causing spring to fail to start up.  We don't want those
-					// stopped so we must report this error to the higher authorities
-					log.warn("caught another error: ", t2);
-					throw t2;
-				}
+			catch (Exception t2) {
+				// a mandatory or core module is causing spring to fail to start up.  We don't want those
+				// stopped so we must report this error to the higher authorities
+				log.warn("caught another error: ", t2);
+				throw t2;
 			}
+			
+			// the servlets and filters were not loaded since the refresh failed
+			for (Module mod : ModuleFactory.getStartedModulesInOrder()) {
+				WebModuleUtil.loadServlets(mod, servletContext);
+				WebModuleUtil.loadFilters(mod, servletContext);
+			}
+			servletContext.setAttribute(OpenmrsJspServlet.OPENMRS_TLD_SCAN_NEEDED, true);
 		}
-		
-		// because we delayed the refresh, we need to load+start all servlets and filters now
-		// (this is to protect servlets/filters that depend on their module's spring xml config being available)
-		for (Module mod : ModuleFactory.getStartedModulesInOrder()) {
-			WebModuleUtil.loadServlets(mod, servletContext);
-			WebModuleUtil.loadFilters(mod, servletContext);
-		}
-		servletContext.setAttribute(OpenmrsJspServlet.OPENMRS_TLD_SCAN_NEEDED, true);
 	}
 	
 	/**
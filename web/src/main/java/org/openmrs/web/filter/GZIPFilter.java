@@ -10,6 +10,11 @@
 package org.openmrs.web.filter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -17,6 +22,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.openmrs.api.APIException;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.PrivilegeConstants;
@@ -28,7 +34,11 @@ import org.springframework.web.filter.OncePerRequestFilter;
  * Filter that compresses output with gzip (assuming that browser supports gzip). Code from <a
  * href="http://www.onjava.com/pub/a/onjava/2003/11/19/filters.html">
  * http://www.onjava.com/pub/a/onjava/2003/11/19/filters.html</a>. &copy; 2003 Jayson Falkner You
- * may freely use the code both commercially and non-commercially.
+ * may freely use the code both commercially and non-commercially. <br>
+ * <br>
+ * Only responses of at least {@link OpenmrsConstants#GLOBAL_PROPERTY_GZIP_MIN_SIZE} bytes and of one
+ * of the {@link OpenmrsConstants#GLOBAL_PROPERTY_GZIP_MIME_TYPES} content types are compressed, at
+ * the {@link OpenmrsConstants#GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL} level.
  */
 public class GZIPFilter extends OncePerRequestFilter {
 	
@@ -38,6 +48,8 @@ public class GZIPFilter extends OncePerRequestFilter {
 	
 	private String cachedGZipCompressedRequestForPathAccepted = null;
 	
+	private volatile CompressionSettings cachedCompressionSettings = null;
+	
 	/**
 	 * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(javax.servlet.http.HttpServletRequest,
 	 *      javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
@@ -55,7 +67,9 @@ public class GZIPFilter extends OncePerRequestFilter {
 		if (isGZIPSupported(request) && isGZIPEnabled()) {
 			log.debug("GZIP supported and enabled, compressing response");
 			
-			GZIPResponseWrapper wrappedResponse = new GZIPResponseWrapper(response);
+			CompressionSettings settings = getCompressionSettings();
+			GZIPResponseWrapper wrappedResponse = new GZIPResponseWrapper(response, settings.minSize,
+			        settings.compressionLevel, settings.mimeTypes);
 			
 			chain.doFilter(request, wrappedResponse);
 			wrappedResponse.finishResponse();
@@ -145,6 +159,66 @@ public class GZIPFilter extends OncePerRequestFilter {
 		}
 	}
 	
+	/**
+	 * Returns the compression settings from the gzip.minSize, gzip.compressionLevel and gzip.mimeTypes
+	 * global properties
+	 */
+	private CompressionSettings getCompressionSettings() {
+		if (cachedCompressionSettings != null) {
+			return cachedCompressionSettings;
+		}
+		
+		try {
+			Context.addProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+			
+			AdministrationService administrationService = Context.getAdministrationService();
+			int minSize = parseInt(administrationService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_GZIP_MIN_SIZE),
+			    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_MIN_SIZE_DEFAULT_VALUE);
+			int compressionLevel = parseInt(
+			    administrationService.getGlobalProperty(OpenmrsConstants.GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL),
+			    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL_DEFAULT_VALUE);
+			if (compressionLevel < Deflater.BEST_SPEED || compressionLevel > Deflater.BEST_COMPRESSION) {
+				compressionLevel = Deflater.DEFAULT_COMPRESSION;
+			}
+			Set<String> mimeTypes = parseMimeTypes(administrationService.getGlobalProperty(
+			    OpenmrsConstants.GLOBAL_PROPERTY_GZIP_MIME_TYPES, OpenmrsConstants.GLOBAL_PROPERTY_GZIP_MIME_TYPES_DEFAULT_VALUE));
+			
+			cachedCompressionSettings = new CompressionSettings(minSize, compressionLevel, mimeTypes);
+			return cachedCompressionSettings;
+		}
+		catch (Exception e) {
+			log.warn("Unable to get the gzip compression settings", e);
+			// not caching the settings here in case they become available before the next request
+			
+			return new CompressionSettings(
+			        Integer.parseInt(OpenmrsConstants.GLOBAL_PROPERTY_GZIP_MIN_SIZE_DEFAULT_VALUE),
+			        Integer.parseInt(OpenmrsConstants.GLOBAL_PROPERTY_GZIP_COMPRESSION_LEVEL_DEFAULT_VALUE),
+			        parseMimeTypes(OpenmrsConstants.GLOBAL_PROPERTY_GZIP_MIME_TYPES_DEFAULT_VALUE));
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_GLOBAL_PROPERTIES);
+		}
+	}
+	
+	private static int parseInt(String value, String defaultValue) {
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NullPointerException | NumberFormatException e) {
+			return Integer.parseInt(defaultValue);
+		}
+	}
+	
+	private static Set<String> parseMimeTypes(String value) {
+		Set<String> mimeTypes = new HashSet<>();
+		for (String mimeType : value.split(",")) {
+			if (!mimeType.trim().isEmpty()) {
+				mimeTypes.add(mimeType.trim().toLowerCase(Locale.ROOT));
+			}
+		}
+		return Collections.unmodifiableSet(mimeTypes);
+	}
+	
 	/**
 	 * Returns true if path matches pattern in gzip.acceptCompressedRequestsForPaths property
 	 */
@@ -169,4 +243,19 @@ public class GZIPFilter extends OncePerRequestFilter {
 			return false;
 		}
 	}
+	
+	private static class CompressionSettings {
+		
+		private final int minSize;
+		
+		private final int compressionLevel;
+		
+		private final Set<String> mimeTypes;
+		
+		private CompressionSettings(int minSize, int compressionLevel, Set<String> mimeTypes) {
+			this.minSize = minSize;
+			this.compressionLevel = compressionLevel;
+			this.mimeTypes = mimeTypes;
+		}
+	}
 }
@@ -9,25 +9,46 @@
  */
 package org.openmrs.web.filter;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Wraps Response Stream for GZipFilter
+ * Wraps Response Stream for GZipFilter. <br>
+ * <br>
+ * Only the first bytes of the response, up to the minimum size to compress, are buffered. Once the
+ * response grows past them it is either compressed on the fly, if its content type is allowed, or
+ * passed through as is, so that large responses are never held in memory. The {@link Deflater}s
+ * are pooled across responses.
  * 
  * @author Matt Raible
  * @version $Revision: 1.3 $ $Date: 2004/05/16 02:17:00 $
  */
 public class GZIPResponseStream extends ServletOutputStream {
 	
-	// abstraction of the output stream used for compression
-	protected OutputStream bufferedOutput;
+	private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+	
+	private static final int DEFLATER_BUFFER_SIZE = 8192;
+	
+	private static final int MAX_POOLED_DEFLATERS = 32;
+	
+	private static final Queue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<>();
+	
+	private static final AtomicInteger pooledDeflaterCount = new AtomicInteger();
+	
+	private enum Mode {
+		BUFFERING, COMPRESSING, PASSING_THROUGH
+	}
 	
 	// state keeping variable for if close() has been called
 	protected boolean closed;
@@ -38,15 +59,61 @@ public class GZIPResponseStream extends ServletOutputStream {
 	// reference to the output stream to the client's browser
 	protected ServletOutputStream output;
 	
-	// default size of the in-memory buffer
-	private int bufferSize = 50000;
+	private final int minSize;
+	
+	private final int compressionLevel;
+	
+	private final Set<String> mimeTypes;
+	
+	private Mode mode = Mode.BUFFERING;
 	
+	// the start of the response, until it is known whether it gets compressed
+	private final byte[] buffer;
+	
+	private int count = 0;
+	
+	private long declaredContentLength = -1;
+	
+	private Deflater deflater;
+	
+	private DeflaterOutputStream compressedOutput;
+	
+	private final CRC32 crc = new CRC32();
+	
+	private long uncompressedSize = 0;
+	
+	/**
+	 * Creates a stream compressing every response
+	 */
 	public GZIPResponseStream(HttpServletResponse response) throws IOException {
+		this(response, 0, Deflater.DEFAULT_COMPRESSION, null);
+	}
+	
+	/**
+	 * @param response the response to write to
+	 * @param minSize the minimum size in bytes of the responses to compress
+	 * @param compressionLevel the {@link Deflater} compression level
+	 * @param mimeTypes the content types to compress, a type ending with /* matches all its
+	 *            subtypes, null to compress every type
+	 * @since 2.8.0
+	 */
+	public GZIPResponseStream(HttpServletResponse response, int minSize, int compressionLevel, Set<String> mimeTypes)
+	        throws IOException {
 		super();
 		closed = false;
 		this.response = response;
 		this.output = response.getOutputStream();
-		bufferedOutput = new ByteArrayOutputStream();
+		this.minSize = Math.max(minSize, 0);
+		this.compressionLevel = compressionLevel;
+		this.mimeTypes = mimeTypes;
+		this.buffer = new byte[this.minSize];
+	}
+	
+	/**
+	 * Sets the length declared by the application, passed on if the response is not compressed
+	 */
+	void setDeclaredContentLength(long declaredContentLength) {
+		this.declaredContentLength = declaredContentLength;
 	}
 	
 	@Override
@@ -55,42 +122,29 @@ public class GZIPResponseStream extends ServletOutputStream {
 		if (closed) {
 			throw new IOException("This output stream has already been closed");
 		}
+		closed = true;
 		
-		// if we buffered everything in memory, gzip it
-		if (bufferedOutput instanceof ByteArrayOutputStream) {
-			// get the content
-			ByteArrayOutputStream baos = (ByteArrayOutputStream) bufferedOutput;
-			
-			// prepare a gzip stream
-			ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
-			GZIPOutputStream gzipstream = new GZIPOutputStream(compressedContent);
-			byte[] bytes = baos.toByteArray();
-			gzipstream.write(bytes);
-			gzipstream.finish();
+		try {
+			if (mode == Mode.BUFFERING) {
+				// the whole response is known, empty or small responses are not worth compressing
+				if (count > 0 && count >= minSize && isCompressible()) {
+					startCompressing();
+				} else {
+					response.setContentLength(count);
+					mode = Mode.PASSING_THROUGH;
+				}
+				writeBuffer();
+			}
 			
-			// get the compressed content
-			byte[] compressedBytes = compressedContent.toByteArray();
+			if (mode == Mode.COMPRESSING) {
+				finishCompressing();
+			}
 			
-			// set appropriate HTTP headers
-			response.setContentLength(compressedBytes.length);
-			response.addHeader("Content-Encoding", "gzip");
-			output.write(compressedBytes);
 			output.flush();
 			output.close();
-			closed = true;
 		}
-		// if things were not buffered in memory, finish the GZIP stream and response
-		else if (bufferedOutput instanceof GZIPOutputStream) {
-			// cast to appropriate type
-			GZIPOutputStream gzipstream = (GZIPOutputStream) bufferedOutput;
-			
-			// finish the compression
-			gzipstream.finish();
-			
-			// finish the response
-			output.flush();
-			output.close();
-			closed = true;
+		finally {
+			releaseDeflater();
 		}
 	}
 	
@@ -100,61 +154,149 @@ public class GZIPResponseStream extends ServletOutputStream {
 			throw new IOException("Cannot flush a closed output stream");
 		}
 		
-		bufferedOutput.flush();
+		// the buffered start of the response is held until the compression is decided
+		if (mode == Mode.COMPRESSING) {
+			compressedOutput.flush();
+		} else if (mode == Mode.PASSING_THROUGH) {
+			output.flush();
+		}
 	}
 	
 	@Override
 	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+	
+	@Override
+	public void write(byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		
 		if (closed) {
 			throw new IOException("Cannot write to a closed output stream");
 		}
 		
-		// make sure we aren't over the buffer's limit
-		checkBufferSize(1);
+		if (mode == Mode.BUFFERING) {
+			if (count + len <= buffer.length) {
+				System.arraycopy(b, off, buffer, count, len);
+				count += len;
+				return;
+			}
+			
+			// the response is large enough to compress, the rest of it is streamed
+			if (isCompressible()) {
+				startCompressing();
+			} else {
+				if (declaredContentLength >= 0) {
+					response.setContentLengthLong(declaredContentLength);
+				}
+				mode = Mode.PASSING_THROUGH;
+			}
+			writeBuffer();
+		}
 		
-		// write the byte to the temporary output
-		bufferedOutput.write((byte) b);
+		if (mode == Mode.COMPRESSING) {
+			crc.update(b, off, len);
+			uncompressedSize += len;
+			compressedOutput.write(b, off, len);
+		} else {
+			output.write(b, off, len);
+		}
 	}
 	
-	private void checkBufferSize(int length) throws IOException {
-		// check if we are buffering too large of a file
-		if (bufferedOutput instanceof ByteArrayOutputStream) {
-			ByteArrayOutputStream baos = (ByteArrayOutputStream) bufferedOutput;
-			
-			if ((baos.size() + length) > bufferSize) {
-				// files too large to keep in memory are sent to the client without Content-Length specified
-				response.addHeader("Content-Encoding", "gzip");
-				
-				// get existing bytes
-				byte[] bytes = baos.toByteArray();
-				
-				// make new gzip stream using the response output stream
-				GZIPOutputStream gzipstream = new GZIPOutputStream(output);
-				gzipstream.write(bytes);
-				
-				// we are no longer buffering, send content via gzipstream
-				bufferedOutput = gzipstream;
+	private void writeBuffer() throws IOException {
+		if (count > 0) {
+			int length = count;
+			count = 0;
+			if (mode == Mode.COMPRESSING) {
+				crc.update(buffer, 0, length);
+				uncompressedSize += length;
+				compressedOutput.write(buffer, 0, length);
+			} else {
+				output.write(buffer, 0, length);
 			}
 		}
 	}
 	
-	@Override
-	public void write(byte[] b) throws IOException {
-		write(b, 0, b.length);
+	/**
+	 * Checks the response is not encoded already, has content and is of an allowed type
+	 */
+	private boolean isCompressible() {
+		int status = response.getStatus();
+		if (response.containsHeader("Content-Encoding") || status < HttpServletResponse.SC_OK
+		        || status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_PARTIAL_CONTENT
+		        || status == HttpServletResponse.SC_NOT_MODIFIED) {
+			return false;
+		}
+		if (mimeTypes == null) {
+			return true;
+		}
+		
+		String contentType = response.getContentType();
+		if (contentType == null) {
+			return false;
+		}
+		int parameters = contentType.indexOf(';');
+		String mimeType = (parameters < 0 ? contentType : contentType.substring(0, parameters)).trim().toLowerCase(
+		    Locale.ROOT);
+		int slash = mimeType.indexOf('/');
+		return mimeTypes.contains(mimeType) || (slash > 0 && mimeTypes.contains(mimeType.substring(0, slash) + "/*"));
 	}
 	
-	@Override
-	public void write(byte[] b, int off, int len) throws IOException {
+	private void startCompressing() throws IOException {
+		response.setHeader("Content-Encoding", "gzip");
+		response.addHeader("Vary", "Accept-Encoding");
 		
-		if (closed) {
-			throw new IOException("Cannot write to a closed output stream");
-		}
+		deflater = borrowDeflater(compressionLevel);
+		output.write(GZIP_HEADER);
+		compressedOutput = new DeflaterOutputStream(output, deflater, DEFLATER_BUFFER_SIZE);
+		mode = Mode.COMPRESSING;
+	}
+	
+	private void finishCompressing() throws IOException {
+		compressedOutput.finish();
 		
-		// make sure we aren't over the buffer's limit
-		checkBufferSize(len);
+		// the gzip trailer holds the crc and size of the uncompressed content, little endian
+		byte[] trailer = new byte[8];
+		writeInt(trailer, 0, (int) crc.getValue());
+		writeInt(trailer, 4, (int) uncompressedSize);
+		output.write(trailer);
+	}
+	
+	private static void writeInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >> 8);
+		bytes[offset + 2] = (byte) (value >> 16);
+		bytes[offset + 3] = (byte) (value >> 24);
+	}
+	
+	private static Deflater borrowDeflater(int level) {
+		Deflater pooled = DEFLATERS.poll();
+		if (pooled == null) {
+			return new Deflater(level, true);
+		}
+		pooledDeflaterCount.decrementAndGet();
+		pooled.setLevel(level);
+		return pooled;
+	}
+	
+	private void releaseDeflater() {
+		if (deflater == null) {
+			return;
+		}
+		Deflater released = deflater;
+		deflater = null;
 		
-		// write the content to the buffer
-		bufferedOutput.write(b, off, len);
+		released.reset();
+		if (pooledDeflaterCount.incrementAndGet() <= MAX_POOLED_DEFLATERS) {
+			DEFLATERS.offer(released);
+		} else {
+			pooledDeflaterCount.decrementAndGet();
+			released.end();
+		}
 	}
 	
 	public boolean closed() {
@@ -164,12 +306,12 @@ public class GZIPResponseStream extends ServletOutputStream {
 	public void reset() {
 		//noop
 	}
-
+	
 	@Override
 	public boolean isReady() {
 		throw new UnsupportedOperationException("Asynchonous operation is not supported.");
 	}
-
+	
 	@Override
 	public void setWriteListener(WriteListener writeListener) {
 		throw new UnsupportedOperationException("Asynchonous operation is not supported.");
@@ -12,6 +12,8 @@ package org.openmrs.web.filter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.Set;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
@@ -37,13 +39,38 @@ public class GZIPResponseWrapper extends HttpServletResponseWrapper {
 	
 	protected int error = 0;
 	
+	private final int minSize;
+	
+	private final int compressionLevel;
+	
+	private final Set<String> mimeTypes;
+	
+	private long contentLength = -1;
+	
 	public GZIPResponseWrapper(HttpServletResponse response) {
+		this(response, 0, Deflater.DEFAULT_COMPRESSION, null);
+	}
+	
+	/**
+	 * @param response the response to wrap
+	 * @param minSize the minimum size in bytes of the responses to compress
+	 * @param compressionLevel the {@link Deflater} compression level
+	 * @param mimeTypes the content types to compress, null to compress every type
+	 * @see GZIPResponseStream#GZIPResponseStream(HttpServletResponse, int, int, Set)
+	 * @since 2.8.0
+	 */
+	public GZIPResponseWrapper(HttpServletResponse response, int minSize, int compressionLevel, Set<String> mimeTypes) {
 		super(response);
 		origResponse = response;
+		this.minSize = minSize;
+		this.compressionLevel = compressionLevel;
+		this.mimeTypes = mimeTypes;
 	}
 	
 	public ServletOutputStream createOutputStream() throws IOException {
-		return new GZIPResponseStream(origResponse);
+		GZIPResponseStream responseStream = new GZIPResponseStream(origResponse, minSize, compressionLevel, mimeTypes);
+		responseStream.setDeclaredContentLength(contentLength);
+		return responseStream;
 	}
 	
 	public void finishResponse() {
@@ -115,10 +142,20 @@ public class GZIPResponseWrapper extends HttpServletResponseWrapper {
 	}
 	
 	public void setContentLength(int length) {
-		//Intentionally left blank to ignore whatever length the caller sets, because
+		//Intentionally not passed on to ignore whatever length the caller sets, because
 		//we are going to zip the response and hence end up with a smaller length.
-		//Without this empty method, the base class's setContentLength() method will be
+		//Without this method, the base class's setContentLength() method will be
 		//called, leading to the browser's waiting for more data than what we actually
 		//have for the compressed output, hence slowing down the response. TRUNK-5978
+		//The stream sets it if the response ends up not being compressed.
+		setContentLengthLong(length);
+	}
+	
+	@Override
+	public void setContentLengthLong(long length) {
+		contentLength = length;
+		if (stream instanceof GZIPResponseStream) {
+			((GZIPResponseStream) stream).setDeclaredContentLength(length);
+		}
 	}
 }
@@ -0,0 +1,203 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+
+public class ModuleResourcesServletTest {
+
+	@TempDir
+	public File tempDir;
+
+	private File file;
+
+	private byte[] content;
+
+	private ModuleResourcesServlet servlet;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		content = StringUtils.repeat("body { color: red; }\n", 100).getBytes(StandardCharsets.UTF_8);
+		file = new File(tempDir, "style.css");
+		Files.write(file.toPath(), content);
+
+		servlet = new ModuleResourcesServlet() {
+
+			@Override
+			protected File getFile(HttpServletRequest request) {
+				return file;
+			}
+		};
+		servlet.init(new MockServletConfig());
+	}
+
+	private MockHttpServletResponse get(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		servlet.service(request, response);
+		return response;
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#doGet(HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldServeTheFileWithAnEtag() throws Exception {
+		MockHttpServletResponse response = get(new MockHttpServletRequest("GET", "/style.css"));
+
+		assertEquals(200, response.getStatus());
+		assertArrayEquals(content, response.getContentAsByteArray());
+		assertEquals(content.length, response.getContentLengthLong());
+		assertTrue(response.getHeader("ETag").startsWith("\""));
+		assertEquals("bytes", response.getHeader("Accept-Ranges"));
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#doGet(HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldReturnNotModifiedIfTheEtagMatches() throws Exception {
+		String etag = get(new MockHttpServletRequest("GET", "/style.css")).getHeader("ETag");
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("If-None-Match", "\"other\", " + etag);
+		MockHttpServletResponse response = get(request);
+		assertEquals(304, response.getStatus());
+		assertEquals(0, response.getContentAsByteArray().length);
+
+		// the etag takes precedence over the modification date
+		request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("If-None-Match", "\"other\"");
+		request.addHeader("If-Modified-Since", file.lastModified() + 1000);
+		assertEquals(200, get(request).getStatus());
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#doGet(HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldServeTheRequestedByteRange() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("Range", "bytes=5-9");
+		MockHttpServletResponse response = get(request);
+
+		assertEquals(206, response.getStatus());
+		assertEquals("bytes 5-9/" + content.length, response.getHeader("Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(content, 5, 10), response.getContentAsByteArray());
+
+		request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("Range", "bytes=-4");
+		assertArrayEquals(Arrays.copyOfRange(content, content.length - 4, content.length),
+		    get(request).getContentAsByteArray());
+
+		request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("Range", "bytes=" + content.length + "-");
+		response = get(request);
+		assertEquals(416, response.getStatus());
+		assertEquals("bytes */" + content.length, response.getHeader("Content-Range"));
+
+		// a range on a changed representation gets the whole content
+		request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("Range", "bytes=5-9");
+		request.addHeader("If-Range", "\"other\"");
+		assertEquals(200, get(request).getStatus());
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#doGet(HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldServeThePrecompressedVariantIfAccepted() throws Exception {
+		ModuleResourcesServlet.writePrecompressedVariant(file);
+		File gzipFile = new File(file.getPath() + ModuleResourcesServlet.GZIP_SUFFIX);
+		assertTrue(gzipFile.exists());
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("Accept-Encoding", "deflate, gzip;q=0.8");
+		MockHttpServletResponse response = get(request);
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertArrayEquals(content,
+		    IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))));
+
+		request = new MockHttpServletRequest("GET", "/style.css");
+		request.addHeader("Accept-Encoding", "gzip;q=0");
+		response = get(request);
+		assertNull(response.getHeader("Content-Encoding"));
+		assertArrayEquals(content, response.getContentAsByteArray());
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#doGet(HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldServeTheNewContentOfAChangedFile() throws Exception {
+		String etag = get(new MockHttpServletRequest("GET", "/style.css")).getHeader("ETag");
+
+		byte[] newContent = "body { color: blue; }".getBytes(StandardCharsets.UTF_8);
+		Files.write(file.toPath(), newContent);
+		assertTrue(file.setLastModified(file.lastModified() + 2000));
+
+		MockHttpServletResponse response = get(new MockHttpServletRequest("GET", "/style.css"));
+		assertEquals(200, response.getStatus());
+		assertArrayEquals(newContent, response.getContentAsByteArray());
+		assertNotEquals(etag, response.getHeader("ETag"));
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#doGet(HttpServletRequest, javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldRespondNotFoundOnceTheFileIsDeleted() throws Exception {
+		assertEquals(200, get(new MockHttpServletRequest("GET", "/style.css")).getStatus());
+
+		assertTrue(file.delete());
+
+		assertEquals(404, get(new MockHttpServletRequest("GET", "/style.css")).getStatus());
+	}
+
+	/**
+	 * @see ModuleResourcesServlet#writePrecompressedVariant(File)
+	 */
+	@Test
+	public void writePrecompressedVariant_shouldSkipSmallOrIncompressibleFiles() throws Exception {
+		File small = new File(tempDir, "small.js");
+		Files.write(small.toPath(), "var a;".getBytes(StandardCharsets.UTF_8));
+		ModuleResourcesServlet.writePrecompressedVariant(small);
+		assertFalse(new File(small.getPath() + ModuleResourcesServlet.GZIP_SUFFIX).exists());
+
+		File image = new File(tempDir, "image.png");
+		Files.write(image.toPath(), content);
+		ModuleResourcesServlet.writePrecompressedVariant(image);
+		assertFalse(new File(image.getPath() + ModuleResourcesServlet.GZIP_SUFFIX).exists());
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.Filter;
+
+import org.junit.jupiter.api.Test;
+
+public class ModuleFilterDispatchTableTest {
+
+	private static ModuleFilterMapping mapping(String filterName, String... urlPatterns) {
+		ModuleFilterMapping mapping = new ModuleFilterMapping(null);
+		mapping.setFilterName(filterName);
+		for (String urlPattern : urlPatterns) {
+			mapping.addUrlPattern(urlPattern);
+		}
+		return mapping;
+	}
+
+	/**
+	 * @see ModuleFilterDispatchTable#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnTheSameFiltersAsMatchingEveryMapping() {
+		List<ModuleFilterMapping> mappings = Arrays.asList(mapping("all", "/*"), mapping("exact", "/admin/index.htm"),
+		    mapping("prefix", "/ws/rest/*"), mapping("extension", "*.form"), mapping("root", "/*.htm"),
+		    mapping("missing", "/*"), mapping("nested", "/ws/*", "*.json"));
+		ModuleFilterMapping servlet = mapping("servlet");
+		servlet.addServletName("/servlet");
+		mappings = new ArrayList<>(mappings);
+		mappings.add(servlet);
+
+		Map<String, Filter> filtersByName = new HashMap<>();
+		for (ModuleFilterMapping mapping : mappings) {
+			if (!"missing".equals(mapping.getFilterName())) {
+				filtersByName.put(mapping.getFilterName(), mock(Filter.class));
+			}
+		}
+
+		ModuleFilterDispatchTable table = new ModuleFilterDispatchTable(mappings, filtersByName);
+		for (String path : Arrays.asList("", "/", "/admin/index.htm", "/admin/index.htmx", "/ws", "/ws/", "/ws/rest",
+		    "/ws/rest/", "/ws/rest/v1/patient", "/ws/restful", "/patient.form", "/a.b/c", "/dir.form/c", "/file.",
+		    "/x.json", "/*.htm", "/servlet", "/servlet/")) {
+			List<Filter> expected = new ArrayList<>();
+			for (ModuleFilterMapping mapping : mappings) {
+				Filter filter = filtersByName.get(mapping.getFilterName());
+				if (filter != null && ModuleFilterMapping.filterMappingPasses(mapping, path)) {
+					expected.add(filter);
+				}
+			}
+			assertEquals(expected, table.getFilters(path), path);
+			assertEquals(expected, table.getFilters(path), path);
+		}
+	}
+
+	/**
+	 * @see ModuleFilterDispatchTable#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnFiltersInMappingOrder() {
+		Filter first = mock(Filter.class);
+		Filter second = mock(Filter.class);
+		Map<String, Filter> filtersByName = new HashMap<>();
+		filtersByName.put("first", first);
+		filtersByName.put("second", second);
+
+		ModuleFilterDispatchTable table = new ModuleFilterDispatchTable(
+		        Arrays.asList(mapping("second", "*.form"), mapping("first", "/*")), filtersByName);
+
+		assertEquals(Arrays.asList(second, first), table.getFilters("/patient.form"));
+		assertEquals(Arrays.asList(first), table.getFilters("/patient.htm"));
+	}
+
+	/**
+	 * @see ModuleFilterDispatchTable#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnAnEmptyListForANullPath() {
+		assertTrue(ModuleFilterDispatchTable.EMPTY.getFilters("/any").isEmpty());
+
+		Map<String, Filter> filtersByName = new HashMap<>();
+		filtersByName.put("all", mock(Filter.class));
+		ModuleFilterDispatchTable table = new ModuleFilterDispatchTable(Arrays.asList(mapping("all", "*")), filtersByName);
+		assertTrue(table.getFilters(null).isEmpty());
+		assertSame(table.getFilters("/a"), table.getFilters("/b"));
+	}
+}
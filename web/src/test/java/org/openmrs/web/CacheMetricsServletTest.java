@@ -0,0 +1,138 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.web;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Properties;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+import org.openmrs.api.cache.CacheMetrics;
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.api.context.Context;
+import org.openmrs.util.Security;
+import org.openmrs.web.test.BaseWebContextSensitiveTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests the {@link CacheMetricsServlet}
+ */
+public class CacheMetricsServletTest extends BaseWebContextSensitiveTest {
+
+	/**
+	 * @see CacheMetricsServlet#doGet(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldWriteTheMetricsInThePrometheusTextFormat() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		new CacheMetricsServlet().doGet(new MockHttpServletRequest("GET", "/metrics/cache"), response);
+
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		assertEquals(CacheMetricsServlet.CONTENT_TYPE, response.getContentType());
+		assertThat(response.getContentAsString(), containsString("# TYPE openmrs_cache_hits_total counter\n"));
+		assertThat(response.getContentAsString(), containsString("openmrs_hibernate_queries_total "));
+	}
+
+	/**
+	 * @see CacheMetricsServlet#doGet(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldRespondUnauthorizedIfNotAuthenticated() throws Exception {
+		Context.logout();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		new CacheMetricsServlet().doGet(new MockHttpServletRequest("GET", "/metrics/cache"), response);
+
+		assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+	}
+
+	/**
+	 * @see CacheMetricsServlet#doGet(javax.servlet.http.HttpServletRequest,
+	 *      javax.servlet.http.HttpServletResponse)
+	 */
+	@Test
+	public void doGet_shouldAcceptTheTokenOfTheRuntimePropertyInsteadOfALogin() throws Exception {
+		Properties runtimeProperties = Context.getRuntimeProperties();
+		try {
+			Properties props = new Properties();
+			props.putAll(runtimeProperties);
+			props.setProperty(CacheMetricsServlet.TOKEN_RUNTIME_PROPERTY, "secret");
+			Context.setRuntimeProperties(props);
+			Context.logout();
+
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/metrics/cache");
+			request.addHeader("Authorization", "Bearer secret");
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			new CacheMetricsServlet().doGet(request, response);
+			assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+			assertThat(response.getContentAsString(), containsString("openmrs_hibernate_queries_total "));
+
+			request = new MockHttpServletRequest("GET", "/metrics/cache");
+			request.addHeader("Authorization", "Bearer guess");
+			response = new MockHttpServletResponse();
+			new CacheMetricsServlet().doGet(request, response);
+			assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+		}
+		finally {
+			Context.setRuntimeProperties(runtimeProperties);
+		}
+	}
+
+	/**
+	 * @see CacheMetricsServlet#write(CacheMetrics, PrintWriter)
+	 */
+	@Test
+	public void write_shouldLabelTheSamplesAndEscapeTheLabelValues() {
+		String query = "from User where username = \"a\\b\"";
+		CacheMetrics metrics = new CacheMetrics(true,
+		        Collections.singletonList(new CacheMetrics.Region("hibernateCache", "org.openmrs.User", 3, 1, 2, 0, 0, 2)), 0,
+		        0, 0, 0, 0, 0, 0, 7, 0, 0, 0, 0, 0, 0,
+		        Collections.singletonList(new CacheMetrics.Query(query, 4, 4, 5, 250, 20)));
+		StringWriter out = new StringWriter();
+
+		CacheMetricsServlet.write(metrics, new PrintWriter(out));
+
+		assertThat(out.toString(),
+		    containsString("openmrs_cache_hits_total{cache_manager=\"hibernateCache\",cache=\"org.openmrs.User\"} 3\n"));
+		assertThat(out.toString(), containsString("openmrs_hibernate_queries_total 7\n"));
+		assertThat(out.toString(),
+		    containsString("openmrs_hibernate_slow_query_max_seconds{query_hash=\""
+		            + Security.encodeString(query).substring(0, 16)
+		            + "\",query=\"from User where username = \\\"a\\\\b\\\"\"} 0.25\n"));
+	}
+
+	/**
+	 * @see CacheMetricsServlet#write(CacheMetrics, PrintWriter)
+	 */
+	@Test
+	public void write_shouldShortenTheTextOfLongQueries() {
+		String query = "from Obs where " + StringUtils.repeat("concept.id = 1 or ", 20) + "concept.id = 2";
+		CacheMetrics metrics = new CacheMetrics(true, Collections.emptyList(), 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+		        Collections.singletonList(new CacheMetrics.Query(query, 1, 1, 1, 1, 1)));
+		StringWriter out = new StringWriter();
+
+		CacheMetricsServlet.write(metrics, new PrintWriter(out));
+
+		assertThat(out.toString(), containsString(",query=\"" + StringUtils.abbreviate(query, 100) + "\"}"));
+		assertThat(out.toString(), not(containsString(query)));
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.web.filter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class GZIPResponseStreamTest {
+
+	private static final Set<String> MIME_TYPES = new HashSet<>(Arrays.asList("application/json", "text/*"));
+
+	private static final byte[] LARGE_CONTENT = StringUtils.repeat("{\"uuid\":\"abc\"},", 500).getBytes(
+	    StandardCharsets.UTF_8);
+
+	private static byte[] gunzip(byte[] bytes) throws Exception {
+		return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	/**
+	 * @see GZIPResponseStream#write(byte[], int, int)
+	 */
+	@Test
+	public void write_shouldCompressResponsesOfAnAllowedTypeAboveTheMinimumSize() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("application/json;charset=UTF-8");
+		GZIPResponseWrapper wrapper = new GZIPResponseWrapper(response, 1024, 6, MIME_TYPES);
+
+		// written in small chunks to go through the threshold
+		for (int offset = 0; offset < LARGE_CONTENT.length; offset += 100) {
+			wrapper.getOutputStream().write(LARGE_CONTENT, offset, Math.min(100, LARGE_CONTENT.length - offset));
+		}
+		wrapper.finishResponse();
+
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertEquals("Accept-Encoding", response.getHeader("Vary"));
+		assertArrayEquals(LARGE_CONTENT, gunzip(response.getContentAsByteArray()));
+	}
+
+	/**
+	 * @see GZIPResponseStream#close()
+	 */
+	@Test
+	public void close_shouldNotCompressResponsesBelowTheMinimumSize() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("text/html");
+		GZIPResponseWrapper wrapper = new GZIPResponseWrapper(response, 1024, 6, MIME_TYPES);
+
+		PrintWriter writer = wrapper.getWriter();
+		writer.write("<p>small</p>");
+		wrapper.finishResponse();
+
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals("<p>small</p>", response.getContentAsString());
+		assertEquals(12, response.getContentLength());
+	}
+
+	/**
+	 * @see GZIPResponseStream#write(byte[], int, int)
+	 */
+	@Test
+	public void write_shouldPassThroughResponsesOfOtherTypes() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("image/png");
+		GZIPResponseWrapper wrapper = new GZIPResponseWrapper(response, 1024, 6, MIME_TYPES);
+		wrapper.setContentLength(LARGE_CONTENT.length);
+
+		wrapper.getOutputStream().write(LARGE_CONTENT);
+		wrapper.finishResponse();
+
+		assertNull(response.getHeader("Content-Encoding"));
+		assertArrayEquals(LARGE_CONTENT, response.getContentAsByteArray());
+		assertEquals(LARGE_CONTENT.length, response.getContentLength());
+	}
+
+	/**
+	 * @see GZIPResponseStream#close()
+	 */
+	@Test
+	public void close_shouldReuseDeflatersAcrossResponses() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			GZIPResponseWrapper wrapper = new GZIPResponseWrapper(response);
+			wrapper.getOutputStream().write(LARGE_CONTENT);
+			wrapper.finishResponse();
+
+			assertArrayEquals(LARGE_CONTENT, gunzip(response.getContentAsByteArray()));
+		}
+	}
+}
@@ -11,6 +11,7 @@ package org.openmrs.web.test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.openmrs.module.ModuleFactory.getLoadedModules;
 import static org.openmrs.module.ModuleFactory.getStartedModules;
@@ -19,6 +20,11 @@ import java.io.File;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.ServletContext;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -283,6 +289,50 @@ public class WebModuleActivatorTest extends BaseModuleActivatorTest {
 		assertThat(getStartedModules(), hasSize(5));
 	}
 	
+	@Test
+	public void shouldRefreshOnceOnInstallingSeveralModules() {
+		//first completely remove module2 and module3
+		ServletContext servletContext = ((XmlWebApplicationContext) applicationContext).getServletContext();
+		for (String moduleId : Arrays.asList(MODULE3_ID, MODULE2_ID)) {
+			Module module = ModuleFactory.getModuleById(moduleId);
+			ModuleFactory.stopModule(module);
+			WebModuleUtil.stopModule(module, servletContext);
+			ModuleFactory.unloadModule(module);
+		}
+		
+		init(); //to initialize for the condition below:
+		
+		createWebInfFolderIfNotExist();
+		
+		//When OpenMRS is running and you install several modules at once:
+		//	willRefreshContext() and contextRefreshed() methods get called once for all started modules' activators
+		//  willStart() and started() methods get called for ONLY the newly installed modules' activators
+		List<Module> modules = new ArrayList<>();
+		for (String path : Arrays.asList("org/openmrs/module/include/test2-1.0-SNAPSHOT.omod",
+		    "org/openmrs/module/include/test3-1.0-SNAPSHOT.omod")) {
+			URL url = OpenmrsClassLoader.getInstance().getResource(path);
+			Module module = ModuleFactory.loadModule(new File(url.getFile()));
+			ModuleFactory.startModule(module);
+			modules.add(module);
+		}
+		WebModuleUtil.startModules(modules, servletContext);
+		
+		assertTrue(ModuleFactory.isModuleStarted(modules.get(0)));
+		assertTrue(ModuleFactory.isModuleStarted(modules.get(1)));
+		
+		//a single refresh for both modules
+		assertEquals(1, moduleTestData.getWillRefreshContextCallCount(MODULE1_ID));
+		assertEquals(1, moduleTestData.getWillRefreshContextCallCount(MODULE2_ID));
+		assertEquals(1, moduleTestData.getWillRefreshContextCallCount(MODULE3_ID));
+		assertEquals(1, moduleTestData.getContextRefreshedCallCount(MODULE1_ID));
+		assertEquals(1, moduleTestData.getContextRefreshedCallCount(MODULE2_ID));
+		assertEquals(1, moduleTestData.getContextRefreshedCallCount(MODULE3_ID));
+		
+		assertEquals(0, moduleTestData.getStartedCallCount(MODULE1_ID));
+		assertEquals(1, moduleTestData.getStartedCallCount(MODULE2_ID));
+		assertEquals(1, moduleTestData.getStartedCallCount(MODULE3_ID));
+	}
+	
 	@BeforeEach
 	public void initializeInDatabase() throws Exception {
 		initializeInMemoryDatabase();